@@ -2,11 +2,16 @@ package app.lawnchair.baseline
 
 import androidx.benchmark.macro.BaselineProfileMode
 import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.ExperimentalMetricApi
+import androidx.benchmark.macro.MacrobenchmarkScope
 import androidx.benchmark.macro.StartupMode
 import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.TraceSectionMetric
 import androidx.benchmark.macro.junit4.MacrobenchmarkRule
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import java.io.File
 import org.junit.Rule
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -45,28 +50,58 @@ class StartupBenchmarks {
     fun startupCompilationBaselineProfiles() =
         benchmark(CompilationMode.Partial(BaselineProfileMode.Require))
 
+    @OptIn(ExperimentalMetricApi::class)
     private fun benchmark(compilationMode: CompilationMode) {
+        var iteration = 0
         rule.measureRepeated(
             packageName = Constants.PACKAGE_NAME,
-            metrics = listOf(StartupTimingMetric()),
+            metrics = listOf(
+                StartupTimingMetric(),
+                TraceSectionMetric("LoadWorkspace"),
+                TraceSectionMetric("LoadAllApps"),
+            ),
             compilationMode = compilationMode,
             startupMode = StartupMode.COLD,
             iterations = 10,
             setupBlock = {
+                // The timeline is only written when its log tag is enabled
+                device.executeShellCommand("setprop log.tag.StartupTimeline VERBOSE")
+                device.executeShellCommand("rm -f $TIMELINE_PATH")
                 pressHome()
             },
             measureBlock = {
                 startActivityAndWait()
 
-                // TODO Add interactions to wait for when your app is fully drawn.
-                // The app is fully drawn when Activity.reportFullyDrawn is called.
-                // For Jetpack Compose, you can use ReportDrawn, ReportDrawnWhen and ReportDrawnAfter
-                // from the AndroidX Activity library.
-
-                // Check the UiAutomator documentation for more information on how to
-                // interact with the app.
-                // https://d.android.com/training/testing/other-components/ui-automator
+                // The launcher calls Activity.reportFullyDrawn once the current workspace page is
+                // bound, and writes its startup timeline right after.
+                val timeline = awaitStartupTimeline()
+                val name = "${compilationMode.javaClass.simpleName}_${iteration++}"
+                saveStartupTimeline(name, timeline)
             },
         )
     }
+
+    private fun MacrobenchmarkScope.awaitStartupTimeline(): String {
+        repeat(TIMELINE_POLL_ATTEMPTS) {
+            val timeline = device.executeShellCommand("cat $TIMELINE_PATH")
+            if (timeline.startsWith("[")) return timeline
+            Thread.sleep(TIMELINE_POLL_INTERVAL_MS)
+        }
+        return ""
+    }
+
+    /** Stores the per-phase timeline next to the benchmark results so that it can be tracked. */
+    private fun saveStartupTimeline(name: String, timeline: String) {
+        if (timeline.isEmpty()) return
+        val outputDir = InstrumentationRegistry.getArguments().getString("additionalTestOutputDir")
+            ?: return
+        File(outputDir, "startup_timeline_$name.json").writeText(timeline)
+    }
+
+    companion object {
+        private val TIMELINE_PATH =
+            "/sdcard/Android/data/${Constants.PACKAGE_NAME}/files/startup_timeline.json"
+        private const val TIMELINE_POLL_ATTEMPTS = 50
+        private const val TIMELINE_POLL_INTERVAL_MS = 100L
+    }
 }
@@ -6,6 +6,8 @@ import android.content.Context
 import android.graphics.Bitmap
 import android.graphics.BitmapFactory
 import android.net.Uri
+import android.os.ParcelFileDescriptor
+import android.util.Log
 import androidx.core.graphics.drawable.toBitmap
 import app.lawnchair.LawnchairProto.BackupInfo
 import app.lawnchair.util.hasFlag
@@ -17,21 +19,26 @@ import com.android.launcher3.BuildConfig
 import com.android.launcher3.LauncherAppState
 import com.android.launcher3.LauncherFiles
 import com.android.launcher3.R
+import com.android.launcher3.Utilities
 import com.android.launcher3.model.DeviceGridState
 import com.android.launcher3.model.ModelDbController
 import com.android.launcher3.provider.RestoreDbTask
 import com.google.protobuf.Timestamp
+import java.io.ByteArrayOutputStream
 import java.io.File
 import java.io.FileInputStream
 import java.io.FileOutputStream
 import java.io.InputStream
 import java.text.SimpleDateFormat
 import java.util.Date
+import java.util.zip.CRC32
+import java.util.zip.Deflater
 import java.util.zip.ZipEntry
 import java.util.zip.ZipInputStream
 import java.util.zip.ZipOutputStream
 import kotlin.math.max
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
 import kotlinx.coroutines.withContext
 
 class LawnchairBackup(
@@ -45,12 +52,28 @@ class LawnchairBackup(
     suspend fun readInfoAndPreview() {
         var tmpScreenshot: Bitmap? = null
         var tmpWallpaper: Bitmap? = null
+        val decodeScreenshot: suspend (InputStream) -> Unit = {
+            tmpScreenshot = BitmapFactory.decodeStream(it)
+        }
+        val decodeWallpaper: suspend (InputStream) -> Unit = {
+            tmpWallpaper = BitmapFactory.decodeStream(it)
+        }
         readZip(
-            mapOf(
+            mapOf<String, suspend (InputStream) -> Unit>(
                 INFO_FILE_NAME to { info = BackupInfo.newBuilder().mergeFrom(it).build() },
-                SCREENSHOT_FILE_NAME to { tmpScreenshot = BitmapFactory.decodeStream(it) },
-                WALLPAPER_FILE_NAME to { tmpWallpaper = BitmapFactory.decodeStream(it) },
+                SCREENSHOT_FILE_NAME to decodeScreenshot,
+                SCREENSHOT_PREVIEW_FILE_NAME to decodeScreenshot,
+                WALLPAPER_PREVIEW_FILE_NAME to decodeWallpaper,
+                // Older backups only have the full wallpaper, at the end of the zip
+                WALLPAPER_FILE_NAME to decodeWallpaper,
             ),
+            // Newer backups start with a header holding the info and the previews, which is all
+            // the picker needs
+            isPastHeader = { name ->
+                ::info.isInitialized &&
+                    info.backupVersion >= HEADER_BACKUP_VERSION &&
+                    name !in HEADER_FILE_NAMES
+            },
         )
         val size = max(info.previewWidth, info.previewHeight).coerceAtMost(4000)
         screenshot = tmpScreenshot?.scaleDownTo(size)
@@ -66,16 +89,19 @@ class LawnchairBackup(
                     {
                         val file = entry.value
                         file.parentFile?.mkdirs()
-                        it.copyTo(file.outputStream())
+                        file.outputStream().use { out -> it.copyTo(out, COPY_BUFFER_SIZE) }
                     }
                 },
             )
         }
         if (contents.hasFlag(INCLUDE_WALLPAPER)) {
-            handlers[WALLPAPER_FILE_NAME] = {
-                val wallpaperManager = WallpaperManager.getInstance(context)
-                wallpaperManager.setBitmap(BitmapFactory.decodeStream(it))
+            // The wallpaper is still encoded, let the system decode it instead of holding the
+            // full size bitmap here
+            val setWallpaper: suspend (InputStream) -> Unit = {
+                WallpaperManager.getInstance(context).setStream(it)
             }
+            handlers[WALLPAPER_FILE_NAME] = setWallpaper
+            handlers[WALLPAPER_DATA_FILE_NAME] = setWallpaper
         }
         context.getDatabasePath(LAUNCHER_DB_FILE_NAME).parentFile?.deleteRecursively()
         DeviceGridState(info.gridState).writeToPrefs(context, true)
@@ -85,16 +111,25 @@ class LawnchairBackup(
         RestoreDbTask.performRestore(context, dbController)
     }
 
-    private suspend fun readZip(handlers: Map<String, suspend (InputStream) -> Unit>) {
+    /**
+     * Passes the entries of the backup to their handlers, in the order of the zip.
+     *
+     * @param isPastHeader returns true for the first entry which does not need to be read,
+     * stopping the read there
+     */
+    private suspend fun readZip(
+        handlers: Map<String, suspend (InputStream) -> Unit>,
+        isPastHeader: (String) -> Boolean = { false },
+    ) {
         withContext(Dispatchers.IO) {
             val pfd = context.contentResolver.openFileDescriptor(uri, "r")!!
             pfd.use {
-                FileInputStream(it.fileDescriptor).use { inStream ->
+                FileInputStream(it.fileDescriptor).buffered().use { inStream ->
                     ZipInputStream(inStream).use { zipIs ->
                         var entry: ZipEntry?
                         while (true) {
                             entry = zipIs.nextEntry
-                            if (entry == null) break
+                            if (entry == null || isPastHeader(entry.name)) break
                             handlers[entry.name]?.invoke(zipIs)
                         }
                     }
@@ -104,14 +139,36 @@ class LawnchairBackup(
     }
 
     companion object {
-        private const val BACKUP_VERSION = 1
+        private const val TAG = "LawnchairBackup"
+        private const val BACKUP_VERSION = 2
+
+        // First version starting with a header of the info and the previews
+        private const val HEADER_BACKUP_VERSION = 2
         private const val PREFS_FILE_NAME = "${LauncherFiles.SHARED_PREFERENCES_KEY}.xml"
         private const val PREFS_DB_FILE_NAME = "preferences"
         private const val PREFS_DATASTORE_FILE_NAME = "preferences.preferences_pb"
 
         const val INFO_FILE_NAME = "info.pb"
+        const val SCREENSHOT_PREVIEW_FILE_NAME = "screenshot.webp"
+        const val WALLPAPER_PREVIEW_FILE_NAME = "wallpaper_preview.webp"
+
+        // The wallpaper as the system stored it, or WebP if its file can't be read
+        const val WALLPAPER_DATA_FILE_NAME = "wallpaper"
+
+        // Entries of backups older than HEADER_BACKUP_VERSION, still read on restore
         const val WALLPAPER_FILE_NAME = "wallpaper.png"
         const val SCREENSHOT_FILE_NAME = "screenshot.png"
+
+        private val HEADER_FILE_NAMES =
+            setOf(INFO_FILE_NAME, SCREENSHOT_PREVIEW_FILE_NAME, WALLPAPER_PREVIEW_FILE_NAME)
+
+        private const val PREVIEW_QUALITY = 90
+        private const val WALLPAPER_QUALITY = 95
+        private const val COPY_BUFFER_SIZE = 64 * 1024
+
+        @Suppress("DEPRECATION")
+        private val WEBP_FORMAT =
+            if (Utilities.ATLEAST_R) Bitmap.CompressFormat.WEBP_LOSSY else Bitmap.CompressFormat.WEBP
         const val LAUNCHER_DB_FILE_NAME = "launcher.db"
         const val RESTORED_DB_FILE_NAME = "restored.db"
 
@@ -160,34 +217,88 @@ class LawnchairBackup(
 
             val pfd = context.contentResolver.openFileDescriptor(fileUri, "w")!!
             withContext(Dispatchers.IO) {
+                // Encoding the images is the slow part, start it before writing the zip. The
+                // entries are still written in order: header first, then the data.
+                val screenshot = if (contents.hasFlag(INCLUDE_LAYOUT_AND_SETTINGS)) {
+                    async(Dispatchers.Default) { screenshotBitmap.encodeWebp(PREVIEW_QUALITY) }
+                } else {
+                    null
+                }
+                val wallpaperBitmap = if (contents.hasFlag(INCLUDE_WALLPAPER)) {
+                    async { WallpaperManager.getInstance(context).drawable?.toBitmap() }
+                } else {
+                    null
+                }
+                val wallpaperPreview = wallpaperBitmap?.let {
+                    async(Dispatchers.Default) {
+                        it.await()
+                            ?.scaleDownToDisplaySize(context, keepOriginal = true)
+                            ?.encodeWebp(PREVIEW_QUALITY)
+                    }
+                }
+                val wallpaperData = wallpaperBitmap?.let {
+                    async {
+                        readWallpaperFile(context)
+                            ?: it.await()?.encodeWebp(WALLPAPER_QUALITY)
+                    }
+                }
+
                 pfd.use {
                     ZipOutputStream(FileOutputStream(pfd.fileDescriptor).buffered()).use { out ->
-                        out.putNextEntry(ZipEntry(INFO_FILE_NAME))
-                        info.writeTo(out)
-
-                        if (contents.hasFlag(INCLUDE_WALLPAPER)) {
-                            val wallpaperManager = WallpaperManager.getInstance(context)
-                            val wallpaperBitmap = wallpaperManager.drawable?.toBitmap()
-                            if (wallpaperBitmap != null) {
-                                out.putNextEntry(ZipEntry(WALLPAPER_FILE_NAME))
-                                wallpaperBitmap.compress(Bitmap.CompressFormat.PNG, 100, out)
-                            }
+                        out.setLevel(Deflater.BEST_SPEED)
+                        out.putStoredEntry(INFO_FILE_NAME, info.toByteArray())
+                        screenshot?.await()?.let {
+                            out.putStoredEntry(SCREENSHOT_PREVIEW_FILE_NAME, it)
                         }
-                        if (contents.hasFlag(INCLUDE_LAYOUT_AND_SETTINGS)) {
-                            out.putNextEntry(ZipEntry(SCREENSHOT_FILE_NAME))
-                            screenshotBitmap.compress(Bitmap.CompressFormat.PNG, 85, out)
+                        wallpaperPreview?.await()?.let {
+                            out.putStoredEntry(WALLPAPER_PREVIEW_FILE_NAME, it)
                         }
 
                         getFiles(context, forRestore = false).entries.forEach {
                             if (!it.value.exists()) return@forEach
                             out.putNextEntry(ZipEntry(it.key))
-                            it.value.inputStream().copyTo(out)
+                            it.value.inputStream().use { input -> input.copyTo(out, COPY_BUFFER_SIZE) }
+                        }
+
+                        // Images are compressed already, deflating them again would only cost time
+                        wallpaperData?.await()?.let {
+                            out.putStoredEntry(WALLPAPER_DATA_FILE_NAME, it)
                         }
                     }
                 }
             }
         }
 
+        /**
+         * Returns the encoded system wallpaper as stored by the system, or null if it can't be
+         * read (e.g. for a live wallpaper or without the permission).
+         */
+        @SuppressLint("MissingPermission")
+        private fun readWallpaperFile(context: Context): ByteArray? = try {
+            WallpaperManager.getInstance(context)
+                .getWallpaperFile(WallpaperManager.FLAG_SYSTEM)
+                ?.use { ParcelFileDescriptor.AutoCloseInputStream(it).readBytes() }
+        } catch (e: Exception) {
+            Log.w(TAG, "Unable to read the wallpaper file, encoding it instead", e)
+            null
+        }
+
+        private fun Bitmap.encodeWebp(quality: Int): ByteArray =
+            ByteArrayOutputStream().also { compress(WEBP_FORMAT, quality, it) }.toByteArray()
+
+        /** Adds an uncompressed entry, which needs its size and checksum upfront. */
+        private fun ZipOutputStream.putStoredEntry(name: String, bytes: ByteArray) {
+            val entry = ZipEntry(name).apply {
+                method = ZipEntry.STORED
+                size = bytes.size.toLong()
+                compressedSize = bytes.size.toLong()
+                crc = CRC32().apply { update(bytes) }.value
+            }
+            putNextEntry(entry)
+            write(bytes)
+            closeEntry()
+        }
+
         private fun launcherDbFile(context: Context, forRestore: Boolean): File {
             val dbName = if (forRestore) RESTORED_DB_FILE_NAME else LauncherAppState.getIDP(context).dbFile
             return context.getDatabasePath(dbName)
@@ -1,13 +1,15 @@
 ﻿package app.lawnchair.data.wallpaper
 
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 
-@Entity(tableName = "Wallpapers")
+@Entity(tableName = "Wallpapers", indices = [Index(value = ["checksum"])])
 data class Wallpaper(
     @PrimaryKey(autoGenerate = true) val id: Long = 0,
     val imagePath: String,
     val rank: Int,
     val timestamp: Long,
     val checksum: String? = null,
+    val thumbnailPath: String? = null,
 )
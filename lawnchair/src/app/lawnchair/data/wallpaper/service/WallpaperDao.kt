@@ -4,6 +4,7 @@ import androidx.room.Dao
 import androidx.room.Insert
 import androidx.room.Query
 import androidx.room.RawQuery
+import androidx.room.Transaction
 import androidx.sqlite.db.SupportSQLiteQuery
 import app.lawnchair.data.wallpaper.Wallpaper
 
@@ -24,6 +25,40 @@ interface WallpaperDao {
     @Query("DELETE FROM wallpapers WHERE id = :id")
     suspend fun deleteWallpaper(id: Long)
 
+    @Query("SELECT * FROM wallpapers WHERE checksum = :checksum LIMIT 1")
+    suspend fun findByChecksum(checksum: String): Wallpaper?
+
+    @Query("SELECT COUNT(*) FROM wallpapers")
+    suspend fun count(): Int
+
+    @Query("SELECT * FROM wallpapers ORDER BY timestamp ASC LIMIT 1")
+    suspend fun getOldestWallpaper(): Wallpaper?
+
+    @Query("UPDATE wallpapers SET rank = rank + 1 WHERE rank < (SELECT rank FROM wallpapers WHERE id = :id)")
+    suspend fun shiftRanksBefore(id: Long)
+
+    /**
+     * Adds [wallpaper] in front of the history, evicting the oldest wallpaper once the history
+     * holds [maxCount] of them.
+     *
+     * @return the evicted wallpaper, whose files need to be deleted
+     */
+    @Transaction
+    suspend fun insertFirst(wallpaper: Wallpaper, maxCount: Int): Wallpaper? {
+        val evicted = if (count() >= maxCount) getOldestWallpaper() else null
+        evicted?.let { deleteWallpaper(it.id) }
+        updateRank(0)
+        insert(wallpaper.copy(rank = 0))
+        return evicted
+    }
+
+    /** Moves the wallpaper with the given [id] in front of the history. */
+    @Transaction
+    suspend fun moveToFirst(id: Long, timestamp: Long) {
+        shiftRanksBefore(id)
+        updateWallpaper(id, rank = 0, timestamp = timestamp)
+    }
+
     @RawQuery
     suspend fun checkpoint(supportSQLiteQuery: SupportSQLiteQuery): Int
 }
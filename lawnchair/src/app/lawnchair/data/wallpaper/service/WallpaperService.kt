@@ -2,12 +2,12 @@
 
 import android.app.WallpaperManager
 import android.content.Context
+import android.graphics.Bitmap
 import android.graphics.drawable.BitmapDrawable
 import android.util.Log
-import androidx.core.graphics.drawable.toBitmap
 import app.lawnchair.data.AppDatabase
 import app.lawnchair.data.wallpaper.Wallpaper
-import app.lawnchair.util.bitmapToByteArray
+import app.lawnchair.util.scaleDownTo
 import com.android.launcher3.dagger.ApplicationContext
 import com.android.launcher3.dagger.LauncherAppComponent
 import com.android.launcher3.dagger.LauncherAppSingleton
@@ -15,6 +15,7 @@ import com.android.launcher3.util.DaggerSingletonObject
 import com.android.launcher3.util.SafeCloseable
 import java.io.File
 import java.io.FileOutputStream
+import java.nio.ByteBuffer
 import java.security.MessageDigest
 import javax.inject.Inject
 import kotlinx.coroutines.runBlocking
@@ -29,77 +30,65 @@ class WallpaperService @Inject constructor(
     suspend fun saveWallpaper(wallpaperManager: WallpaperManager) {
         try {
             val wallpaperDrawable = wallpaperManager.drawable
-            val currentBitmap = (wallpaperDrawable as BitmapDrawable).toBitmap()
+            // The drawable's own bitmap, only read from here on
+            val currentBitmap = (wallpaperDrawable as BitmapDrawable).bitmap
 
-            val byteArray = bitmapToByteArray(currentBitmap)
-
-            saveWallpaper(byteArray)
+            saveWallpaper(currentBitmap, maxStoredSize(wallpaperManager))
         } catch (e: Exception) {
             Log.e("WallpaperChange", "Error detecting wallpaper change: ${e.message}")
         }
     }
 
-    private fun calculateChecksum(imageData: ByteArray): String {
+    /**
+     * Returns a checksum of the wallpaper sampled down to [HASH_SAMPLE_SIZE] pixels a side, which
+     * identifies it without encoding or hashing the full resolution pixels.
+     */
+    private fun calculateChecksum(bitmap: Bitmap): String {
+        val sample = Bitmap.createScaledBitmap(bitmap, HASH_SAMPLE_SIZE, HASH_SAMPLE_SIZE, true)
+        val pixels = IntArray(HASH_SAMPLE_SIZE * HASH_SAMPLE_SIZE)
+        sample.getPixels(pixels, 0, HASH_SAMPLE_SIZE, 0, 0, HASH_SAMPLE_SIZE, HASH_SAMPLE_SIZE)
+        if (sample !== bitmap) {
+            sample.recycle()
+        }
+
+        // Wallpapers of different sizes may sample the same, e.g. solid colors
+        val buffer = ByteBuffer.allocate((pixels.size + 2) * Int.SIZE_BYTES)
+            .putInt(bitmap.width)
+            .putInt(bitmap.height)
+        buffer.asIntBuffer().put(pixels)
         return MessageDigest.getInstance("MD5")
-            .digest(imageData)
+            .digest(buffer.array())
             .joinToString("") { "%02x".format(it) }
     }
 
-    private suspend fun saveWallpaper(imageData: ByteArray) {
+    private suspend fun saveWallpaper(bitmap: Bitmap, maxSize: Int) {
         val timestamp = System.currentTimeMillis()
 
-        val checksum = calculateChecksum(imageData)
+        val checksum = calculateChecksum(bitmap)
 
-        val existingWallpapers = dao.getTopWallpapers()
-
-        if (existingWallpapers.any { it.checksum == checksum }) {
+        if (dao.findByChecksum(checksum) != null) {
             Log.d("WallpaperService", "Wallpaper already exists with checksum: $checksum")
             return
         }
-        val imagePath = saveImageToAppStorage(imageData)
-        if (existingWallpapers.size < 4) {
-            val wallpaper = Wallpaper(
-                imagePath = imagePath,
-                rank = existingWallpapers.size,
-                timestamp = timestamp,
-                checksum = checksum,
-            )
-            dao.insert(wallpaper)
-        } else {
-            val lowestRankedWallpaper = existingWallpapers.minByOrNull { it.timestamp }
-
-            if (lowestRankedWallpaper != null) {
-                dao.deleteWallpaper(lowestRankedWallpaper.id)
-                deleteWallpaperFile(lowestRankedWallpaper.imagePath)
-            }
-
-            for (wallpaper in existingWallpapers) {
-                if (wallpaper.rank >= (lowestRankedWallpaper?.rank ?: 0)) {
-                    dao.updateRank(wallpaper.rank)
-                }
-            }
-
-            val wallpaper = Wallpaper(
-                imagePath = imagePath,
-                rank = 0,
-                timestamp = timestamp,
-                checksum = checksum,
-            )
-            dao.insert(wallpaper)
+        val imagePath = saveImageToAppStorage(bitmap, checksum, maxSize, IMAGE_SUFFIX)
+        val thumbnailPath =
+            saveImageToAppStorage(bitmap, checksum, THUMBNAIL_SIZE, THUMBNAIL_SUFFIX)
+
+        val wallpaper = Wallpaper(
+            imagePath = imagePath,
+            rank = 0,
+            timestamp = timestamp,
+            checksum = checksum,
+            thumbnailPath = thumbnailPath,
+        )
+        dao.insertFirst(wallpaper, MAX_WALLPAPERS)?.let { evicted ->
+            deleteWallpaperFile(evicted.imagePath)
+            evicted.thumbnailPath?.let(::deleteWallpaperFile)
         }
     }
 
     suspend fun updateWallpaperRank(selectedWallpaper: Wallpaper) {
-        val topWallpapers = dao.getTopWallpapers()
-        val currentTime = System.currentTimeMillis()
-
-        dao.updateWallpaper(selectedWallpaper.id, rank = 0, timestamp = currentTime)
-
-        for (wallpaper in topWallpapers) {
-            if (wallpaper.id != selectedWallpaper.id) {
-                dao.updateRank(wallpaper.rank)
-            }
-        }
+        dao.moveToFirst(selectedWallpaper.id, timestamp = System.currentTimeMillis())
     }
 
     fun getTopWallpapers(): List<Wallpaper> = runBlocking {
@@ -114,28 +103,60 @@ class WallpaperService @Inject constructor(
         }
     }
 
-    private fun saveImageToAppStorage(imageData: ByteArray): String {
+    /**
+     * Stores [bitmap] scaled down to [maxSize] pixels a side, encoding it straight to its file.
+     */
+    private fun saveImageToAppStorage(
+        bitmap: Bitmap,
+        checksum: String,
+        maxSize: Int,
+        suffix: String,
+    ): String {
         val storageDir = File(context.filesDir, "wallpapers")
         if (!storageDir.exists()) {
             storageDir.mkdirs()
         }
 
-        val imageHash = imageData.hashCode().toString()
-        val imageFile = File(storageDir, "wallpaper_$imageHash.jpg")
+        val imageFile = File(storageDir, "wallpaper_$checksum$suffix")
 
         if (!imageFile.exists()) {
-            FileOutputStream(imageFile).use { fos ->
-                fos.write(imageData)
+            val scaled = bitmap.scaleDownTo(maxSize, keepOriginal = true)
+            try {
+                FileOutputStream(imageFile).buffered().use { out ->
+                    scaled.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)
+                }
+            } finally {
+                if (scaled !== bitmap) {
+                    scaled.recycle()
+                }
             }
         }
 
         return imageFile.absolutePath
     }
 
+    /** Stored wallpapers only need to cover the area the system draws the wallpaper in. */
+    private fun maxStoredSize(wallpaperManager: WallpaperManager): Int {
+        val metrics = context.resources.displayMetrics
+        return maxOf(
+            wallpaperManager.desiredMinimumWidth,
+            wallpaperManager.desiredMinimumHeight,
+            metrics.widthPixels,
+            metrics.heightPixels,
+        )
+    }
+
     override fun close() {
         TODO("Not yet implemented")
     }
     companion object {
+        private const val MAX_WALLPAPERS = 4
+        private const val HASH_SAMPLE_SIZE = 32
+        private const val THUMBNAIL_SIZE = 512
+        private const val JPEG_QUALITY = 90
+        private const val IMAGE_SUFFIX = ".jpg"
+        private const val THUMBNAIL_SUFFIX = "_thumb.jpg"
+
         @JvmField
         val INSTANCE = DaggerSingletonObject(LauncherAppComponent::getWallpaperService)
     }
@@ -17,11 +17,11 @@ import com.android.launcher3.util.IntArray
 import com.android.launcher3.util.PackageManagerHelper
 
 /**
- * Custom model task to add folders with their items to the workspace.
- * This properly handles adding folders and then adding items to those folders.
+ * Model task adding the deck layout to the workspace: folders with their items and single apps.
+ * Everything is placed at once and written in a single ModelWriter transaction.
  */
-class AddFoldersWithItemsTask(
-    private val folders: List<FolderInfo>,
+class AddDeckItemsTask(
+    private val items: List<ItemInfo>,
     private val onComplete: (() -> Unit)? = null,
 ) : LauncherModel.ModelUpdateTask {
 
@@ -36,69 +36,47 @@ class AddFoldersWithItemsTask(
         val model = LauncherAppState.getInstance(context).model
         val itemSpaceFinder = WorkspaceItemSpaceFinder(dataModel, idp, model)
 
-        if (folders.isEmpty()) {
-            return
-        }
-
         val addedItemsFinal = ArrayList<ItemInfo>()
         val addedWorkspaceScreensFinal = IntArray()
 
         synchronized(dataModel) {
             val workspaceScreens = dataModel.itemsIdMap.collectWorkspaceScreens(context)
-            val modelWriter = taskController.getModelWriter()
 
-            folders.forEach { folderInfo ->
-                // Find space for the folder
+            items.forEach { item ->
+                if (item is FolderInfo) {
+                    // Skip the apps which are already on the workspace
+                    item.getContents().removeIf {
+                        it is WorkspaceItemInfo && shortcutExists(dataModel, it.intent, it.user)
+                    }
+                    if (item.getContents().isEmpty()) return@forEach
+                    item.getContents().forEachIndexed { index, content ->
+                        content.rank = index
+                        content.cellX = index % 4
+                        content.cellY = index / 4
+                    }
+                } else if (shortcutExists(dataModel, item.intent, item.user)) {
+                    return@forEach
+                }
+
                 val coords = itemSpaceFinder.findSpaceForItem(
                     workspaceScreens,
                     addedWorkspaceScreensFinal,
                     addedItemsFinal,
-                    folderInfo.spanX,
-                    folderInfo.spanY,
+                    item.spanX,
+                    item.spanY,
                     context,
                 )
-                val screenId = coords[0]
-                val cellX = coords[1]
-                val cellY = coords[2]
-
-                // Add folder to database
-                modelWriter.addItemToDatabase(
-                    folderInfo,
-                    LauncherSettings.Favorites.CONTAINER_DESKTOP,
-                    screenId,
-                    cellX,
-                    cellY,
-                )
-
-                // Now add items to the folder
-                // Items need to be added with proper rank/position
-                folderInfo.getContents().forEachIndexed { index, item ->
-                    if (item is WorkspaceItemInfo) {
-                        // Check if item already exists on workspace
-                        if (shortcutExists(dataModel, item.intent, item.user)) {
-                            return@forEachIndexed
-                        }
-
-                        // Add item to folder using folder's ID as container
-                        // Use rank as position - folder will arrange items
-                        modelWriter.addOrMoveItemInDatabase(
-                            item,
-                            folderInfo.id,
-                            0, // screenId is 0 for items in folders
-                            index % 4, // cellX - approximate grid position
-                            index / 4, // cellY - approximate grid position
-                        )
-                    }
-                }
-
-                addedItemsFinal.add(folderInfo)
+                item.container = LauncherSettings.Favorites.CONTAINER_DESKTOP
+                item.screenId = coords[0]
+                item.cellX = coords[1]
+                item.cellY = coords[2]
+                addedItemsFinal.add(item)
             }
         }
 
-        // Schedule callback to bind items
         if (addedItemsFinal.isNotEmpty()) {
+            taskController.getModelWriter().addItemsWithContentsToDatabase(addedItemsFinal)
             taskController.scheduleCallbackTask { callbacks ->
-
                 callbacks.bindItemsAdded(addedItemsFinal)
 
                 // Notify completion after items are bound
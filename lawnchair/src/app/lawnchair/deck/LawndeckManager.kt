@@ -7,21 +7,15 @@ import app.lawnchair.flowerpot.Flowerpot
 import app.lawnchair.launcher
 import app.lawnchair.launcherNullable
 import app.lawnchair.util.categorizeAppsWithSystemAndGoogle
-import app.lawnchair.util.restartLauncher
 import com.android.launcher3.InvariantDeviceProfile
 import com.android.launcher3.LauncherAppState
-import com.android.launcher3.LauncherSettings
 import com.android.launcher3.model.ItemInstallQueue
-import com.android.launcher3.model.ModelDbController
 import com.android.launcher3.model.data.AppInfo
 import com.android.launcher3.model.data.FolderInfo
-import com.android.launcher3.model.data.WorkspaceItemInfo
-import com.android.launcher3.provider.RestoreDbTask
 import com.android.launcher3.util.ApplicationInfoWrapper
-import com.android.launcher3.util.ComponentKey
-import com.android.launcher3.util.PackageManagerHelper
+import com.android.launcher3.util.Executors.MAIN_EXECUTOR
+import com.android.launcher3.util.Executors.MODEL_EXECUTOR
 import java.io.File
-import java.util.Locale
 import kotlinx.coroutines.CompletableDeferred
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
@@ -32,72 +26,81 @@ class LawndeckManager(private val context: Context) {
 
     private val launcher = context.launcherNullable ?: LawnchairLauncher.instance?.launcher
 
+    private val model get() = LauncherAppState.getInstance(context).model
+
+    /**
+     * Switches to the deck layout. The current layout is saved as the classic profile, and the
+     * deck profile is restored if there is one. Otherwise, all apps are added to the workspace.
+     */
     suspend fun enableLawndeck(
         onProgress: ((String) -> Unit)? = null,
     ) = withContext(Dispatchers.IO) {
-        val completionDeferred = CompletableDeferred<Unit>()
+        onProgress?.invoke("Switching layout...")
+        if (switchLayoutProfile(from = PROFILE_CLASSIC, to = PROFILE_DECK)) {
+            return@withContext
+        }
 
-        if (!backupExists("bk")) createBackup("bk")
-        if (backupExists("lawndeck")) {
-            onProgress?.invoke("Restoring previous layout...")
-            restoreBackup("lawndeck")
+        val completionDeferred = CompletableDeferred<Unit>()
+        addAllAppsToWorkspace(onProgress) {
             completionDeferred.complete(Unit)
-        } else {
-            onProgress?.invoke("Categorizing apps...")
-            addAllAppsToWorkspace(onProgress) {
-                completionDeferred.complete(Unit)
-            }
         }
-
         completionDeferred.await()
     }
 
+    /**
+     * Switches back to the classic layout, saving the deck layout so that it can be restored
+     * when the deck is enabled again.
+     */
     suspend fun disableLawndeck() = withContext(Dispatchers.IO) {
-        if (backupExists("bk")) {
-            createBackup("lawndeck")
-            restoreBackup("bk")
-        }
+        switchLayoutProfile(from = PROFILE_DECK, to = PROFILE_CLASSIC)
     }
 
-    private fun createBackup(suffix: String) = runCatching {
-        getDatabaseFiles(suffix).apply {
-            db.copyTo(backupDb, overwrite = true)
-            if (journal.exists()) journal.copyTo(backupJournal, overwrite = true)
-        }
-    }.onFailure { Log.e("LawndeckManager", "Failed to create backup: $suffix", it) }
-
-    private fun restoreBackup(suffix: String) = runCatching {
-        getDatabaseFiles(suffix).apply {
-            backupDb.copyTo(db, overwrite = true)
-            if (backupJournal.exists()) backupJournal.copyTo(journal, overwrite = true)
+    /**
+     * Saves the current layout as the [from] profile and replaces it with the [to] profile, then
+     * reloads the model in place.
+     *
+     * @return false if there is no [to] profile, in which case the current layout is kept
+     */
+    private fun switchLayoutProfile(from: String, to: String): Boolean {
+        val model = this.model
+        val restored = runCatching {
+            MODEL_EXECUTOR.submit<Boolean> {
+                importLegacyBackups()
+                model.modelDbController.saveLayoutProfile(from)
+                model.modelDbController.restoreLayoutProfile(to)
+            }.get()
+        }.onFailure { Log.e(TAG, "Failed to switch layout from $from to $to", it) }
+            .getOrDefault(false)
+        if (restored) {
+            MAIN_EXECUTOR.submit { model.forceReload() }.get()
         }
-        postRestoreActions()
-    }.onFailure { Log.e("LawndeckManager", "Failed to restore backup: $suffix", it) }
-
-    private fun getDatabaseFiles(suffix: String): DatabaseFiles {
-        val idp = InvariantDeviceProfile.INSTANCE.get(context)
-        val dbFile = context.getDatabasePath(idp.dbFile)
-        return DatabaseFiles(
-            db = dbFile,
-            backupDb = File(dbFile.parent, "${suffix}_${idp.dbFile}"),
-            journal = File(dbFile.parent, "${idp.dbFile}-journal"),
-            backupJournal = File(dbFile.parent, "${suffix}_${idp.dbFile}-journal"),
-        )
+        return restored
     }
 
-    private fun backupExists(suffix: String): Boolean = getDatabaseFiles(suffix).backupDb.exists()
-
-    private fun postRestoreActions() {
-        ModelDbController(context).let { RestoreDbTask.performRestore(context, it) }
-        restartLauncher(context)
+    /**
+     * Moves the layouts saved as copies of the database file by older versions into profiles.
+     */
+    private fun importLegacyBackups() {
+        val dbFile = context.getDatabasePath(InvariantDeviceProfile.INSTANCE.get(context).dbFile)
+        LEGACY_BACKUPS.forEach { (suffix, profile) ->
+            val backup = File(dbFile.parent, "${suffix}_${dbFile.name}")
+            if (!backup.exists()) return@forEach
+            if (!model.modelDbController.hasLayoutProfile(profile)) {
+                // A backup which can't be imported is dropped too, or every switch would fail
+                runCatching { model.modelDbController.importLayoutProfile(backup, profile) }
+                    .onFailure { Log.e(TAG, "Failed to import the layout backup $backup", it) }
+            }
+            backup.delete()
+            File(dbFile.parent, "${suffix}_${dbFile.name}-journal").delete()
+        }
     }
 
     private fun addAllAppsToWorkspace(
         onProgress: ((String) -> Unit)?,
         onComplete: (() -> Unit)?,
     ) {
-        val apps = launcher?.mAppsView?.appsStore?.apps ?: return
-        if (apps.isEmpty()) {
+        val apps = launcher?.mAppsView?.appsStore?.apps
+        if (apps.isNullOrEmpty()) {
             onComplete?.invoke()
             return
         }
@@ -109,61 +112,17 @@ class LawndeckManager(private val context: Context) {
 
         onProgress?.invoke("Adding apps to workspace...")
 
-        val launcher = this.launcher ?: return
-        val model = launcher.model
-
-        // Collect folders to add and count single apps
-        val foldersToAdd = mutableListOf<FolderInfo>()
-        var singleAppCount = 0
-
-        // Process each category
-        finalCategorizedApps.forEach { (category, categoryApps) ->
-            if (categoryApps.isEmpty()) return@forEach
-
-            if (categoryApps.size == 1) {
-                // Single app - add directly to workspace
-                val app = categoryApps.first()
-                ItemInstallQueue.INSTANCE.get(context).queueItem(app.targetPackage, app.user)
-                singleAppCount++
-            } else {
-                // Multiple apps - create folder
-                onProgress?.invoke("Creating folder: $category...")
-                val folderInfo = createFolderInfo(category, categoryApps)
-                if (folderInfo != null) {
-                    foldersToAdd.add(folderInfo)
-                }
+        // Categories with a single app are added directly, others as a folder
+        val itemsToAdd = finalCategorizedApps.mapNotNull { (category, categoryApps) ->
+            when (categoryApps.size) {
+                0 -> null
+                1 -> categoryApps.first().makeWorkspaceItem(context)
+                else -> createFolderInfo(category, categoryApps)
             }
         }
 
-        // Add all folders with their items to workspace using custom task
-        if (foldersToAdd.isNotEmpty()) {
-            // Wait for folder task to complete
-            model.enqueueModelUpdateTask(
-                AddFoldersWithItemsTask(foldersToAdd) {
-                    // Callback runs on UI thread from model task
-                    // Also wait for ItemInstallQueue to finish for single apps
-                    // ItemInstallQueue processes asynchronously, so we need to wait a bit
-                    if (singleAppCount > 0) {
-                        // Post to handler to give ItemInstallQueue time to process
-                        android.os.Handler(android.os.Looper.getMainLooper()).postDelayed({
-                            onComplete?.invoke()
-                        }, 800) // Wait for queue to process
-                    } else {
-                        onComplete?.invoke()
-                    }
-                },
-            )
-        } else {
-            // No folders, but may have single apps
-            if (singleAppCount > 0) {
-                // Give ItemInstallQueue time to process
-                android.os.Handler(android.os.Looper.getMainLooper()).postDelayed({
-                    onComplete?.invoke()
-                }, 800) // Wait for queue to process
-            } else {
-                onComplete?.invoke()
-            }
-        }
+        // Everything is placed and written by a single model task
+        model.enqueueModelUpdateTask(AddDeckItemsTask(itemsToAdd, onComplete))
     }
 
     /**
@@ -268,10 +227,12 @@ class LawndeckManager(private val context: Context) {
         return if (folderInfo.getContents().isNotEmpty()) folderInfo else null
     }
 
-    private data class DatabaseFiles(
-        val db: File,
-        val backupDb: File,
-        val journal: File,
-        val backupJournal: File,
-    )
+    companion object {
+        private const val TAG = "LawndeckManager"
+
+        private const val PROFILE_CLASSIC = "classic"
+        private const val PROFILE_DECK = "deck"
+
+        private val LEGACY_BACKUPS = mapOf("bk" to PROFILE_CLASSIC, "lawndeck" to PROFILE_DECK)
+    }
 }
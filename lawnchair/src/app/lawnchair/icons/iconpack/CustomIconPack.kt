@@ -11,12 +11,13 @@ import android.graphics.drawable.Drawable
 import android.util.Xml
 import app.lawnchair.icons.ClockMetadata
 import app.lawnchair.icons.ExtendedBitmapDrawable
+import app.lawnchair.icons.picker.IconCatalog
 import app.lawnchair.icons.picker.IconEntry
-import app.lawnchair.icons.picker.IconPickerCategory
 import app.lawnchair.icons.picker.IconPickerItem
 import app.lawnchair.icons.picker.IconType
-import com.android.launcher3.R
+import java.io.File
 import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.flow
@@ -33,7 +34,10 @@ class CustomIconPack(context: Context, packPackageName: String) : IconPack(conte
     private val clockMap = mutableMapOf<ComponentName, IconEntry>()
     private val clockMetas = mutableMapOf<IconEntry, ClockMetadata>()
 
-    private val idCache = mutableMapOf<String, Int>()
+    private val idCache = ConcurrentHashMap<String, Int>()
+
+    @Volatile
+    private var catalog: IconCatalog? = null
 
     override val label = context.packageManager.let { pm ->
         pm.getApplicationInfo(packPackageName, 0).loadLabel(pm).toString()
@@ -135,49 +139,67 @@ class CustomIconPack(context: Context, packPackageName: String) : IconPack(conte
         }
     }
 
-    override fun getAllIcons(): Flow<List<IconPickerCategory>> = flow {
-        load()
-
-        val result = mutableListOf<IconPickerCategory>()
-
-        var currentTitle: String? = null
-        val currentItems = mutableListOf<IconPickerItem>()
+    override fun getIconCatalog(): Flow<IconCatalog> = flow {
+        catalog?.let {
+            emit(it)
+            return@flow
+        }
 
-        suspend fun endCategory() {
-            if (currentItems.isEmpty()) return
-            val title = currentTitle ?: context.getString(R.string.icon_picker_default_category)
-            result.add(IconPickerCategory(title, ArrayList(currentItems)))
-            currentTitle = null
-            currentItems.clear()
-            emit(ArrayList(result))
+        val catalogFile = File(context.cacheDir, CATALOG_DIR).apply { mkdirs() }
+            .resolve(packPackageName)
+        val packVersion = context.packageManager.getPackageInfo(packPackageName, 0).lastUpdateTime
+        IconCatalog.readFrom(catalogFile, packPackageName, packVersion)?.let {
+            catalog = it
+            emit(it)
+            return@flow
         }
 
+        val builder = IconCatalog.Builder(packPackageName)
+        var emittedSize = 0
+        var hasCategory = false
+
         val parser = getXml("drawable")
         while (parser != null && parser.next() != XmlPullParser.END_DOCUMENT) {
             if (parser.eventType != XmlPullParser.START_TAG) continue
             when (parser.name) {
                 "category" -> {
                     val title = parser["title"] ?: continue
-                    endCategory()
-                    currentTitle = title
+                    // Show the icons read so far a page at a time while compiling a large pack
+                    if (builder.size - emittedSize >= CATALOG_PAGE_SIZE) {
+                        emittedSize = builder.size
+                        emit(builder.build())
+                    }
+                    builder.startCategory(title)
+                    hasCategory = true
                 }
 
                 "item" -> {
                     val drawableName = parser["drawable"] ?: continue
                     val resId = getDrawableId(drawableName)
                     if (resId != 0) {
-                        val item = IconPickerItem(packPackageName, drawableName, drawableName, IconType.Normal)
-                        currentItems.add(item)
+                        if (!hasCategory) {
+                            builder.startCategory(IconCatalog.DEFAULT_CATEGORY)
+                            hasCategory = true
+                        }
+                        builder.add(drawableName, resId)
                     }
                 }
             }
         }
-        endCategory()
+        val result = builder.build()
+        catalog = result
+        // The ids of the catalogue are used from now on instead of the ones looked up while reading
+        idCache.clear()
+        result.writeTo(catalogFile, packVersion)
+        emit(result)
     }.flowOn(Dispatchers.IO)
 
     @SuppressLint("DiscouragedApi")
-    private fun getDrawableId(name: String) = idCache.getOrPut(name) {
-        packResources.getIdentifier(name, "drawable", packPackageName)
+    private fun getDrawableId(name: String): Int {
+        catalog?.findResId(name)?.let { if (it != 0) return it }
+        return idCache.getOrPut(name) {
+            packResources.getIdentifier(name, "drawable", packPackageName)
+        }
     }
 
     private fun getXml(name: String): XmlPullParser? {
@@ -202,4 +224,7 @@ class CustomIconPack(context: Context, packPackageName: String) : IconPack(conte
     }
 }
 
+private const val CATALOG_DIR = "icon_catalogs"
+private const val CATALOG_PAGE_SIZE = 500
+
 private operator fun XmlPullParser.get(key: String): String? = this.getAttributeValue(null, key)
@@ -4,6 +4,7 @@ import android.content.ComponentName
 import android.content.Context
 import android.graphics.drawable.Drawable
 import app.lawnchair.icons.ClockMetadata
+import app.lawnchair.icons.picker.IconCatalog
 import app.lawnchair.icons.picker.IconEntry
 import app.lawnchair.icons.picker.IconPickerCategory
 import app.lawnchair.icons.picker.IconPickerItem
@@ -56,7 +57,11 @@ sealed class IconPack(
 
     abstract fun getIcon(iconEntry: IconEntry, iconDpi: Int): Drawable?
 
-    abstract fun getAllIcons(): Flow<List<IconPickerCategory>>
+    /**
+     * Returns the icons of the pack for the picker. The flow may emit partial catalogues while the
+     * pack is being read, the last one holds all the icons.
+     */
+    abstract fun getIconCatalog(): Flow<IconCatalog>
 
     protected abstract fun loadInternal()
 
@@ -84,6 +89,15 @@ sealed class IconPack(
             .sortedBy { it.title }
     }
 
+    protected fun buildCatalog(categories: List<IconPickerCategory>): IconCatalog {
+        val builder = IconCatalog.Builder(packPackageName)
+        categories.forEach { category ->
+            builder.startCategory(category.title)
+            category.items.forEach { builder.add(it.drawableName, 0, it.label) }
+        }
+        return builder.build()
+    }
+
     companion object {
         private val scope = CoroutineScope(Dispatchers.IO) + CoroutineName("IconPack")
     }
@@ -6,8 +6,8 @@ import android.content.pm.LauncherApps
 import android.graphics.drawable.Drawable
 import android.os.Process
 import app.lawnchair.icons.ClockMetadata
+import app.lawnchair.icons.picker.IconCatalog
 import app.lawnchair.icons.picker.IconEntry
-import app.lawnchair.icons.picker.IconPickerCategory
 import app.lawnchair.icons.picker.IconPickerItem
 import app.lawnchair.icons.picker.IconType
 import app.lawnchair.util.requireSystemService
@@ -50,7 +50,7 @@ class SystemIconPack(context: Context, pkg: String) : IconPack(context, pkg) {
     override fun loadInternal() {
     }
 
-    override fun getAllIcons(): Flow<List<IconPickerCategory>> = flow {
+    override fun getIconCatalog(): Flow<IconCatalog> = flow {
         val items = appMap
             .map { (key, info) ->
                 IconPickerItem(
@@ -60,6 +60,6 @@ class SystemIconPack(context: Context, pkg: String) : IconPack(context, pkg) {
                     IconType.Normal,
                 )
             }
-        emit(categorize(items))
+        emit(buildCatalog(categorize(items)))
     }.flowOn(Dispatchers.IO)
 }
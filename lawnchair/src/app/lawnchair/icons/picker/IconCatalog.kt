@@ -0,0 +1,306 @@
+package app.lawnchair.icons.picker
+
+import android.util.AtomicFile
+import android.util.Log
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+
+/**
+ * Compact, immutable list of all the icons of a pack, grouped in categories.
+ *
+ * Icons are stored as parallel arrays and [IconPickerItem]s are only created when the picker asks
+ * for them, so a catalogue of thousands of icons costs a few arrays instead of thousands of
+ * objects. The catalogue of a custom pack is compiled from its drawable.xml once and persisted,
+ * see [writeTo] and [readFrom].
+ */
+class IconCatalog private constructor(
+    val packPackageName: String,
+    private val titles: Array<String>,
+    /** Index of the first item of every category, followed by the item count */
+    private val categoryStarts: IntArray,
+    private val names: Array<String>,
+    private val resIds: IntArray,
+    /** Labels of the items, or null if they are the same as [names] */
+    private val labels: Array<String>?,
+    /** Item indices sorted by name, used to look up items by name */
+    private val nameIndex: IntArray,
+) {
+
+    val size get() = names.size
+
+    /**
+     * Categories of the catalogue. The title of the category of the icons listed before any
+     * category is [DEFAULT_CATEGORY], to be replaced by a localized title when displayed.
+     */
+    val categories: List<IconPickerCategory> by lazy {
+        titles.indices.map { category ->
+            IconPickerCategory(
+                title = titles[category],
+                items = ItemList(null, categoryStarts[category], categoryStarts[category + 1]),
+            )
+        }
+    }
+
+    private val searchIndex by lazy { SearchIndex() }
+
+    /** Returns the resource id of the icon with the given drawable name, or 0 if there is none. */
+    fun findResId(name: String): Int {
+        var low = 0
+        var high = nameIndex.size - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val cmp = names[nameIndex[mid]].compareTo(name)
+            when {
+                cmp < 0 -> low = mid + 1
+                cmp > 0 -> high = mid - 1
+                else -> return resIds[nameIndex[mid]]
+            }
+        }
+        return 0
+    }
+
+    /**
+     * Returns the categories holding the icons whose label contains [query], ignoring case. Empty
+     * categories are dropped.
+     */
+    fun search(query: String): List<IconPickerCategory> {
+        val normalized = query.trim().lowercase()
+        if (normalized.isEmpty()) return categories
+        val matches = searchIndex.find(normalized)
+        val result = ArrayList<IconPickerCategory>()
+        var start = 0
+        for (category in titles.indices) {
+            val categoryEnd = categoryStarts[category + 1]
+            var end = start
+            while (end < matches.size && matches[end] < categoryEnd) end++
+            if (end > start) {
+                result.add(IconPickerCategory(titles[category], ItemList(matches, start, end)))
+            }
+            start = end
+        }
+        return result
+    }
+
+    fun writeTo(file: File, packVersion: Long) {
+        val atomicFile = AtomicFile(file)
+        val stream = try {
+            atomicFile.startWrite()
+        } catch (e: IOException) {
+            Log.w(TAG, "Failed to write catalogue of $packPackageName", e)
+            return
+        }
+        try {
+            val out = DataOutputStream(stream.buffered())
+            out.writeInt(FORMAT_VERSION)
+            out.writeLong(packVersion)
+            out.writeInt(titles.size)
+            titles.forEachIndexed { category, title ->
+                out.writeUTF(title)
+                out.writeInt(categoryStarts[category + 1] - categoryStarts[category])
+            }
+            out.writeInt(names.size)
+            names.forEachIndexed { index, name ->
+                out.writeUTF(name)
+                out.writeInt(resIds[index])
+            }
+            nameIndex.forEach { out.writeInt(it) }
+            out.flush()
+            atomicFile.finishWrite(stream)
+        } catch (e: IOException) {
+            Log.w(TAG, "Failed to write catalogue of $packPackageName", e)
+            atomicFile.failWrite(stream)
+        }
+    }
+
+    /** Items of a category, or the search results in a category if [indices] are given. */
+    private inner class ItemList(
+        private val indices: IntArray?,
+        private val start: Int,
+        private val end: Int,
+    ) : AbstractList<IconPickerItem>() {
+
+        override val size get() = end - start
+
+        override fun get(index: Int): IconPickerItem {
+            if (index < 0 || index >= size) throw IndexOutOfBoundsException("$index of $size")
+            val item = indices?.get(start + index) ?: (start + index)
+            return IconPickerItem(
+                packPackageName = packPackageName,
+                drawableName = names[item],
+                label = labels?.get(item) ?: names[item],
+                type = IconType.Normal,
+            )
+        }
+    }
+
+    /**
+     * Trigram index over the lower case labels. A query of at least three characters only checks
+     * the labels sharing its rarest trigram, shorter queries check every label.
+     */
+    private inner class SearchIndex {
+
+        private val lowerLabels = Array(size) { (labels?.get(it) ?: names[it]).lowercase() }
+        private val postings = HashMap<Long, IntArray>()
+
+        init {
+            val lists = HashMap<Long, IntArrayBuilder>()
+            lowerLabels.forEachIndexed { item, label ->
+                for (i in 0..label.length - 3) {
+                    lists.getOrPut(trigram(label, i)) { IntArrayBuilder() }.addOnce(item)
+                }
+            }
+            lists.forEach { (key, list) -> postings[key] = list.toArray() }
+        }
+
+        fun find(query: String): IntArray {
+            var candidates: IntArray? = null
+            for (i in 0..query.length - 3) {
+                val list = postings[trigram(query, i)] ?: return IntArray(0)
+                if (candidates == null || list.size < candidates.size) candidates = list
+            }
+            val result = IntArrayBuilder()
+            if (candidates == null) {
+                lowerLabels.forEachIndexed { item, label ->
+                    if (label.contains(query)) result.addOnce(item)
+                }
+            } else {
+                candidates.forEach { item ->
+                    if (lowerLabels[item].contains(query)) result.addOnce(item)
+                }
+            }
+            return result.toArray()
+        }
+
+        private fun trigram(s: String, i: Int) =
+            (s[i].code.toLong() shl 32) or (s[i + 1].code.toLong() shl 16) or s[i + 2].code.toLong()
+    }
+
+    private class IntArrayBuilder {
+        private var array = IntArray(4)
+        private var count = 0
+
+        fun add(value: Int) {
+            if (count == array.size) array = array.copyOf(count * 2)
+            array[count++] = value
+        }
+
+        /** Adds [value] unless it was the last value added, for values added in ascending order. */
+        fun addOnce(value: Int) {
+            if (count == 0 || array[count - 1] != value) add(value)
+        }
+
+        fun toArray(): IntArray = array.copyOf(count)
+    }
+
+    /** Collects the icons of a pack in order, one category after another. */
+    class Builder(private val packPackageName: String) {
+        private val titles = ArrayList<String>()
+        private val categoryStarts = ArrayList<Int>()
+        private val names = ArrayList<String>()
+        private val resIds = IntArrayBuilder()
+        private var labels: ArrayList<String>? = null
+
+        val size get() = names.size
+
+        fun startCategory(title: String) {
+            if (titles.isNotEmpty() && categoryStarts.last() == names.size) {
+                // The previous category is empty
+                titles[titles.size - 1] = title
+            } else {
+                titles.add(title)
+                categoryStarts.add(names.size)
+            }
+        }
+
+        fun add(name: String, resId: Int, label: String = name) {
+            check(titles.isNotEmpty()) { "no category started" }
+            if (label != name && labels == null) {
+                labels = ArrayList(names)
+            }
+            labels?.add(label)
+            names.add(name)
+            resIds.add(resId)
+        }
+
+        fun build(): IconCatalog {
+            val count = if (titles.isNotEmpty() && categoryStarts.last() == names.size) {
+                titles.size - 1
+            } else {
+                titles.size
+            }
+            val starts = IntArray(count + 1) { if (it < count) categoryStarts[it] else names.size }
+            val nameArray = names.toTypedArray()
+            val nameIndex = nameArray.indices.sortedBy { nameArray[it] }.toIntArray()
+            return IconCatalog(
+                packPackageName = packPackageName,
+                titles = titles.subList(0, count).toTypedArray(),
+                categoryStarts = starts,
+                names = nameArray,
+                resIds = resIds.toArray(),
+                labels = labels?.toTypedArray(),
+                nameIndex = nameIndex,
+            )
+        }
+    }
+
+    companion object {
+        private const val TAG = "IconCatalog"
+        private const val FORMAT_VERSION = 2
+
+        /** Title of the category of the icons which are not in any category. */
+        const val DEFAULT_CATEGORY = ""
+
+        /**
+         * Reads a catalogue written by [writeTo], returning null if there is none, if it was
+         * written for another version of the pack or if it is corrupt.
+         */
+        fun readFrom(file: File, packPackageName: String, packVersion: Long): IconCatalog? {
+            if (!file.exists()) return null
+            return try {
+                DataInputStream(AtomicFile(file).openRead().buffered()).use { input ->
+                    if (input.readInt() != FORMAT_VERSION || input.readLong() != packVersion) {
+                        return null
+                    }
+                    // Every entry takes several bytes, so larger counts come from a corrupt file
+                    val maxCount = file.length()
+                    val categoryCount = input.readInt()
+                    require(categoryCount in 0..maxCount) { "$categoryCount categories" }
+                    val titles = Array(categoryCount) { "" }
+                    val starts = IntArray(categoryCount + 1)
+                    for (category in 0 until categoryCount) {
+                        titles[category] = input.readUTF()
+                        val itemCount = input.readInt()
+                        require(itemCount in 0..maxCount) { "$itemCount icons in a category" }
+                        starts[category + 1] = starts[category] + itemCount
+                    }
+                    val count = input.readInt()
+                    require(count in 0..maxCount) { "$count icons" }
+                    val names = Array(count) { "" }
+                    val resIds = IntArray(count)
+                    for (i in 0 until count) {
+                        names[i] = input.readUTF()
+                        resIds[i] = input.readInt()
+                    }
+                    val nameIndex = IntArray(count) { input.readInt() }
+                    require(starts[categoryCount] == count) {
+                        "categories hold ${starts[categoryCount]} of $count icons"
+                    }
+                    require(nameIndex.all { it in 0 until count }) { "name index out of bounds" }
+                    IconCatalog(packPackageName, titles, starts, names, resIds, null, nameIndex)
+                }
+            } catch (e: IOException) {
+                Log.w(TAG, "Failed to read catalogue of $packPackageName", e)
+                null
+            } catch (e: IllegalArgumentException) {
+                // The file is corrupt, the catalogue is compiled again
+                Log.w(TAG, "Failed to read catalogue of $packPackageName", e)
+                null
+            } catch (e: IndexOutOfBoundsException) {
+                Log.w(TAG, "Failed to read catalogue of $packPackageName", e)
+                null
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package app.lawnchair.icons.picker
+
+import android.graphics.Bitmap
+import android.util.LruCache
+import androidx.core.graphics.drawable.toBitmap
+import app.lawnchair.icons.iconpack.IconPack
+
+/**
+ * Icons of the picker rendered at the size of a cell. Only the cells on screen load their icon,
+ * and the cache keeps the memory of the picker bounded no matter how large the pack is while
+ * scrolling back and forth doesn't decode the same drawables again.
+ */
+class IconPickerBitmapCache(
+    private val iconSize: Int,
+    maxBytes: Int = DEFAULT_MAX_BYTES,
+) {
+
+    private val cache = object : LruCache<String, Bitmap>(maxBytes) {
+        override fun sizeOf(key: String, value: Bitmap) = value.allocationByteCount
+    }
+
+    fun get(iconPack: IconPack, item: IconPickerItem): Bitmap? {
+        val key = "${item.packPackageName}/${item.drawableName}"
+        cache.get(key)?.let { return it }
+        val drawable = iconPack.getIcon(item.toIconEntry(), 0) ?: return null
+        val bitmap = drawable.toBitmap(iconSize, iconSize)
+        cache.put(key, bitmap)
+        return bitmap
+    }
+
+    fun clear() {
+        cache.evictAll()
+    }
+
+    companion object {
+        private val DEFAULT_MAX_BYTES = (Runtime.getRuntime().maxMemory() / 16)
+            .coerceAtMost(16L * 1024 * 1024).toInt()
+    }
+}
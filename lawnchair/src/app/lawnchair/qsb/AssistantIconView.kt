@@ -43,12 +43,10 @@ class AssistantIconView(context: Context, attrs: AttributeSet?) : ImageButton(co
             provider: QsbSearchProvider,
             context: Context,
         ): Intent? {
-            val intent = if (provider.supportVoiceIntent) provider.createVoiceIntent() else null
-
-            return if (intent == null || !LawnQsbLayout.resolveIntent(context, intent)) {
-                null
+            return if (QsbIntentResolver.INSTANCE.get(context).canResolveVoiceIntent(provider)) {
+                provider.createVoiceIntent()
             } else {
-                intent
+                null
             }
         }
     }
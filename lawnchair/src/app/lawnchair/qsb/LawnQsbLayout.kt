@@ -226,15 +226,16 @@ class LawnQsbLayout(context: Context, attrs: AttributeSet?) : FrameLayout(contex
     }
 
     companion object {
-        private const val LENS_PACKAGE = "com.google.ar.lens"
+        internal const val LENS_PACKAGE = "com.google.ar.lens"
         private const val LENS_ACTIVITY = "com.google.vr.apps.ornament.app.lens.LensLauncherActivity"
 
+        internal fun createLensIntent(): Intent = Intent.makeMainActivity(ComponentName(LENS_PACKAGE, LENS_ACTIVITY))
+            .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK or Intent.FLAG_ACTIVITY_RESET_TASK_IF_NEEDED)
+
         fun getLensIntent(context: Context): Intent? {
-            val lensIntent = Intent.makeMainActivity(ComponentName(LENS_PACKAGE, LENS_ACTIVITY))
-                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK or Intent.FLAG_ACTIVITY_RESET_TASK_IF_NEEDED)
-            if (context.packageManager.resolveActivity(lensIntent, 0) == null) return null
+            if (!QsbIntentResolver.INSTANCE.get(context).canResolveLensIntent()) return null
 
-            return lensIntent
+            return createLensIntent()
         }
 
         fun getSearchProvider(
@@ -242,10 +243,11 @@ class LawnQsbLayout(context: Context, attrs: AttributeSet?) : FrameLayout(contex
             preferenceManager: PreferenceManager2,
         ): QsbSearchProvider {
             val provider = preferenceManager.hotseatQsbProvider.firstBlocking()
+            val resolver = QsbIntentResolver.INSTANCE.get(context)
 
             return if (provider == AppSearch ||
-                resolveIntent(context, provider.createSearchIntent()) ||
-                resolveIntent(context, provider.createWebsiteIntent())
+                resolver.canResolveSearchIntent(provider) ||
+                resolver.canResolveWebsiteIntent(provider)
             ) {
                 provider
             } else {
@@ -253,8 +255,6 @@ class LawnQsbLayout(context: Context, attrs: AttributeSet?) : FrameLayout(contex
             }
         }
 
-        fun resolveIntent(context: Context, intent: Intent): Boolean = context.packageManager.resolveActivity(intent, 0) != null
-
         private fun getCornerRadius(
             context: Context,
             preferenceManager: PreferenceManager,
@@ -0,0 +1,113 @@
+package app.lawnchair.qsb
+
+import android.content.Context
+import android.content.Intent
+import android.content.pm.PackageManager
+import androidx.annotation.VisibleForTesting
+import app.lawnchair.qsb.providers.QsbSearchProvider
+import app.lawnchair.util.isPackageInstalled
+import com.android.launcher3.util.Executors.MAIN_EXECUTOR
+import com.android.launcher3.util.MainThreadInitializedObject
+import com.android.launcher3.util.SafeCloseable
+import com.android.launcher3.util.SimpleBroadcastReceiver
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Caches whether the intents of the search providers and of Lens resolve, and whether the search
+ * providers are installed, so that binding the QSB, which happens again on every theme or
+ * preference change, does not make PackageManager binder calls on the main thread.
+ *
+ * The answers only change when packages change, so the whole cache is cleared on any package
+ * added, changed or removed: the website intents can resolve to any browser, not only to the
+ * package of their provider.
+ */
+class QsbIntentResolver @VisibleForTesting internal constructor(
+    context: Context,
+    private val packageQueries: PackageQueries,
+) : SafeCloseable {
+
+    private constructor(context: Context) : this(context, PackageManagerQueries(context.packageManager))
+
+    /** The PackageManager calls made on cache misses */
+    @VisibleForTesting
+    internal interface PackageQueries {
+        fun canResolve(intent: Intent): Boolean
+        fun isInstalled(packageName: String): Boolean
+    }
+
+    private class PackageManagerQueries(private val pm: PackageManager) : PackageQueries {
+        override fun canResolve(intent: Intent) = pm.resolveActivity(intent, 0) != null
+        override fun isInstalled(packageName: String) = pm.isPackageInstalled(packageName)
+    }
+
+    private enum class Query { SEARCH, WEBSITE, VOICE, INSTALLED, LENS }
+
+    /**
+     * The PackageManager of the launcher only answers for the user the launcher runs as, so the
+     * answers are not keyed by user.
+     */
+    private data class Key(val providerId: String, val query: Query)
+
+    private val cache = ConcurrentHashMap<Key, Boolean>()
+
+    /** Incremented on every package change, so that answers computed meanwhile are not cached */
+    @Volatile
+    private var generation = 0
+
+    private val packageReceiver = SimpleBroadcastReceiver(context, MAIN_EXECUTOR) { invalidate() }
+
+    init {
+        packageReceiver.registerPkgActions(
+            null,
+            Intent.ACTION_PACKAGE_ADDED,
+            Intent.ACTION_PACKAGE_CHANGED,
+            Intent.ACTION_PACKAGE_REMOVED,
+        )
+    }
+
+    fun canResolveSearchIntent(provider: QsbSearchProvider): Boolean =
+        cached(provider.id, Query.SEARCH) { packageQueries.canResolve(provider.createSearchIntent()) }
+
+    fun canResolveWebsiteIntent(provider: QsbSearchProvider): Boolean =
+        cached(provider.id, Query.WEBSITE) { packageQueries.canResolve(provider.createWebsiteIntent()) }
+
+    /** Whether [provider] supports voice search and its voice intent resolves */
+    fun canResolveVoiceIntent(provider: QsbSearchProvider): Boolean =
+        provider.supportVoiceIntent &&
+            cached(provider.id, Query.VOICE) { packageQueries.canResolve(provider.createVoiceIntent()) }
+
+    fun isDownloaded(provider: QsbSearchProvider): Boolean =
+        cached(provider.id, Query.INSTALLED) { packageQueries.isInstalled(provider.packageName) }
+
+    fun canResolveLensIntent(): Boolean =
+        cached(LawnQsbLayout.LENS_PACKAGE, Query.LENS) {
+            packageQueries.canResolve(LawnQsbLayout.createLensIntent())
+        }
+
+    private inline fun cached(providerId: String, query: Query, resolve: () -> Boolean): Boolean {
+        val key = Key(providerId, query)
+        cache[key]?.let { return it }
+        val startGeneration = generation
+        val result = resolve()
+        if (startGeneration == generation) {
+            cache[key] = result
+            // A package change may have cleared the cache while the answer was being stored
+            if (startGeneration != generation) cache.remove(key)
+        }
+        return result
+    }
+
+    private fun invalidate() {
+        generation++
+        cache.clear()
+    }
+
+    override fun close() {
+        packageReceiver.unregisterReceiverSafely()
+    }
+
+    companion object {
+        @JvmField
+        val INSTANCE = MainThreadInitializedObject { QsbIntentResolver(it) }
+    }
+}
@@ -8,10 +8,8 @@ import android.widget.Toast
 import androidx.annotation.DrawableRes
 import androidx.annotation.StringRes
 import app.lawnchair.preferences2.PreferenceManager2
-import app.lawnchair.qsb.LawnQsbLayout
+import app.lawnchair.qsb.QsbIntentResolver
 import app.lawnchair.qsb.ThemingMethod
-import app.lawnchair.resolveIntent
-import app.lawnchair.util.isPackageInstalled
 import com.android.launcher3.Launcher
 import com.android.launcher3.R
 import com.patrykmichalik.opto.core.first
@@ -43,13 +41,11 @@ sealed class QsbSearchProvider(
     }
 
     private fun createLaunchIntent(context: Context, forceWebsite: Boolean): Intent? {
-        if (!forceWebsite) {
-            val intent = createSearchIntent().takeIf { context.resolveIntent(it) != null }
-            if (intent != null) {
-                return intent
-            }
+        val resolver = QsbIntentResolver.INSTANCE.get(context)
+        if (!forceWebsite && resolver.canResolveSearchIntent(this)) {
+            return createSearchIntent()
         }
-        return createWebsiteIntent().takeIf { context.resolveIntent(it) != null }
+        return if (resolver.canResolveWebsiteIntent(this)) createWebsiteIntent() else null
     }
 
     fun createSearchIntent() = Intent(action)
@@ -79,7 +75,7 @@ sealed class QsbSearchProvider(
      * Checks if the search provider is downloaded.
      * Should only be used for [QsbSearchProviderType]s that are downloadable.
      */
-    fun isDownloaded(context: Context) = context.packageManager.isPackageInstalled(packageName)
+    fun isDownloaded(context: Context) = QsbIntentResolver.INSTANCE.get(context).isDownloaded(this)
 
     /**
      * Launches the search provider's page on an app market.
@@ -153,8 +149,8 @@ sealed class QsbSearchProvider(
             val defaultProviderId =
                 context.getString(R.string.config_default_qsb_search_provider_id)
             val defaultProvider = fromId(defaultProviderId)
-            val isDefaultProviderIntentResolved =
-                LawnQsbLayout.resolveIntent(context, defaultProvider.createSearchIntent())
+            val resolver = QsbIntentResolver.INSTANCE.get(context)
+            val isDefaultProviderIntentResolved = resolver.canResolveSearchIntent(defaultProvider)
 
             // Return the default value from config.xml if the value is valid
             if (isDefaultProviderIntentResolved || defaultProvider.type == QsbSearchProviderType.WEBSITE) {
@@ -168,7 +164,7 @@ sealed class QsbSearchProvider(
             // Return the best default option if the config.xml value is invalid
             return values()
                 .filterNot { it == AppSearch }
-                .firstOrNull { LawnQsbLayout.resolveIntent(context, it.createSearchIntent()) }
+                .firstOrNull { resolver.canResolveSearchIntent(it) }
                 ?: AppSearch
         }
     }
@@ -1,15 +1,214 @@
 package app.lawnchair.search
 
-import android.content.SearchRecentSuggestionsProvider
+import android.content.ContentProvider
+import android.content.ContentUris
+import android.content.ContentValues
+import android.content.Context
+import android.database.Cursor
+import android.database.sqlite.SQLiteDatabase
+import android.database.sqlite.SQLiteOpenHelper
+import android.net.Uri
+import android.util.Log
+import androidx.annotation.VisibleForTesting
 import com.android.launcher3.BuildConfig
 
-class LawnchairRecentSuggestionProvider : SearchRecentSuggestionsProvider() {
+/**
+ * Stores the recent search queries, written through [android.provider.SearchRecentSuggestions].
+ *
+ * It keeps the table and columns of [android.content.SearchRecentSuggestionsProvider], which it
+ * replaces, and adds a normalized copy of every query. Both the date and the normalized query are
+ * indexed, so that the newest entries, or the newest entries starting with a prefix, are read
+ * without going through the whole history. Queries on [SUGGESTIONS_URI] accept a [PARAM_LIMIT]
+ * parameter.
+ *
+ * The history is bounded: every [COMPACT_INTERVAL] inserts, entries past [MAX_ENTRIES] or older
+ * than [MAX_AGE_MS] are removed and the freed pages returned to the file system.
+ */
+class LawnchairRecentSuggestionProvider : ContentProvider() {
+
+    private lateinit var dbHelper: HistoryDbHelper
+    private var insertsSinceCompaction = 0
+
+    override fun onCreate(): Boolean {
+        dbHelper = HistoryDbHelper(context!!, DB_NAME)
+        return true
+    }
+
+    override fun query(
+        uri: Uri,
+        projection: Array<String>?,
+        selection: String?,
+        selectionArgs: Array<String>?,
+        sortOrder: String?,
+    ): Cursor {
+        checkUri(uri)
+        val cursor = dbHelper.readableDatabase.query(
+            TABLE_SUGGESTIONS,
+            projection,
+            selection,
+            selectionArgs,
+            null,
+            null,
+            sortOrder,
+            uri.getQueryParameter(PARAM_LIMIT)?.toIntOrNull()?.toString(),
+        )
+        cursor.setNotificationUri(context!!.contentResolver, uri)
+        return cursor
+    }
+
+    override fun insert(uri: Uri, values: ContentValues?): Uri? {
+        checkUri(uri)
+        val row = ContentValues(values ?: return null)
+        row.getAsString(COLUMN_DISPLAY1)?.let { row.put(COLUMN_NORMALIZED, normalize(it)) }
+        val db = dbHelper.writableDatabase
+        val id = db.insert(TABLE_SUGGESTIONS, null, row)
+        if (id < 0) return null
+        synchronized(this) {
+            if (++insertsSinceCompaction >= COMPACT_INTERVAL) {
+                insertsSinceCompaction = 0
+                compact(db, System.currentTimeMillis())
+            }
+        }
+        context!!.contentResolver.notifyChange(uri, null)
+        return ContentUris.withAppendedId(SUGGESTIONS_URI, id)
+    }
+
+    override fun delete(uri: Uri, selection: String?, selectionArgs: Array<String>?): Int {
+        checkUri(uri)
+        val count = dbHelper.writableDatabase.delete(TABLE_SUGGESTIONS, selection, selectionArgs)
+        context!!.contentResolver.notifyChange(uri, null)
+        return count
+    }
+
+    override fun update(
+        uri: Uri,
+        values: ContentValues?,
+        selection: String?,
+        selectionArgs: Array<String>?,
+    ): Int = throw UnsupportedOperationException("Not implemented")
+
+    override fun getType(uri: Uri): String {
+        checkUri(uri)
+        return "vnd.android.cursor.dir/suggestion"
+    }
+
+    private fun checkUri(uri: Uri) {
+        require(uri.authority == AUTHORITY && uri.pathSegments.firstOrNull() == TABLE_SUGGESTIONS) {
+            "Unknown Uri $uri"
+        }
+    }
+
+    @VisibleForTesting
+    internal class HistoryDbHelper(private val context: Context, name: String?) :
+        SQLiteOpenHelper(context, name, null, DB_VERSION) {
+
+        override fun onConfigure(db: SQLiteDatabase) {
+            // Only takes effect before the first table is created
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL")
+        }
+
+        override fun onCreate(db: SQLiteDatabase) {
+            db.execSQL(
+                "CREATE TABLE $TABLE_SUGGESTIONS (" +
+                    "$COLUMN_ID INTEGER PRIMARY KEY, " +
+                    "$COLUMN_DISPLAY1 TEXT UNIQUE ON CONFLICT REPLACE, " +
+                    "$COLUMN_QUERY TEXT, " +
+                    "$COLUMN_DATE INTEGER, " +
+                    "$COLUMN_NORMALIZED TEXT)",
+            )
+            db.execSQL("CREATE INDEX suggestions_date ON $TABLE_SUGGESTIONS ($COLUMN_DATE)")
+            db.execSQL(
+                "CREATE INDEX suggestions_normalized ON $TABLE_SUGGESTIONS ($COLUMN_NORMALIZED)",
+            )
+            importLegacyHistory(db)
+        }
+
+        override fun onUpgrade(db: SQLiteDatabase, oldVersion: Int, newVersion: Int) {
+            db.execSQL("DROP TABLE IF EXISTS $TABLE_SUGGESTIONS")
+            onCreate(db)
+        }
+
+        /** Copies the history stored by the SearchRecentSuggestionsProvider this replaces. */
+        private fun importLegacyHistory(db: SQLiteDatabase) {
+            val legacyFile = context.getDatabasePath(LEGACY_DB_NAME)
+            if (!legacyFile.exists()) return
+            try {
+                SQLiteDatabase.openDatabase(legacyFile.path, null, SQLiteDatabase.OPEN_READONLY)
+                    .use { legacy ->
+                        legacy.query(
+                            TABLE_SUGGESTIONS,
+                            arrayOf(COLUMN_DISPLAY1, COLUMN_QUERY, COLUMN_DATE),
+                            null,
+                            null,
+                            null,
+                            null,
+                            "$COLUMN_DATE DESC",
+                            MAX_ENTRIES.toString(),
+                        ).use { c ->
+                            while (c.moveToNext()) {
+                                val display1 = c.getString(0) ?: continue
+                                db.insert(
+                                    TABLE_SUGGESTIONS,
+                                    null,
+                                    ContentValues().apply {
+                                        put(COLUMN_DISPLAY1, display1)
+                                        put(COLUMN_QUERY, c.getString(1))
+                                        put(COLUMN_DATE, c.getLong(2))
+                                        put(COLUMN_NORMALIZED, normalize(display1))
+                                    },
+                                )
+                            }
+                        }
+                    }
+            } catch (e: Exception) {
+                Log.w(TAG, "Failed to import search history", e)
+            }
+            context.deleteDatabase(LEGACY_DB_NAME)
+        }
+    }
+
     companion object {
+        private const val TAG = "RecentSuggestionProvider"
+
         const val AUTHORITY = BuildConfig.APPLICATION_ID + ".search.LawnchairRecentSuggestionProvider"
-        const val MODE = DATABASE_MODE_QUERIES
-    }
+        const val MODE = android.content.SearchRecentSuggestionsProvider.DATABASE_MODE_QUERIES
+
+        const val TABLE_SUGGESTIONS = "suggestions"
+        const val COLUMN_ID = "_id"
+        const val COLUMN_DISPLAY1 = "display1"
+        const val COLUMN_QUERY = "query"
+        const val COLUMN_DATE = "date"
+
+        /** [COLUMN_DISPLAY1] trimmed and in lower case, see [normalize] */
+        const val COLUMN_NORMALIZED = "normalized"
+
+        /** Query parameter limiting the number of rows returned */
+        const val PARAM_LIMIT = "limit"
+
+        @JvmField
+        val SUGGESTIONS_URI: Uri = Uri.parse("content://$AUTHORITY/$TABLE_SUGGESTIONS")
+
+        private const val DB_NAME = "search_history.db"
+        private const val LEGACY_DB_NAME = "suggestions.db"
+        private const val DB_VERSION = 1
+
+        @VisibleForTesting
+        internal const val MAX_ENTRIES = 250
+        private const val MAX_AGE_MS = 180L * 24 * 60 * 60 * 1000
+        private const val COMPACT_INTERVAL = 20
+
+        fun normalize(query: String): String = query.trim().lowercase()
 
-    init {
-        setupSuggestions(AUTHORITY, MODE)
+        /** Removes the entries past the retention limits and frees their pages. */
+        @VisibleForTesting
+        internal fun compact(db: SQLiteDatabase, now: Long) {
+            db.delete(
+                TABLE_SUGGESTIONS,
+                "$COLUMN_DATE < ? OR $COLUMN_ID IN (SELECT $COLUMN_ID FROM $TABLE_SUGGESTIONS " +
+                    "ORDER BY $COLUMN_DATE DESC LIMIT -1 OFFSET $MAX_ENTRIES)",
+                arrayOf((now - MAX_AGE_MS).toString()),
+            )
+            db.rawQuery("PRAGMA incremental_vacuum", null).use { it.moveToFirst() }
+        }
     }
 }
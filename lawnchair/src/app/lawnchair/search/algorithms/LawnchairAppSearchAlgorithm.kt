@@ -8,11 +8,7 @@ import app.lawnchair.search.adapter.SearchTargetCompat
 import app.lawnchair.search.adapter.SearchTargetFactory
 import app.lawnchair.util.isDefaultLauncher
 import com.android.launcher3.LauncherAppState
-import com.android.launcher3.LauncherModel
 import com.android.launcher3.allapps.BaseAllAppsAdapter
-import com.android.launcher3.model.AllAppsList
-import com.android.launcher3.model.BgDataModel
-import com.android.launcher3.model.ModelTaskController
 import com.android.launcher3.model.data.AppInfo
 import com.android.launcher3.search.SearchCallback
 import com.android.launcher3.util.Executors
@@ -35,6 +31,9 @@ class LawnchairAppSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm(c
     private var enableFuzzySearch = false
     private var maxResultsCount = 5
 
+    // Number of searches started, only accessed on the main thread
+    private var searchCount = 0
+
     private val prefs2 = PreferenceManager2.getInstance(context)
 
     val coroutineScope = CoroutineScope(context = Dispatchers.IO)
@@ -55,14 +54,18 @@ class LawnchairAppSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm(c
     }
 
     override fun doSearch(query: String, callback: SearchCallback<BaseAllAppsAdapter.AdapterItem>) {
-        appState.model.enqueueModelUpdateTask(object : LauncherModel.ModelUpdateTask {
-            override fun execute(app: ModelTaskController, dataModel: BgDataModel, apps: AllAppsList) {
-                coroutineScope.launch(Dispatchers.Main) {
-                    val results = getResult(apps.data, query)
+        val searchId = ++searchCount
+        appState.model.enqueueModelReadTask { snapshot ->
+            // The snapshot can't change under us, so there is no need to hop to the main thread
+            // before searching it
+            val results = getResult(snapshot.apps, query)
+            coroutineScope.launch(Dispatchers.Main) {
+                // Read tasks run concurrently and can finish out of order
+                if (searchId == searchCount) {
                     callback.onSearchResult(query, results)
                 }
             }
-        })
+        }
     }
 
     override fun cancel(interruptActiveRequests: Boolean) {
@@ -72,7 +75,7 @@ class LawnchairAppSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm(c
     }
 
     private fun getResult(
-        apps: MutableList<AppInfo>,
+        apps: List<AppInfo>,
         query: String,
     ): ArrayList<BaseAllAppsAdapter.AdapterItem> {
         val appResults = if (enableFuzzySearch) {
@@ -40,6 +40,7 @@ import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.flow.combine
 import kotlinx.coroutines.flow.firstOrNull
 import kotlinx.coroutines.launch
+import java.util.concurrent.atomic.AtomicInteger
 import kotlinx.coroutines.withContext
 
 class LawnchairLocalSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm(context) {
@@ -49,6 +50,9 @@ class LawnchairLocalSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm
     private val coroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
     private var currentJob: Job? = null
 
+    // Number of searches started, read tasks run concurrently and can finish out of order
+    private val searchCount = AtomicInteger()
+
     private val appSearchProvider = AppSearchProvider
     private val shortcutSearchProvider = ShortcutSearchProvider
     private val historySearchProvider = HistorySearchProvider
@@ -61,12 +65,13 @@ class LawnchairLocalSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm
     )
 
     override fun doSearch(query: String, callback: SearchCallback<BaseAllAppsAdapter.AdapterItem>) {
-        appState.model.enqueueModelUpdateTask { _, _, apps ->
-            val appResults = appSearchProvider.search(context, query, apps)
+        val searchId = searchCount.incrementAndGet()
+        appState.model.enqueueModelReadTask { snapshot ->
+            val appResults = appSearchProvider.search(context, query, snapshot.apps)
             val shortcutResults = shortcutSearchProvider.search(context, appResults)
 
-            currentJob?.cancel()
-            currentJob = coroutineScope.launch {
+            launchSearch(searchId) {
+                val historyResults = getHistoryResults(query)
                 val nonAppProvidersFlow = combine(
                     searchProviders.map { it.search(context, query) },
                 ) { resultsArray ->
@@ -77,7 +82,7 @@ class LawnchairLocalSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm
                     val calcResult = CalculatorSearchProvider.search(context, query)
                         .firstOrNull()
 
-                    val allResults = appResults + shortcutResults + (calcResult ?: emptyList()) + nonAppResults + generateActionResults(query)
+                    val allResults = appResults + shortcutResults + (calcResult ?: emptyList()) + nonAppResults + historyResults + generateActionResults(query)
 
                     val searchTargets = translateToSearchTargets(allResults)
                     val adapterItems = transformSearchResults(searchTargets)
@@ -90,7 +95,9 @@ class LawnchairLocalSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm
     }
 
     override fun doZeroStateSearch(callback: SearchCallback<BaseAllAppsAdapter.AdapterItem>) {
-        currentJob?.cancel()
+        // Drops the results of the searches still running on the model
+        searchCount.incrementAndGet()
+        synchronized(this) { currentJob?.cancel() }
 
         val prefs = PreferenceManager.getInstance(context)
         val historyEnabled = prefs.searchResulRecentSuggestion.get()
@@ -129,6 +136,24 @@ class LawnchairLocalSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm
         currentJob?.cancel()
     }
 
+    /** Returns the recent searches starting with [query], if the search history is enabled. */
+    private suspend fun getHistoryResults(query: String): List<SearchResult.History> {
+        if (!PreferenceManager.getInstance(context).searchResulRecentSuggestion.get()) {
+            return emptyList()
+        }
+        val maxHistory = PreferenceManager2.getInstance(context).maxRecentResultCount.firstBlocking()
+        return historySearchProvider.getRecentKeywords(context, maxHistory, query)
+    }
+
+    /** Replaces the running search with [block], unless a newer search was started meanwhile. */
+    private fun launchSearch(searchId: Int, block: suspend CoroutineScope.() -> Unit) {
+        synchronized(this) {
+            if (searchId != searchCount.get()) return
+            currentJob?.cancel()
+            currentJob = coroutineScope.launch(block = block)
+        }
+    }
+
     private fun generateActionResults(query: String): List<SearchResult.Action> {
         val actions = mutableListOf<SearchResult.Action>()
         val prefs = PreferenceManager.getInstance(context)
@@ -11,6 +11,7 @@ import app.lawnchair.search.algorithms.data.ContactInfo
 import app.lawnchair.search.algorithms.engine.SearchPermission
 import app.lawnchair.search.algorithms.engine.SearchProvider
 import app.lawnchair.search.algorithms.engine.SearchResult
+import app.lawnchair.search.algorithms.engine.provider.contacts.ContactsIndex
 import com.patrykmichalik.opto.core.firstBlocking
 import kotlinx.coroutines.CoroutineExceptionHandler
 import kotlinx.coroutines.Dispatchers
@@ -39,8 +40,13 @@ object ContactsSearchProvider : SearchProvider, SearchPermission {
 
         val maxResults = prefs2.maxPeopleResultCount.firstBlocking()
 
-        // Call the newly encapsulated, private function.
-        val contactInfoList = findContactsByName(context, query, maxResults)
+        val index = ContactsIndex.getInstance(context)
+        index.start()
+        val contactInfoList = if (index.isReady) {
+            withContext(Dispatchers.IO) { index.search(query, maxResults) }
+        } else {
+            findContactsByName(context, query, maxResults)
+        }
 
         val searchResults = contactInfoList.map { contactInfo ->
             SearchResult.Contact(data = contactInfo)
@@ -12,6 +12,7 @@ import app.lawnchair.search.algorithms.data.FolderInfo
 import app.lawnchair.search.algorithms.data.IFileInfo
 import app.lawnchair.search.algorithms.engine.SearchProvider
 import app.lawnchair.search.algorithms.engine.SearchResult
+import app.lawnchair.search.algorithms.engine.provider.files.FileNameIndex
 import app.lawnchair.util.FileAccessManager
 import app.lawnchair.util.FileAccessState
 import app.lawnchair.util.audioFileTypes
@@ -62,22 +63,32 @@ object FileSearchProvider : SearchProvider {
         val audioGranted = fileAccessManager.audioAccessState.value == FileAccessState.Full
         val visualMediaGranted = fileAccessManager.visualMediaAccessState.value != FileAccessState.Denied
 
+        val fileIndex = FileNameIndex.getInstance(context)
+        fileIndex.start(
+            accessKey = listOf(
+                fileAccessManager.allFilesAccessState.value,
+                fileAccessManager.visualMediaAccessState.value,
+                fileAccessManager.audioAccessState.value,
+            ).joinToString("/"),
+        )
+        val index = fileIndex.takeIf { it.isReady }
+
         val results = coroutineScope {
             val allFilesDeferred = if (allFilesGranted && searchAllFiles) {
-                async { searchAllFiles(context, query, maxResults).first() }
+                async { searchAllFiles(context, index, query, maxResults).first() }
             } else {
                 null
             }
 
             // Only launch visual media and audio if allFiles search isn't happening
             val visualMediaDeferred = if (allFilesDeferred == null && visualMediaGranted && searchVisualMedia) {
-                async { searchVisualMedia(context, query, maxResults).first() }
+                async { searchVisualMedia(context, index, query, maxResults).first() }
             } else {
                 null
             }
 
             val audioDeferred = if (allFilesDeferred == null && audioGranted && searchAudio) {
-                async { searchAudio(context, query, maxResults).first() }
+                async { searchAudio(context, index, query, maxResults).first() }
             } else {
                 null
             }
@@ -101,14 +112,26 @@ object FileSearchProvider : SearchProvider {
     private val VIDEO_MIME_TYPES = videoFileTypes.values.toTypedArray()
     private val AUDIO_MIME_TYPES = audioFileTypes.values.toTypedArray()
 
+    private val VISUAL_MEDIA_TYPES = intArrayOf(
+        MediaStore.Files.FileColumns.MEDIA_TYPE_IMAGE,
+        MediaStore.Files.FileColumns.MEDIA_TYPE_VIDEO,
+    )
+    private val AUDIO_MEDIA_TYPES = intArrayOf(MediaStore.Files.FileColumns.MEDIA_TYPE_AUDIO)
+    private const val INDEX_ROWS_PER_RESULT = 4
+
     /**
      * Searches for photos and videos based on visual media access.
      */
     private fun searchVisualMedia(
         context: Context,
+        index: FileNameIndex?,
         query: String,
         maxResults: Int,
     ): Flow<List<IFileInfo>> = flow {
+        if (index != null) {
+            emit(queryIndex(index, query, maxResults, VISUAL_MEDIA_TYPES, nameOnly = true).toList())
+            return@flow
+        }
         val results = mutableListOf<IFileInfo>()
 
         results.addAll(
@@ -141,9 +164,14 @@ object FileSearchProvider : SearchProvider {
      */
     private fun searchAudio(
         context: Context,
+        index: FileNameIndex?,
         query: String,
         maxResults: Int,
     ): Flow<List<IFileInfo>> = flow {
+        if (index != null) {
+            emit(queryIndex(index, query, maxResults, AUDIO_MEDIA_TYPES, nameOnly = true).toList())
+            return@flow
+        }
         val audioInfoList = queryMediaStoreByType(
             context = context,
             uri = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
@@ -162,9 +190,14 @@ object FileSearchProvider : SearchProvider {
      */
     private fun searchAllFiles(
         context: Context,
+        index: FileNameIndex?,
         query: String,
         maxResults: Int,
     ): Flow<List<IFileInfo>> = flow {
+        if (index != null) {
+            emit(queryIndex(index, query, maxResults, null, nameOnly = false).toList())
+            return@flow
+        }
         val fileInfoList = queryGeneralFilesInMediaStore(
             context = context,
             keyword = query,
@@ -272,20 +305,37 @@ object FileSearchProvider : SearchProvider {
             selectionArgs,
             maxResult = maxResult,
         ) { cursor ->
-            // Determine if it's a file or folder.
-            // A simple check could be if MIME_TYPE is null for folders, or check file system.
-            // However, it's more robust to check the file system attributes if possible,
-            // or rely on MediaStore.Files.FileColumns.MEDIA_TYPE (equals MEDIA_TYPE_NONE for folders)
-            // For now, let's use a filesystem check on the path.
-            val filePath = cursor.getString(cursor.getColumnIndexOrThrow(commonProjection[0])).toPath()
-            if (filePath.isDirectory() && !filePath.isRegularFile()) {
-                createFolderInfoFromCursor(cursor)
-            } else {
-                createFileInfoFromCursor(cursor)
-            }
+            createFileOrFolderInfoFromCursor(cursor)
         }
     }
 
+    /**
+     * Queries the [FileNameIndex], only creating the infos of the first [maxResult] files that
+     * still exist. Files whose name has a word starting with the query are returned, see
+     * [FileNameIndex.query].
+     */
+    private suspend fun queryIndex(
+        index: FileNameIndex,
+        keyword: String,
+        maxResult: Int,
+        mediaTypes: IntArray?,
+        nameOnly: Boolean,
+    ): Sequence<IFileInfo> = withContext(Dispatchers.IO) {
+        // Some indexed files may be gone already, read a few more rows than needed
+        index.query(keyword, mediaTypes, nameOnly, maxResult * INDEX_ROWS_PER_RESULT)?.use { cursor ->
+            buildList {
+                while (size < maxResult && cursor.moveToNext()) {
+                    val info = if (mediaTypes == null) {
+                        createFileOrFolderInfoFromCursor(cursor)
+                    } else {
+                        createFileInfoFromCursor(cursor)
+                    }
+                    info?.let { add(it) }
+                }
+            }.asSequence()
+        } ?: emptySequence()
+    }
+
     /**
      * Core ContentResolver query logic.
      */
@@ -319,6 +369,21 @@ object FileSearchProvider : SearchProvider {
         }
     }
 
+    private fun createFileOrFolderInfoFromCursor(cursor: Cursor): IFileInfo? {
+        // Determine if it's a file or folder.
+        // A simple check could be if MIME_TYPE is null for folders, or check file system.
+        // However, it's more robust to check the file system attributes if possible,
+        // or rely on MediaStore.Files.FileColumns.MEDIA_TYPE (equals MEDIA_TYPE_NONE for folders)
+        // For now, let's use a filesystem check on the path.
+        val filePath = cursor.getString(cursor.getColumnIndexOrThrow(commonProjection[0]))?.toPath()
+            ?: return null
+        return if (filePath.isDirectory() && !filePath.isRegularFile()) {
+            createFolderInfoFromCursor(cursor)
+        } else {
+            createFileInfoFromCursor(cursor)
+        }
+    }
+
     private fun createFileInfoFromCursor(cursor: Cursor): FileInfo? {
         val pathString = cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATA)) ?: return null
         val path = pathString.toPath()
@@ -2,50 +2,75 @@ package app.lawnchair.search.algorithms.engine.provider
 
 import android.content.ContentResolver
 import android.content.Context
-import android.database.Cursor
-import android.net.Uri
 import android.util.Log
-import androidx.core.net.toUri
 import app.lawnchair.search.LawnchairRecentSuggestionProvider
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.COLUMN_DATE
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.COLUMN_DISPLAY1
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.COLUMN_ID
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.COLUMN_NORMALIZED
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.COLUMN_QUERY
 import app.lawnchair.search.algorithms.data.RecentKeyword
 import app.lawnchair.search.algorithms.engine.SearchResult
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 
 object HistorySearchProvider {
+
+    private val PROJECTION = arrayOf(COLUMN_ID, COLUMN_DISPLAY1, COLUMN_QUERY, COLUMN_DATE)
+
     /**
      * Fetches recent search keywords from the suggestion provider.
      * This is a suspend function that performs its work on the IO dispatcher.
      *
+     * The ordering, the prefix filter and the limit are applied by the provider's query, so the
+     * cost depends on the number of results rather than on the size of the history.
+     *
      * @param context The application context.
      * @param maxResults The maximum number of keywords to return.
-     * @return A list of [SearchResult.History] items.
+     * @param prefix Only returns the keywords starting with it, ignoring case, if not empty.
+     * @return A list of [SearchResult.History] items, most recent first.
      */
-    suspend fun getRecentKeywords(context: Context, maxResults: Int): List<SearchResult.History> {
+    suspend fun getRecentKeywords(
+        context: Context,
+        maxResults: Int,
+        prefix: String = "",
+    ): List<SearchResult.History> {
+        if (maxResults <= 0) return emptyList()
         return withContext(Dispatchers.IO) {
             try {
                 val contentResolver: ContentResolver = context.contentResolver
-                val uri: Uri = "content://${LawnchairRecentSuggestionProvider.AUTHORITY}/suggestions".toUri()
+                val uri = LawnchairRecentSuggestionProvider.SUGGESTIONS_URI.buildUpon()
+                    .appendQueryParameter(LawnchairRecentSuggestionProvider.PARAM_LIMIT, maxResults.toString())
+                    .build()
 
-                val cursor: Cursor? = contentResolver.query(uri, null, null, null, null)
-                val recentKeywords = mutableListOf<RecentKeyword>()
-
-                cursor?.use {
-                    val columnCount = it.columnCount
-                    while (it.moveToNext()) {
-                        val recentKeywordData = mutableMapOf<String, String>()
-                        for (i in 0 until columnCount) {
-                            val columnName = it.getColumnName(i)
-                            val columnValue = it.getString(i) ?: ""
-                            recentKeywordData[columnName] = columnValue
-                        }
-                        recentKeywords.add(RecentKeyword(recentKeywordData))
+                val normalized = LawnchairRecentSuggestionProvider.normalize(prefix)
+                // A range rather than LIKE so that the index on the normalized column is used
+                val (selection, selectionArgs) = when {
+                    normalized.isEmpty() -> null to null
+                    // No upper bound past the last char, leave the range open and check the prefix
+                    normalized.last() == Char.MAX_VALUE ->
+                        "$COLUMN_NORMALIZED >= ? AND substr($COLUMN_NORMALIZED, 1, " +
+                            "${normalized.codePointCount(0, normalized.length)}) = ?" to
+                            arrayOf(normalized, normalized)
+                    else -> {
+                        val upperBound = normalized.dropLast(1) + (normalized.last() + 1)
+                        "$COLUMN_NORMALIZED >= ? AND $COLUMN_NORMALIZED < ?" to arrayOf(normalized, upperBound)
                     }
                 }
 
-                recentKeywords.asReversed()
-                    .take(maxResults)
-                    .map { SearchResult.History(data = it) }
+                contentResolver.query(uri, PROJECTION, selection, selectionArgs, "$COLUMN_DATE DESC")
+                    ?.use {
+                        val columnCount = it.columnCount
+                        buildList {
+                            while (it.moveToNext()) {
+                                val recentKeywordData = mutableMapOf<String, String>()
+                                for (i in 0 until columnCount) {
+                                    recentKeywordData[it.getColumnName(i)] = it.getString(i) ?: ""
+                                }
+                                add(SearchResult.History(data = RecentKeyword(recentKeywordData)))
+                            }
+                        }
+                    } ?: emptyList()
             } catch (e: Exception) {
                 Log.e("HistorySearchProvider", "Error during recent keyword retrieval", e)
                 emptyList()
@@ -0,0 +1,142 @@
+package app.lawnchair.search.algorithms.engine.provider
+
+import android.content.ContentValues
+import android.content.Context
+import android.database.ContentObserver
+import android.database.sqlite.SQLiteDatabase
+import android.database.sqlite.SQLiteOpenHelper
+import android.net.Uri
+import androidx.annotation.WorkerThread
+import com.android.launcher3.util.Executors.DATA_HELPER_EXECUTOR
+import com.android.launcher3.util.SafeCloseable
+
+/**
+ * Base of the launcher-private full-text indexes of a content provider, so that searching it is an
+ * indexed word-prefix lookup instead of a `LIKE '%query%'` scan on every keystroke.
+ *
+ * The database holds the FTS table of the subclass, created in [onCreateIndex], and a key-value
+ * state table for its sync bookkeeping. Once [observe]d, the index follows the provider through a
+ * [ContentObserver] and [sync]s shortly after every change. Everything but [isReady] and the
+ * searches runs on [DATA_HELPER_EXECUTOR].
+ */
+abstract class ProviderIndex(
+    protected val context: Context,
+    dbName: String?,
+    dbVersion: Int,
+    private val indexTable: String,
+) : SafeCloseable {
+
+    protected val dbHelper: SQLiteOpenHelper = IndexDbHelper(context, dbName, dbVersion)
+    private val syncRunnable = Runnable { sync() }
+    private var started = false
+
+    private val observer = object : ContentObserver(DATA_HELPER_EXECUTOR.handler) {
+        override fun onChange(selfChange: Boolean, uris: Collection<Uri>, flags: Int) {
+            onProviderChanged(uris, flags)
+            scheduleSync()
+        }
+
+        override fun onChange(selfChange: Boolean) {
+            onProviderChanged(null, 0)
+            scheduleSync()
+        }
+    }
+
+    /**
+     * Whether the index was synced at least once and can serve searches. Until then, callers
+     * should query the provider directly.
+     */
+    @Volatile
+    var isReady = false
+        protected set
+
+    /** Brings the index up to date with the provider changes since the last sync. */
+    @WorkerThread
+    abstract fun sync()
+
+    /** Creates the FTS table of the index, named as given to the constructor. */
+    protected abstract fun onCreateIndex(db: SQLiteDatabase)
+
+    /**
+     * Called on [DATA_HELPER_EXECUTOR] when the provider notified a change, before the sync is
+     * scheduled. [uris] is null if the provider didn't tell which items changed.
+     */
+    protected open fun onProviderChanged(uris: Collection<Uri>?, flags: Int) {}
+
+    /**
+     * Starts following the changes of [uri], returning false if the index was already following
+     * it. Must be called on [DATA_HELPER_EXECUTOR].
+     */
+    @WorkerThread
+    protected fun observe(uri: Uri): Boolean {
+        if (started) return false
+        started = true
+        context.contentResolver.registerContentObserver(uri, true, observer)
+        return true
+    }
+
+    override fun close() {
+        DATA_HELPER_EXECUTOR.execute {
+            DATA_HELPER_EXECUTOR.handler.removeCallbacks(syncRunnable)
+            if (started) context.contentResolver.unregisterContentObserver(observer)
+            dbHelper.close()
+        }
+    }
+
+    private fun scheduleSync() {
+        DATA_HELPER_EXECUTOR.handler.removeCallbacks(syncRunnable)
+        DATA_HELPER_EXECUTOR.handler.postDelayed(syncRunnable, SYNC_DELAY_MS)
+    }
+
+    protected fun clearState(db: SQLiteDatabase) {
+        db.delete(TABLE_STATE, null, null)
+    }
+
+    protected fun readState(db: SQLiteDatabase, key: String): String? =
+        db.rawQuery("SELECT value FROM $TABLE_STATE WHERE key = ?", arrayOf(key))
+            .use { if (it.moveToFirst()) it.getString(0) else null }
+
+    protected fun readLong(db: SQLiteDatabase, key: String): Long =
+        readState(db, key)?.toLongOrNull() ?: 0L
+
+    protected fun writeState(db: SQLiteDatabase, key: String, value: Any) {
+        db.insertWithOnConflict(
+            TABLE_STATE,
+            null,
+            ContentValues().apply {
+                put("key", key)
+                put("value", value.toString())
+            },
+            SQLiteDatabase.CONFLICT_REPLACE,
+        )
+    }
+
+    private inner class IndexDbHelper(context: Context, name: String?, version: Int) :
+        SQLiteOpenHelper(context, name, null, version) {
+
+        init {
+            setWriteAheadLoggingEnabled(true)
+        }
+
+        override fun onCreate(db: SQLiteDatabase) {
+            onCreateIndex(db)
+            db.execSQL("CREATE TABLE $TABLE_STATE (key TEXT PRIMARY KEY, value TEXT)")
+        }
+
+        override fun onUpgrade(db: SQLiteDatabase, oldVersion: Int, newVersion: Int) {
+            // The index is a copy of the provider, rebuild it from scratch
+            db.execSQL("DROP TABLE IF EXISTS $indexTable")
+            db.execSQL("DROP TABLE IF EXISTS $TABLE_STATE")
+            onCreate(db)
+        }
+
+        override fun onDowngrade(db: SQLiteDatabase, oldVersion: Int, newVersion: Int) {
+            onUpgrade(db, oldVersion, newVersion)
+        }
+    }
+
+    companion object {
+        private const val TABLE_STATE = "state"
+        private const val SYNC_DELAY_MS = 2000L
+    }
+}
@@ -0,0 +1,267 @@
+package app.lawnchair.search.algorithms.engine.provider.contacts
+
+import android.content.ContentValues
+import android.content.Context
+import android.database.sqlite.SQLiteDatabase
+import android.provider.ContactsContract.CommonDataKinds.Phone
+import android.provider.ContactsContract.Contacts
+import android.provider.ContactsContract.DeletedContacts
+import android.util.Log
+import androidx.annotation.VisibleForTesting
+import androidx.annotation.WorkerThread
+import app.lawnchair.search.algorithms.data.ContactInfo
+import app.lawnchair.search.algorithms.engine.provider.ProviderIndex
+import com.android.launcher3.util.Executors.DATA_HELPER_EXECUTOR
+import com.android.launcher3.util.MainThreadInitializedObject
+
+/**
+ * Full-text index of the contacts, holding one FTS4 row per contact with its display name and the
+ * digits of its phone numbers. Each sync only reads the contacts updated or deleted since the last
+ * one.
+ */
+class ContactsIndex @VisibleForTesting internal constructor(
+    context: Context,
+    dbName: String? = DB_NAME,
+    private val clock: () -> Long = System::currentTimeMillis,
+) : ProviderIndex(context, dbName, DB_VERSION, TABLE_CONTACTS) {
+
+    /**
+     * Starts following the contacts provider, syncing the index right away. Needs the
+     * READ_CONTACTS permission.
+     */
+    fun start() {
+        DATA_HELPER_EXECUTOR.execute {
+            if (!observe(Contacts.CONTENT_URI)) return@execute
+            isReady = readLong(dbHelper.readableDatabase, KEY_LAST_SYNC) > 0
+            sync()
+        }
+    }
+
+    @WorkerThread
+    override fun sync() {
+        try {
+            val db = dbHelper.writableDatabase
+            val now = clock()
+            val lastSync = readLong(db, KEY_LAST_SYNC)
+            // The provider only remembers deleted contacts for a while, rebuild past that
+            val rebuild = lastSync == 0L || now - lastSync > DeletedContacts.DAYS_KEPT_MILLISECONDS
+            db.beginTransaction()
+            try {
+                // Provider time of the last change read, the next sync reads the changes since
+                var watermark = if (rebuild) 0L else readLong(db, KEY_WATERMARK)
+                if (rebuild) {
+                    db.delete(TABLE_CONTACTS, null, null)
+                } else {
+                    watermark = maxOf(watermark, applyDeletes(db, watermark))
+                }
+                watermark = maxOf(watermark, applyUpdates(db, if (rebuild) 0L else watermark))
+                writeState(db, KEY_WATERMARK, watermark)
+                writeState(db, KEY_LAST_SYNC, maxOf(now, 1L))
+                db.setTransactionSuccessful()
+            } finally {
+                db.endTransaction()
+            }
+            isReady = true
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to sync contacts index", e)
+        }
+    }
+
+    /**
+     * Returns up to [max] contacts whose name has words starting with every word of [query], or
+     * whose phone number starts with [query] if it looks like one. Contacts whose name starts with
+     * the query come first.
+     */
+    @WorkerThread
+    fun search(query: String, max: Int): List<ContactInfo> {
+        val trimmed = query.trim()
+        if (max <= 0) return emptyList()
+        val match = buildMatch(trimmed) ?: return emptyList()
+        val sql = "SELECT docid, $COLUMN_NAME, $COLUMN_NUMBER, $COLUMN_PHOTO, $COLUMN_LABEL " +
+            "FROM $TABLE_CONTACTS WHERE $TABLE_CONTACTS MATCH ? " +
+            "ORDER BY CASE WHEN substr($COLUMN_NAME, 1, ${trimmed.length}) = ? COLLATE NOCASE " +
+            "THEN 0 ELSE 1 END, $COLUMN_NAME COLLATE NOCASE LIMIT $max"
+        return try {
+            dbHelper.readableDatabase.rawQuery(sql, arrayOf(match, trimmed)).use { c ->
+                val result = ArrayList<ContactInfo>(c.count)
+                while (c.moveToNext()) {
+                    val contactId = c.getLong(0).toString()
+                    val name = c.getString(1)
+                    val number = c.getString(2).orEmpty()
+                    result.add(
+                        ContactInfo(
+                            contactId = contactId,
+                            name = name,
+                            number = number,
+                            phoneBookLabel = c.getString(4).orEmpty(),
+                            uri = c.getString(3).orEmpty(),
+                            packages = contactId + name + number,
+                        ),
+                    )
+                }
+                result
+            }
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to search contacts index", e)
+            emptyList()
+        }
+    }
+
+    override fun onCreateIndex(db: SQLiteDatabase) {
+        db.execSQL(
+            "CREATE VIRTUAL TABLE $TABLE_CONTACTS USING fts4(" +
+                "$COLUMN_NAME, $COLUMN_PHONES, $COLUMN_NUMBER, $COLUMN_LOOKUP, $COLUMN_PHOTO, " +
+                "$COLUMN_LABEL, notindexed=$COLUMN_NUMBER, notindexed=$COLUMN_LOOKUP, " +
+                "notindexed=$COLUMN_PHOTO, notindexed=$COLUMN_LABEL, tokenize=unicode61)",
+        )
+    }
+
+    /** Removes the contacts deleted since [since], returning the last deletion time. */
+    private fun applyDeletes(db: SQLiteDatabase, since: Long): Long {
+        var last = 0L
+        context.contentResolver.query(
+            DeletedContacts.CONTENT_URI,
+            arrayOf(DeletedContacts.CONTACT_ID, DeletedContacts.CONTACT_DELETED_TIMESTAMP),
+            "${DeletedContacts.CONTACT_DELETED_TIMESTAMP} >= ?",
+            arrayOf(since.toString()),
+            null,
+        )?.use { c ->
+            while (c.moveToNext()) {
+                db.delete(TABLE_CONTACTS, "docid = ?", arrayOf(c.getLong(0).toString()))
+                last = maxOf(last, c.getLong(1))
+            }
+        }
+        return last
+    }
+
+    /**
+     * Writes the contacts updated since [since], returning the last update time. Contacts which
+     * lost their display name are removed.
+     */
+    private fun applyUpdates(db: SQLiteDatabase, since: Long): Long {
+        val changed = LinkedHashMap<Long, ContentValues>()
+        var last = 0L
+        context.contentResolver.query(
+            Contacts.CONTENT_URI,
+            CONTACT_PROJECTION,
+            "${Contacts.CONTACT_LAST_UPDATED_TIMESTAMP} >= ?",
+            arrayOf(since.toString()),
+            null,
+        )?.use { c ->
+            while (c.moveToNext()) {
+                val id = c.getLong(0)
+                last = maxOf(last, c.getLong(5))
+                val name = c.getString(2)
+                if (name == null) {
+                    db.delete(TABLE_CONTACTS, "docid = ?", arrayOf(id.toString()))
+                    continue
+                }
+                changed[id] = ContentValues().apply {
+                    put("docid", id)
+                    put(COLUMN_NAME, name)
+                    put(COLUMN_LOOKUP, c.getString(1))
+                    put(COLUMN_PHOTO, c.getString(3))
+                    put(COLUMN_LABEL, c.getString(4))
+                }
+            }
+        }
+        if (changed.isEmpty()) return last
+
+        val phones = HashMap<Long, PhoneTokens>()
+        if (since == 0L) {
+            readPhones(null, phones)
+        } else {
+            changed.keys.chunked(MAX_SELECTION_ARGS).forEach { ids -> readPhones(ids, phones) }
+        }
+        for ((id, values) in changed) {
+            phones[id]?.let {
+                values.put(COLUMN_NUMBER, it.displayNumber)
+                values.put(COLUMN_PHONES, it.tokens.joinToString(" "))
+            }
+            db.delete(TABLE_CONTACTS, "docid = ?", arrayOf(id.toString()))
+            db.insert(TABLE_CONTACTS, null, values)
+        }
+        return last
+    }
+
+    private fun readPhones(contactIds: List<Long>?, out: MutableMap<Long, PhoneTokens>) {
+        val selection = contactIds?.joinToString(",", "${Phone.CONTACT_ID} IN (", ")") { "?" }
+        context.contentResolver.query(
+            Phone.CONTENT_URI,
+            arrayOf(Phone.CONTACT_ID, Phone.NUMBER, Phone.NORMALIZED_NUMBER),
+            selection,
+            contactIds?.map { it.toString() }?.toTypedArray(),
+            null,
+        )?.use { c ->
+            while (c.moveToNext()) {
+                val number = c.getString(1) ?: continue
+                val tokens = out.getOrPut(c.getLong(0)) { PhoneTokens(number) }.tokens
+                for (value in arrayOf(number, c.getString(2))) {
+                    val digits = value?.filter(Char::isDigit)
+                    if (!digits.isNullOrEmpty()) tokens.add(digits)
+                }
+            }
+        }
+    }
+
+    private class PhoneTokens(val displayNumber: String) {
+        val tokens = LinkedHashSet<String>()
+    }
+
+    companion object {
+        private const val TAG = "ContactsIndex"
+
+        private const val DB_NAME = "contacts_index.db"
+        // Version 1 stored the provider time of the last change as the last sync time
+        private const val DB_VERSION = 2
+        private const val TABLE_CONTACTS = "contacts"
+
+        /** Wall clock time of the last sync */
+        private const val KEY_LAST_SYNC = "last_sync"
+
+        /** Provider time of the last update or deletion read */
+        private const val KEY_WATERMARK = "watermark"
+
+        private const val COLUMN_NAME = "name"
+        private const val COLUMN_PHONES = "phones"
+        private const val COLUMN_NUMBER = "number"
+        private const val COLUMN_LOOKUP = "lookup"
+        private const val COLUMN_PHOTO = "photo"
+        private const val COLUMN_LABEL = "label"
+
+        private const val MAX_SELECTION_ARGS = 500
+        private const val MIN_PHONE_DIGITS = 2
+
+        private val CONTACT_PROJECTION = arrayOf(
+            Contacts._ID,
+            Contacts.LOOKUP_KEY,
+            Contacts.DISPLAY_NAME_PRIMARY,
+            Contacts.PHOTO_URI,
+            Contacts.PHONEBOOK_LABEL_PRIMARY,
+            Contacts.CONTACT_LAST_UPDATED_TIMESTAMP,
+        )
+
+        @JvmField
+        val INSTANCE = MainThreadInitializedObject { ContactsIndex(it) }
+
+        fun getInstance(context: Context): ContactsIndex = INSTANCE.get(context)
+
+        /**
+         * Returns the FTS query for [query]: a prefix match on the phone numbers if it only holds
+         * phone number characters, else a prefix match on the name for every word.
+         */
+        @VisibleForTesting
+        internal fun buildMatch(query: String): String? {
+            if (query.all { it.isDigit() || it in PHONE_SEPARATORS }) {
+                val digits = query.filter(Char::isDigit)
+                return if (digits.length >= MIN_PHONE_DIGITS) "$COLUMN_PHONES:$digits*" else null
+            }
+            val words = query.lowercase().split(NON_WORD).filter { it.isNotEmpty() }
+            if (words.isEmpty()) return null
+            return words.joinToString(" ") { "$COLUMN_NAME:$it*" }
+        }
+
+        private const val PHONE_SEPARATORS = "+-() ."
+        private val NON_WORD = Regex("[^\\p{L}\\p{N}]+")
+    }
+}
@@ -0,0 +1,321 @@
+package app.lawnchair.search.algorithms.engine.provider.files
+
+import android.content.ContentResolver
+import android.content.ContentUris
+import android.content.Context
+import android.database.Cursor
+import android.database.sqlite.SQLiteDatabase
+import android.net.Uri
+import android.os.Environment
+import android.provider.MediaStore
+import android.provider.MediaStore.Files.FileColumns
+import android.util.Log
+import androidx.annotation.VisibleForTesting
+import androidx.annotation.WorkerThread
+import app.lawnchair.search.algorithms.engine.provider.ProviderIndex
+import com.android.launcher3.Utilities
+import com.android.launcher3.util.Executors.DATA_HELPER_EXECUTOR
+import com.android.launcher3.util.MainThreadInitializedObject
+
+/**
+ * Full-text index of the file names known to MediaStore, holding one FTS4 row per file with the
+ * words of its name, title and folder, plus the columns needed to show it. Each sync only copies
+ * the files changed since the last one: on R and above those with a newer generation than the last
+ * one seen on each volume, below those added or modified after the last sync.
+ */
+class FileNameIndex @VisibleForTesting internal constructor(
+    context: Context,
+    dbName: String? = DB_NAME,
+    private val externalVolumes: () -> Collection<String> = {
+        MediaStore.getExternalVolumeNames(context)
+    },
+) : ProviderIndex(context, dbName, DB_VERSION, TABLE_FILES) {
+
+    private var accessKey = ""
+
+    /** Ids deleted since the last sync, -1 if some deletes couldn't be tracked to their id */
+    private val pendingDeletes = HashSet<Long>()
+
+    /**
+     * Starts following MediaStore, syncing the index right away. [accessKey] describes the storage
+     * permissions granted: the files visible through MediaStore depend on them, so the index is
+     * rebuilt when it changes.
+     */
+    fun start(accessKey: String) {
+        DATA_HELPER_EXECUTOR.execute {
+            val observing = observe(MediaStore.Files.getContentUri(EXTERNAL_VOLUME))
+            if (!observing && accessKey == this.accessKey) return@execute
+            this.accessKey = accessKey
+            // Files may have been deleted while we weren't listening
+            if (observing) pendingDeletes.add(UNKNOWN_ID)
+            val db = dbHelper.readableDatabase
+            isReady = readState(db, KEY_ACCESS) == accessKey && readLong(db, KEY_LAST_SYNC) > 0
+            sync()
+        }
+    }
+
+    @WorkerThread
+    override fun sync() = sync(checkDeleted = UNKNOWN_ID in pendingDeletes)
+
+    /**
+     * Syncs the index, looking for the deleted files among all the files MediaStore knows if
+     * [checkDeleted], else only removing the deletes it was notified of.
+     */
+    @VisibleForTesting
+    @WorkerThread
+    internal fun sync(checkDeleted: Boolean) {
+        try {
+            val db = dbHelper.writableDatabase
+            val version = if (Utilities.ATLEAST_R) MediaStore.getVersion(context) else ""
+            val rebuild = readLong(db, KEY_LAST_SYNC) == 0L ||
+                readState(db, KEY_VERSION) != version ||
+                readState(db, KEY_ACCESS) != accessKey
+            db.beginTransaction()
+            try {
+                if (rebuild) {
+                    db.delete(TABLE_FILES, null, null)
+                    clearState(db)
+                } else if (checkDeleted) {
+                    removeDeletedFiles(db)
+                } else {
+                    pendingDeletes.forEach { deleteRow(db, it) }
+                }
+                pendingDeletes.clear()
+                copyChangedFiles(db)
+                writeState(db, KEY_VERSION, version)
+                writeState(db, KEY_ACCESS, accessKey)
+                writeState(db, KEY_LAST_SYNC, System.currentTimeMillis())
+                db.setTransactionSuccessful()
+            } finally {
+                db.endTransaction()
+            }
+            isReady = true
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to sync file index", e)
+        }
+    }
+
+    /**
+     * Returns the files with a word starting with every word of [query], most recently modified
+     * first after the files whose name starts with the query. The cursor has the MediaStore
+     * columns `_id`, `_data`, `_display_name`, `_size`, `date_modified` and `mime_type`.
+     *
+     * @param mediaTypes only returns files of these [FileColumns.MEDIA_TYPE]s if not null
+     * @param nameOnly only matches the name and title of the files, not their folder
+     * @param limit maximum number of rows to return
+     */
+    @WorkerThread
+    fun query(query: String, mediaTypes: IntArray?, nameOnly: Boolean, limit: Int): Cursor? {
+        val trimmed = query.trim()
+        val match = buildMatch(trimmed, nameOnly) ?: return null
+        val typeFilter = mediaTypes?.joinToString(",", " AND ${FileColumns.MEDIA_TYPE} IN (", ")")
+            .orEmpty()
+        val sql = "SELECT docid AS ${FileColumns._ID}, ${FileColumns.DATA}, " +
+            "${FileColumns.DISPLAY_NAME}, ${FileColumns.SIZE}, ${FileColumns.DATE_MODIFIED}, " +
+            "${FileColumns.MIME_TYPE} FROM $TABLE_FILES WHERE $TABLE_FILES MATCH ?$typeFilter " +
+            "ORDER BY CASE WHEN substr(${FileColumns.DISPLAY_NAME}, 1, ${trimmed.length}) = ? " +
+            "COLLATE NOCASE THEN 0 ELSE 1 END, ${FileColumns.DATE_MODIFIED} DESC LIMIT $limit"
+        return try {
+            dbHelper.readableDatabase.rawQuery(sql, arrayOf(match, trimmed))
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to query file index", e)
+            null
+        }
+    }
+
+    override fun onProviderChanged(uris: Collection<Uri>?, flags: Int) {
+        if (uris == null) {
+            pendingDeletes.add(UNKNOWN_ID)
+        } else if (flags and ContentResolver.NOTIFY_DELETE != 0) {
+            uris.forEach { pendingDeletes.add(parseIdOrUnknown(it)) }
+        }
+    }
+
+    override fun onCreateIndex(db: SQLiteDatabase) {
+        val stored = listOf(
+            FileColumns.DATA,
+            FileColumns.DISPLAY_NAME,
+            FileColumns.SIZE,
+            FileColumns.DATE_MODIFIED,
+            FileColumns.MIME_TYPE,
+            FileColumns.MEDIA_TYPE,
+        )
+        db.execSQL(
+            "CREATE VIRTUAL TABLE $TABLE_FILES USING fts4($COLUMN_NAME, $COLUMN_FOLDER, " +
+                stored.joinToString(", ") + ", " +
+                stored.joinToString(", ") { "notindexed=$it" } + ", tokenize=unicode61)",
+        )
+    }
+
+    private fun copyChangedFiles(db: SQLiteDatabase) {
+        if (Utilities.ATLEAST_R) {
+            for (volume in externalVolumes()) {
+                val key = KEY_GENERATION_PREFIX + volume
+                val since = readLong(db, key)
+                val last = copyFiles(
+                    db,
+                    MediaStore.Files.getContentUri(volume),
+                    "${FileColumns.GENERATION_MODIFIED} > ?",
+                    arrayOf(since.toString()),
+                    FileColumns.GENERATION_MODIFIED,
+                )
+                writeState(db, key, maxOf(since, last))
+            }
+        } else {
+            val since = readLong(db, KEY_LAST_MODIFIED)
+            val last = copyFiles(
+                db,
+                MediaStore.Files.getContentUri(EXTERNAL_VOLUME),
+                "${FileColumns.DATE_ADDED} >= ? OR ${FileColumns.DATE_MODIFIED} >= ?",
+                arrayOf(since.toString(), since.toString()),
+                FileColumns.DATE_ADDED,
+            )
+            writeState(db, KEY_LAST_MODIFIED, maxOf(since, last))
+        }
+    }
+
+    /**
+     * Copies the files matching [selection] to the index, returning the highest [watermarkColumn]
+     * seen (or its highest with the modification date below R).
+     */
+    private fun copyFiles(
+        db: SQLiteDatabase,
+        uri: Uri,
+        selection: String,
+        selectionArgs: Array<String>,
+        watermarkColumn: String,
+    ): Long {
+        val projection = arrayOf(
+            FileColumns._ID,
+            FileColumns.DATA,
+            FileColumns.DISPLAY_NAME,
+            FileColumns.TITLE,
+            FileColumns.SIZE,
+            FileColumns.DATE_MODIFIED,
+            FileColumns.MIME_TYPE,
+            FileColumns.MEDIA_TYPE,
+            watermarkColumn,
+        )
+        val storageRoot = Environment.getExternalStorageDirectory().path + "/"
+        val delete = db.compileStatement("DELETE FROM $TABLE_FILES WHERE docid = ?")
+        val insert = db.compileStatement(
+            "INSERT INTO $TABLE_FILES (docid, $COLUMN_NAME, $COLUMN_FOLDER, ${FileColumns.DATA}, " +
+                "${FileColumns.DISPLAY_NAME}, ${FileColumns.SIZE}, ${FileColumns.DATE_MODIFIED}, " +
+                "${FileColumns.MIME_TYPE}, ${FileColumns.MEDIA_TYPE}) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+        )
+        var last = 0L
+        try {
+            context.contentResolver.query(uri, projection, selection, selectionArgs, null)?.use { c ->
+                while (c.moveToNext()) {
+                    val id = c.getLong(0)
+                    last = maxOf(last, c.getLong(8))
+                    if (!Utilities.ATLEAST_R) last = maxOf(last, c.getLong(5))
+                    delete.bindLong(1, id)
+                    delete.executeUpdateDelete()
+
+                    val path = c.getString(1) ?: continue
+                    val displayName = c.getString(2) ?: path.substringAfterLast('/')
+                    val title = c.getString(3)
+                    insert.clearBindings()
+                    insert.bindLong(1, id)
+                    insert.bindString(
+                        2,
+                        if (title.isNullOrEmpty() || displayName.startsWith(title)) {
+                            displayName
+                        } else {
+                            "$displayName $title"
+                        },
+                    )
+                    insert.bindString(3, path.substringBeforeLast('/', "").removePrefix(storageRoot))
+                    insert.bindString(4, path)
+                    insert.bindString(5, displayName)
+                    insert.bindLong(6, c.getLong(4))
+                    insert.bindLong(7, c.getLong(5))
+                    c.getString(6)?.let { insert.bindString(8, it) }
+                    insert.bindLong(9, c.getLong(7))
+                    insert.executeInsert()
+                }
+            }
+        } finally {
+            delete.close()
+            insert.close()
+        }
+        return last
+    }
+
+    /** Removes the rows of the files which MediaStore doesn't know anymore. */
+    private fun removeDeletedFiles(db: SQLiteDatabase) {
+        val removed = ArrayList<Long>()
+        db.rawQuery("SELECT docid FROM $TABLE_FILES ORDER BY docid", null).use { indexed ->
+            context.contentResolver.query(
+                MediaStore.Files.getContentUri(EXTERNAL_VOLUME),
+                arrayOf(FileColumns._ID),
+                null,
+                null,
+                "${FileColumns._ID} ASC",
+            )?.use { known ->
+                // Both are sorted by id, walk them together
+                var knownId = if (known.moveToNext()) known.getLong(0) else Long.MAX_VALUE
+                while (indexed.moveToNext()) {
+                    val id = indexed.getLong(0)
+                    while (knownId < id) {
+                        knownId = if (known.moveToNext()) known.getLong(0) else Long.MAX_VALUE
+                    }
+                    if (knownId != id) removed.add(id)
+                }
+            }
+        }
+        removed.forEach { deleteRow(db, it) }
+    }
+
+    private fun deleteRow(db: SQLiteDatabase, id: Long) {
+        db.delete(TABLE_FILES, "docid = ?", arrayOf(id.toString()))
+    }
+
+    companion object {
+        private const val TAG = "FileNameIndex"
+
+        private const val DB_NAME = "file_index.db"
+        private const val DB_VERSION = 1
+        private const val TABLE_FILES = "files"
+
+        private const val KEY_LAST_SYNC = "last_sync"
+        private const val KEY_VERSION = "version"
+        private const val KEY_ACCESS = "access"
+        private const val KEY_LAST_MODIFIED = "last_modified"
+        private const val KEY_GENERATION_PREFIX = "generation:"
+
+        /** Words of the name and title of the file */
+        private const val COLUMN_NAME = "name"
+
+        /** Words of the folder of the file, relative to the storage root */
+        private const val COLUMN_FOLDER = "folder"
+
+        /** All the external volumes, MediaStore.VOLUME_EXTERNAL is only defined from Q */
+        private const val EXTERNAL_VOLUME = "external"
+
+        private const val UNKNOWN_ID = -1L
+
+        private val NON_WORD = Regex("[^\\p{L}\\p{N}]+")
+
+        @JvmField
+        val INSTANCE = MainThreadInitializedObject { FileNameIndex(it) }
+
+        fun getInstance(context: Context): FileNameIndex = INSTANCE.get(context)
+
+        /** Returns the FTS query matching a word prefix for every word of [query]. */
+        @VisibleForTesting
+        internal fun buildMatch(query: String, nameOnly: Boolean): String? {
+            val words = query.lowercase().split(NON_WORD).filter { it.isNotEmpty() }
+            if (words.isEmpty()) return null
+            val column = if (nameOnly) "$COLUMN_NAME:" else ""
+            return words.joinToString(" ") { "$column$it*" }
+        }
+
+        private fun parseIdOrUnknown(uri: Uri): Long = try {
+            ContentUris.parseId(uri)
+        } catch (e: RuntimeException) {
+            UNKNOWN_ID
+        }
+    }
+}
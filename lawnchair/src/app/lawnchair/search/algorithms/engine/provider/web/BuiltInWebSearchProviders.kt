@@ -35,11 +35,8 @@ object GoogleWebSearchProvider : WebSearchProvider {
     override val id: String = "google"
 
     private val retrofit: Retrofit by lazy {
-        Retrofit.Builder()
-            .baseUrl("https://www.google.com/")
-            // Note: We use a custom string converter because Google's response is not valid JSON.
-            .addConverterFactory(StringConverterFactory.create())
-            .build()
+        // Note: We use a custom string converter because Google's response is not valid JSON.
+        WebSuggestionHttp.retrofit("https://www.google.com/", StringConverterFactory.create())
     }
 
     private val service: GoogleService by lazy {
@@ -118,10 +115,10 @@ object DuckDuckGoWebSearchProvider : WebSearchProvider {
 
     // 1. Use the standard kotlinx.serialization converter since DDG's API is clean.
     private val retrofit: Retrofit by lazy {
-        Retrofit.Builder()
-            .baseUrl("https://ac.duckduckgo.com/")
-            .addConverterFactory(kotlinxJson.asConverterFactory("application/json".toMediaType()))
-            .build()
+        WebSuggestionHttp.retrofit(
+            "https://ac.duckduckgo.com/",
+            kotlinxJson.asConverterFactory("application/json".toMediaType()),
+        )
     }
 
     private val service: DuckDuckGoService by lazy {
@@ -201,10 +198,8 @@ object StartPageWebSearchProvider : WebSearchProvider {
     override val id: String = "startpage"
 
     private val retrofit: Retrofit by lazy {
-        Retrofit.Builder()
-            .baseUrl("https://www.startpage.com/")
-            .addConverterFactory(StringConverterFactory.create()) // StartPage also returns non-standard JSON
-            .build()
+        // StartPage also returns non-standard JSON
+        WebSuggestionHttp.retrofit("https://www.startpage.com/", StringConverterFactory.create())
     }
 
     private val service: StartPageService by lazy {
@@ -284,12 +279,9 @@ object KagiWebSearchProvider : WebSearchProvider {
     override val id: String = "kagi"
 
     private val retrofit: Retrofit by lazy {
-        Retrofit.Builder()
-            .baseUrl("https://kagi.com/")
-            // Kagi uses a simple JSON array, but we'll use the string converter for consistency
-            // in case their API ever wraps the response.
-            .addConverterFactory(StringConverterFactory.create())
-            .build()
+        // Kagi uses a simple JSON array, but we'll use the string converter for consistency
+        // in case their API ever wraps the response.
+        WebSuggestionHttp.retrofit("https://kagi.com/", StringConverterFactory.create())
     }
 
     private val service: KagiService by lazy {
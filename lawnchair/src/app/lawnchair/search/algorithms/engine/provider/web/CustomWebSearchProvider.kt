@@ -10,7 +10,6 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.flow.flowOn
-import okhttp3.OkHttpClient
 import okhttp3.Request
 import org.json.JSONArray
 
@@ -42,10 +41,11 @@ object CustomWebSearchProvider : WebSearchProvider {
     private var searchUrlTemplate: String = ""
     private var suggestionsUrlTemplate: String = ""
     private var displayName: String = ""
-    private val okHttpClient = OkHttpClient()
 
     fun getDisplayName(): String = displayName
 
+    fun getSuggestionsUrlTemplate(): String = suggestionsUrlTemplate
+
     override fun configure(context: Context): WebSearchProvider {
         val prefs = PreferenceManager2.getInstance(context)
         searchUrlTemplate = prefs.webSuggestionProviderUrl.firstBlocking()
@@ -65,7 +65,7 @@ object CustomWebSearchProvider : WebSearchProvider {
             val url = suggestionsUrlTemplate.replace("%s", encodedQuery)
 
             val request = Request.Builder().url(url).build()
-            okHttpClient.newCall(request).execute().use { response ->
+            WebSuggestionHttp.client.newCall(request).await().use { response ->
                 if (response.isSuccessful) {
                     val responseBody = response.body.string()
                     // We assume a standard OpenSearch format, as it's the most common.
@@ -0,0 +1,79 @@
+package app.lawnchair.search.algorithms.engine.provider.web
+
+import android.os.SystemClock
+
+/**
+ * In-memory LRU of the suggestions returned for a query, so typing a character and deleting it
+ * again, or searching the same thing twice in a row, doesn't hit the network again.
+ *
+ * Entries expire after [ttlMs]: suggestions follow trends, so they shouldn't be kept forever.
+ */
+class WebSuggestionCache(
+    private val maxEntries: Int = DEFAULT_MAX_ENTRIES,
+    private val ttlMs: Long = DEFAULT_TTL_MS,
+    private val clock: () -> Long = SystemClock::elapsedRealtime,
+) {
+
+    private class Entry(val suggestions: List<String>, val time: Long)
+
+    private val entries = object : LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>) =
+            size > maxEntries
+    }
+
+    var hits = 0
+        private set
+    var misses = 0
+        private set
+
+    val hitRate: Float
+        @Synchronized get() = if (hits + misses == 0) 0f else hits.toFloat() / (hits + misses)
+
+    /** Returns the suggestions cached for [query], or null if there are none or they expired. */
+    @Synchronized
+    fun get(providerKey: String, query: String): List<String>? {
+        val key = key(providerKey, query)
+        val entry = entries[key]
+        if (entry == null || clock() - entry.time > ttlMs) {
+            if (entry != null) entries.remove(key)
+            misses++
+            return null
+        }
+        hits++
+        return entry.suggestions
+    }
+
+    /**
+     * Returns the cached suggestions of the longest prefix of [query] which still start with
+     * [query], to show while the suggestions for [query] itself are fetched. Not counted as a hit.
+     */
+    @Synchronized
+    fun getForPrefix(providerKey: String, query: String): List<String> {
+        val now = clock()
+        for (length in query.length - 1 downTo 1) {
+            val entry = entries[key(providerKey, query.substring(0, length))] ?: continue
+            if (now - entry.time > ttlMs) continue
+            return entry.suggestions.filter { it.startsWith(query, ignoreCase = true) }
+        }
+        return emptyList()
+    }
+
+    @Synchronized
+    fun put(providerKey: String, query: String, suggestions: List<String>) {
+        entries[key(providerKey, query)] = Entry(suggestions, clock())
+    }
+
+    @Synchronized
+    fun clear() {
+        entries.clear()
+        hits = 0
+        misses = 0
+    }
+
+    private fun key(providerKey: String, query: String) = "$providerKey\u0000${query.trim()}"
+
+    companion object {
+        private const val DEFAULT_MAX_ENTRIES = 64
+        private const val DEFAULT_TTL_MS = 5 * 60 * 1000L
+    }
+}
@@ -0,0 +1,60 @@
+package app.lawnchair.search.algorithms.engine.provider.web
+
+import java.io.IOException
+import java.util.concurrent.TimeUnit
+import kotlin.coroutines.resumeWithException
+import kotlinx.coroutines.suspendCancellableCoroutine
+import okhttp3.Call
+import okhttp3.Callback
+import okhttp3.ConnectionPool
+import okhttp3.OkHttpClient
+import okhttp3.Response
+import retrofit2.Converter
+import retrofit2.Retrofit
+
+/**
+ * Networking shared by all the [WebSearchProvider]s.
+ *
+ * Suggestions are fetched on every keystroke, so the providers share one client and its connection
+ * pool: the connection to the suggestion server is kept alive between queries instead of paying
+ * for a new TLS handshake each time.
+ */
+object WebSuggestionHttp {
+
+    private const val MAX_IDLE_CONNECTIONS = 4
+    private const val KEEP_ALIVE_MINUTES = 5L
+    private const val CONNECT_TIMEOUT_SECONDS = 5L
+    private const val CALL_TIMEOUT_SECONDS = 10L
+
+    val client: OkHttpClient by lazy {
+        OkHttpClient.Builder()
+            .connectionPool(ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+            .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .callTimeout(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build()
+    }
+
+    /** Returns a Retrofit for [baseUrl] backed by the shared [client]. */
+    fun retrofit(baseUrl: String, converterFactory: Converter.Factory): Retrofit =
+        Retrofit.Builder()
+            .baseUrl(baseUrl)
+            .client(client)
+            .addConverterFactory(converterFactory)
+            .build()
+}
+
+/** Executes the call without blocking, cancelling it if the coroutine is cancelled. */
+suspend fun Call.await(): Response = suspendCancellableCoroutine { continuation ->
+    continuation.invokeOnCancellation { cancel() }
+    enqueue(
+        object : Callback {
+            override fun onResponse(call: Call, response: Response) {
+                continuation.resume(response) { _, value, _ -> value.close() }
+            }
+
+            override fun onFailure(call: Call, e: IOException) {
+                continuation.resumeWithException(e)
+            }
+        },
+    )
+}
@@ -6,14 +6,20 @@ import app.lawnchair.preferences2.PreferenceManager2
 import app.lawnchair.search.algorithms.engine.SearchProvider
 import app.lawnchair.search.algorithms.engine.SearchResult
 import com.patrykmichalik.opto.core.firstBlocking
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.flow.map
-import kotlinx.coroutines.flow.take
 
 object WebSuggestionProvider : SearchProvider {
     override val id = "web_suggestions"
 
+    /** Time to wait for the next keystroke before fetching suggestions from the network. */
+    private const val DEBOUNCE_MS = 150L
+
+    private val cache = WebSuggestionCache()
+
     override fun search(
         context: Context,
         query: String,
@@ -30,8 +36,12 @@ object WebSuggestionProvider : SearchProvider {
 
         val webProvider = provider
             .configure(context)
+        val providerKey = when (webProvider) {
+            is CustomWebSearchProvider -> "${webProvider.id}:${webProvider.getSuggestionsUrlTemplate()}"
+            else -> webProvider.id
+        }
 
-        return webProvider.getSuggestions(query)
+        return getSuggestions(webProvider, providerKey, query, cache, DEBOUNCE_MS)
             .map { suggestions ->
                 suggestions
                     .take(maxResults)
@@ -40,4 +50,33 @@ object WebSuggestionProvider : SearchProvider {
                     }
             }
     }
+
+    /**
+     * Returns the suggestions of [provider] for [query], from [cache] if possible.
+     *
+     * On a miss the suggestions cached for a shorter prefix are emitted right away, so the web
+     * results neither hold back the other providers nor flicker, and the request is only sent if
+     * the query stays the same for [debounceMs]. The search of a superseded query is cancelled,
+     * which cancels the delay or the call in flight with it.
+     */
+    internal fun getSuggestions(
+        provider: WebSearchProvider,
+        providerKey: String,
+        query: String,
+        cache: WebSuggestionCache,
+        debounceMs: Long,
+    ): Flow<List<String>> = flow {
+        cache.get(providerKey, query)?.let {
+            emit(it)
+            return@flow
+        }
+        emit(cache.getForPrefix(providerKey, query))
+        delay(debounceMs)
+        val suggestions = provider.getSuggestions(query).first()
+        // Failures come back as empty lists, don't keep them
+        if (suggestions.isNotEmpty()) {
+            cache.put(providerKey, query, suggestions)
+        }
+        emit(suggestions)
+    }
 }
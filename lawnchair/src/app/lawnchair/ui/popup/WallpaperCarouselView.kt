@@ -115,7 +115,9 @@ class WallpaperCarouselView @JvmOverloads constructor(
 
     private fun loadWallpaperImage(wallpaper: Wallpaper, cardView: CardView, isCurrent: Boolean) {
         CoroutineScope(Dispatchers.IO).launch {
-            val bitmap = File(wallpaper.imagePath).takeIf { it.exists() }?.let { BitmapFactory.decodeFile(it.path) }
+            // Cards only need the thumbnail, wallpapers saved before they existed fall back to the image
+            val bitmap = (wallpaper.thumbnailPath?.let(::File)?.takeIf { it.exists() } ?: File(wallpaper.imagePath))
+                .takeIf { it.exists() }?.let { BitmapFactory.decodeFile(it.path) }
             withContext(Dispatchers.Main) { addImageView(cardView, bitmap, isCurrent) }
         }
     }
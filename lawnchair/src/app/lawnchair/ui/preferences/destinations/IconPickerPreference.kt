@@ -2,7 +2,7 @@ package app.lawnchair.ui.preferences.destinations
 
 import android.content.Intent
 import android.content.pm.LauncherApps
-import android.graphics.drawable.Drawable
+import android.graphics.Bitmap
 import android.os.Process
 import androidx.activity.compose.LocalOnBackPressedDispatcherOwner
 import androidx.activity.compose.rememberLauncherForActivityResult
@@ -13,6 +13,7 @@ import androidx.compose.foundation.background
 import androidx.compose.foundation.clickable
 import androidx.compose.foundation.layout.Box
 import androidx.compose.foundation.layout.PaddingValues
+import androidx.compose.foundation.layout.Spacer
 import androidx.compose.foundation.layout.aspectRatio
 import androidx.compose.foundation.layout.fillMaxWidth
 import androidx.compose.foundation.layout.padding
@@ -20,8 +21,8 @@ import androidx.compose.material3.DropdownMenuItem
 import androidx.compose.material3.MaterialTheme
 import androidx.compose.material3.Text
 import androidx.compose.runtime.Composable
+import androidx.compose.runtime.DisposableEffect
 import androidx.compose.runtime.SideEffect
-import androidx.compose.runtime.derivedStateOf
 import androidx.compose.runtime.getValue
 import androidx.compose.runtime.mutableStateOf
 import androidx.compose.runtime.produceState
@@ -29,6 +30,7 @@ import androidx.compose.runtime.remember
 import androidx.compose.runtime.setValue
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.draw.clip
+import androidx.compose.ui.graphics.asImageBitmap
 import androidx.compose.ui.platform.LocalContext
 import androidx.compose.ui.platform.LocalDensity
 import androidx.compose.ui.res.stringResource
@@ -37,8 +39,10 @@ import androidx.lifecycle.compose.collectAsStateWithLifecycle
 import app.lawnchair.icons.iconpack.CustomIconPack
 import app.lawnchair.icons.iconpack.IconPack
 import app.lawnchair.icons.iconpack.IconPackProvider
+import app.lawnchair.icons.picker.IconCatalog
+import app.lawnchair.icons.picker.IconPickerBitmapCache
+import app.lawnchair.icons.picker.IconPickerCategory
 import app.lawnchair.icons.picker.IconPickerItem
-import app.lawnchair.icons.picker.filter
 import app.lawnchair.ui.OverflowMenu
 import app.lawnchair.ui.preferences.components.layout.PreferenceGroupDescription
 import app.lawnchair.ui.preferences.components.layout.PreferenceLazyColumn
@@ -48,10 +52,9 @@ import app.lawnchair.ui.util.LazyGridLayout
 import app.lawnchair.ui.util.resultSender
 import app.lawnchair.util.requireSystemService
 import com.android.launcher3.R
-import com.google.accompanist.drawablepainter.rememberDrawablePainter
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.catch
-import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 
 @Composable
 fun IconPickerPreference(
@@ -133,18 +136,14 @@ fun IconPickerGrid(
     onClickItem: (item: IconPickerItem) -> Unit,
 ) {
     var loadFailed by remember { mutableStateOf(false) }
-    val categoriesFlow = remember {
-        iconPack.getAllIcons()
+    val catalogFlow = remember {
+        iconPack.getIconCatalog()
             .catch { loadFailed = true }
     }
-    val categories by categoriesFlow.collectAsStateWithLifecycle(emptyList())
-    val filteredCategories by remember(searchQuery) {
-        derivedStateOf {
-            categories.asSequence()
-                .map { it.filter(searchQuery) }
-                .filter { it.items.isNotEmpty() }
-                .toList()
-        }
+    val catalog by catalogFlow.collectAsStateWithLifecycle(null)
+    val filteredCategories by produceState<List<IconPickerCategory>>(emptyList(), catalog, searchQuery) {
+        val current = catalog ?: return@produceState
+        value = withContext(Dispatchers.Default) { current.search(searchQuery) }
     }
 
     val density = LocalDensity.current
@@ -156,12 +155,21 @@ fun IconPickerGrid(
         )
     }
     val numColumns by gridLayout.numColumns
+    val iconSize = with(density) { 56.dp.roundToPx() }
+    val bitmapCache = remember { IconPickerBitmapCache(iconSize) }
+    DisposableEffect(bitmapCache) {
+        onDispose { bitmapCache.clear() }
+    }
     PreferenceLazyColumn(scaffoldPadding, modifier = modifier.then(gridLayout.onSizeChanged())) {
         if (numColumns != 0) {
             filteredCategories.forEach { category ->
                 stickyHeader {
                     Text(
-                        text = category.title,
+                        text = if (category.title == IconCatalog.DEFAULT_CATEGORY) {
+                            stringResource(R.string.icon_picker_default_category)
+                        } else {
+                            category.title
+                        },
                         modifier = Modifier
                             .fillMaxWidth()
                             .background(MaterialTheme.colorScheme.surface)
@@ -179,6 +187,7 @@ fun IconPickerGrid(
                     IconPreview(
                         iconPack = iconPack,
                         iconItem = item,
+                        bitmapCache = bitmapCache,
                     ) {
                         onClickItem(item)
                     }
@@ -199,13 +208,12 @@ fun IconPickerGrid(
 fun IconPreview(
     iconPack: IconPack,
     iconItem: IconPickerItem,
+    bitmapCache: IconPickerBitmapCache,
     modifier: Modifier = Modifier,
     onClick: () -> Unit,
 ) {
-    val drawable by produceState<Drawable?>(initialValue = null, iconPack, iconItem) {
-        launch(Dispatchers.IO) {
-            value = iconPack.getIcon(iconItem.toIconEntry(), 0)
-        }
+    val bitmap by produceState<Bitmap?>(initialValue = null, iconPack, iconItem) {
+        value = withContext(Dispatchers.IO) { bitmapCache.get(iconPack, iconItem) }
     }
     Box(
         modifier = modifier
@@ -213,10 +221,15 @@ fun IconPreview(
             .clickable(onClick = onClick)
             .padding(8.dp),
     ) {
-        Image(
-            painter = rememberDrawablePainter(drawable),
-            contentDescription = iconItem.drawableName,
-            modifier = Modifier.aspectRatio(1f),
-        )
+        val iconBitmap = bitmap
+        if (iconBitmap != null) {
+            Image(
+                bitmap = remember(iconBitmap) { iconBitmap.asImageBitmap() },
+                contentDescription = iconItem.drawableName,
+                modifier = Modifier.aspectRatio(1f),
+            )
+        } else {
+            Spacer(modifier = Modifier.aspectRatio(1f))
+        }
     }
 }
@@ -0,0 +1,155 @@
+package app.lawnchair.backup
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.Color
+import android.net.Uri
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.LawnchairProto.BackupInfo
+import app.lawnchair.LawnchairProto.GridState
+import app.lawnchair.backup.LawnchairBackup.Companion.INCLUDE_LAYOUT_AND_SETTINGS
+import app.lawnchair.backup.LawnchairBackup.Companion.INCLUDE_WALLPAPER
+import app.lawnchair.backup.LawnchairBackup.Companion.INFO_FILE_NAME
+import app.lawnchair.backup.LawnchairBackup.Companion.LAUNCHER_DB_FILE_NAME
+import app.lawnchair.backup.LawnchairBackup.Companion.SCREENSHOT_FILE_NAME
+import app.lawnchair.backup.LawnchairBackup.Companion.SCREENSHOT_PREVIEW_FILE_NAME
+import app.lawnchair.backup.LawnchairBackup.Companion.WALLPAPER_FILE_NAME
+import app.lawnchair.backup.LawnchairBackup.Companion.WALLPAPER_PREVIEW_FILE_NAME
+import com.google.common.truth.Truth.assertThat
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.GraphicsMode
+
+@RunWith(AndroidJUnit4::class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+class LawnchairBackupTest {
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val backupFile = File(context.cacheDir, "test.lawnchairbackup")
+    private val backupUri = Uri.fromFile(backupFile)
+
+    @After
+    fun tearDown() {
+        backupFile.delete()
+    }
+
+    @Test
+    fun create_thenReadInfoAndPreview_roundTrips() = runBlocking {
+        val layoutFile = LawnchairBackup.getFiles(context, forRestore = false).getValue(LAUNCHER_DB_FILE_NAME)
+        layoutFile.parentFile?.mkdirs()
+        layoutFile.writeBytes(LAYOUT_BYTES)
+
+        LawnchairBackup.create(context, INCLUDE_LAYOUT_AND_SETTINGS, bitmap(8, 4), backupUri)
+        val backup = LawnchairBackup(context, backupUri).apply { readInfoAndPreview() }
+
+        assertThat(backup.info.backupVersion).isEqualTo(2)
+        assertThat(backup.info.contents).isEqualTo(INCLUDE_LAYOUT_AND_SETTINGS)
+        assertThat(backup.info.previewWidth).isEqualTo(8)
+        assertThat(backup.info.previewHeight).isEqualTo(4)
+        assertThat(backup.screenshot!!.width).isEqualTo(8)
+        assertThat(backup.screenshot!!.height).isEqualTo(4)
+        assertThat(backup.wallpaper).isNull()
+    }
+
+    @Test
+    fun readInfoAndPreview_v2_stopsAfterHeader() = runBlocking {
+        writeBackup(
+            info(backupVersion = 2, contents = INCLUDE_LAYOUT_AND_SETTINGS or INCLUDE_WALLPAPER),
+            SCREENSHOT_PREVIEW_FILE_NAME to png(8, 4),
+            WALLPAPER_PREVIEW_FILE_NAME to png(6, 3),
+            LAUNCHER_DB_FILE_NAME to LAYOUT_BYTES,
+            // Past the header: would replace the wallpaper preview if it was read
+            WALLPAPER_FILE_NAME to png(10, 5),
+        )
+
+        val backup = LawnchairBackup(context, backupUri).apply { readInfoAndPreview() }
+
+        assertThat(backup.info.backupVersion).isEqualTo(2)
+        assertThat(backup.info.gridState.gridSize).isEqualTo(GRID_SIZE)
+        assertThat(backup.screenshot!!.width).isEqualTo(8)
+        assertThat(backup.wallpaper!!.width).isEqualTo(6)
+    }
+
+    @Test
+    fun readInfoAndPreview_v1_readsWholeArchive() = runBlocking {
+        writeV1Backup()
+
+        val backup = LawnchairBackup(context, backupUri).apply { readInfoAndPreview() }
+
+        assertThat(backup.info.backupVersion).isEqualTo(1)
+        assertThat(backup.screenshot!!.width).isEqualTo(8)
+        // Older backups only have the full wallpaper, at the end of the zip
+        assertThat(backup.wallpaper!!.width).isEqualTo(10)
+    }
+
+    @Test
+    fun restore_v1_writesLayoutAndSettings() = runBlocking {
+        val files = writeV1Backup()
+
+        LawnchairBackup(context, backupUri).apply {
+            readInfoAndPreview()
+            restore(INCLUDE_LAYOUT_AND_SETTINGS)
+        }
+
+        val restored = LawnchairBackup.getFiles(context, forRestore = true)
+        for ((name, bytes) in files) {
+            assertThat(restored.getValue(name).readBytes()).isEqualTo(bytes)
+        }
+    }
+
+    /** Writes a backup as created before the header, returning its layout and settings files. */
+    private fun writeV1Backup(): Map<String, ByteArray> {
+        val files = LawnchairBackup.getFiles(context, forRestore = false).keys
+            .associateWith { "content of $it".toByteArray() }
+        writeBackup(
+            info(backupVersion = 1, contents = INCLUDE_LAYOUT_AND_SETTINGS or INCLUDE_WALLPAPER),
+            SCREENSHOT_FILE_NAME to png(8, 4),
+            *files.toList().toTypedArray(),
+            WALLPAPER_FILE_NAME to png(10, 5),
+        )
+        return files
+    }
+
+    private fun writeBackup(info: BackupInfo, vararg entries: Pair<String, ByteArray>) {
+        ZipOutputStream(backupFile.outputStream()).use { out ->
+            for ((name, bytes) in listOf(INFO_FILE_NAME to info.toByteArray()) + entries) {
+                out.putNextEntry(ZipEntry(name))
+                out.write(bytes)
+                out.closeEntry()
+            }
+        }
+    }
+
+    private fun info(backupVersion: Int, contents: Int): BackupInfo =
+        BackupInfo.newBuilder()
+            .setBackupVersion(backupVersion)
+            .setContents(contents)
+            .setPreviewWidth(8)
+            .setPreviewHeight(4)
+            .setGridState(
+                GridState.newBuilder().setGridSize(GRID_SIZE).setHotseatCount(4).build(),
+            )
+            .build()
+
+    private fun bitmap(width: Int, height: Int): Bitmap =
+        Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888).apply {
+            eraseColor(Color.BLUE)
+        }
+
+    private fun png(width: Int, height: Int): ByteArray =
+        ByteArrayOutputStream().also {
+            bitmap(width, height).compress(Bitmap.CompressFormat.PNG, 100, it)
+        }.toByteArray()
+
+    companion object {
+        private const val GRID_SIZE = "4,5"
+        private val LAYOUT_BYTES = "layout".toByteArray()
+    }
+}
@@ -0,0 +1,54 @@
+package app.lawnchair.data
+
+import androidx.room.testing.MigrationTestHelper
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.common.truth.Truth.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class AppDatabaseMigrationTest {
+
+    @get:Rule
+    val helper = MigrationTestHelper(
+        InstrumentationRegistry.getInstrumentation(),
+        AppDatabase::class.java,
+    )
+
+    @Test
+    fun migrate3To4_keepsWallpapersAndAddsThumbnails() {
+        helper.createDatabase(TEST_DB, 3).use { db ->
+            db.execSQL(
+                "INSERT INTO Wallpapers (imagePath, rank, timestamp, checksum) " +
+                    "VALUES ('/wallpapers/a.png', 0, 2, 'a'), ('/wallpapers/b.png', 1, 1, 'b')",
+            )
+        }
+
+        // Checks the migrated tables and indices against schemas/4.json
+        val db = helper.runMigrationsAndValidate(TEST_DB, 4, true, AppDatabase.MIGRATION_3_4)
+
+        db.query("SELECT imagePath, rank, checksum, thumbnailPath FROM Wallpapers ORDER BY rank")
+            .use { cursor ->
+                assertThat(cursor.count).isEqualTo(2)
+                cursor.moveToFirst()
+                assertThat(cursor.getString(0)).isEqualTo("/wallpapers/a.png")
+                assertThat(cursor.getInt(1)).isEqualTo(0)
+                assertThat(cursor.getString(2)).isEqualTo("a")
+                assertThat(cursor.isNull(3)).isTrue()
+            }
+        db.query("PRAGMA index_list(Wallpapers)").use { cursor ->
+            val nameIndex = cursor.getColumnIndexOrThrow("name")
+            val names = buildList {
+                while (cursor.moveToNext()) add(cursor.getString(nameIndex))
+            }
+            assertThat(names).contains("index_Wallpapers_checksum")
+        }
+        db.close()
+    }
+
+    companion object {
+        private const val TEST_DB = "migration-test"
+    }
+}
@@ -0,0 +1,99 @@
+package app.lawnchair.data.wallpaper.service
+
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.data.AppDatabase
+import app.lawnchair.data.wallpaper.Wallpaper
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class WallpaperDaoTest {
+
+    private lateinit var database: AppDatabase
+    private lateinit var dao: WallpaperDao
+
+    @Before
+    fun setUp() {
+        database = Room.inMemoryDatabaseBuilder(
+            ApplicationProvider.getApplicationContext(),
+            AppDatabase::class.java,
+        ).allowMainThreadQueries().build()
+        dao = database.wallpaperDao()
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun insertFirst_shiftsRanks() = runBlocking {
+        assertThat(dao.insertFirst(wallpaper("a", timestamp = 1), MAX_COUNT)).isNull()
+        assertThat(dao.insertFirst(wallpaper("b", timestamp = 2), MAX_COUNT)).isNull()
+        assertThat(dao.insertFirst(wallpaper("c", timestamp = 3), MAX_COUNT)).isNull()
+
+        assertThat(ranks()).containsExactly("c", 0, "b", 1, "a", 2).inOrder()
+    }
+
+    @Test
+    fun insertFirst_fullHistory_evictsOldest() = runBlocking {
+        for (i in 0 until MAX_COUNT) {
+            dao.insertFirst(wallpaper("$i", timestamp = i.toLong()), MAX_COUNT)
+        }
+
+        val evicted = dao.insertFirst(wallpaper("new", timestamp = 100), MAX_COUNT)
+
+        assertThat(evicted?.checksum).isEqualTo("0")
+        assertThat(dao.count()).isEqualTo(MAX_COUNT)
+        assertThat(dao.findByChecksum("0")).isNull()
+        assertThat(ranks()).containsExactly("new", 0, "3", 1, "2", 2, "1", 3).inOrder()
+    }
+
+    @Test
+    fun moveToFirst_shiftsOnlyNewerWallpapers() = runBlocking {
+        dao.insertFirst(wallpaper("a", timestamp = 1), MAX_COUNT)
+        dao.insertFirst(wallpaper("b", timestamp = 2), MAX_COUNT)
+        dao.insertFirst(wallpaper("c", timestamp = 3), MAX_COUNT)
+        dao.insertFirst(wallpaper("d", timestamp = 4), MAX_COUNT)
+
+        dao.moveToFirst(dao.findByChecksum("b")!!.id, timestamp = 5)
+
+        assertThat(ranks()).containsExactly("b", 0, "d", 1, "c", 2, "a", 3).inOrder()
+        assertThat(dao.getTopWallpapers().first().checksum).isEqualTo("b")
+    }
+
+    @Test
+    fun findByChecksum_returnsStoredPaths() = runBlocking {
+        val wallpaper = wallpaper("a", timestamp = 1, thumbnailPath = "/thumbnails/a.jpg")
+        dao.insertFirst(wallpaper, MAX_COUNT)
+
+        val found = dao.findByChecksum("a")
+
+        assertThat(found?.imagePath).isEqualTo("/wallpapers/a.jpg")
+        assertThat(found?.thumbnailPath).isEqualTo("/thumbnails/a.jpg")
+        assertThat(dao.findByChecksum("b")).isNull()
+    }
+
+    /** The checksums of the wallpapers followed by their ranks, by rank */
+    private suspend fun ranks(): List<Any?> =
+        dao.getTopWallpapers().sortedBy { it.rank }.flatMap { listOf(it.checksum, it.rank) }
+
+    private fun wallpaper(checksum: String, timestamp: Long, thumbnailPath: String? = null) =
+        Wallpaper(
+            imagePath = "/wallpapers/$checksum.jpg",
+            rank = 0,
+            timestamp = timestamp,
+            checksum = checksum,
+            thumbnailPath = thumbnailPath,
+        )
+
+    companion object {
+        private const val MAX_COUNT = 4
+    }
+}
@@ -0,0 +1,168 @@
+package app.lawnchair.icons.picker
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.common.truth.Truth.assertThat
+import java.io.File
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class IconCatalogTest {
+
+    @get:Rule
+    val tmp = TemporaryFolder()
+
+    private val catalog = IconCatalog.Builder(PACK).apply {
+        startCategory(IconCatalog.DEFAULT_CATEGORY)
+        add("phone", 3)
+        startCategory("Apps")
+        add("camera", 1)
+        add("calendar", 2)
+        add("calculator", 4)
+        startCategory("Empty")
+        startCategory("Games")
+        add("chess", 5)
+        add("solitaire", 6)
+        startCategory("Trailing")
+    }.build()
+
+    @Test
+    fun builder_dropsEmptyCategories() {
+        assertThat(catalog.size).isEqualTo(6)
+        assertThat(describe(catalog.categories)).containsExactly(
+            "" to listOf("phone"),
+            "Apps" to listOf("camera", "calendar", "calculator"),
+            "Games" to listOf("chess", "solitaire"),
+        ).inOrder()
+    }
+
+    @Test
+    fun writeTo_readFrom_roundTrip() {
+        val file = tmp.newFile()
+        catalog.writeTo(file, PACK_VERSION)
+
+        val read = IconCatalog.readFrom(file, PACK, PACK_VERSION)!!
+
+        assertThat(read.packPackageName).isEqualTo(PACK)
+        assertThat(describe(read.categories)).isEqualTo(describe(catalog.categories))
+        for (name in listOf("phone", "camera", "calendar", "calculator", "chess", "solitaire")) {
+            assertThat(read.findResId(name)).isEqualTo(catalog.findResId(name))
+        }
+        assertThat(read.findResId("calendar")).isEqualTo(2)
+        assertThat(read.findResId("missing")).isEqualTo(0)
+        assertThat(describe(read.search("cal"))).isEqualTo(describe(catalog.search("cal")))
+    }
+
+    @Test
+    fun readFrom_otherPackVersion_returnsNull() {
+        val file = tmp.newFile()
+        catalog.writeTo(file, PACK_VERSION)
+
+        assertThat(IconCatalog.readFrom(file, PACK, PACK_VERSION + 1)).isNull()
+    }
+
+    @Test
+    fun readFrom_missingFile_returnsNull() {
+        assertThat(IconCatalog.readFrom(File(tmp.root, "missing"), PACK, PACK_VERSION)).isNull()
+    }
+
+    @Test
+    fun readFrom_truncatedFile_returnsNull() {
+        val file = tmp.newFile()
+        catalog.writeTo(file, PACK_VERSION)
+        val bytes = file.readBytes()
+
+        for (length in listOf(bytes.size - 1, bytes.size / 2, 14)) {
+            file.writeBytes(bytes.copyOf(length))
+            assertThat(IconCatalog.readFrom(file, PACK, PACK_VERSION)).isNull()
+        }
+    }
+
+    @Test
+    fun readFrom_corruptCounts_returnsNull() {
+        val file = tmp.newFile()
+        catalog.writeTo(file, PACK_VERSION)
+        val bytes = file.readBytes()
+
+        // Category count, right after the format and pack versions
+        file.writeBytes(bytes.copyOf().also { it[12] = 0x7F })
+        assertThat(IconCatalog.readFrom(file, PACK, PACK_VERSION)).isNull()
+        file.writeBytes(bytes.copyOf().also { it[12] = 0x80.toByte() })
+        assertThat(IconCatalog.readFrom(file, PACK, PACK_VERSION)).isNull()
+        // Last entry of the name index
+        file.writeBytes(bytes.copyOf().also { it[it.size - 4] = 0x7F })
+        assertThat(IconCatalog.readFrom(file, PACK, PACK_VERSION)).isNull()
+    }
+
+    @Test
+    fun search_emptyQuery_returnsAllCategories() {
+        assertThat(catalog.search("  ")).isEqualTo(catalog.categories)
+    }
+
+    @Test
+    fun search_shortQuery_matchesSubstrings() {
+        assertThat(describe(catalog.search("ca"))).containsExactly(
+            "Apps" to listOf("camera", "calendar", "calculator"),
+        )
+        assertThat(describe(catalog.search("e"))).containsExactly(
+            "" to listOf("phone"),
+            "Apps" to listOf("camera", "calendar"),
+            "Games" to listOf("chess", "solitaire"),
+        ).inOrder()
+    }
+
+    @Test
+    fun search_trigramQuery_matchesSubstringsIgnoringCase() {
+        assertThat(describe(catalog.search("CAL"))).containsExactly(
+            "Apps" to listOf("calendar", "calculator"),
+        )
+        assertThat(describe(catalog.search(" lcul "))).containsExactly(
+            "Apps" to listOf("calculator"),
+        )
+        assertThat(catalog.search("calcam")).isEmpty()
+        assertThat(catalog.search("xyz")).isEmpty()
+    }
+
+    @Test
+    fun search_repeatedTrigrams_matchesOnce() {
+        val repeated = IconCatalog.Builder(PACK).apply {
+            startCategory("Letters")
+            add("aaaa", 1)
+            add("aaab", 2)
+            add("baaa", 3)
+        }.build()
+
+        assertThat(describe(repeated.search("aaa"))).containsExactly(
+            "Letters" to listOf("aaaa", "aaab", "baaa"),
+        )
+        assertThat(describe(repeated.search("aaaa"))).containsExactly(
+            "Letters" to listOf("aaaa"),
+        )
+        // Every trigram of the query is in a label, but not the query itself
+        assertThat(repeated.search("aaaaa")).isEmpty()
+    }
+
+    @Test
+    fun search_matchesLabels() {
+        val labelled = IconCatalog.Builder(PACK).apply {
+            startCategory("C")
+            add("com_android_camera", 0, "Camera")
+            add("com_android_chrome", 0, "Chrome")
+        }.build()
+
+        val results = labelled.search("came")
+
+        assertThat(describe(results)).containsExactly("C" to listOf("com_android_camera"))
+        assertThat(results.single().items.single().label).isEqualTo("Camera")
+    }
+
+    private fun describe(categories: List<IconPickerCategory>) =
+        categories.map { category -> category.title to category.items.map { it.drawableName } }
+
+    companion object {
+        private const val PACK = "com.example.icons"
+        private const val PACK_VERSION = 42L
+    }
+}
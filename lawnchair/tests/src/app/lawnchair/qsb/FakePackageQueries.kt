@@ -0,0 +1,20 @@
+package app.lawnchair.qsb
+
+import android.content.Intent
+
+/** Resolves the intents targeting an installed package, and the website intents */
+internal class FakePackageQueries : QsbIntentResolver.PackageQueries {
+    val installed = mutableSetOf<String>()
+    var calls = 0
+
+    override fun canResolve(intent: Intent): Boolean {
+        calls++
+        val packageName = intent.component?.packageName ?: intent.`package`
+        return if (packageName == null) intent.data != null else packageName in installed
+    }
+
+    override fun isInstalled(packageName: String): Boolean {
+        calls++
+        return packageName in installed
+    }
+}
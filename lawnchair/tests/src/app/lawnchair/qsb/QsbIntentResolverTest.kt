@@ -0,0 +1,90 @@
+package app.lawnchair.qsb
+
+import android.content.Context
+import android.content.Intent
+import android.net.Uri
+import android.os.Looper
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.qsb.providers.DuckDuckGo
+import app.lawnchair.qsb.providers.Google
+import app.lawnchair.qsb.providers.QsbSearchProvider
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Shadows.shadowOf
+
+@RunWith(AndroidJUnit4::class)
+class QsbIntentResolverTest {
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val packageQueries = FakePackageQueries()
+    private val resolver = QsbIntentResolver(context, packageQueries)
+
+    @After
+    fun tearDown() {
+        resolver.close()
+    }
+
+    @Test
+    fun rebind_makesNoPackageManagerCalls() {
+        packageQueries.installed += Google.packageName
+        bind(Google)
+        assertThat(packageQueries.calls).isEqualTo(QUERIES_PER_BIND)
+
+        repeat(100) { bind(Google) }
+        assertThat(packageQueries.calls).isEqualTo(QUERIES_PER_BIND)
+    }
+
+    @Test
+    fun providers_areCachedSeparately() {
+        packageQueries.installed += Google.packageName
+
+        assertThat(bind(Google)).isTrue()
+        assertThat(bind(DuckDuckGo)).isFalse()
+        assertThat(resolver.isDownloaded(Google)).isTrue()
+        assertThat(resolver.isDownloaded(DuckDuckGo)).isFalse()
+    }
+
+    @Test
+    fun packageChange_invalidatesCache() {
+        assertThat(bind(DuckDuckGo)).isFalse()
+        assertThat(resolver.canResolveLensIntent()).isFalse()
+
+        packageQueries.installed += DuckDuckGo.packageName
+        packageQueries.installed += LawnQsbLayout.LENS_PACKAGE
+        // Not noticed until the package change is broadcast
+        assertThat(bind(DuckDuckGo)).isFalse()
+        sendPackageBroadcast(Intent.ACTION_PACKAGE_ADDED, DuckDuckGo.packageName)
+        assertThat(bind(DuckDuckGo)).isTrue()
+        assertThat(resolver.canResolveLensIntent()).isTrue()
+
+        packageQueries.installed -= DuckDuckGo.packageName
+        sendPackageBroadcast(Intent.ACTION_PACKAGE_REMOVED, DuckDuckGo.packageName)
+        assertThat(bind(DuckDuckGo)).isFalse()
+    }
+
+    /**
+     * Makes the same queries as binding the QSB and its icons for [provider], returning whether the
+     * search app is there.
+     */
+    private fun bind(provider: QsbSearchProvider): Boolean {
+        val hasApp = resolver.canResolveSearchIntent(provider)
+        resolver.canResolveWebsiteIntent(provider)
+        resolver.canResolveVoiceIntent(provider)
+        resolver.canResolveLensIntent()
+        resolver.isDownloaded(provider)
+        return hasApp
+    }
+
+    private fun sendPackageBroadcast(action: String, packageName: String) {
+        context.sendBroadcast(Intent(action, Uri.fromParts("package", packageName, null)))
+        shadowOf(Looper.getMainLooper()).idle()
+    }
+
+    companion object {
+        /** Search, website, voice, Lens and installed */
+        private const val QUERIES_PER_BIND = 5
+    }
+}
@@ -0,0 +1,113 @@
+package app.lawnchair.search
+
+import android.content.ContentValues
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.COLUMN_DATE
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.COLUMN_DISPLAY1
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.COLUMN_QUERY
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.MAX_ENTRIES
+import app.lawnchair.search.algorithms.engine.provider.HistorySearchProvider
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.TimeUnit
+import kotlinx.coroutines.runBlocking
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+
+@RunWith(AndroidJUnit4::class)
+class LawnchairRecentSuggestionProviderTest {
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val now = System.currentTimeMillis()
+
+    @Before
+    fun setUp() {
+        Robolectric.setupContentProvider(
+            LawnchairRecentSuggestionProvider::class.java,
+            LawnchairRecentSuggestionProvider.AUTHORITY,
+        )
+    }
+
+    @Test
+    fun insert_keepsHistoryBoundedAndNewestFirst() {
+        for (i in 0 until 1000) saveQuery("query $i", now - i)
+
+        val all = recent(Int.MAX_VALUE)
+
+        assertThat(all.size).isAtLeast(MAX_ENTRIES)
+        assertThat(all.size).isAtMost(MAX_RETAINED)
+        assertThat(all.first()).isEqualTo("query 0")
+        assertThat(all.map { it.substringAfterLast(' ').toInt() }).isInOrder()
+    }
+
+    @Test
+    fun insert_removesEntriesOlderThanMaxAge() {
+        saveQuery("old", now - TimeUnit.DAYS.toMillis(181))
+        saveQuery("recent", now - TimeUnit.DAYS.toMillis(179))
+        for (i in 0 until COMPACT_INTERVAL) saveQuery("query $i", now)
+
+        assertThat(recent(Int.MAX_VALUE)).contains("recent")
+        assertThat(recent(Int.MAX_VALUE)).doesNotContain("old")
+    }
+
+    @Test
+    fun insert_sameQuery_replacesEntry() {
+        saveQuery("pizza near me", now - 2)
+        saveQuery("news", now - 1)
+        saveQuery("pizza near me", now)
+
+        assertThat(recent(10)).containsExactly("pizza near me", "news").inOrder()
+    }
+
+    @Test
+    fun getRecentKeywords_matchesPrefixIgnoringCase() {
+        saveQuery("Weather tomorrow", now - 3)
+        saveQuery("weather today", now - 2)
+        saveQuery("Pixel update", now - 1)
+        saveQuery("weatherproof jacket", now)
+
+        assertThat(recent(10, "  WEATHER T"))
+            .containsExactly("weather today", "Weather tomorrow")
+            .inOrder()
+        assertThat(recent(1, "weather")).containsExactly("weatherproof jacket")
+        assertThat(recent(10, "x")).isEmpty()
+        assertThat(recent(0)).isEmpty()
+    }
+
+    @Test
+    fun getRecentKeywords_prefixEndingWithLastChar_matchesPrefix() {
+        saveQuery("a\uFFFF", now - 2)
+        saveQuery("a\uFFFFb", now - 1)
+        saveQuery("b", now)
+
+        assertThat(recent(10, "a\uFFFF")).containsExactly("a\uFFFFb", "a\uFFFF").inOrder()
+        assertThat(recent(10, "\uFFFF")).isEmpty()
+    }
+
+    private fun recent(max: Int, prefix: String = "") = runBlocking {
+        HistorySearchProvider.getRecentKeywords(context, max, prefix).map {
+            it.data.getValueByKey(COLUMN_DISPLAY1)!!
+        }
+    }
+
+    private fun saveQuery(query: String, date: Long) {
+        context.contentResolver.insert(
+            LawnchairRecentSuggestionProvider.SUGGESTIONS_URI,
+            ContentValues().apply {
+                put(COLUMN_DISPLAY1, query)
+                put(COLUMN_QUERY, query)
+                put(COLUMN_DATE, date)
+            },
+        )
+    }
+
+    companion object {
+        private const val COMPACT_INTERVAL = 20
+
+        /** The history limit, plus the inserts between two compactions */
+        private const val MAX_RETAINED = MAX_ENTRIES + COMPACT_INTERVAL
+    }
+}
@@ -0,0 +1,136 @@
+package app.lawnchair.search.algorithms.engine.provider.contacts
+
+import android.content.Context
+import android.provider.ContactsContract
+import android.provider.ContactsContract.DeletedContacts
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.search.algorithms.data.ContactInfo
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.TimeUnit
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+
+@RunWith(AndroidJUnit4::class)
+class ContactsIndexTest {
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private var now = NOW
+    private lateinit var provider: FakeContactsProvider
+    private lateinit var index: ContactsIndex
+
+    @Before
+    fun setUp() {
+        provider = Robolectric.setupContentProvider(
+            FakeContactsProvider::class.java,
+            ContactsContract.AUTHORITY,
+        )
+        provider.putContact(1, "Ann Smith", "555 0101", NOW - 3)
+        provider.putContact(2, "Anna Smithers", "555 0102", NOW - 2)
+        provider.putContact(3, "Bob Jones", "555 0203", NOW - 1)
+        index = ContactsIndex(context, null) { now }
+    }
+
+    @After
+    fun tearDown() {
+        index.close()
+    }
+
+    @Test
+    fun search_matchesWordPrefixesAndNumbers() {
+        index.sync()
+
+        assertThat(names(index.search("ann smi", 10)))
+            .containsExactly("Ann Smith", "Anna Smithers").inOrder()
+        assertThat(names(index.search("smithers", 10))).containsExactly("Anna Smithers")
+        assertThat(names(index.search("jo", 10))).containsExactly("Bob Jones")
+        assertThat(names(index.search("+1 555 01", 10)))
+            .containsExactly("Ann Smith", "Anna Smithers")
+        assertThat(index.search("555 0203", 10).single().number).isEqualTo("555 0203")
+        assertThat(index.search("x", 10)).isEmpty()
+        assertThat(index.search("ann", 0)).isEmpty()
+    }
+
+    @Test
+    fun search_nameStartingWithQuery_comesFirst() {
+        provider.putContact(4, "Zed Bobby", "555 0404", NOW)
+        index.sync()
+
+        assertThat(names(index.search("bob", 10))).containsExactly("Bob Jones", "Zed Bobby")
+            .inOrder()
+    }
+
+    @Test
+    fun sync_appliesUpdatesAndDeletes() {
+        index.sync()
+
+        now += MINUTE
+        provider.putContact(1, "Zebulon Quartermaine", "555 0101", now)
+        provider.deleteContact(2, now)
+        index.sync()
+
+        assertThat(names(index.search("zebulon quart", 5))).containsExactly("Zebulon Quartermaine")
+        assertThat(index.search("ann", 5)).isEmpty()
+        assertThat(names(index.search("555 01", 5))).containsExactly("Zebulon Quartermaine")
+    }
+
+    @Test
+    fun sync_displayNameRemoved_removesContact() {
+        index.sync()
+
+        now += MINUTE
+        provider.putContact(3, null, "555 0203", now)
+        index.sync()
+
+        assertThat(index.search("bob", 5)).isEmpty()
+        assertThat(index.search("555 0203", 5)).isEmpty()
+        assertThat(index.search("ann", 5)).hasSize(2)
+    }
+
+    @Test
+    fun sync_contactsChangedLongAgo_syncsIncrementally() {
+        // Last changed long before the deletions kept by the provider
+        val changed = NOW - 40 * DAY
+        provider.putContact(1, "Ann Smith", "555 0101", changed)
+        provider.putContact(2, "Anna Smithers", "555 0102", changed)
+        provider.putContact(3, "Bob Jones", "555 0203", changed)
+        index.sync()
+        provider.changeQueries.clear()
+
+        now += MINUTE
+        index.sync()
+
+        // Only reads the changes since the last one it read, it doesn't rebuild
+        assertThat(provider.changeQueries)
+            .containsExactly("deleted" to changed.toString(), "contacts" to changed.toString())
+            .inOrder()
+        assertThat(index.search("ann", 5)).hasSize(2)
+    }
+
+    @Test
+    fun sync_lastSyncBeforeDeletionsForgotten_rebuilds() {
+        index.sync()
+
+        now += DeletedContacts.DAYS_KEPT_MILLISECONDS + 1
+        // The provider forgot the deletion by now
+        provider.deleteContact(3, now - DAY, forget = true)
+        provider.changeQueries.clear()
+        index.sync()
+
+        assertThat(provider.changeQueries).containsExactly("contacts" to "0")
+        assertThat(index.search("bob", 5)).isEmpty()
+        assertThat(index.search("ann", 5)).hasSize(2)
+    }
+
+    private fun names(contacts: List<ContactInfo>) =
+        contacts.map { it.name }
+
+    companion object {
+        private val DAY = TimeUnit.DAYS.toMillis(1)
+        private val MINUTE = TimeUnit.MINUTES.toMillis(1)
+        private val NOW = TimeUnit.DAYS.toMillis(20_000)
+    }
+}
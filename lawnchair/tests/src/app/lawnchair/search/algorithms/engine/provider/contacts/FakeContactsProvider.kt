@@ -0,0 +1,108 @@
+package app.lawnchair.search.algorithms.engine.provider.contacts
+
+import android.content.ContentProvider
+import android.content.ContentValues
+import android.database.Cursor
+import android.database.sqlite.SQLiteDatabase
+import android.net.Uri
+import android.provider.ContactsContract.CommonDataKinds.Phone
+import android.provider.ContactsContract.Contacts
+import android.provider.ContactsContract.DeletedContacts
+
+/** Contacts provider backed by an in-memory database with only the columns the index reads. */
+class FakeContactsProvider : ContentProvider() {
+
+    private lateinit var db: SQLiteDatabase
+
+    /** The table and first selection argument of every query of the contacts or deletions */
+    val changeQueries = ArrayList<Pair<String, String?>>()
+
+    override fun onCreate(): Boolean {
+        db = SQLiteDatabase.create(null)
+        db.execSQL(
+            "CREATE TABLE contacts (${Contacts._ID} INTEGER PRIMARY KEY, " +
+                "${Contacts.LOOKUP_KEY} TEXT, ${Contacts.DISPLAY_NAME_PRIMARY} TEXT, " +
+                "${Contacts.PHOTO_URI} TEXT, ${Contacts.PHONEBOOK_LABEL_PRIMARY} TEXT, " +
+                "${Contacts.CONTACT_LAST_UPDATED_TIMESTAMP} INTEGER)",
+        )
+        db.execSQL(
+            "CREATE TABLE phones (${Phone.CONTACT_ID} INTEGER, ${Phone.NUMBER} TEXT, " +
+                "${Phone.NORMALIZED_NUMBER} TEXT)",
+        )
+        db.execSQL(
+            "CREATE TABLE deleted (${DeletedContacts.CONTACT_ID} INTEGER, " +
+                "${DeletedContacts.CONTACT_DELETED_TIMESTAMP} INTEGER)",
+        )
+        return true
+    }
+
+    fun putContact(id: Long, name: String?, number: String, time: Long) {
+        db.insertWithOnConflict(
+            "contacts",
+            null,
+            ContentValues().apply {
+                put(Contacts._ID, id)
+                put(Contacts.LOOKUP_KEY, "lookup$id")
+                put(Contacts.DISPLAY_NAME_PRIMARY, name)
+                put(Contacts.PHONEBOOK_LABEL_PRIMARY, name?.take(1))
+                put(Contacts.CONTACT_LAST_UPDATED_TIMESTAMP, time)
+            },
+            SQLiteDatabase.CONFLICT_REPLACE,
+        )
+        db.delete("phones", "${Phone.CONTACT_ID} = ?", arrayOf(id.toString()))
+        db.insert(
+            "phones",
+            null,
+            ContentValues().apply {
+                put(Phone.CONTACT_ID, id)
+                put(Phone.NUMBER, number)
+                put(Phone.NORMALIZED_NUMBER, "+1" + number.filter(Char::isDigit))
+            },
+        )
+    }
+
+    /** Deletes a contact, and remembers the deletion unless [forget], like after a while. */
+    fun deleteContact(id: Long, time: Long, forget: Boolean = false) {
+        db.delete("contacts", "${Contacts._ID} = ?", arrayOf(id.toString()))
+        db.delete("phones", "${Phone.CONTACT_ID} = ?", arrayOf(id.toString()))
+        if (forget) return
+        db.insert(
+            "deleted",
+            null,
+            ContentValues().apply {
+                put(DeletedContacts.CONTACT_ID, id)
+                put(DeletedContacts.CONTACT_DELETED_TIMESTAMP, time)
+            },
+        )
+    }
+
+    override fun query(
+        uri: Uri,
+        projection: Array<String>?,
+        selection: String?,
+        selectionArgs: Array<String>?,
+        sortOrder: String?,
+    ): Cursor? {
+        val table = when (uri) {
+            Contacts.CONTENT_URI -> "contacts"
+            Phone.CONTENT_URI -> "phones"
+            DeletedContacts.CONTENT_URI -> "deleted"
+            else -> return null
+        }
+        if (table != "phones") changeQueries.add(table to selectionArgs?.firstOrNull())
+        return db.query(table, projection, selection, selectionArgs, null, null, sortOrder)
+    }
+
+    override fun getType(uri: Uri): String? = null
+
+    override fun insert(uri: Uri, values: ContentValues?): Uri? = null
+
+    override fun delete(uri: Uri, selection: String?, selectionArgs: Array<String>?) = 0
+
+    override fun update(
+        uri: Uri,
+        values: ContentValues?,
+        selection: String?,
+        selectionArgs: Array<String>?,
+    ) = 0
+}
@@ -0,0 +1,95 @@
+package app.lawnchair.search.algorithms.engine.provider.files
+
+import android.content.ContentProvider
+import android.content.ContentValues
+import android.content.Intent
+import android.database.Cursor
+import android.database.sqlite.SQLiteDatabase
+import android.net.Uri
+import android.os.Bundle
+import android.provider.MediaStore.Files.FileColumns
+import androidx.core.os.bundleOf
+
+/** MediaStore backed by an in-memory database with only the columns the index reads. */
+class FakeMediaStoreProvider : ContentProvider() {
+
+    private lateinit var db: SQLiteDatabase
+    private var generation = 0L
+
+    override fun onCreate(): Boolean {
+        db = SQLiteDatabase.create(null)
+        db.execSQL(
+            "CREATE TABLE files (${FileColumns._ID} INTEGER PRIMARY KEY, " +
+                "${FileColumns.DATA} TEXT, ${FileColumns.DISPLAY_NAME} TEXT, " +
+                "${FileColumns.TITLE} TEXT, ${FileColumns.SIZE} INTEGER, " +
+                "${FileColumns.DATE_ADDED} INTEGER, ${FileColumns.DATE_MODIFIED} INTEGER, " +
+                "${FileColumns.MIME_TYPE} TEXT, ${FileColumns.MEDIA_TYPE} INTEGER, " +
+                "${FileColumns.GENERATION_MODIFIED} INTEGER)",
+        )
+        return true
+    }
+
+    fun putFiles(files: List<ContentValues>) {
+        db.beginTransaction()
+        try {
+            for (values in files) {
+                values.put(FileColumns.GENERATION_MODIFIED, ++generation)
+                db.insertWithOnConflict("files", null, values, SQLiteDatabase.CONFLICT_REPLACE)
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    fun deleteFile(id: Long) {
+        db.delete("files", "${FileColumns._ID} = ?", arrayOf(id.toString()))
+    }
+
+    override fun query(
+        uri: Uri,
+        projection: Array<String>?,
+        selection: String?,
+        selectionArgs: Array<String>?,
+        sortOrder: String?,
+    ): Cursor = db.query("files", projection, selection, selectionArgs, null, null, sortOrder)
+
+    override fun call(method: String, arg: String?, extras: Bundle?): Bundle =
+        bundleOf(Intent.EXTRA_TEXT to "1")
+
+    override fun getType(uri: Uri): String? = null
+
+    override fun insert(uri: Uri, values: ContentValues?): Uri? = null
+
+    override fun delete(uri: Uri, selection: String?, selectionArgs: Array<String>?) = 0
+
+    override fun update(
+        uri: Uri,
+        values: ContentValues?,
+        selection: String?,
+        selectionArgs: Array<String>?,
+    ) = 0
+
+    companion object {
+
+        /** Returns the row of a file named [name] in [folder] of the primary external storage. */
+        fun fileOf(
+            id: Long,
+            folder: String,
+            name: String,
+            mimeType: String,
+            mediaType: Int,
+            modified: Long,
+        ) = ContentValues().apply {
+            put(FileColumns._ID, id)
+            put(FileColumns.DATA, "/storage/emulated/0/$folder/$name")
+            put(FileColumns.DISPLAY_NAME, name)
+            put(FileColumns.TITLE, name.substringBeforeLast('.'))
+            put(FileColumns.SIZE, id * 1024)
+            put(FileColumns.DATE_ADDED, modified)
+            put(FileColumns.DATE_MODIFIED, modified)
+            put(FileColumns.MIME_TYPE, mimeType)
+            put(FileColumns.MEDIA_TYPE, mediaType)
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package app.lawnchair.search.algorithms.engine.provider.files
+
+import android.content.Context
+import android.provider.MediaStore
+import android.provider.MediaStore.Files.FileColumns
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.search.algorithms.engine.provider.files.FakeMediaStoreProvider.Companion.fileOf
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+
+@RunWith(AndroidJUnit4::class)
+class FileNameIndexTest {
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private lateinit var provider: FakeMediaStoreProvider
+    private lateinit var index: FileNameIndex
+
+    @Before
+    fun setUp() {
+        provider = Robolectric.setupContentProvider(
+            FakeMediaStoreProvider::class.java,
+            MediaStore.AUTHORITY,
+        )
+        provider.putFiles(
+            listOf(
+                fileOf(1, "DCIM/Camera", "IMG_20240101_1.jpg", "image/jpeg", IMAGE, 101),
+                fileOf(2, "Music", "Song 12.mp3", "audio/mpeg", AUDIO, 102),
+                fileOf(3, "Documents", "Report 12.pdf", "application/pdf", NONE, 103),
+                fileOf(4, "Documents", "Report 2023.pdf", "application/pdf", NONE, 104),
+                fileOf(5, "Documents", "Yearly report.pdf", "application/pdf", NONE, 105),
+                fileOf(6, "Download", "Song lyrics.txt", "text/plain", NONE, 106),
+            ),
+        )
+        index = FileNameIndex(context, null) { listOf(VOLUME) }
+        index.sync()
+    }
+
+    @After
+    fun tearDown() {
+        index.close()
+    }
+
+    @Test
+    fun query_matchesWordPrefixes() {
+        assertThat(queryNames("report 12")).containsExactly("Report 12.pdf")
+        assertThat(queryNames("rep 20")).containsExactly("Report 2023.pdf")
+        assertThat(queryNames("img 2024")).containsExactly("IMG_20240101_1.jpg")
+        assertThat(queryNames("port")).isEmpty()
+    }
+
+    @Test
+    fun query_nameStartingWithQuery_comesFirst() {
+        assertThat(queryNames("report"))
+            .containsExactly("Report 2023.pdf", "Report 12.pdf", "Yearly report.pdf")
+            .inOrder()
+    }
+
+    @Test
+    fun query_mediaTypes_filtersFiles() {
+        assertThat(queryNames("song")).containsExactly("Song lyrics.txt", "Song 12.mp3")
+        assertThat(queryNames("song", intArrayOf(AUDIO))).containsExactly("Song 12.mp3")
+    }
+
+    @Test
+    fun query_folders_onlyMatchAllFiles() {
+        assertThat(queryNames("camera")).isEmpty()
+        assertThat(queryNames("camera", nameOnly = false)).containsExactly("IMG_20240101_1.jpg")
+    }
+
+    @Test
+    fun query_noWords_returnsNull() {
+        assertThat(index.query(" _- ", null, false, LIMIT)).isNull()
+    }
+
+    @Test
+    fun sync_appliesChangesAndDeletes() {
+        provider.putFiles(
+            listOf(fileOf(3, "Documents", "Zanzibar.pdf", "application/pdf", NONE, 107)),
+        )
+        provider.deleteFile(4)
+
+        index.sync(checkDeleted = true)
+
+        assertThat(queryNames("zanzibar")).containsExactly("Zanzibar.pdf")
+        assertThat(queryNames("report")).containsExactly("Yearly report.pdf")
+    }
+
+    private fun queryNames(query: String, mediaTypes: IntArray? = null, nameOnly: Boolean = true) =
+        index.query(query, mediaTypes, nameOnly, LIMIT)!!.use { c ->
+            buildList { while (c.moveToNext()) add(c.getString(2)) }
+        }
+
+    companion object {
+        private const val VOLUME = "external_primary"
+        private const val LIMIT = 50
+
+        private const val NONE = FileColumns.MEDIA_TYPE_NONE
+        private const val IMAGE = FileColumns.MEDIA_TYPE_IMAGE
+        private const val AUDIO = FileColumns.MEDIA_TYPE_AUDIO
+    }
+}
@@ -0,0 +1,172 @@
+package app.lawnchair.search.algorithms.engine.provider.web
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.runBlocking
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class WebSuggestionCacheTest {
+
+    private var now = 1_000L
+    private val cache = WebSuggestionCache(maxEntries = 3, ttlMs = TTL_MS, clock = { now })
+
+    @Test
+    fun get_returnsSuggestionsPerProvider() {
+        cache.put(PROVIDER, "wea", listOf("weather"))
+
+        assertThat(cache.get(PROVIDER, "wea")).containsExactly("weather")
+        assertThat(cache.get(PROVIDER, " wea ")).containsExactly("weather")
+        assertThat(cache.get(OTHER_PROVIDER, "wea")).isNull()
+        assertThat(cache.get(PROVIDER, "weat")).isNull()
+        assertThat(cache.hits).isEqualTo(2)
+        assertThat(cache.misses).isEqualTo(2)
+        assertThat(cache.hitRate).isEqualTo(0.5f)
+    }
+
+    @Test
+    fun get_expiresEntriesAfterTtl() {
+        cache.put(PROVIDER, "wea", listOf("weather"))
+
+        now += TTL_MS
+        assertThat(cache.get(PROVIDER, "wea")).containsExactly("weather")
+        now += 1
+        assertThat(cache.get(PROVIDER, "wea")).isNull()
+        // Expired entries are removed, so going back in time doesn't bring them back
+        now -= TTL_MS
+        assertThat(cache.get(PROVIDER, "wea")).isNull()
+    }
+
+    @Test
+    fun put_refreshesExpiry() {
+        cache.put(PROVIDER, "wea", listOf("weather"))
+        now += TTL_MS
+        cache.put(PROVIDER, "wea", listOf("weather", "weasel"))
+        now += TTL_MS
+
+        assertThat(cache.get(PROVIDER, "wea")).containsExactly("weather", "weasel").inOrder()
+    }
+
+    @Test
+    fun put_evictsLeastRecentlyUsed() {
+        cache.put(PROVIDER, "a", listOf("a"))
+        cache.put(PROVIDER, "b", listOf("b"))
+        cache.put(PROVIDER, "c", listOf("c"))
+        // Reading "a" makes "b" the least recently used
+        cache.get(PROVIDER, "a")
+
+        cache.put(PROVIDER, "d", listOf("d"))
+
+        assertThat(cache.get(PROVIDER, "b")).isNull()
+        assertThat(cache.get(PROVIDER, "a")).isNotNull()
+        assertThat(cache.get(PROVIDER, "c")).isNotNull()
+        assertThat(cache.get(PROVIDER, "d")).isNotNull()
+    }
+
+    @Test
+    fun put_withoutEntries_keepsNothing() {
+        val uncached = WebSuggestionCache(maxEntries = 0, clock = { now })
+
+        uncached.put(PROVIDER, "wea", listOf("weather"))
+
+        assertThat(uncached.get(PROVIDER, "wea")).isNull()
+    }
+
+    @Test
+    fun getForPrefix_filtersLongestPrefix() {
+        cache.put(PROVIDER, "w", listOf("walmart", "weather"))
+        cache.put(PROVIDER, "we", listOf("weather", "web", "Weasel", "wells fargo"))
+
+        assertThat(cache.getForPrefix(PROVIDER, "wea")).containsExactly("weather", "Weasel")
+            .inOrder()
+        assertThat(cache.getForPrefix(PROVIDER, "wa")).containsExactly("walmart")
+        assertThat(cache.getForPrefix(OTHER_PROVIDER, "wea")).isEmpty()
+        // Only the entries of shorter prefixes are used, not the one of the query itself
+        assertThat(cache.getForPrefix(PROVIDER, "we")).containsExactly("weather")
+        // Not counted as hits or misses
+        assertThat(cache.hits + cache.misses).isEqualTo(0)
+    }
+
+    @Test
+    fun getForPrefix_skipsExpiredPrefixes() {
+        cache.put(PROVIDER, "w", listOf("weather", "wxyz"))
+        now += TTL_MS
+        cache.put(PROVIDER, "we", listOf("web"))
+        assertThat(cache.getForPrefix(PROVIDER, "wx")).containsExactly("wxyz")
+        now += 1
+
+        assertThat(cache.getForPrefix(PROVIDER, "wx")).isEmpty()
+        assertThat(cache.getForPrefix(PROVIDER, "web")).containsExactly("web")
+    }
+
+    @Test
+    fun clear_dropsEntriesAndCounts() {
+        cache.put(PROVIDER, "wea", listOf("weather"))
+        cache.get(PROVIDER, "wea")
+
+        cache.clear()
+
+        assertThat(cache.hits).isEqualTo(0)
+        assertThat(cache.get(PROVIDER, "wea")).isNull()
+    }
+
+    @Test
+    fun getSuggestions_missEmitsPrefixThenFetches() = runBlocking {
+        val provider = FakeProvider()
+        cache.put(PROVIDER, "we", listOf("weather", "web"))
+
+        val emitted = suggestions(provider, "wea").toList()
+
+        assertThat(emitted).containsExactly(listOf("weather"), listOf("wea 1", "wea 2")).inOrder()
+        assertThat(provider.queries).containsExactly("wea")
+        assertThat(cache.get(PROVIDER, "wea")).containsExactly("wea 1", "wea 2")
+    }
+
+    @Test
+    fun getSuggestions_hitDoesNotFetch() = runBlocking {
+        val provider = FakeProvider()
+        suggestions(provider, "wea").toList()
+
+        val emitted = suggestions(provider, "wea").toList()
+
+        assertThat(emitted).containsExactly(listOf("wea 1", "wea 2"))
+        assertThat(provider.queries).containsExactly("wea")
+    }
+
+    @Test
+    fun getSuggestions_doesNotCacheFailures() = runBlocking {
+        val provider = FakeProvider(suggestionCount = 0)
+        suggestions(provider, "wea").toList()
+        suggestions(provider, "wea").toList()
+
+        assertThat(provider.queries).containsExactly("wea", "wea")
+    }
+
+    private fun suggestions(provider: WebSearchProvider, query: String) =
+        WebSuggestionProvider.getSuggestions(provider, PROVIDER, query, cache, debounceMs = 0)
+
+    private class FakeProvider(private val suggestionCount: Int = 2) : WebSearchProvider {
+        override val label = 0
+        override val iconRes = 0
+        override val id = PROVIDER
+
+        val queries = ArrayList<String>()
+
+        override fun getSuggestions(query: String): Flow<List<String>> = flow {
+            queries.add(query)
+            emit((1..suggestionCount).map { "$query $it" })
+        }
+
+        override fun getSearchUrl(query: String) = query
+    }
+
+    companion object {
+        private const val PROVIDER = "google"
+        private const val OTHER_PROVIDER = "bing"
+        private const val TTL_MS = 60_000L
+    }
+}
@@ -16,14 +16,21 @@
 package com.android.launcher3.icons
 
 import android.graphics.Bitmap
-import android.graphics.Color
-import android.util.SparseArray
+import androidx.annotation.VisibleForTesting
 import kotlin.math.sqrt
 
 /** Utility class for extracting colors from a bitmap. */
 object ColorExtractor {
     private const val NUM_SAMPLES = 20
 
+    private const val HUE_SHIFT = 24
+    /** 60 / delta for every difference between the max and min channels, in 40.24 fixed point */
+    private val HUE_STEPS =
+        LongArray(256) { delta ->
+            // Rounded up so that flooring the product gives the exact integer hue
+            if (delta == 0) 0L else ((60L shl HUE_SHIFT) + delta - 1) / delta
+        }
+
     /**
      * This picks a dominant color, looking for high-saturation, high-value, repeated hues.
      *
@@ -35,9 +42,6 @@ object ColorExtractor {
         val width = bitmap.width
         val sampleStride = sqrt((height * width) / NUM_SAMPLES.toDouble()).toInt().coerceAtLeast(1)
 
-        // This is an out-param, for getting the hsv values for an rgb
-        val hsv = FloatArray(3)
-
         // First get the best hue, by creating a histogram over 360 hue buckets,
         // where each pixel contributes a score weighted by saturation, value, and alpha.
         val hueScoreHistogram = FloatArray(360)
@@ -45,11 +49,15 @@ object ColorExtractor {
         var bestHue = -1
 
         val pixels = IntArray(NUM_SAMPLES)
+        val hues = IntArray(NUM_SAMPLES)
         var pixelCount = 0
 
+        // Copies every sampled row at once, rather than every sampled pixel on its own
+        val row = IntArray(width)
         for (y in 0..<height step sampleStride) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1)
             for (x in 0..<width step sampleStride) {
-                val argb = bitmap.getPixel(x, y)
+                val argb = row[x]
                 val alpha = 0xFF and (argb shr 24)
                 if (alpha < 0x80) {
                     // Drop mostly-transparent pixels.
@@ -57,17 +65,14 @@ object ColorExtractor {
                 }
                 // Remove the alpha channel.
                 val rgb = argb or -0x1000000
-                Color.colorToHSV(rgb, hsv)
                 // Bucket colors by the 360 integer hues.
-                val hue = hsv[0].toInt()
-                if (hue < 0 || hue >= hueScoreHistogram.size) {
-                    // Defensively avoid array bounds violations.
-                    continue
-                }
+                val hue = hueOf(rgb)
                 if (pixelCount < NUM_SAMPLES) {
-                    pixels[pixelCount++] = rgb
+                    pixels[pixelCount] = rgb
+                    hues[pixelCount] = hue
+                    pixelCount++
                 }
-                val score = hsv[1] * hsv[2]
+                val score = saturationTimesValue(rgb)
                 hueScoreHistogram[hue] += score
                 if (hueScoreHistogram[hue] > highScore) {
                     highScore = hueScoreHistogram[hue]
@@ -76,32 +81,69 @@ object ColorExtractor {
             }
         }
 
-        val rgbScores = SparseArray<Float>()
+        // Keys are s * 100 + v * 10000, and values the cumulated scores
+        val rgbBuckets = IntArray(pixelCount)
+        val rgbScores = FloatArray(pixelCount)
+        var bucketCount = 0
         var bestColor = -0x1000000
         highScore = -1f
         // Go back over the RGB colors that match the winning hue,
         // creating a histogram of weighted s*v scores, for up to 100*100 [s,v] buckets.
         // The highest-scoring RGB color wins.
         for (i in 0..<pixelCount) {
+            if (hues[i] != bestHue) continue
             val rgb = pixels[i]
-            Color.colorToHSV(rgb, hsv)
-            val hue = hsv[0].toInt()
-            if (hue == bestHue) {
-                val s = hsv[1]
-                val v = hsv[2]
-                val bucket = (s * 100).toInt() + (v * 10000).toInt()
-                // Score by cumulative saturation * value.
-                val score = s * v
-                val oldTotal = rgbScores[bucket]
-                val newTotal = if (oldTotal == null) score else oldTotal + score
-                rgbScores.put(bucket, newTotal)
-                if (newTotal > highScore) {
-                    highScore = newTotal
-                    // All the colors in the winning bucket are very similar. Last in wins.
-                    bestColor = rgb
-                }
+            val max = maxOf(rgb shr 16 and 0xFF, rgb shr 8 and 0xFF, rgb and 0xFF)
+            val s = saturation(rgb, max)
+            val v = max / 255f
+            val bucket = (s * 100).toInt() + (v * 10000).toInt()
+            // Score by cumulative saturation * value.
+            var index = 0
+            while (index < bucketCount && rgbBuckets[index] != bucket) index++
+            if (index == bucketCount) {
+                rgbBuckets[bucketCount++] = bucket
+            }
+            rgbScores[index] += s * v
+            if (rgbScores[index] > highScore) {
+                highScore = rgbScores[index]
+                // All the colors in the winning bucket are very similar. Last in wins.
+                bestColor = rgb
             }
         }
         return bestColor
     }
+
+    /**
+     * Returns the integer part of the hue of [rgb], in degrees. It is computed exactly, whereas
+     * [android.graphics.Color.colorToHSV] can round a hue in float just below an integer.
+     */
+    @VisibleForTesting
+    @JvmStatic
+    fun hueOf(rgb: Int): Int {
+        val r = rgb shr 16 and 0xFF
+        val g = rgb shr 8 and 0xFF
+        val b = rgb and 0xFF
+        val max = maxOf(r, g, b)
+        val delta = max - minOf(r, g, b)
+        // Sixths of the hue circle, times delta, between 0 and 6 * delta
+        val sixths =
+            when (max) {
+                r -> if (g >= b) g - b else 6 * delta + g - b
+                g -> 2 * delta + b - r
+                else -> 4 * delta + r - g
+            }
+        return ((sixths * HUE_STEPS[delta]) shr HUE_SHIFT).toInt()
+    }
+
+    /** Same as the saturation of [android.graphics.Color.colorToHSV], with the max channel [max] */
+    private fun saturation(rgb: Int, max: Int): Float {
+        if (max == 0) return 0f
+        val min = minOf(rgb shr 16 and 0xFF, rgb shr 8 and 0xFF, rgb and 0xFF)
+        return (max - min).toFloat() / max
+    }
+
+    private fun saturationTimesValue(rgb: Int): Float {
+        val max = maxOf(rgb shr 16 and 0xFF, rgb shr 8 and 0xFF, rgb and 0xFF)
+        return saturation(rgb, max) * (max / 255f)
+    }
 }
@@ -45,7 +45,6 @@ import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import com.android.app.viewcapture.data.ExportedData;
-import com.android.app.viewcapture.data.FrameData;
 import com.android.app.viewcapture.data.MotionWindowData;
 import com.android.app.viewcapture.data.ViewNode;
 import com.android.app.viewcapture.data.WindowData;
@@ -286,14 +285,10 @@ public abstract class ViewCapture {
      * Another optimization is to only store the class names of the Views in the view hierarchy one
      * time. They are then referenced via a classNameIndex value stored in each ViewPropertyRef.
      * <p>
-     * TODO: b/262585897: If further memory optimization is required, an effective one would be to
-     * only store the changes between frames, rather than the entire node tree for each frame.
-     * The go/web-hv UX already does this, and has reaped significant memory improves because of it.
-     * <p>
-     * TODO: b/262585897: Another memory optimization could be to store all integer, float, and
-     * boolean information via single integer values via the Chinese remainder theorem, or a similar
-     * algorithm, which enables multiple numerical values to be stored inside 1 number. Doing this
-     * would allow each ViewPropertyRef to slim down its memory footprint significantly.
+     * Only the last frame is kept as ViewPropertyRef objects, to copy the clean views of the next
+     * frame from. The history of frames is kept by {@link ViewPropertyHistory}, which stores only
+     * the properties that changed between frames, packed into a primitive array, with periodic
+     * keyframes from which any frame is reconstructed when dumping.
      * <p>
      * One important thing to remember is that bugs related to recycling will usually only appear
      * after at least 2000 frames have been rendered. If that code is changed, the tester can
@@ -315,12 +310,12 @@ public abstract class ViewCapture {
         private ViewPropertyRef mPool = new ViewPropertyRef();
         private final ViewPropertyRef mViewPropertyRef = new ViewPropertyRef();
 
-        private int mFrameIndexBg = -1;
         private boolean mIsFirstFrame = true;
-        private AtomicReference<long[]> mFrameTimesNanosBg =
-                new AtomicReference<>(new long[mMemorySize]);
-        private AtomicReference<ViewPropertyRef[]> mNodesBg =
-                new AtomicReference<>(new ViewPropertyRef[mMemorySize]);
+        private final AtomicReference<ViewPropertyHistory> mHistoryBg =
+                new AtomicReference<>(new ViewPropertyHistory(mMemorySize));
+        // The last frame captured, and the one before it whose objects are recycled by the next
+        private ViewPropertyRef mLastFrameBg;
+        private ViewPropertyRef mRecycleBg;
 
         private boolean mIsActive = true;
         private final Consumer<ViewPropertyRef> mCaptureCallback =
@@ -371,25 +366,20 @@ public abstract class ViewCapture {
         private void copyCleanViewsFromLastFrameBg(ViewPropertyRef start) {
             Trace.beginSection("vc#copyCleanViewsFromLastFrameBg");
 
-            // onTrimMemory() might concurrently modify mFrameTimesNanosBg and mNodesBg (set new
-            // arrays with length = 0). So let's atomically acquire the array references and if any
-            // of the array lengths is 0, then a memory trim has been performed and this method
+            // onTrimMemory() might concurrently clear mHistoryBg. So let's atomically acquire the
+            // history and if it is null, then a memory trim has been performed and this method
             // must do nothing.
-            long[] frameTimesNanosBg = mFrameTimesNanosBg.get();
-            ViewPropertyRef[] nodesBg = mNodesBg.get();
-            if (frameTimesNanosBg.length == 0 || nodesBg.length == 0) {
+            ViewPropertyHistory history = mHistoryBg.get();
+            if (history == null) {
+                mLastFrameBg = null;
+                mRecycleBg = null;
                 Trace.endSection();
                 return;
             }
 
             long elapsedRealtimeNanos = start.elapsedRealtimeNanos;
-            mFrameIndexBg++;
-            if (mFrameIndexBg >= mMemorySize) {
-                mFrameIndexBg = 0;
-            }
-            frameTimesNanosBg[mFrameIndexBg] = elapsedRealtimeNanos;
 
-            ViewPropertyRef recycle = nodesBg[mFrameIndexBg];
+            ViewPropertyRef recycle = mRecycleBg;
 
             ViewPropertyRef resultStart = null;
             ViewPropertyRef resultEnd = null;
@@ -409,7 +399,7 @@ public abstract class ViewCapture {
 
                 ViewPropertyRef copy = null;
                 if (end.childCount < 0) {
-                    copy = findInLastFrame(nodesBg, end.hashCode);
+                    copy = findInLastFrame(end.hashCode);
                     if (copy != null) {
                         copy.transferTo(end);
                     } else {
@@ -456,7 +446,9 @@ public abstract class ViewCapture {
                 }
                 end = end.next;
             }
-            nodesBg[mFrameIndexBg] = resultStart;
+            mRecycleBg = mLastFrameBg;
+            mLastFrameBg = resultStart;
+            history.add(elapsedRealtimeNanos, resultStart);
 
             onCapturedViewPropertiesBg(elapsedRealtimeNanos, name, resultStart);
 
@@ -464,9 +456,8 @@ public abstract class ViewCapture {
         }
 
         @WorkerThread
-        private @Nullable ViewPropertyRef findInLastFrame(ViewPropertyRef[] nodesBg, int hashCode) {
-            int lastFrameIndex = (mFrameIndexBg == 0) ? mMemorySize - 1 : mFrameIndexBg - 1;
-            ViewPropertyRef viewPropertyRef = nodesBg[lastFrameIndex];
+        private @Nullable ViewPropertyRef findInLastFrame(int hashCode) {
+            ViewPropertyRef viewPropertyRef = mLastFrameBg;
             while (viewPropertyRef != null && viewPropertyRef.hashCode != hashCode) {
                 viewPropertyRef = viewPropertyRef.next;
             }
@@ -548,19 +539,11 @@ public abstract class ViewCapture {
 
         @WorkerThread
         private WindowData dumpToProto(ViewIdProvider idProvider, ArrayList<Class> classList) {
-            ViewPropertyRef[] nodesBg = mNodesBg.get();
-            long[] frameTimesNanosBg = mFrameTimesNanosBg.get();
+            ViewPropertyHistory history = mHistoryBg.get();
 
             WindowData.Builder builder = WindowData.newBuilder().setTitle(name);
-            int size = (nodesBg[mMemorySize - 1] == null) ? mFrameIndexBg + 1 : mMemorySize;
-            for (int i = size - 1; i >= 0; i--) {
-                int index = (mMemorySize + mFrameIndexBg - i) % mMemorySize;
-                ViewNode.Builder nodeBuilder = ViewNode.newBuilder();
-                nodesBg[index].toProto(idProvider, classList, nodeBuilder);
-                FrameData.Builder frameDataBuilder = FrameData.newBuilder()
-                        .setNode(nodeBuilder)
-                        .setTimestamp(frameTimesNanosBg[index]);
-                builder.addFrameData(frameDataBuilder);
+            if (history != null) {
+                history.dumpTo(builder, idProvider, classList);
             }
             return builder.build();
         }
@@ -597,8 +580,7 @@ public abstract class ViewCapture {
         @Override
         public void onTrimMemory(int level) {
             if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
-                mNodesBg.set(new ViewPropertyRef[0]);
-                mFrameTimesNanosBg.set(new long[0]);
+                mHistoryBg.set(null);
                 if (mRoot != null && mRoot.getContext() != null) {
                     mRoot.getContext().unregisterComponentCallbacks(this);
                 }
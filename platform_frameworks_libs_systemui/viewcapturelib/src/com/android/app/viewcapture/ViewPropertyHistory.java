@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.app.viewcapture;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.app.viewcapture.ViewCapture.ViewIdProvider;
+import com.android.app.viewcapture.ViewCapture.ViewPropertyRef;
+import com.android.app.viewcapture.data.FrameData;
+import com.android.app.viewcapture.data.ViewNode;
+import com.android.app.viewcapture.data.WindowData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Stores the last captured frames of a window as the changes between consecutive frames.
+ * <p>
+ * Frames are written to a circular int buffer. Each node of a frame is compared with the node at
+ * the same position in the previous frame: runs of unchanged nodes are stored as their length,
+ * changed nodes as a mask followed by the changed properties only, and nodes which are not the
+ * same view as before (different hash code, class, id or child count) as a complete record.
+ * Floats are stored as their raw bits, so that decoding gives back exactly the captured values.
+ * <p>
+ * Every {@link #KEYFRAME_INTERVAL} frames, a keyframe stores all the nodes as complete records.
+ * A frame is reconstructed by decoding its keyframe and the frames after it, so the data of a
+ * keyframe is only released once all the frames depending on it have left the history.
+ * <p>
+ * Not thread safe, it is only used from the background executor of {@link ViewCapture}.
+ */
+final class ViewPropertyHistory {
+
+    @VisibleForTesting
+    static final int KEYFRAME_INTERVAL = 64;
+
+    private static final int INITIAL_DATA_SIZE = 1 << 14;
+
+    // Layout of a node in the packed arrays: its identity, followed by its properties
+    private static final int CLASS = 0;
+    private static final int HASHCODE = 1;
+    private static final int ID = 2;
+    private static final int CHILD_COUNT = 3;
+    private static final int LEFT = 4;
+    private static final int TOP = 5;
+    private static final int RIGHT = 6;
+    private static final int BOTTOM = 7;
+    private static final int SCROLL_X = 8;
+    private static final int SCROLL_Y = 9;
+    private static final int TRANSLATE_X = 10;
+    private static final int TRANSLATE_Y = 11;
+    private static final int SCALE_X = 12;
+    private static final int SCALE_Y = 13;
+    private static final int ALPHA = 14;
+    private static final int ELEVATION = 15;
+    private static final int VISIBILITY = 16;
+    private static final int FLAGS = 17;
+    private static final int NODE_SIZE = 18;
+
+    private static final int FIRST_PROPERTY = LEFT;
+    private static final int PROPERTY_COUNT = NODE_SIZE - FIRST_PROPERTY;
+
+    private static final int FLAG_WILL_NOT_DRAW = 1;
+    private static final int FLAG_CLIP_CHILDREN = 1 << 1;
+
+    // Header of a node entry. A negative header is a run of unchanged nodes, any other value
+    // the mask of the properties that follow.
+    private static final int ENTRY_COMPLETE = 1 << PROPERTY_COUNT;
+
+    private final int mMemorySize;
+    // Also keeps the frames between the oldest retained frame and its keyframe
+    private final int mFrameCapacity;
+    private final long[] mFrameTimesNanos;
+    private final long[] mFrameStarts;
+    private long mFrameCount;
+
+    private int[] mData = new int[INITIAL_DATA_SIZE];
+    private long mWritePosition;
+
+    private final ArrayList<Class> mClasses = new ArrayList<>();
+    private final HashMap<Class, Integer> mClassIndices = new HashMap<>();
+
+    // The last frame, which the next frame is compared against, and the frame being packed
+    private int[] mLastNodes = new int[0];
+    private int mLastNodeCount;
+    private int[] mNodes = new int[0];
+
+    ViewPropertyHistory(int memorySize) {
+        mMemorySize = memorySize;
+        mFrameCapacity = memorySize + KEYFRAME_INTERVAL;
+        mFrameTimesNanos = new long[mFrameCapacity];
+        mFrameStarts = new long[mFrameCapacity];
+    }
+
+    /** Number of frames that can be reconstructed, at most the memory size. */
+    int getFrameCount() {
+        return (int) Math.min(mFrameCount, mMemorySize);
+    }
+
+    /** Number of ints holding the frames that can be reconstructed. */
+    @VisibleForTesting
+    long getDataSize() {
+        return mWritePosition - getOldestNeededPosition(mFrameCount);
+    }
+
+    /** Adds the frame starting at {@code start}, dropping the oldest frame if full. */
+    @WorkerThread
+    void add(long elapsedRealtimeNanos, ViewPropertyRef start) {
+        int nodeCount = pack(start);
+        ensureCapacity(getOldestNeededPosition(mFrameCount + 1),
+                1 + nodeCount * (1 + NODE_SIZE));
+
+        boolean isKeyframe = mFrameCount % KEYFRAME_INTERVAL == 0;
+        int slot = (int) (mFrameCount % mFrameCapacity);
+        mFrameTimesNanos[slot] = elapsedRealtimeNanos;
+        mFrameStarts[slot] = mWritePosition;
+
+        write(nodeCount);
+        int unchanged = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            int offset = i * NODE_SIZE;
+            if (isKeyframe || i >= mLastNodeCount || !isSameView(offset)) {
+                writeRun(unchanged);
+                unchanged = 0;
+                write(ENTRY_COMPLETE);
+                for (int j = 0; j < NODE_SIZE; j++) {
+                    write(mNodes[offset + j]);
+                }
+                continue;
+            }
+
+            int mask = 0;
+            for (int p = 0; p < PROPERTY_COUNT; p++) {
+                int index = offset + FIRST_PROPERTY + p;
+                if (mNodes[index] != mLastNodes[index]) {
+                    mask |= 1 << p;
+                }
+            }
+            if (mask == 0) {
+                unchanged++;
+                continue;
+            }
+            writeRun(unchanged);
+            unchanged = 0;
+            write(mask);
+            for (int p = 0; p < PROPERTY_COUNT; p++) {
+                if ((mask & (1 << p)) != 0) {
+                    write(mNodes[offset + FIRST_PROPERTY + p]);
+                }
+            }
+        }
+        writeRun(unchanged);
+
+        int[] nodes = mLastNodes;
+        mLastNodes = mNodes;
+        mNodes = nodes;
+        mLastNodeCount = nodeCount;
+        mFrameCount++;
+    }
+
+    /**
+     * Reconstructs the frames, from the oldest to the newest, and adds them to {@code out}.
+     * Class names are resolved to indices in {@code classList} in the order they are visited.
+     */
+    @WorkerThread
+    void dumpTo(WindowData.Builder out, ViewIdProvider idProvider, ArrayList<Class> classList) {
+        long first = Math.max(0, mFrameCount - mMemorySize);
+        long frame = first - first % KEYFRAME_INTERVAL;
+        if (frame >= mFrameCount) {
+            return;
+        }
+
+        int[] classListIndices = new int[mClasses.size()];
+        Arrays.fill(classListIndices, -1);
+        int[] nodes = new int[0];
+        long position = mFrameStarts[(int) (frame % mFrameCapacity)];
+        for (; frame < mFrameCount; frame++) {
+            int nodeCount = read(position++);
+            if (nodes.length < nodeCount * NODE_SIZE) {
+                nodes = Arrays.copyOf(nodes, nodeCount * NODE_SIZE);
+            }
+            int i = 0;
+            while (i < nodeCount) {
+                int header = read(position++);
+                if (header < 0) {
+                    i -= header;
+                    continue;
+                }
+                int offset = i * NODE_SIZE;
+                if (header == ENTRY_COMPLETE) {
+                    for (int j = 0; j < NODE_SIZE; j++) {
+                        nodes[offset + j] = read(position++);
+                    }
+                } else {
+                    for (int p = 0; p < PROPERTY_COUNT; p++) {
+                        if ((header & (1 << p)) != 0) {
+                            nodes[offset + FIRST_PROPERTY + p] = read(position++);
+                        }
+                    }
+                }
+                i++;
+            }
+
+            if (frame >= first && nodeCount > 0) {
+                ViewNode.Builder nodeBuilder = ViewNode.newBuilder();
+                toProto(nodes, 0, nodeCount, idProvider, classList, classListIndices,
+                        nodeBuilder);
+                out.addFrameData(FrameData.newBuilder()
+                        .setNode(nodeBuilder)
+                        .setTimestamp(mFrameTimesNanos[(int) (frame % mFrameCapacity)]));
+            }
+        }
+    }
+
+    /**
+     * Converts the node at {@code index} and its descendants to the proto representation and
+     * returns the index of the node following them.
+     */
+    private int toProto(int[] nodes, int index, int nodeCount, ViewIdProvider idProvider,
+            ArrayList<Class> classList, int[] classListIndices, ViewNode.Builder viewNode) {
+        int offset = index * NODE_SIZE;
+        int classIndex = nodes[offset + CLASS];
+        int classnameIndex = classListIndices[classIndex];
+        if (classnameIndex < 0) {
+            Class clazz = mClasses.get(classIndex);
+            classnameIndex = classList.indexOf(clazz);
+            if (classnameIndex < 0) {
+                classnameIndex = classList.size();
+                classList.add(clazz);
+            }
+            classListIndices[classIndex] = classnameIndex;
+        }
+
+        int left = nodes[offset + LEFT];
+        int top = nodes[offset + TOP];
+        int flags = nodes[offset + FLAGS];
+        viewNode.setClassnameIndex(classnameIndex)
+                .setHashcode(nodes[offset + HASHCODE])
+                .setId(idProvider.getName(nodes[offset + ID]))
+                .setLeft(left)
+                .setTop(top)
+                .setWidth(nodes[offset + RIGHT] - left)
+                .setHeight(nodes[offset + BOTTOM] - top)
+                .setTranslationX(Float.intBitsToFloat(nodes[offset + TRANSLATE_X]))
+                .setTranslationY(Float.intBitsToFloat(nodes[offset + TRANSLATE_Y]))
+                .setScrollX(nodes[offset + SCROLL_X])
+                .setScrollY(nodes[offset + SCROLL_Y])
+                .setScaleX(Float.intBitsToFloat(nodes[offset + SCALE_X]))
+                .setScaleY(Float.intBitsToFloat(nodes[offset + SCALE_Y]))
+                .setAlpha(Float.intBitsToFloat(nodes[offset + ALPHA]))
+                .setVisibility(nodes[offset + VISIBILITY])
+                .setWillNotDraw((flags & FLAG_WILL_NOT_DRAW) != 0)
+                .setElevation(Float.intBitsToFloat(nodes[offset + ELEVATION]))
+                .setClipChildren((flags & FLAG_CLIP_CHILDREN) != 0);
+
+        int childCount = nodes[offset + CHILD_COUNT];
+        int next = index + 1;
+        for (int i = 0; (i < childCount) && (next < nodeCount); i++) {
+            ViewNode.Builder childViewNode = ViewNode.newBuilder();
+            next = toProto(nodes, next, nodeCount, idProvider, classList, classListIndices,
+                    childViewNode);
+            viewNode.addChildren(childViewNode);
+        }
+        return next;
+    }
+
+    /** Copies the properties of the frame starting at {@code start} to mNodes. */
+    private int pack(ViewPropertyRef start) {
+        int nodeCount = 0;
+        for (ViewPropertyRef ref = start; ref != null; ref = ref.next) {
+            int offset = nodeCount * NODE_SIZE;
+            if (offset + NODE_SIZE > mNodes.length) {
+                mNodes = Arrays.copyOf(mNodes, Math.max(2 * mNodes.length, 64 * NODE_SIZE));
+            }
+            int[] nodes = mNodes;
+            nodes[offset + CLASS] = getClassIndex(ref.clazz);
+            nodes[offset + HASHCODE] = ref.hashCode;
+            nodes[offset + ID] = ref.id;
+            nodes[offset + CHILD_COUNT] = ref.childCount;
+            nodes[offset + LEFT] = ref.left;
+            nodes[offset + TOP] = ref.top;
+            nodes[offset + RIGHT] = ref.right;
+            nodes[offset + BOTTOM] = ref.bottom;
+            nodes[offset + SCROLL_X] = ref.scrollX;
+            nodes[offset + SCROLL_Y] = ref.scrollY;
+            nodes[offset + TRANSLATE_X] = Float.floatToRawIntBits(ref.translateX);
+            nodes[offset + TRANSLATE_Y] = Float.floatToRawIntBits(ref.translateY);
+            nodes[offset + SCALE_X] = Float.floatToRawIntBits(ref.scaleX);
+            nodes[offset + SCALE_Y] = Float.floatToRawIntBits(ref.scaleY);
+            nodes[offset + ALPHA] = Float.floatToRawIntBits(ref.alpha);
+            nodes[offset + ELEVATION] = Float.floatToRawIntBits(ref.elevation);
+            nodes[offset + VISIBILITY] = ref.visibility;
+            nodes[offset + FLAGS] = (ref.willNotDraw ? FLAG_WILL_NOT_DRAW : 0)
+                    | (ref.clipChildren ? FLAG_CLIP_CHILDREN : 0);
+            nodeCount++;
+        }
+        return nodeCount;
+    }
+
+    private int getClassIndex(Class clazz) {
+        Integer index = mClassIndices.get(clazz);
+        if (index == null) {
+            index = mClasses.size();
+            mClasses.add(clazz);
+            mClassIndices.put(clazz, index);
+        }
+        return index;
+    }
+
+    private boolean isSameView(int offset) {
+        for (int j = 0; j < FIRST_PROPERTY; j++) {
+            if (mNodes[offset + j] != mLastNodes[offset + j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the position of the data needed to reconstruct the frames retained once
+     * {@code frameCount} frames have been added.
+     */
+    private long getOldestNeededPosition(long frameCount) {
+        long oldest = Math.max(0, frameCount - mMemorySize);
+        long keyframe = oldest - oldest % KEYFRAME_INTERVAL;
+        return keyframe < mFrameCount
+                ? mFrameStarts[(int) (keyframe % mFrameCapacity)] : mWritePosition;
+    }
+
+    private void ensureCapacity(long oldestNeededPosition, int size) {
+        long required = mWritePosition + size - oldestNeededPosition;
+        if (required <= mData.length) {
+            return;
+        }
+        int capacity = mData.length;
+        while (capacity < required) {
+            capacity <<= 1;
+        }
+        int[] data = new int[capacity];
+        for (long position = oldestNeededPosition; position < mWritePosition; position++) {
+            data[(int) (position & (capacity - 1))] = read(position);
+        }
+        mData = data;
+    }
+
+    private void writeRun(int unchanged) {
+        if (unchanged > 0) {
+            write(-unchanged);
+        }
+    }
+
+    private void write(int value) {
+        mData[(int) (mWritePosition++ & (mData.length - 1))] = value;
+    }
+
+    private int read(long position) {
+        return mData[(int) (position & (mData.length - 1))];
+    }
+}
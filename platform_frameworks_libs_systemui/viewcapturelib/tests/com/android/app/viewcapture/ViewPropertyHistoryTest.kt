@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.app.viewcapture
+
+import android.view.View
+import android.widget.FrameLayout
+import android.widget.ImageView
+import android.widget.LinearLayout
+import android.widget.TextView
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.android.app.viewcapture.ViewCapture.ViewIdProvider
+import com.android.app.viewcapture.ViewCapture.ViewPropertyRef
+import com.android.app.viewcapture.ViewPropertyHistory.KEYFRAME_INTERVAL
+import com.android.app.viewcapture.data.FrameData
+import com.android.app.viewcapture.data.ViewNode
+import com.android.app.viewcapture.data.WindowData
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit test for [ViewPropertyHistory]. */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class ViewPropertyHistoryTest {
+
+    private val idProvider =
+        ViewIdProvider(InstrumentationRegistry.getInstrumentation().context.resources)
+
+    @Test
+    fun dumpTo_emptyHistory_addsNoFrames() {
+        val history = ViewPropertyHistory(MEMORY_SIZE)
+        val out = WindowData.newBuilder()
+
+        history.dumpTo(out, idProvider, ArrayList())
+
+        assertThat(history.frameCount).isEqualTo(0)
+        assertThat(out.frameDataCount).isEqualTo(0)
+    }
+
+    @Test
+    fun dumpTo_matchesCompleteFrames() {
+        val tree = TestTree(structuralChanges = true)
+        val history = ViewPropertyHistory(MEMORY_SIZE)
+        val frames = ArrayDeque<Pair<Long, ViewPropertyRef>>()
+        val checkpoints =
+            setOf(
+                1,
+                2,
+                KEYFRAME_INTERVAL,
+                KEYFRAME_INTERVAL + 1,
+                MEMORY_SIZE,
+                MEMORY_SIZE + 1,
+                2 * MEMORY_SIZE + 37,
+                FRAME_COUNT,
+            )
+
+        for (frame in 1..FRAME_COUNT) {
+            tree.nextFrame(frame)
+            val time = frame * FRAME_TIME_NANOS
+            history.add(time, tree.capture())
+            frames.addLast(time to tree.capture())
+            if (frames.size > MEMORY_SIZE) frames.removeFirst()
+
+            if (frame in checkpoints) {
+                val expectedClasses = ArrayList<Class<*>>()
+                val expected = WindowData.newBuilder()
+                for ((frameTime, start) in frames) {
+                    val node = ViewNode.newBuilder()
+                    start.toProto(idProvider, expectedClasses, node)
+                    expected.addFrameData(
+                        FrameData.newBuilder().setNode(node).setTimestamp(frameTime)
+                    )
+                }
+                val actualClasses = ArrayList<Class<*>>()
+                val actual = WindowData.newBuilder()
+                history.dumpTo(actual, idProvider, actualClasses)
+
+                assertThat(history.frameCount).isEqualTo(frames.size)
+                assertThat(actualClasses).isEqualTo(expectedClasses)
+                assertThat(actual.build().toByteArray()).isEqualTo(expected.build().toByteArray())
+            }
+        }
+    }
+
+    @Test
+    fun dataSize_isSmallerThanCompleteFrames() {
+        val tree = TestTree(structuralChanges = false)
+        val history = ViewPropertyHistory(MEMORY_SIZE)
+        for (frame in 1..2 * MEMORY_SIZE) {
+            tree.nextFrame(frame)
+            history.add(frame * FRAME_TIME_NANOS, tree.capture())
+        }
+
+        // A complete frame takes at least one int per property for every node
+        val completeFramesSize = MEMORY_SIZE.toLong() * tree.nodeCount * PROPERTIES_PER_NODE
+        assertThat(history.dataSize).isLessThan(completeFramesSize / 4)
+    }
+
+    /**
+     * A root with groups of leaves. Every frame animates a couple of views and, with
+     * [structuralChanges], regularly adds, removes or replaces a leaf.
+     */
+    private class TestTree(private val structuralChanges: Boolean) {
+
+        private class Node(val clazz: Class<*>, var hashCode: Int, val id: Int) {
+            var left = 0
+            var right = 100
+            var translateX = 0f
+            var translateY = 0f
+            var scale = 1f
+            var alpha = 1f
+            var elevation = 0f
+            var visibility = View.VISIBLE
+            var willNotDraw = false
+            var clipChildren = true
+        }
+
+        private var nextHashCode = 1
+        private val root = newNode(FrameLayout::class.java, android.R.id.content)
+        private val groups =
+            List(GROUPS) {
+                newNode(LinearLayout::class.java, View.NO_ID) to
+                    MutableList(LEAVES_PER_GROUP) { newLeaf(it) }
+            }
+
+        val nodeCount
+            get() = 1 + groups.sumOf { 1 + it.second.size }
+
+        fun nextFrame(frame: Int) {
+            val (group, leaves) = groups[frame % groups.size]
+            group.translateY += 1f
+            val leaf = leaves[frame % leaves.size]
+            leaf.alpha = (frame % 10) / 10f
+            leaf.scale = 0.5f + (frame % 4) / 4f
+            leaf.translateX = -leaf.translateX
+            if (!structuralChanges) return
+
+            if (frame % 7 == 0) leaves[frame / 7 % leaves.size].hashCode = nextHashCode++
+            if (frame % 11 == 0) leaves.add(frame / 11 % (leaves.size + 1), newLeaf(frame))
+            if (frame % 13 == 0 && leaves.size > 1) leaves.removeAt(frame / 13 % leaves.size)
+            if (frame % 17 == 0) {
+                leaf.visibility = if (leaf.visibility == View.VISIBLE) View.GONE else View.VISIBLE
+                leaf.left += 10
+                leaf.right += 10
+                leaf.elevation = -0f
+                leaf.willNotDraw = !leaf.willNotDraw
+            }
+        }
+
+        /** Returns the flattened tree, as copied by [ViewCapture] on its background thread. */
+        fun capture(): ViewPropertyRef {
+            val start = root.toRef(groups.size)
+            var end = start
+            for ((group, leaves) in groups) {
+                end.next = group.toRef(leaves.size)
+                end = end.next
+                for (leaf in leaves) {
+                    end.next = leaf.toRef(0)
+                    end = end.next
+                }
+            }
+            return start
+        }
+
+        private fun newNode(clazz: Class<*>, id: Int) = Node(clazz, nextHashCode++, id)
+
+        private fun newLeaf(seed: Int): Node {
+            val leaf =
+                if (seed % 2 == 0) newNode(TextView::class.java, View.NO_ID)
+                else newNode(ImageView::class.java, 0x7f0a0000 + seed % 4)
+            leaf.left = seed * 37 % 1000
+            leaf.right = leaf.left + seed * 13 % 200
+            leaf.translateX = seed / 7f
+            leaf.clipChildren = false
+            return leaf
+        }
+
+        private fun Node.toRef(childCount: Int) =
+            ViewPropertyRef().also {
+                it.clazz = clazz
+                it.hashCode = hashCode
+                it.id = id
+                it.childCount = childCount
+                it.left = left
+                it.top = 0
+                it.right = right
+                it.bottom = 100
+                it.translateX = translateX
+                it.translateY = translateY
+                it.scaleX = scale
+                it.scaleY = scale
+                it.alpha = alpha
+                it.elevation = elevation
+                it.visibility = visibility
+                it.willNotDraw = willNotDraw
+                it.clipChildren = clipChildren
+            }
+    }
+
+    companion object {
+        private const val MEMORY_SIZE = 150
+        private const val FRAME_COUNT = 1000
+        private const val FRAME_TIME_NANOS = 16_666_667L
+        private const val PROPERTIES_PER_NODE = 14
+        private const val GROUPS = 4
+        private const val LEAVES_PER_GROUP = 5
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.model
+
+import android.content.ComponentName
+import android.os.UserHandle
+import android.util.AtomicFile
+import android.util.Log
+import androidx.annotation.VisibleForTesting
+import com.android.launcher3.util.ComponentKey
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileNotFoundException
+import java.io.FileOutputStream
+import java.io.IOException
+import java.util.TimeZone
+import kotlin.math.pow
+
+/**
+ * Predicts the apps to launch from the past launches, for when the system app predictor is not
+ * available.
+ *
+ * Every app has a few counters of its launches: in total, per slot of the day, and per day of the
+ * week. Recent launches weigh more: rather than decaying all counters as time passes, every launch
+ * is counted with a weight doubling every [HALF_LIFE_MILLIS], and the counters are rescaled once in
+ * a while. An app's score in a context, a slot of a day of the week, only grows when that app is
+ * launched, so the best apps of every context are kept sorted as launches are recorded, and a
+ * prediction only reads the list of the current context.
+ *
+ * The counters are persisted in [file]. This class is not thread safe, and is used on the model
+ * thread.
+ */
+class LocalAppPredictor
+@JvmOverloads
+constructor(
+    private val file: File?,
+    private val serialForUser: (UserHandle) -> Long,
+    private val userForSerial: (Long) -> UserHandle?,
+    private val timeZone: TimeZone = TimeZone.getDefault(),
+) {
+
+    private class AppStats(val key: ComponentKey, val counts: FloatArray = FloatArray(COUNTERS)) {
+
+        fun score(slot: Int, day: Int) =
+            counts[0] + SLOT_WEIGHT * counts[1 + slot] + DAY_WEIGHT * counts[1 + SLOTS + day]
+    }
+
+    private val apps = HashMap<ComponentKey, AppStats>()
+    /** The best apps of every context, by decreasing score */
+    private val rankings = Array(SLOTS * DAYS) { ArrayList<AppStats>(MAX_PREDICTIONS + 1) }
+
+    /** Time at which a launch weighs 1 */
+    private var epochMillis = 0L
+    private var lastLaunchMillis = 0L
+    private var loaded = false
+    private var dirty = false
+
+    /** Records a launch of [key] at [timeMillis] */
+    fun recordLaunch(key: ComponentKey, timeMillis: Long) {
+        loadIfNeeded()
+        if (apps.isEmpty()) epochMillis = timeMillis
+        var weight = weightAt(timeMillis)
+        if (weight > RESCALE_WEIGHT) {
+            // Scaling all counters keeps the rankings, and keeps the counters in the float range
+            val scale = (1 / weight).toFloat()
+            for (stats in apps.values) {
+                for (i in 0 until COUNTERS) stats.counts[i] *= scale
+            }
+            epochMillis = timeMillis
+            weight = 1.0
+        }
+
+        val stats = apps.getOrPut(key) { AppStats(key) }
+        val slot = slotOf(timeMillis)
+        val day = dayOf(timeMillis)
+        stats.counts[0] += weight.toFloat()
+        stats.counts[1 + slot] += weight.toFloat()
+        stats.counts[1 + SLOTS + day] += weight.toFloat()
+        for (i in rankings.indices) promote(rankings[i], stats, i / DAYS, i % DAYS)
+        lastLaunchMillis = timeMillis
+        dirty = true
+    }
+
+    /**
+     * Returns up to [count] apps accepted by [filter], the most likely to be launched at
+     * [timeMillis] first. Only the [MAX_PREDICTIONS] best apps are considered.
+     */
+    fun predict(
+        timeMillis: Long,
+        count: Int,
+        filter: (ComponentKey) -> Boolean = { true },
+    ): List<ComponentKey> {
+        loadIfNeeded()
+        val ranking = rankings[slotOf(timeMillis) * DAYS + dayOf(timeMillis)]
+        val result = ArrayList<ComponentKey>(minOf(count, ranking.size))
+        for (stats in ranking) {
+            if (result.size >= count) break
+            if (filter(stats.key)) result.add(stats.key)
+        }
+        return result
+    }
+
+    /**
+     * Moves [stats] up in [ranking] after its score grew, adding it if it now ranks among the best
+     * apps.
+     */
+    private fun promote(ranking: ArrayList<AppStats>, stats: AppStats, slot: Int, day: Int) {
+        val score = stats.score(slot, day)
+        var index = ranking.indexOf(stats)
+        if (index < 0) {
+            if (ranking.size >= MAX_PREDICTIONS && ranking.last().score(slot, day) >= score) return
+            ranking.add(stats)
+            index = ranking.size - 1
+        }
+        while (index > 0 && ranking[index - 1].score(slot, day) < score) {
+            ranking[index] = ranking[index - 1]
+            index--
+        }
+        ranking[index] = stats
+        if (ranking.size > MAX_PREDICTIONS) ranking.removeAt(ranking.size - 1)
+    }
+
+    private fun weightAt(timeMillis: Long) =
+        2.0.pow((timeMillis - epochMillis).toDouble() / HALF_LIFE_MILLIS)
+
+    private fun localTime(timeMillis: Long) = timeMillis + timeZone.getOffset(timeMillis)
+
+    private fun slotOf(timeMillis: Long) =
+        (Math.floorMod(localTime(timeMillis), DAY_MILLIS) / SLOT_MILLIS).toInt()
+
+    /** Returns the day of the week, from 0 for Monday, knowing that day 0 was a Thursday */
+    private fun dayOf(timeMillis: Long) =
+        Math.floorMod(Math.floorDiv(localTime(timeMillis), DAY_MILLIS) + 3, DAYS.toLong()).toInt()
+
+    /** Writes the counters to [file] if they changed since the last save */
+    fun save() {
+        if (!dirty || file == null) return
+        dirty = false
+        prune()
+
+        val atomicFile = AtomicFile(file)
+        val fos: FileOutputStream
+        try {
+            fos = atomicFile.startWrite()
+        } catch (e: IOException) {
+            Log.e(TAG, "Unable to persist launches in $file", e)
+            return
+        }
+        try {
+            val out = DataOutputStream(fos.buffered())
+            out.writeInt(VERSION)
+            out.writeLong(epochMillis)
+            out.writeInt(apps.size)
+            for (stats in apps.values) {
+                out.writeUTF(stats.key.componentName.flattenToShortString())
+                out.writeLong(serialForUser(stats.key.user))
+                for (count in stats.counts) out.writeFloat(count)
+            }
+            out.flush()
+        } catch (e: IOException) {
+            atomicFile.failWrite(fos)
+            Log.e(TAG, "Unable to persist launches in $file", e)
+            return
+        }
+        atomicFile.finishWrite(fos)
+    }
+
+    /**
+     * Forgets the apps which were not launched for months before the last launch, and which are not
+     * predicted anymore
+     */
+    private fun prune() {
+        val minCount = (weightAt(lastLaunchMillis) * PRUNE_COUNT).toFloat()
+        apps.values.removeIf { stats ->
+            stats.counts[0] < minCount && rankings.none { it.contains(stats) }
+        }
+    }
+
+    private fun loadIfNeeded() {
+        if (loaded) return
+        loaded = true
+        if (file == null) return
+        try {
+            DataInputStream(AtomicFile(file).openRead().buffered()).use { input ->
+                if (input.readInt() != VERSION) return
+                epochMillis = input.readLong()
+                repeat(input.readInt()) {
+                    val cn = ComponentName.unflattenFromString(input.readUTF())
+                    val user = userForSerial(input.readLong())
+                    val counts = FloatArray(COUNTERS) { input.readFloat() }
+                    if (cn != null && user != null) {
+                        val key = ComponentKey(cn, user)
+                        apps[key] = AppStats(key, counts)
+                    }
+                }
+            }
+        } catch (e: FileNotFoundException) {
+            // No launches recorded yet
+        } catch (e: IOException) {
+            Log.e(TAG, "Unable to read launches in $file", e)
+        }
+        for (stats in apps.values) {
+            for (i in rankings.indices) promote(rankings[i], stats, i / DAYS, i % DAYS)
+        }
+    }
+
+    @VisibleForTesting
+    val appCount: Int
+        get() {
+            loadIfNeeded()
+            return apps.size
+        }
+
+    companion object {
+        private const val TAG = "LocalAppPredictor"
+        private const val VERSION = 1
+
+        /** The maximum number of apps which can be predicted in a context */
+        const val MAX_PREDICTIONS = 12
+
+        private const val DAY_MILLIS = 24 * 60 * 60 * 1000L
+        private const val SLOTS = 8
+        private const val SLOT_MILLIS = DAY_MILLIS / SLOTS
+        private const val DAYS = 7
+        /** One total counter, one per slot of the day and one per day of the week */
+        private const val COUNTERS = 1 + SLOTS + DAYS
+
+        /** How much more the launches in the same slot of the day, and day of the week, count */
+        private const val SLOT_WEIGHT = 8f
+        private const val DAY_WEIGHT = 2f
+
+        private const val HALF_LIFE_MILLIS = 14 * DAY_MILLIS
+        private const val RESCALE_WEIGHT = 65536.0
+        /** A single launch drops below this after about two months */
+        private const val PRUNE_COUNT = 0.05
+    }
+}
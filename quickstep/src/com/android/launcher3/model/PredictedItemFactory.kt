@@ -144,23 +144,33 @@ class PredictorState(
         predictor =
             apm.createAppPredictionSession(predictionContext).apply {
                 registerPredictionUpdates(MODEL_EXECUTOR) {
-                    val oldTargets = lastTargets
-                    lastTargets = it
-
-                    // If no diff, skip
-                    if (
-                        oldTargets.size != lastTargets.size ||
-                            oldTargets.zip(lastTargets).any { (a1, a2) ->
-                                !areAppTargetsSame(a1, a2)
-                            }
-                    ) {
-                        model.enqueueModelUpdateTask(taskFactory.invoke(this@PredictorState, it))
-                    }
+                    publishTargets(it, model, taskFactory)
                 }
                 requestPredictionUpdate()
             }
     }
 
+    /**
+     * Updates the model with [targets], unless they are the same as the last ones. Used for the
+     * predictions of the system predictor, or of [LocalAppPredictor] when it is not available.
+     */
+    fun publishTargets(
+        targets: List<AppTarget>,
+        model: LauncherModel,
+        taskFactory: (PredictorState, List<AppTarget>) -> ModelUpdateTask,
+    ) {
+        val oldTargets = lastTargets
+        lastTargets = targets
+
+        // If no diff, skip
+        if (
+            oldTargets.size != lastTargets.size ||
+                oldTargets.zip(lastTargets).any { (a1, a2) -> !areAppTargetsSame(a1, a2) }
+        ) {
+            model.enqueueModelUpdateTask(taskFactory.invoke(this, targets))
+        }
+    }
+
     /** Destroys a previously created predictor */
     fun destroyPredictor() {
         predictor?.destroy()
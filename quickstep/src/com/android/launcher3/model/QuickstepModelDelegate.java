@@ -28,6 +28,7 @@ import static com.android.launcher3.LauncherSettings.Favorites.DESKTOP_ICON_FLAG
 import static com.android.launcher3.icons.cache.CacheLookupFlag.DEFAULT_LOOKUP_FLAG;
 import static com.android.launcher3.model.PredictionHelper.getBundleForHotseatPredictions;
 import static com.android.launcher3.model.PredictionHelper.getBundleForWidgetPredictions;
+import static com.android.launcher3.model.PredictionHelper.isTrackedForHotseatPrediction;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
 
 import android.Manifest;
@@ -36,7 +37,10 @@ import static java.util.stream.Collectors.toCollection;
 import android.app.StatsManager;
 import android.app.prediction.AppPredictionContext;
 import android.app.prediction.AppPredictionManager;
+import android.app.prediction.AppTarget;
 import android.app.prediction.AppTargetEvent;
+import android.app.prediction.AppTargetId;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.LauncherActivityInfo;
@@ -68,6 +72,7 @@ import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.PredictedContainerInfo;
 import com.android.launcher3.model.data.WorkspaceData;
 import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.IntSparseArrayMap;
 import com.android.quickstep.logging.SettingsChangeLogger;
 import com.android.quickstep.logging.StatsLogCompatManager;
@@ -75,6 +80,9 @@ import com.android.quickstep.util.ContextualSearchStateManager;
 import com.android.systemui.shared.system.SysUiStatsLog;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -95,6 +103,10 @@ public class QuickstepModelDelegate extends ModelDelegate {
     private static final ConstantItem<Long> LAST_SNAPSHOT_TIME_MILLIS =
             nonRestorableItem("LAST_SNAPSHOT_TIME_MILLIS", 0L, ENCRYPTED);
 
+    private static final String LOCAL_PREDICTOR_FILE_NAME = "local_app_predictor";
+    // Launches usually come in bursts, which are saved together
+    private static final long LOCAL_PREDICTOR_SAVE_DELAY_MS = 10_000;
+
     @VisibleForTesting
     final PredictorState mAllPredictionAppsState = new PredictorState(
             CONTAINER_ALL_APPS_PREDICTION, "all_apps_predictions", DEFAULT_LOOKUP_FLAG);
@@ -112,6 +124,13 @@ public class QuickstepModelDelegate extends ModelDelegate {
 
     private final StatsManager mStatsManager;
 
+    @Nullable
+    private final LocalAppPredictor mLocalPredictor;
+    private final Runnable mSaveLocalPredictor = this::saveLocalPredictor;
+    // Whether the app predictions come from mLocalPredictor, when the system predictor is not
+    // available
+    private boolean mUseLocalPredictor = false;
+
     protected boolean mActive = false;
 
     @Inject
@@ -134,6 +153,10 @@ public class QuickstepModelDelegate extends ModelDelegate {
         // instance, as there will be additional instances that may be destroyed at any time.
         mStatsManager = TextUtils.isEmpty(dbFileName)
                 ? null : context.getSystemService(StatsManager.class);
+        // Likewise, only the primary instance records the launches in its file
+        mLocalPredictor = TextUtils.isEmpty(dbFileName) ? null : new LocalAppPredictor(
+                context.getFileStreamPath(LOCAL_PREDICTOR_FILE_NAME),
+                userCache::getSerialNumberForUser, userCache::getUserForSerialNumber);
     }
 
     @Override
@@ -274,6 +297,8 @@ public class QuickstepModelDelegate extends ModelDelegate {
         super.validateData();
         mAllPredictionAppsState.requestPredictionUpdate();
         mWidgetsRecommendationState.requestPredictionUpdate();
+        // The context of the local predictions changes with time
+        publishLocalPredictions();
     }
 
     @WorkerThread
@@ -290,6 +315,10 @@ public class QuickstepModelDelegate extends ModelDelegate {
             }
         }
         destroyPredictors();
+        if (mLocalPredictor != null) {
+            MODEL_EXECUTOR.getHandler().removeCallbacks(mSaveLocalPredictor);
+            saveLocalPredictor();
+        }
     }
 
     private void destroyPredictors() {
@@ -301,18 +330,16 @@ public class QuickstepModelDelegate extends ModelDelegate {
     @WorkerThread
     private void recreatePredictors() {
         destroyPredictors();
+        mUseLocalPredictor = false;
         if (!Utilities.ATLEAST_Q || !mActive) {
             return;
         }
-        AppPredictionManager apm = mContext.getSystemService(AppPredictionManager.class);
-        if (apm == null) {
+        if (!isSystemPredictorAvailable()) {
+            mUseLocalPredictor = mLocalPredictor != null;
+            publishLocalPredictions();
             return;
         }
 
-        int usagePerm = mContext.checkCallingOrSelfPermission(PACKAGE_USAGE_STATS);
-        if (usagePerm != PackageManager.PERMISSION_GRANTED)
-            return;
-
         mAllPredictionAppsState.registerPredictor(mContext,
                 new AppPredictionContext.Builder(mContext)
                     .setUiSurface("home")
@@ -338,18 +365,93 @@ public class QuickstepModelDelegate extends ModelDelegate {
     @WorkerThread
     private void recreateHotseatPredictor() {
         mHotseatPredictionState.destroyPredictor();
-        
-        AppPredictionManager apm = mContext.getSystemService(AppPredictionManager.class);
-        if (apm == null) return;
-        
-        int usagePerm = mContext.checkCallingOrSelfPermission(PACKAGE_USAGE_STATS);
-        if (usagePerm != PackageManager.PERMISSION_GRANTED) return;
-        
+
+        if (mUseLocalPredictor) {
+            publishLocalHotseatPredictions(System.currentTimeMillis());
+            return;
+        }
+        if (!isSystemPredictorAvailable()) return;
+
         if (mActive) {
             registerHotseatPredictor(mContext);
         }
     }
 
+    private boolean isSystemPredictorAvailable() {
+        return mContext.getSystemService(AppPredictionManager.class) != null
+                && mContext.checkCallingOrSelfPermission(PACKAGE_USAGE_STATS)
+                        == PackageManager.PERMISSION_GRANTED;
+    }
+
+    @WorkerThread
+    private void publishLocalPredictions() {
+        if (!mUseLocalPredictor) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        mAllPredictionAppsState.publishTargets(
+                toAppTargets(mLocalPredictor.predict(now, mIDP.numDatabaseAllAppsColumns,
+                        this::isActivityEnabled)),
+                mModel, PredictionUpdateTask::new);
+        publishLocalHotseatPredictions(now);
+    }
+
+    @WorkerThread
+    private void publishLocalHotseatPredictions(long now) {
+        // Like the system predictor, does not suggest the apps already on the hotseat or first page
+        Set<ComponentKey> trackedApps = new HashSet<>();
+        synchronized (mDataModel) {
+            for (ItemInfo info : mDataModel.itemsIdMap) {
+                ComponentName cn = info.getTargetComponent();
+                if (cn != null && isTrackedForHotseatPrediction(info)) {
+                    trackedApps.add(new ComponentKey(cn, info.user));
+                }
+            }
+        }
+        mHotseatPredictionState.publishTargets(
+                toAppTargets(mLocalPredictor.predict(now, mIDP.numDatabaseHotseatIcons,
+                        key -> !trackedApps.contains(key) && isActivityEnabled(key))),
+                mModel, PredictionUpdateTask::new);
+    }
+
+    private boolean isActivityEnabled(ComponentKey key) {
+        return mContext.getSystemService(LauncherApps.class)
+                .isActivityEnabled(key.componentName, key.user);
+    }
+
+    private static List<AppTarget> toAppTargets(List<ComponentKey> keys) {
+        List<AppTarget> targets = new ArrayList<>(keys.size());
+        for (ComponentKey key : keys) {
+            String packageName = key.componentName.getPackageName();
+            targets.add(new AppTarget.Builder(
+                    new AppTargetId("app:" + packageName), packageName, key.user)
+                    .setClassName(key.componentName.getClassName())
+                    .build());
+        }
+        return targets;
+    }
+
+    @WorkerThread
+    private void recordLocalLaunch(AppTarget target) {
+        // Ignores the shortcuts, and the launcher resuming
+        if (target.getShortcutInfo() != null || target.getClassName() == null
+                || mContext.getPackageName().equals(target.getPackageName())) {
+            return;
+        }
+        mLocalPredictor.recordLaunch(new ComponentKey(
+                new ComponentName(target.getPackageName(), target.getClassName()),
+                target.getUser()), System.currentTimeMillis());
+        publishLocalPredictions();
+        MODEL_EXECUTOR.getHandler().removeCallbacks(mSaveLocalPredictor);
+        MODEL_EXECUTOR.getHandler().postDelayed(mSaveLocalPredictor,
+                LOCAL_PREDICTOR_SAVE_DELAY_MS);
+    }
+
+    @WorkerThread
+    private void saveLocalPredictor() {
+        mLocalPredictor.save();
+    }
+
     private void registerHotseatPredictor(Context context) {
         mHotseatPredictionState.registerPredictor(context,
                 new AppPredictionContext.Builder(context)
@@ -376,6 +478,9 @@ public class QuickstepModelDelegate extends ModelDelegate {
                 break;
         }
 
+        if (mUseLocalPredictor && event.getAction() == AppTargetEvent.ACTION_LAUNCH) {
+            recordLocalLaunch(event.getTarget());
+        }
         state.notifyAppTargetEvent(event);
         Log.d(TAG, "notifyAppTargetEvent action=" + event.getAction()
                 + " launchLocation=" + event.getLaunchLocation());
@@ -71,7 +71,7 @@ public class NavHandleLongPressInputConsumer extends DelegateInputConsumer {
     private final GestureState mGestureState;
 
     private MotionEvent mCurrentDownEvent;  // Down event that started the current gesture.
-    private MotionEvent mCurrentMotionEvent;  // Most recent motion event.
+    private long mCurrentEventTime = -1;  // Time of the most recent motion event.
     private boolean mDeepPressLogged;  // Whether deep press has been logged for the current touch.
 
     public NavHandleLongPressInputConsumer(
@@ -134,10 +134,8 @@ public class NavHandleLongPressInputConsumer extends DelegateInputConsumer {
 
     @Override
     public void onMotionEvent(MotionEvent ev) {
-        if (mCurrentMotionEvent != null) {
-            mCurrentMotionEvent.recycle();
-        }
-        mCurrentMotionEvent = MotionEvent.obtain(ev);
+        // Only the time is needed, rather than a copy of every event
+        mCurrentEventTime = ev.getEventTime();
         if (mDelegate.allowInterceptByParent()) {
             handleMotionEvent(ev);
         } else if (MAIN_EXECUTOR.getHandler().hasCallbacks(mTriggerLongPress)) {
@@ -259,8 +257,8 @@ public class NavHandleLongPressInputConsumer extends DelegateInputConsumer {
             Log.d(TAG, "cancelLongPress: " + reason);
         }
         // Log LPNH abandon latency if we didn't trigger but were still prepared to.
-        if (mCurrentMotionEvent != null && mCurrentDownEvent != null) {
-            long latencyMs = mCurrentMotionEvent.getEventTime() - mCurrentDownEvent.getEventTime();
+        if (mCurrentEventTime >= 0 && mCurrentDownEvent != null) {
+            long latencyMs = mCurrentEventTime - mCurrentDownEvent.getEventTime();
             if (mState != STATE_ACTIVE && MAIN_EXECUTOR.getHandler().hasCallbacks(mTriggerLongPress)
                     && latencyMs >= MIN_TIME_TO_LOG_ABANDON_MS) {
                 mStatsLogManager.latencyLogger()
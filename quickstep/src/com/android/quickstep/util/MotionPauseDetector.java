@@ -23,6 +23,8 @@ import android.util.Log;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.launcher3.Alarm;
 import com.android.launcher3.R;
 import com.android.launcher3.Utilities;
@@ -55,6 +57,25 @@ public class MotionPauseDetector {
      */
     private static final long TEST_HARNESS_TRIGGER_TIMEOUT = 2000;
 
+    // Reasons for the paused state, evaluated on every move event. They are preallocated since
+    // they are only formatted when logged, and are never appended to.
+    private static final ActiveGestureLog.CompoundString REASON_FAST_SPEED =
+            new ActiveGestureLog.CompoundString("Was paused, but started moving at a fast speed");
+    private static final ActiveGestureLog.CompoundString REASON_CHANGED_DIRECTIONS =
+            new ActiveGestureLog.CompoundString("Velocity changed directions");
+    private static final ActiveGestureLog.CompoundString REASON_BACK_TO_BACK_SLOW_SPEEDS =
+            new ActiveGestureLog.CompoundString("Pause requires back to back slow speeds");
+    private static final ActiveGestureLog.CompoundString REASON_RAPID_DECELERATION =
+            new ActiveGestureLog.CompoundString(
+                    "Didn't have back to back slow speeds, checking for rapid "
+                            + " deceleration on first pause only");
+    private static final ActiveGestureLog.CompoundString REASON_MAINTAINED_SLOW_SPEED =
+            new ActiveGestureLog.CompoundString(
+                    "Maintained slow speed for sufficient duration when making"
+                            + " pause harder to trigger");
+    private static final ActiveGestureLog.CompoundString REASON_HARDER_TO_TRIGGER =
+            new ActiveGestureLog.CompoundString("Intentionally making pause harder to trigger");
+
     private final float mSpeedVerySlow;
     private final float mSpeedSlow;
     private final float mSpeedSomewhatFast;
@@ -65,7 +86,8 @@ public class MotionPauseDetector {
     private final Context mContext;
     private final SystemVelocityProvider mVelocityProvider;
 
-    private Float mPreviousVelocity = null;
+    private float mPreviousVelocity;
+    private boolean mHasPreviousVelocity;
 
     private OnMotionPauseListener mOnMotionPauseListener;
     private boolean mIsTrackpadGesture;
@@ -155,11 +177,20 @@ public class MotionPauseDetector {
                         ? HARDER_TRIGGER_TIMEOUT
                         : FORCE_PAUSE_TIMEOUT;
         mForcePauseTimeout.setAlarm(timeoutMs);
-        float newVelocity = mVelocityProvider.addMotionEvent(ev, ev.getPointerId(pointerIndex));
-        if (mPreviousVelocity != null) {
-            checkMotionPaused(newVelocity, mPreviousVelocity, ev.getEventTime());
+        addVelocity(mVelocityProvider.addMotionEvent(ev, ev.getPointerId(pointerIndex)),
+                ev.getEventTime());
+    }
+
+    /**
+     * Determines whether the motion is paused from the velocity at {@code time}.
+     */
+    @VisibleForTesting
+    public void addVelocity(float velocity, long time) {
+        if (mHasPreviousVelocity) {
+            checkMotionPaused(velocity, mPreviousVelocity, time);
         }
-        mPreviousVelocity = newVelocity;
+        mPreviousVelocity = velocity;
+        mHasPreviousVelocity = true;
     }
 
     private void checkMotionPaused(float velocity, float prevVelocity, long time) {
@@ -170,17 +201,15 @@ public class MotionPauseDetector {
         if (mIsPaused) {
             // Continue to be paused until moving at a fast speed.
             isPaused = speed < mSpeedFast || previousSpeed < mSpeedFast;
-            isPausedReason = new ActiveGestureLog.CompoundString(
-                    "Was paused, but started moving at a fast speed");
+            isPausedReason = REASON_FAST_SPEED;
         } else {
             if (velocity < 0 != prevVelocity < 0) {
                 // We're just changing directions, not necessarily stopping.
                 isPaused = false;
-                isPausedReason = new ActiveGestureLog.CompoundString("Velocity changed directions");
+                isPausedReason = REASON_CHANGED_DIRECTIONS;
             } else {
                 isPaused = speed < mSpeedVerySlow && previousSpeed < mSpeedVerySlow;
-                isPausedReason = new ActiveGestureLog.CompoundString(
-                        "Pause requires back to back slow speeds");
+                isPausedReason = REASON_BACK_TO_BACK_SLOW_SPEEDS;
                 if (!isPaused && !mHasEverBeenPaused) {
                     // We want to be more aggressive about detecting the first pause to ensure it
                     // feels as responsive as possible; getting two very slow speeds back to back
@@ -190,9 +219,7 @@ public class MotionPauseDetector {
                     boolean notSuperFast = speed < mSpeedSomewhatFast
                             || (mIsTrackpadGesture && speed < mSpeedTrackpadSomewhatFast);
                     isPaused = isRapidDeceleration && notSuperFast;
-                    isPausedReason = new ActiveGestureLog.CompoundString(
-                            "Didn't have back to back slow speeds, checking for rapid "
-                                    + " deceleration on first pause only");
+                    isPausedReason = REASON_RAPID_DECELERATION;
                 }
                 if (mMakePauseHarderToTrigger) {
                     if (speed < mSpeedSlow) {
@@ -200,14 +227,11 @@ public class MotionPauseDetector {
                             mSlowStartTime = time;
                         }
                         isPaused = time - mSlowStartTime >= HARDER_TRIGGER_TIMEOUT;
-                        isPausedReason = new ActiveGestureLog.CompoundString(
-                                "Maintained slow speed for sufficient duration when making"
-                                        + " pause harder to trigger");
+                        isPausedReason = REASON_MAINTAINED_SLOW_SPEED;
                     } else {
                         mSlowStartTime = 0;
                         isPaused = false;
-                        isPausedReason = new ActiveGestureLog.CompoundString(
-                                "Intentionally making pause harder to trigger");
+                        isPausedReason = REASON_HARDER_TO_TRIGGER;
                     }
                 }
             }
@@ -216,17 +240,20 @@ public class MotionPauseDetector {
     }
 
     private void updatePaused(boolean isPaused, ActiveGestureLog.CompoundString reason) {
+        boolean wouldHaveBeenPaused = isPaused;
         if (mDisallowPause) {
-            reason = new ActiveGestureLog.CompoundString(
-                    "Disallow pause; otherwise, would have been %b due to reason: ", isPaused)
-                    .append(reason);
             isPaused = false;
         }
         if (mIsPaused != isPaused) {
             mIsPaused = isPaused;
-            addLogs(new ActiveGestureLog.CompoundString(
-                    "onMotionPauseChanged triggered; paused=%b, reason=", mIsPaused)
-                    .append(reason));
+            // Only build the log when the state changes, as this is called on every move event
+            ActiveGestureLog.CompoundString log = new ActiveGestureLog.CompoundString(
+                    "onMotionPauseChanged triggered; paused=%b, reason=", mIsPaused);
+            if (mDisallowPause) {
+                log.append("Disallow pause; otherwise, would have been %b due to reason: ",
+                        wouldHaveBeenPaused);
+            }
+            addLogs(log.append(reason));
             boolean isFirstDetectedPause = !mHasEverBeenPaused && mIsPaused;
             if (mIsPaused) {
                 AccessibilityManagerCompat.sendTestProtocolEventToTest(mContext,
@@ -256,7 +283,7 @@ public class MotionPauseDetector {
 
     public void clear() {
         mVelocityProvider.clear();
-        mPreviousVelocity = null;
+        mHasPreviousVelocity = false;
         setOnMotionPauseListener(null);
         mIsTrackpadGesture = false;
         mIsPaused = mHasEverBeenPaused = false;
@@ -22,7 +22,6 @@ import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -30,10 +29,15 @@ import java.util.Objects;
 
 /**
  * A log to keep track of the active gesture.
+ * <p>
+ * Entries are copied into a fixed ring of preallocated {@link EventEntry}, shared by the last
+ * gestures, and only formatted when dumped. Logging an event, or another occurrence of the last
+ * event, does not allocate once the ring has been filled.
  */
 public class ActiveGestureLog {
 
     private static final int MAX_GESTURES_TRACKED = 15;
+    private static final int MAX_ENTRIES_TRACKED = 1024;
 
     public static final ActiveGestureLog INSTANCE = new ActiveGestureLog();
 
@@ -45,12 +49,18 @@ public class ActiveGestureLog {
      */
     public static final String INTENT_EXTRA_LOG_TRACE_ID = "INTENT_EXTRA_LOG_TRACE_ID";
 
-    private final EventLog[] logs;
+    private final EventEntry[] entries;
     private int nextIndex;
+    private int entryCount;
+    // Log ID of the last entry overwritten in the ring, whose log is no longer complete
+    private int truncatedLogId = -1;
     private int mCurrentLogId = 100;
 
     private ActiveGestureLog() {
-        this.logs = new EventLog[MAX_GESTURES_TRACKED];
+        this.entries = new EventEntry[MAX_ENTRIES_TRACKED];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new EventEntry();
+        }
         this.nextIndex = 0;
     }
 
@@ -85,56 +95,45 @@ public class ActiveGestureLog {
         addLog(compoundString, null);
     }
 
-    public void addLog(
+    /**
+     * Adds a log to be printed at log-dump-time and track the associated event for error detection.
+     * The content of {@code compoundString} is copied, so it can be reused by the caller.
+     */
+    public synchronized void addLog(
             @NonNull CompoundString compoundString,
             @Nullable ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-        EventLog lastEventLog = logs[(nextIndex + logs.length - 1) % logs.length];
-        if (lastEventLog == null || mCurrentLogId != lastEventLog.logId) {
-            EventLog eventLog = new EventLog(mCurrentLogId, mIsFullyGesturalNavMode);
-            EventEntry eventEntry = new EventEntry();
-
-            eventEntry.update(compoundString, gestureEvent);
-            eventLog.eventEntries.add(eventEntry);
-            logs[nextIndex] = eventLog;
-            nextIndex = (nextIndex + 1) % logs.length;
-            return;
-        }
-
-        // Update the last EventLog
-        List<EventEntry> lastEventEntries = lastEventLog.eventEntries;
-        EventEntry lastEntry = !lastEventEntries.isEmpty()
-                ? lastEventEntries.get(lastEventEntries.size() - 1) : null;
-
         // Update the last EventEntry if it's a duplicate
-        if (isEntrySame(lastEntry, compoundString, gestureEvent)) {
+        EventEntry lastEntry = entryCount > 0
+                ? entries[(nextIndex + entries.length - 1) % entries.length] : null;
+        if (lastEntry != null
+                && lastEntry.logId == mCurrentLogId
+                && isEntrySame(lastEntry, compoundString, gestureEvent)) {
             lastEntry.duplicateCount++;
             return;
         }
-        EventEntry eventEntry = new EventEntry();
 
-        eventEntry.update(compoundString, gestureEvent);
-        lastEventEntries.add(eventEntry);
+        EventEntry eventEntry = entries[nextIndex];
+        if (entryCount == entries.length) {
+            truncatedLogId = eventEntry.logId;
+        } else {
+            entryCount++;
+        }
+        eventEntry.update(mCurrentLogId, mIsFullyGesturalNavMode, compoundString, gestureEvent);
+        nextIndex = (nextIndex + 1) % entries.length;
     }
 
     public void dump(String prefix, PrintWriter writer) {
+        List<EventLog> logs = getEventLogs();
+
         writer.println(prefix + "ActiveGestureErrorDetector:");
-        for (int i = 0; i < logs.length; i++) {
-            EventLog eventLog = logs[(nextIndex + i) % logs.length];
-            if (eventLog == null) {
-                continue;
-            }
+        for (EventLog eventLog : logs) {
             ActiveGestureErrorDetector.analyseAndDump(prefix + '\t', writer, eventLog);
         }
 
         writer.println(prefix + "ActiveGestureLog history:");
         SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss.SSSZ  ", Locale.US);
         Date date = new Date();
-        for (int i = 0; i < logs.length; i++) {
-            EventLog eventLog = logs[(nextIndex + i) % logs.length];
-            if (eventLog == null) {
-                continue;
-            }
-
+        for (EventLog eventLog : logs) {
             writer.println(prefix + "\tLogs for logId: " + eventLog.logId);
             for (EventEntry eventEntry : eventLog.eventEntries) {
                 if (eventEntry.mCompoundString.mIsNoOp) {
@@ -153,6 +152,30 @@ public class ActiveGestureLog {
         }
     }
 
+    /**
+     * Returns copies of the entries in the ring grouped by log ID, for the last
+     * {@link #MAX_GESTURES_TRACKED} gestures.
+     */
+    private synchronized List<EventLog> getEventLogs() {
+        ArrayList<EventLog> logs = new ArrayList<>();
+        EventLog eventLog = null;
+        for (int i = 0; i < entryCount; i++) {
+            EventEntry entry = entries[(nextIndex + entries.length - entryCount + i)
+                    % entries.length];
+            // Skip the entries left of a log partially overwritten, unless it's the current one
+            if (entry.logId == truncatedLogId && entry.logId != mCurrentLogId) {
+                continue;
+            }
+            if (eventLog == null || eventLog.logId != entry.logId) {
+                eventLog = new EventLog(entry.logId, entry.isFullyGesturalNavMode);
+                logs.add(eventLog);
+            }
+            eventLog.eventEntries.add(entry.copy());
+        }
+        return logs.size() > MAX_GESTURES_TRACKED
+                ? logs.subList(logs.size() - MAX_GESTURES_TRACKED, logs.size()) : logs;
+    }
+
     /**
      * Increments and returns the current log ID. This should be used every time a new log trace
      * is started.
@@ -182,10 +205,12 @@ public class ActiveGestureLog {
     /** A single event entry. */
     protected static class EventEntry {
 
-        @NonNull private CompoundString mCompoundString;
+        @NonNull private final CompoundString mCompoundString = CompoundString.newEmptyString();
         private ActiveGestureErrorDetector.GestureEvent gestureEvent;
         private long time;
         private int duplicateCount;
+        private int logId;
+        private boolean isFullyGesturalNavMode;
 
         private EventEntry() {}
 
@@ -199,14 +224,26 @@ public class ActiveGestureLog {
         }
 
         private void update(
+                int logId,
+                boolean isFullyGesturalNavMode,
                 @NonNull CompoundString compoundString,
                 ActiveGestureErrorDetector.GestureEvent gestureEvent) {
-            this.mCompoundString = compoundString;
+            this.logId = logId;
+            this.isFullyGesturalNavMode = isFullyGesturalNavMode;
+            mCompoundString.set(compoundString);
             this.gestureEvent = gestureEvent;
             time = System.currentTimeMillis();
             duplicateCount = 0;
         }
 
+        private EventEntry copy() {
+            EventEntry copy = new EventEntry();
+            copy.update(logId, isFullyGesturalNavMode, mCompoundString, gestureEvent);
+            copy.time = time;
+            copy.duplicateCount = duplicateCount;
+            return copy;
+        }
+
         public long getTime() {
             return time;
         }
@@ -215,8 +252,7 @@ public class ActiveGestureLog {
     /** An entire log of entries associated with a single log ID */
     protected static class EventLog {
 
-        protected final List<EventEntry> eventEntries =
-                Collections.synchronizedList(new ArrayList<>());
+        protected final List<EventEntry> eventEntries = new ArrayList<>();
         protected final int logId;
         protected final boolean mIsFullyGesturalNavMode;
 
@@ -226,15 +262,33 @@ public class ActiveGestureLog {
         }
     }
 
-    /** A buildable string stored as an array for memory efficiency. */
+    /**
+     * A buildable string stored as arrays for memory efficiency. Primitive arguments are stored
+     * unboxed, and the string is only formatted by {@link #toString()}.
+     */
     public static class CompoundString {
 
         public static final CompoundString NO_OP = new CompoundString(true);
 
-        private final List<String> mSubstrings;
-        private final List<Object> mArgs;
+        private static final String[] EMPTY_SUBSTRINGS = new String[0];
+        private static final byte[] EMPTY_ARG_TYPES = new byte[0];
+        private static final long[] EMPTY_ARG_VALUES = new long[0];
+        private static final Object[] EMPTY_OBJECT_ARGS = new Object[0];
+
+        private static final byte ARG_OBJECT = 0;
+        private static final byte ARG_INT = 1;
+        private static final byte ARG_LONG = 2;
+        private static final byte ARG_FLOAT = 3;
+        private static final byte ARG_BOOLEAN = 4;
+
+        private String[] mSubstrings = EMPTY_SUBSTRINGS;
+        private int mSubstringCount;
+        private byte[] mArgTypes = EMPTY_ARG_TYPES;
+        private long[] mArgValues = EMPTY_ARG_VALUES;
+        private Object[] mObjectArgs = EMPTY_OBJECT_ARGS;
+        private int mArgCount;
 
-        private final boolean mIsNoOp;
+        private boolean mIsNoOp;
 
         public static CompoundString newEmptyString() {
             return new CompoundString(false);
@@ -242,8 +296,12 @@ public class ActiveGestureLog {
 
         private CompoundString(boolean isNoOp) {
             mIsNoOp = isNoOp;
-            mSubstrings = mIsNoOp ? null : new ArrayList<>();
-            mArgs = mIsNoOp ? null : new ArrayList<>();
+        }
+
+        public CompoundString(String substring) {
+            this(substring == null);
+
+            append(substring);
         }
 
         public CompoundString(String substring, Object... args) {
@@ -256,8 +314,72 @@ public class ActiveGestureLog {
             if (mIsNoOp || substring.mIsNoOp) {
                 return this;
             }
-            mSubstrings.addAll(substring.mSubstrings);
-            mArgs.addAll(substring.mArgs);
+            for (int i = 0; i < substring.mSubstringCount; i++) {
+                addSubstring(substring.mSubstrings[i]);
+            }
+            for (int i = 0; i < substring.mArgCount; i++) {
+                addArg(substring.mArgTypes[i], substring.mArgValues[i],
+                        substring.mObjectArgs[i]);
+            }
+
+            return this;
+        }
+
+        public CompoundString append(String substring) {
+            if (mIsNoOp) {
+                return this;
+            }
+            addSubstring(substring);
+
+            return this;
+        }
+
+        public CompoundString append(String substring, Object arg) {
+            if (mIsNoOp) {
+                return this;
+            }
+            addSubstring(substring);
+            addArg(ARG_OBJECT, 0, arg);
+
+            return this;
+        }
+
+        public CompoundString append(String substring, int arg) {
+            if (mIsNoOp) {
+                return this;
+            }
+            addSubstring(substring);
+            addArg(ARG_INT, arg, null);
+
+            return this;
+        }
+
+        public CompoundString append(String substring, long arg) {
+            if (mIsNoOp) {
+                return this;
+            }
+            addSubstring(substring);
+            addArg(ARG_LONG, arg, null);
+
+            return this;
+        }
+
+        public CompoundString append(String substring, float arg) {
+            if (mIsNoOp) {
+                return this;
+            }
+            addSubstring(substring);
+            addArg(ARG_FLOAT, Float.floatToRawIntBits(arg), null);
+
+            return this;
+        }
+
+        public CompoundString append(String substring, boolean arg) {
+            if (mIsNoOp) {
+                return this;
+            }
+            addSubstring(substring);
+            addArg(ARG_BOOLEAN, arg ? 1 : 0, null);
 
             return this;
         }
@@ -266,25 +388,90 @@ public class ActiveGestureLog {
             if (mIsNoOp) {
                 return this;
             }
-            mSubstrings.add(substring);
-            mArgs.addAll(Arrays.stream(args).toList());
+            addSubstring(substring);
+            for (Object arg : args) {
+                addArg(ARG_OBJECT, 0, arg);
+            }
 
             return this;
         }
 
+        /** Removes the content of this string so that it can be reused. */
+        public CompoundString clear() {
+            if (mIsNoOp) {
+                return this;
+            }
+            Arrays.fill(mSubstrings, 0, mSubstringCount, null);
+            Arrays.fill(mObjectArgs, 0, mArgCount, null);
+            mSubstringCount = 0;
+            mArgCount = 0;
+
+            return this;
+        }
+
+        /** Replaces the content of this string with a copy of {@code other}. */
+        private void set(CompoundString other) {
+            mIsNoOp = false;
+            clear();
+            append(other);
+            mIsNoOp = other.mIsNoOp;
+        }
+
+        private void addSubstring(String substring) {
+            if (mSubstringCount == mSubstrings.length) {
+                mSubstrings = Arrays.copyOf(mSubstrings, Math.max(4, 2 * mSubstringCount));
+            }
+            mSubstrings[mSubstringCount++] = substring;
+        }
+
+        private void addArg(byte type, long value, Object object) {
+            if (mArgCount == mArgTypes.length) {
+                int capacity = Math.max(4, 2 * mArgCount);
+                mArgTypes = Arrays.copyOf(mArgTypes, capacity);
+                mArgValues = Arrays.copyOf(mArgValues, capacity);
+                mObjectArgs = Arrays.copyOf(mObjectArgs, capacity);
+            }
+            mArgTypes[mArgCount] = type;
+            mArgValues[mArgCount] = value;
+            mObjectArgs[mArgCount] = object;
+            mArgCount++;
+        }
+
+        private Object getArg(int index) {
+            long value = mArgValues[index];
+            return switch (mArgTypes[index]) {
+                case ARG_INT -> Integer.valueOf((int) value);
+                case ARG_LONG -> Long.valueOf(value);
+                case ARG_FLOAT -> Float.valueOf(Float.intBitsToFloat((int) value));
+                case ARG_BOOLEAN -> Boolean.valueOf(value != 0);
+                default -> mObjectArgs[index];
+            };
+        }
+
         @Override
         public String toString() {
             if (mIsNoOp) return null;
             StringBuilder sb = new StringBuilder();
-            for (String substring : mSubstrings) {
-                sb.append(substring);
+            for (int i = 0; i < mSubstringCount; i++) {
+                sb.append(mSubstrings[i]);
             }
-            return String.format(sb.toString(), mArgs.toArray());
+            Object[] args = new Object[mArgCount];
+            for (int i = 0; i < mArgCount; i++) {
+                args[i] = getArg(i);
+            }
+            return String.format(sb.toString(), args);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(mIsNoOp, mSubstrings, mArgs);
+            int result = Boolean.hashCode(mIsNoOp);
+            for (int i = 0; i < mSubstringCount; i++) {
+                result = 31 * result + Objects.hashCode(mSubstrings[i]);
+            }
+            for (int i = 0; i < mArgCount; i++) {
+                result = 31 * result + Objects.hashCode(getArg(i));
+            }
+            return result;
         }
 
         @Override
@@ -292,9 +479,24 @@ public class ActiveGestureLog {
             if (!(obj instanceof CompoundString other)) {
                 return false;
             }
-            return (mIsNoOp == other.mIsNoOp)
-                    && Objects.equals(mSubstrings, other.mSubstrings)
-                    && Objects.equals(mArgs, other.mArgs);
+            if (mIsNoOp != other.mIsNoOp
+                    || mSubstringCount != other.mSubstringCount
+                    || mArgCount != other.mArgCount) {
+                return false;
+            }
+            for (int i = 0; i < mSubstringCount; i++) {
+                if (!Objects.equals(mSubstrings[i], other.mSubstrings[i])) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < mArgCount; i++) {
+                if (mArgTypes[i] != other.mArgTypes[i]
+                        || mArgValues[i] != other.mArgValues[i]
+                        || !Objects.equals(mObjectArgs[i], other.mObjectArgs[i])) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
 }
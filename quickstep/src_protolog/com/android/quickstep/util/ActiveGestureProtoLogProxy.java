@@ -61,6 +61,9 @@ import com.android.internal.protolog.common.IProtoLogGroup;
  */
 public class ActiveGestureProtoLogProxy {
 
+    private static final ActiveGestureLog.CompoundString sActionMoveLog =
+            ActiveGestureLog.CompoundString.newEmptyString();
+
     public static void logLauncherDestroyed() {
         ActiveGestureLog.INSTANCE.addLog("Launcher destroyed", LAUNCHER_DESTROYED);
         if (isProtoLogInitialized()) return;
@@ -349,13 +352,15 @@ public class ActiveGestureProtoLogProxy {
             @NonNull String classification,
             int pointerCount,
             int displayId) {
-        ActiveGestureLog.INSTANCE.addLog(new ActiveGestureLog.CompoundString(
-                        "onMotionEvent: %s, %s, pointerCount: %d, displayId=%d",
-                        action,
-                        classification,
-                        pointerCount,
-                        displayId),
-                MOTION_MOVE);
+        // Logged for every move event, so the string is reused and copied by ActiveGestureLog
+        synchronized (sActionMoveLog) {
+            ActiveGestureLog.INSTANCE.addLog(sActionMoveLog.clear()
+                            .append("onMotionEvent: %s", action)
+                            .append(", %s", classification)
+                            .append(", pointerCount: %d", pointerCount)
+                            .append(", displayId=%d", displayId),
+                    MOTION_MOVE);
+        }
         if (!isProtoLogInitialized()) return;
         ProtoLog.d(ACTIVE_GESTURE_LOG,
                 "onMotionEvent: %s, %s, pointerCount: %d, displayId=%d",
@@ -47,7 +47,9 @@ public enum QuickstepProtoLogGroup implements IProtoLogGroup {
         // Originally was !Utilities.ATLEAST_R
         if (!Utilities.ATLEAST_S) return false;
 
-        if (!Variables.sIsInitialized) {
+        if (!Variables.sIsInitialized && !Variables.sHasWarnedUninitialized) {
+            // Only warn once, as this is checked for every gesture log, including move events
+            Variables.sHasWarnedUninitialized = true;
             Log.w(Constants.TAG,
                     "Attempting to log to ProtoLog before initializing it.",
                     new IllegalStateException());
@@ -125,6 +127,7 @@ public enum QuickstepProtoLogGroup implements IProtoLogGroup {
     private static final class Variables {
 
         private static boolean sIsInitialized = false;
+        private static boolean sHasWarnedUninitialized = false;
     }
 
     private static final class Constants {
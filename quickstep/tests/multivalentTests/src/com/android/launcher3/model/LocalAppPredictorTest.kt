@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.model
+
+import android.content.ComponentName
+import android.os.Process
+import android.os.UserHandle
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.model.LocalAppPredictor.Companion.MAX_PREDICTIONS
+import com.android.launcher3.util.ComponentKey
+import com.google.common.truth.Truth.assertThat
+import java.io.File
+import java.util.Random
+import java.util.TimeZone
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+
+/** Unit test for [LocalAppPredictor]. */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class LocalAppPredictorTest {
+
+    @get:Rule val tempFolder = TemporaryFolder()
+
+    private val user = Process.myUserHandle()
+    private val apps =
+        List(APP_COUNT) { ComponentKey(ComponentName("app$it", "app$it.Main"), user) }
+
+    @Test
+    fun predict_noLaunches_isEmpty() {
+        val predictor = newPredictor(File(tempFolder.root, "missing"))
+
+        assertThat(predictor.predict(DAY_MILLIS, MAX_PREDICTIONS)).isEmpty()
+        assertThat(predictor.appCount).isEqualTo(0)
+    }
+
+    @Test
+    fun predict_filtersAndLimits() {
+        val predictor = newPredictor()
+        for (app in 0 until 20) repeat(app + 1) { predictor.recordLaunch(apps[app], NOON) }
+        val time = 3 * DAY_MILLIS + 20 * HOUR_MILLIS
+
+        val all = predictor.predict(time, Int.MAX_VALUE)
+        assertThat(all).isEqualTo(apps.slice(19 downTo 20 - MAX_PREDICTIONS))
+        assertThat(predictor.predict(time, 4)).isEqualTo(all.take(4))
+        assertThat(predictor.predict(time, 4) { it != apps[19] }).isEqualTo(all.subList(1, 5))
+        // Only the best apps are considered
+        assertThat(predictor.predict(time, Int.MAX_VALUE) { it != apps[19] })
+            .hasSize(MAX_PREDICTIONS - 1)
+        assertThat(predictor.predict(time, 0)).isEmpty()
+    }
+
+    @Test
+    fun predict_favorsAppsOfTheTimeOfDay() {
+        val predictor = newPredictor()
+        for (day in 0 until 28) {
+            val start = day * DAY_MILLIS
+            val isWeekend = (day + 3) % 7 >= 5
+            for (hour in listOf(10, 12, 14, 16)) {
+                predictor.recordLaunch(apps[FREQUENT_APP], start + hour * HOUR_MILLIS)
+            }
+            if (!isWeekend) {
+                predictor.recordLaunch(apps[MORNING_APP], start + 7 * HOUR_MILLIS + HOUR_MILLIS / 2)
+            }
+            predictor.recordLaunch(apps[EVENING_APP], start + 21 * HOUR_MILLIS)
+            if (isWeekend) {
+                for (minutes in listOf(0, 30, 60)) {
+                    predictor.recordLaunch(
+                        apps[WEEKEND_APP],
+                        start + 19 * HOUR_MILLIS + minutes * MINUTE_MILLIS,
+                    )
+                }
+            }
+        }
+
+        val monday = 32 * DAY_MILLIS
+        val saturday = 37 * DAY_MILLIS
+        assertThat(predictor.predict(monday + 8 * HOUR_MILLIS, 1))
+            .containsExactly(apps[MORNING_APP])
+        assertThat(predictor.predict(monday + 13 * HOUR_MILLIS, 1))
+            .containsExactly(apps[FREQUENT_APP])
+        assertThat(predictor.predict(monday + 22 * HOUR_MILLIS, 1))
+            .containsExactly(apps[EVENING_APP])
+        assertThat(predictor.predict(saturday + 19 * HOUR_MILLIS, 1))
+            .containsExactly(apps[WEEKEND_APP])
+    }
+
+    @Test
+    fun predict_recentLaunchesWeighMore() {
+        val predictor = newPredictor()
+        val time = 100 * DAY_MILLIS
+        // Two thirds of the launches more than two months ago, one third this week
+        repeat(200) { predictor.recordLaunch(apps[0], time - 70 * DAY_MILLIS + it * HOUR_MILLIS) }
+        repeat(100) { predictor.recordLaunch(apps[1], time - 5 * DAY_MILLIS + it * HOUR_MILLIS) }
+
+        assertThat(predictor.predict(time, 1)).containsExactly(apps[1])
+    }
+
+    @Test
+    fun predict_syntheticTrace_beatsLaunchCounts() {
+        val predictor = newPredictor()
+        val launchCounts = IntArray(APP_COUNT)
+        var hits = 0
+        var countHits = 0
+        var launches = 0
+        SyntheticTrace(Random(SEED), days = 60).forEach { time, app ->
+            if (time >= 30 * DAY_MILLIS) {
+                launches++
+                if (apps[app] in predictor.predict(time, TOP_K)) hits++
+                val mostLaunched = launchCounts.indices.sortedByDescending { launchCounts[it] }
+                if (app in mostLaunched.take(TOP_K)) countHits++
+            }
+            predictor.recordLaunch(apps[app], time)
+            launchCounts[app]++
+        }
+
+        assertThat(hits.toDouble() / launches).isAtLeast(0.55)
+        assertThat(hits).isGreaterThan(countHits)
+    }
+
+    @Test
+    fun save_restoresPredictions() {
+        val file = File(tempFolder.root, "predictor")
+        val predictor = newPredictor(file)
+        // Long enough for the counters to be rescaled
+        SyntheticTrace(Random(SEED), days = 400).forEach { time, app ->
+            predictor.recordLaunch(apps[app], time)
+        }
+        predictor.save()
+        assertThat(file.length()).isLessThan(APP_COUNT * 128L)
+
+        val restored = newPredictor(file)
+        assertThat(restored.appCount).isEqualTo(predictor.appCount)
+        for (hour in 0 until 7 * 24) {
+            val time = 400 * DAY_MILLIS + hour * HOUR_MILLIS
+            assertThat(restored.predict(time, TOP_K)).isEqualTo(predictor.predict(time, TOP_K))
+        }
+    }
+
+    @Test
+    fun save_appsOfRemovedUsers_areNotRestored() {
+        val file = File(tempFolder.root, "predictor")
+        val predictor = newPredictor(file)
+        predictor.recordLaunch(apps[0], NOON)
+        predictor.save()
+
+        val restored = newPredictor(file) { null }
+
+        assertThat(restored.appCount).isEqualTo(0)
+        assertThat(restored.predict(NOON, TOP_K)).isEmpty()
+    }
+
+    private fun newPredictor(
+        file: File? = null,
+        userForSerial: (Long) -> UserHandle? = { if (it == 0L) user else null },
+    ) = LocalAppPredictor(file, { 0L }, userForSerial, TimeZone.getTimeZone("UTC"))
+
+    /**
+     * About 30 launches a day, between 7:00 and 23:00, starting on a Thursday. Most are habits of
+     * a time of the day or of the weekend, the others follow a Zipf distribution.
+     */
+    private class SyntheticTrace(private val random: Random, private val days: Int) {
+
+        private val zipfTotal = (1..APP_COUNT).sumOf { 1.0 / it }
+
+        fun forEach(action: (time: Long, app: Int) -> Unit) {
+            for (day in 0 until days) {
+                val weekday = (day + 3) % 7
+                val hours = DoubleArray(LAUNCHES_PER_DAY) { 7 + 16 * random.nextDouble() }.sorted()
+                for (hour in hours) {
+                    val habits = habitsAt(weekday, hour.toInt())
+                    val app =
+                        if (habits.isNotEmpty() && random.nextFloat() < 0.6f) {
+                            habits[random.nextInt(habits.size)]
+                        } else {
+                            zipf()
+                        }
+                    action(day * DAY_MILLIS + (hour * HOUR_MILLIS).toLong(), app)
+                }
+            }
+        }
+
+        private fun habitsAt(weekday: Int, hour: Int): List<Int> = buildList {
+            val isWeekend = weekday >= 5
+            if (!isWeekend && hour in 7..8) add(MORNING_APP)
+            if (!isWeekend && hour in 9..17) add(WORK_APP)
+            if (!isWeekend && (hour == 8 || hour == 18)) add(COMMUTE_APP)
+            if (hour in 19..22) add(EVENING_APP)
+            if (isWeekend && hour in 13..17) add(WEEKEND_APP)
+        }
+
+        private fun zipf(): Int {
+            var x = random.nextDouble() * zipfTotal
+            for (i in 0 until APP_COUNT) {
+                x -= 1.0 / (i + 1)
+                if (x <= 0) return i
+            }
+            return APP_COUNT - 1
+        }
+    }
+
+    companion object {
+        private const val SEED = 2048L
+        private const val APP_COUNT = 40
+        private const val TOP_K = 4
+        private const val LAUNCHES_PER_DAY = 30
+
+        private const val MINUTE_MILLIS = 60 * 1000L
+        private const val HOUR_MILLIS = 60 * MINUTE_MILLIS
+        private const val DAY_MILLIS = 24 * HOUR_MILLIS
+        private const val NOON = 12 * HOUR_MILLIS
+
+        // Apps launched out of habit, which are not the most launched ones overall
+        private const val FREQUENT_APP = 0
+        private const val WORK_APP = 5
+        private const val MORNING_APP = 20
+        private const val COMMUTE_APP = 21
+        private const val EVENING_APP = 22
+        private const val WEEKEND_APP = 23
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.quickstep.util
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.quickstep.util.ActiveGestureLog.CompoundString
+import com.google.common.truth.Truth.assertThat
+import java.io.PrintWriter
+import java.io.StringWriter
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit test for [ActiveGestureLog]. */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class ActiveGestureLogTest {
+
+    private val log = ActiveGestureLog.INSTANCE
+
+    @Test
+    fun compoundString_formatsArgumentsOfEveryType() {
+        val string =
+            CompoundString.newEmptyString()
+                .append("int=%d", 3)
+                .append(", long=%d", 123_456_789_000L)
+                .append(", float=%.1f", 0.5f)
+                .append(", boolean=%b", true)
+                .append(", object=%s", "text")
+                .append(", varargs=%d/%d", 1, 2)
+                .append(CompoundString("; nested %d%%", 50))
+
+        assertThat(string.toString())
+            .isEqualTo(
+                "int=3, long=123456789000, float=0.5, boolean=true, object=text, varargs=1/2; " +
+                    "nested 50%"
+            )
+        assertThat(string.clear().append("cleared").toString()).isEqualTo("cleared")
+    }
+
+    @Test
+    fun dump_collapsesSimilarEvents() {
+        val logId = log.incrementLogId() + 1
+        val event = CompoundString.newEmptyString()
+        repeat(5) {
+            log.addLog(event.clear().append("pointerCount: %d", 3).append(", paused=%b", false))
+        }
+        log.addLog(event.clear().append("pointerCount: %d", 2))
+
+        val logs = logsOf(dump(), logId)
+        assertThat(logs).hasSize(2)
+        assertThat(logs[0]).endsWith("pointerCount: 3, paused=false & 4 similar events")
+        assertThat(logs[1]).endsWith("pointerCount: 2")
+    }
+
+    @Test
+    fun addLog_copiesReusedString() {
+        val logId = log.incrementLogId() + 1
+        val event = CompoundString.newEmptyString()
+        log.addLog(event.append("onMotionEvent: %s", "ACTION_MOVE"))
+
+        event.clear().append("reused")
+
+        assertThat(logsOf(dump(), logId).single()).endsWith("onMotionEvent: ACTION_MOVE")
+    }
+
+    @Test
+    fun dump_skipsLogsPartiallyOverwritten() {
+        val firstLogId = log.incrementLogId() + 1
+        val event = CompoundString.newEmptyString()
+        repeat(10) { log.addLog(event.clear().append("first %d", it)) }
+        val secondLogId = log.incrementLogId() + 1
+        // Overwrites all the older entries, and the 5 oldest entries of the first log
+        repeat(MAX_ENTRIES - 5) { log.addLog(event.clear().append("second %d", it)) }
+
+        val logIds = logIdsOf(dump())
+        assertThat(logIds).doesNotContain(firstLogId)
+        assertThat(logIds).containsExactly(secondLogId)
+    }
+
+    @Test
+    fun dump_keepsLastGestures() {
+        val logIds =
+            List(MAX_GESTURES + 1) {
+                log.incrementLogId()
+                log.addLog("gesture $it")
+                log.logId
+            }
+
+        assertThat(logIdsOf(dump())).containsExactlyElementsIn(logIds.drop(1)).inOrder()
+    }
+
+    private fun dump() = StringWriter().also { log.dump("", PrintWriter(it)) }.toString()
+
+    private fun logIdsOf(dump: String) =
+        dump.lines().mapNotNull { it.substringAfter(LOGS_FOR, "").toIntOrNull() }
+
+    /** Returns the dumped entries of [logId]. */
+    private fun logsOf(dump: String, logId: Int): List<String> {
+        val lines = dump.lines()
+        val start = lines.indexOfFirst { it.trim() == "$LOGS_FOR$logId" }
+        assertThat(start).isAtLeast(0)
+        return lines.drop(start + 1).takeWhile { it.isNotBlank() && LOGS_FOR !in it }
+    }
+
+    companion object {
+        private const val LOGS_FOR = "Logs for logId: "
+        private const val MAX_ENTRIES = 1024
+        private const val MAX_GESTURES = 15
+    }
+}
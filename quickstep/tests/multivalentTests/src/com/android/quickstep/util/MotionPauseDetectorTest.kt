@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.quickstep.util
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit test for [MotionPauseDetector]. */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class MotionPauseDetectorTest {
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val detector = MotionPauseDetector(context)
+    private var time = 0L
+
+    @Test
+    fun addVelocity_fastMoves_doNotPause() {
+        repeat(100) { detector.addVelocity(FAST + it % 2, ++time) }
+
+        assertThat(detector.isPaused).isFalse()
+    }
+
+    @Test
+    fun addVelocity_backToBackSlowSpeeds_pauseUntilFast() {
+        detector.addVelocity(FAST, ++time)
+        detector.addVelocity(SLOW, ++time)
+        detector.addVelocity(SLOW, ++time)
+        assertThat(detector.isPaused).isTrue()
+
+        repeat(100) { detector.addVelocity(SLOW * (1 + it % 2), ++time) }
+        assertThat(detector.isPaused).isTrue()
+
+        detector.addVelocity(FAST, ++time)
+        detector.addVelocity(FAST, ++time)
+        assertThat(detector.isPaused).isFalse()
+    }
+
+    @Test
+    fun setDisallowPause_unpausesUntilAllowed() {
+        detector.addVelocity(FAST, ++time)
+        detector.addVelocity(SLOW, ++time)
+        detector.addVelocity(SLOW, ++time)
+
+        detector.setDisallowPause(true)
+        detector.addVelocity(SLOW, ++time)
+        assertThat(detector.isPaused).isFalse()
+
+        detector.setDisallowPause(false)
+        detector.addVelocity(SLOW, ++time)
+        assertThat(detector.isPaused).isTrue()
+    }
+
+    companion object {
+        /** Speed above motion_pause_detector_speed_fast, in px/ms */
+        private const val FAST = 10f
+
+        /** Speed below motion_pause_detector_speed_very_slow, in px/ms */
+        private const val SLOW = 0.01f
+    }
+}
@@ -87,7 +87,6 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Stack;
 
 import app.lawnchair.preferences2.PreferenceManager2;
 import app.lawnchair.theme.color.tokens.ColorTokens;
@@ -207,6 +206,9 @@ public class CellLayout extends ViewGroup {
     @Thunk final float mReorderPreviewAnimationMagnitude;
 
     public final int[] mDirectionVector = new int[2];
+    private ReorderAlgorithm mReorderAlgorithm;
+    private final Rect mNearestAreaBestRect = new Rect();
+    private Rect[] mNearestAreaRegions = new Rect[0];
 
     ItemConfiguration mPreviousSolution = null;
 
@@ -505,7 +507,7 @@ public class CellLayout extends ViewGroup {
             debugPaint.setStrokeWidth(Utilities.dpToPx(1));
             for (int x = 0; x < mCountX; x++) {
                 for (int y = 0; y < mCountY; y++) {
-                    if (!mOccupied.cells[x][y]) {
+                    if (!mOccupied.isOccupied(x, y)) {
                         continue;
                     }
                     targetCell[0] = x;
@@ -1291,30 +1293,35 @@ public class CellLayout extends ViewGroup {
         // Keep track of best-scoring drop area
         final int[] bestXY = result != null ? result : new int[2];
         double bestDistance = Double.MAX_VALUE;
-        final Rect bestRect = new Rect(-1, -1, -1, -1);
-        final Stack<Rect> validRegions = new Stack<>();
+        final Rect bestRect = mNearestAreaBestRect;
+        bestRect.set(-1, -1, -1, -1);
 
         final int countX = mCountX;
         final int countY = mCountY;
 
+        // Candidate regions are taken from a pool reused by every search.
+        if (mNearestAreaRegions.length < countX * countY) {
+            mNearestAreaRegions = new Rect[countX * countY];
+            for (int i = 0; i < mNearestAreaRegions.length; i++) {
+                mNearestAreaRegions[i] = new Rect();
+            }
+        }
+        final Rect[] validRegions = mNearestAreaRegions;
+        int validRegionCount = 0;
+
         if (minSpanX <= 0 || minSpanY <= 0 || spanX <= 0 || spanY <= 0 ||
                 spanX < minSpanX || spanY < minSpanY) {
             return bestXY;
         }
 
         for (int y = 0; y < countY - (minSpanY - 1); y++) {
-            inner:
             for (int x = 0; x < countX - (minSpanX - 1); x++) {
                 int ySize = -1;
                 int xSize = -1;
                 if (!ignoreOccupied) {
                     // First, let's see if this thing fits anywhere
-                    for (int i = 0; i < minSpanX; i++) {
-                        for (int j = 0; j < minSpanY; j++) {
-                            if (mOccupied.cells[x + i][y + j]) {
-                                continue inner;
-                            }
-                        }
+                    if (!mOccupied.isRegionVacant(x, y, minSpanX, minSpanY)) {
+                        continue;
                     }
                     xSize = minSpanX;
                     ySize = minSpanY;
@@ -1328,7 +1335,7 @@ public class CellLayout extends ViewGroup {
                     while (!(hitMaxX && hitMaxY)) {
                         if (incX && !hitMaxX) {
                             for (int j = 0; j < ySize; j++) {
-                                if (x + xSize > countX -1 || mOccupied.cells[x + xSize][y + j]) {
+                                if (x + xSize > countX -1 || mOccupied.isOccupied(x + xSize, y + j)) {
                                     // We can't move out horizontally
                                     hitMaxX = true;
                                 }
@@ -1338,7 +1345,7 @@ public class CellLayout extends ViewGroup {
                             }
                         } else if (!hitMaxY) {
                             for (int i = 0; i < xSize; i++) {
-                                if (y + ySize > countY - 1 || mOccupied.cells[x + i][y + ySize]) {
+                                if (y + ySize > countY - 1 || mOccupied.isOccupied(x + i, y + ySize)) {
                                     // We can't move out vertically
                                     hitMaxY = true;
                                 }
@@ -1358,15 +1365,16 @@ public class CellLayout extends ViewGroup {
                 // We verify that the current rect is not a sub-rect of any of our previous
                 // candidates. In this case, the current rect is disqualified in favour of the
                 // containing rect.
-                Rect currentRect = new Rect(x, y, x + xSize, y + ySize);
+                Rect currentRect = validRegions[validRegionCount];
+                currentRect.set(x, y, x + xSize, y + ySize);
                 boolean contained = false;
-                for (Rect r : validRegions) {
-                    if (r.contains(currentRect)) {
+                for (int i = 0; i < validRegionCount; i++) {
+                    if (validRegions[i].contains(currentRect)) {
                         contained = true;
                         break;
                     }
                 }
-                validRegions.push(currentRect);
+                validRegionCount++;
                 double distance = Math.hypot(cellXY[0] - relativeXPos,  cellXY[1] - relativeYPos);
 
                 if ((distance <= bestDistance && !contained) ||
@@ -1516,8 +1524,19 @@ public class CellLayout extends ViewGroup {
      */
     @Nullable
     public Rect getIntersectingRectanglesInRegion(final Rect region, final View dragView) {
-        Rect boundingRect = new Rect(region);
-        Rect r1 = new Rect();
+        Rect boundingRect = new Rect();
+        return getIntersectingRectanglesInRegion(region, dragView, boundingRect, new Rect())
+                ? boundingRect : null;
+    }
+
+    /**
+     * Same as {@link #getIntersectingRectanglesInRegion(Rect, View)}, without allocating: sets
+     * {@code outBoundingRect} to the region grown by the intersecting children, using
+     * {@code tmpRect} for the cells of each child, and returns whether any child intersects it.
+     */
+    public boolean getIntersectingRectanglesInRegion(final Rect region, final View dragView,
+            Rect outBoundingRect, Rect tmpRect) {
+        outBoundingRect.set(region);
         boolean isOverlapping = false;
         final int count = mShortcutsAndWidgets.getChildCount();
         for (int i = 0; i < count; i++) {
@@ -1525,14 +1544,14 @@ public class CellLayout extends ViewGroup {
             if (child == dragView) continue;
             CellLayoutLayoutParams
                     lp = (CellLayoutLayoutParams) child.getLayoutParams();
-            r1.set(lp.getCellX(), lp.getCellY(), lp.getCellX() + lp.cellHSpan,
+            tmpRect.set(lp.getCellX(), lp.getCellY(), lp.getCellX() + lp.cellHSpan,
                     lp.getCellY() + lp.cellVSpan);
-            if (Rect.intersects(region, r1)) {
+            if (Rect.intersects(region, tmpRect)) {
                 isOverlapping = true;
-                boundingRect.union(r1);
+                outBoundingRect.union(tmpRect);
             }
         }
-        return isOverlapping ? boundingRect : null;
+        return isOverlapping;
     }
 
     public boolean isNearestDropLocationOccupied(int pixelX, int pixelY, int spanX, int spanY,
@@ -1598,6 +1617,30 @@ public class CellLayout extends ViewGroup {
         return new ReorderAlgorithm(this);
     }
 
+    /**
+     * Returns the reorder algorithm of this layout. It is kept for the lifetime of the layout so
+     * that the scratch state it reuses between drag frames is only allocated once.
+     */
+    public ReorderAlgorithm getReorderAlgorithm() {
+        if (mReorderAlgorithm == null) {
+            mReorderAlgorithm = createReorderAlgorithm();
+        }
+        return mReorderAlgorithm;
+    }
+
+    /**
+     * Returns the reorder algorithm for a search. Searches outside of drags, such as widget
+     * resizes, do not get {@link #onDragEnter}, so the preferences the search depends on are read
+     * again.
+     */
+    private ReorderAlgorithm getReorderAlgorithmForSearch() {
+        ReorderAlgorithm algorithm = getReorderAlgorithm();
+        if (!mDragging) {
+            algorithm.refreshAllowWidgetOverlap();
+        }
+        return algorithm;
+    }
+
     protected ItemConfiguration findReorderSolution(int pixelX, int pixelY, int minSpanX,
                                                     int minSpanY, int spanX, int spanY, int[] direction, View dragView, boolean decX) {
         ItemConfiguration configuration = new ItemConfiguration();
@@ -1605,7 +1648,8 @@ public class CellLayout extends ViewGroup {
         ReorderParameters parameters = new ReorderParameters(pixelX, pixelY, spanX, spanY, minSpanX,
                 minSpanY, dragView, configuration);
         int[] directionVector = direction != null ? direction : mDirectionVector;
-        return createReorderAlgorithm().findReorderSolution(parameters, directionVector, decX);
+        return getReorderAlgorithmForSearch().findReorderSolution(parameters, directionVector,
+                decX);
     }
 
     public void copyCurrentStateToSolution(ItemConfiguration solution) {
@@ -1613,8 +1657,7 @@ public class CellLayout extends ViewGroup {
         for (int i = 0; i < childCount; i++) {
             View child = mShortcutsAndWidgets.getChildAt(i);
             CellLayoutLayoutParams lp = (CellLayoutLayoutParams) child.getLayoutParams();
-            solution.add(child,
-                    new CellAndSpan(lp.getCellX(), lp.getCellY(), lp.cellHSpan, lp.cellVSpan));
+            solution.add(child, lp.getCellX(), lp.getCellY(), lp.cellHSpan, lp.cellVSpan);
         }
     }
 
@@ -1637,7 +1680,7 @@ public class CellLayout extends ViewGroup {
                                               int spanX, int spanY, View dragView) {
         ItemConfiguration configuration = new ItemConfiguration();
         copyCurrentStateToSolution(configuration);
-        return createReorderAlgorithm().calculateReorder(
+        return getReorderAlgorithmForSearch().calculateReorder(
                 new ReorderParameters(pixelX, pixelY, spanX, spanY,  minSpanX, minSpanY, dragView,
                         configuration)
         );
@@ -1787,6 +1830,7 @@ public class CellLayout extends ViewGroup {
     void onDragEnter() {
         mDragging = true;
         mPreviousSolution = null;
+        getReorderAlgorithm().onDragStarted();
     }
 
     /**
@@ -1802,6 +1846,7 @@ public class CellLayout extends ViewGroup {
 
         // Invalidate the drag data
         mPreviousSolution = null;
+        getReorderAlgorithm().onDragEnded();
         mDragCell[0] = mDragCell[1] = -1;
         mDragCellSpan[0] = mDragCellSpan[1] = -1;
         mDragOutlineAnims[mDragOutlineCurrent].animateOut();
@@ -1899,7 +1944,7 @@ public class CellLayout extends ViewGroup {
 
     public boolean isOccupied(int x, int y) {
         if (x >= 0 && x < mCountX && y >= 0 && y < mCountY) {
-            return mOccupied.cells[x][y] && !PreferenceExtensionsKt.firstBlocking(pref.getAllowWidgetOverlap());
+            return mOccupied.isOccupied(x, y) && !PreferenceExtensionsKt.firstBlocking(pref.getAllowWidgetOverlap());
         }
         if (BuildConfigs.IS_STUDIO_BUILD) {
             throw new RuntimeException("Position exceeds the bound of this CellLayout");
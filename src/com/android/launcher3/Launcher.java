@@ -198,6 +198,7 @@ import com.android.launcher3.logging.FileLog;
 import com.android.launcher3.logging.InstanceId;
 import com.android.launcher3.logging.InstanceIdSequence;
 import com.android.launcher3.logging.StartupLatencyLogger;
+import com.android.launcher3.logging.StartupTimeline;
 import com.android.launcher3.logging.StatsLogManager;
 import com.android.launcher3.model.BgDataModel.Callbacks;
 import com.android.launcher3.model.ItemInstallQueue;
@@ -686,6 +687,8 @@ public class Launcher extends StatefulActivity<LauncherState>
                 return;
             }
             dispatchDeviceProfileChanged();
+            // Pre-inflated views were inflated for the previous device profile
+            mItemInflater.getViewPool().clear();
             reapplyUi();
             mDragLayer.recreateControllers();
 
@@ -2483,6 +2486,7 @@ public class Launcher extends StatefulActivity<LauncherState>
 
         writer.println(prefix + "Misc:");
         dumpMisc(prefix + "\t", writer);
+        StartupTimeline.INSTANCE.dump(prefix + "\t", writer);
         writer.println(prefix + "\tmWorkspaceLoading=" + mModelCallbacks.getWorkspaceLoading());
         writer.println(prefix + "\tmPendingRequestArgs=" + mPendingRequestArgs
                 + " mPendingActivityResult=" + mPendingActivityResult);
@@ -37,6 +37,7 @@ import com.android.launcher3.model.ModelDbController
 import com.android.launcher3.model.ModelDelegate
 import com.android.launcher3.model.ModelInitializer
 import com.android.launcher3.model.ModelLauncherCallbacks
+import com.android.launcher3.model.ModelSnapshot
 import com.android.launcher3.model.ModelTaskController
 import com.android.launcher3.model.ModelWriter
 import com.android.launcher3.model.PackageUpdatedTask
@@ -48,6 +49,7 @@ import com.android.launcher3.pm.UserCache
 import com.android.launcher3.shortcuts.ShortcutRequest
 import com.android.launcher3.util.DaggerSingletonTracker
 import com.android.launcher3.util.Executors.MODEL_EXECUTOR
+import com.android.launcher3.util.Executors.MODEL_READER_EXECUTOR
 import com.android.launcher3.util.PackageUserKey
 import java.io.PrintWriter
 import java.util.concurrent.CancellationException
@@ -99,6 +101,11 @@ constructor(
     private var mModelLoaded = false
     private var mModelDestroyed = false
 
+    // Last snapshot of the model handed to read tasks, only created on the model thread
+    @Volatile private var mSnapshot: ModelSnapshot? = null
+    // Whether an update task is running, read tasks don't wait for it and use the last snapshot
+    @Volatile private var mUpdateTaskRunning = false
+
     fun isModelLoaded() =
         synchronized(mLock) { mModelLoaded && mLoaderTask == null && !mModelDestroyed }
 
@@ -211,6 +218,7 @@ constructor(
             // Stop any existing loaders first, so they don't set mModelLoaded to true later
             stopLoader()
             mModelLoaded = false
+            mSnapshot = null
         }
         rebindCallbacks()
     }
@@ -349,6 +357,7 @@ constructor(
                 mTask = task
                 mIsLoaderTaskRunning = true
                 mModelLoaded = false
+                mSnapshot = null
             }
         }
 
@@ -409,7 +418,56 @@ constructor(
                 // Loader has not yet run.
                 return@execute
             }
-            task.execute(taskControllerProvider.get(), mBgDataModel, mBgAllAppsList)
+            mUpdateTaskRunning = true
+            try {
+                task.execute(taskControllerProvider.get(), mBgDataModel, mBgAllAppsList)
+            } finally {
+                mUpdateTaskRunning = false
+            }
+            // Only keep the snapshot up to date once it is used by read tasks
+            if (mSnapshot != null) {
+                publishSnapshot()
+            }
+        }
+    }
+
+    /**
+     * Runs a task which only reads the model on [MODEL_READER_EXECUTOR], concurrently with other
+     * read tasks and without waiting for the update tasks queued on [MODEL_EXECUTOR]. The task gets
+     * a [ModelSnapshot] of the model as of the last completed update.
+     */
+    fun enqueueModelReadTask(task: ModelReadTask) {
+        if (mModelDestroyed) {
+            return
+        }
+        val snapshot = mSnapshot
+        if (
+            snapshot != null &&
+                (mUpdateTaskRunning || snapshot.isCurrent(mBgAllAppsList, mBgDataModel))
+        ) {
+            MODEL_READER_EXECUTOR.execute { task.execute(snapshot) }
+            return
+        }
+        // The model changed outside of an update task (e.g. it was loaded or an item was moved),
+        // take a new snapshot once these changes are done.
+        MODEL_EXECUTOR.execute {
+            if (!isModelLoaded()) {
+                // Loader has not yet run.
+                return@execute
+            }
+            val current = publishSnapshot()
+            MODEL_READER_EXECUTOR.execute { task.execute(current) }
+        }
+    }
+
+    @WorkerThread
+    private fun publishSnapshot(): ModelSnapshot {
+        val previous = mSnapshot
+        if (previous != null && previous.isCurrent(mBgAllAppsList, mBgDataModel)) {
+            return previous
+        }
+        return ModelSnapshot.create(previous, mBgAllAppsList, mBgDataModel).also {
+            mSnapshot = it
         }
     }
 
@@ -425,6 +483,14 @@ constructor(
         fun execute(taskController: ModelTaskController, dataModel: BgDataModel, apps: AllAppsList)
     }
 
+    /**
+     * A task which only reads the model. It runs off the model thread and only gets an immutable
+     * [ModelSnapshot], so it has no way to modify the model, write to the DB or bind the UI.
+     */
+    fun interface ModelReadTask {
+        fun execute(snapshot: ModelSnapshot)
+    }
+
     fun updateAndBindWorkspaceItem(si: WorkspaceItemInfo, info: ShortcutInfo) {
         enqueueModelUpdateTask { taskController, _, _ ->
             si.updateFromDeepShortcutInfo(info, context)
@@ -168,6 +168,18 @@ public class LauncherSettings {
          */
         public static final String TMP_TABLE = "favorites_tmp";
 
+        /**
+         * Table holding the items of the saved layout profiles, see
+         * {@link com.android.launcher3.model.ModelDbController#saveLayoutProfile}
+         */
+        public static final String LAYOUT_PROFILES_TABLE = "favorites_profiles";
+
+        /**
+         * The layout profile an item of {@link #LAYOUT_PROFILES_TABLE} belongs to
+         * <P>Type: TEXT</P>
+         */
+        public static final String LAYOUT_PROFILE = "layoutProfile";
+
         /**
          * The container holding the favorite
          * <P>Type: INTEGER</P>
@@ -313,6 +325,21 @@ public class LauncherSettings {
                     + getJoinedColumnsToTypes(myProfileId) + ");");
         }
 
+        /**
+         * Creates {@link #LAYOUT_PROFILES_TABLE} if needed. It has the same columns as the
+         * favorites table plus {@link #LAYOUT_PROFILE}, and item ids are unique per profile.
+         */
+        public static void addLayoutProfilesTableToDb(SQLiteDatabase db, long myProfileId) {
+            LinkedHashMap<String, String> columnsToTypes = getColumnsToTypes(myProfileId);
+            columnsToTypes.put(_ID, "INTEGER NOT NULL");
+            db.execSQL("CREATE TABLE IF NOT EXISTS " + LAYOUT_PROFILES_TABLE + " ("
+                    + LAYOUT_PROFILE + " TEXT NOT NULL, "
+                    + columnsToTypes.entrySet().stream()
+                            .map(it -> it.getKey() + " " + it.getValue())
+                            .collect(Collectors.joining(", "))
+                    + ", PRIMARY KEY (" + LAYOUT_PROFILE + ", " + _ID + "));");
+        }
+
         // LinkedHashMap maintains Order of Insertion
         @NonNull
         private static LinkedHashMap<String, String> getColumnsToTypes(long profileId) {
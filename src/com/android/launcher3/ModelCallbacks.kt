@@ -15,6 +15,7 @@ import com.android.launcher3.LauncherSettings.Favorites.CONTAINER_HOTSEAT
 import com.android.launcher3.WorkspaceLayoutManager.FIRST_SCREEN_ID
 import com.android.launcher3.allapps.AllAppsStore
 import com.android.launcher3.config.FeatureFlags
+import com.android.launcher3.logging.StartupTimeline
 import com.android.launcher3.model.BgDataModel
 import com.android.launcher3.model.ItemInstallQueue
 import com.android.launcher3.model.ItemInstallQueue.FLAG_LOADER_RUNNING
@@ -127,6 +128,9 @@ class ModelCallbacks(private var launcher: Launcher) : BgDataModel.Callbacks {
             executor.attachTo(launcher)
         }
         launcher.bindComplete(workspaceItemCount, isBindSync)
+        // Items on the current page are bound with their loaded icons at this point, the other
+        // pages are bound by the pending executor
+        StartupTimeline.onCurrentPageBound(launcher)
     }
 
     /**
@@ -474,6 +478,9 @@ class ModelCallbacks(private var launcher: Launcher) : BgDataModel.Callbacks {
         sortWorkspaceItemsSpatially(currentWorkspaceItems)
         sortWorkspaceItemsSpatially(otherWorkspaceItems)
 
+        // Inflate the icons of the other pages in the background while the current page is bound
+        inflater.preInflate(otherWorkspaceItems)
+
         // Tell the workspace that we're about to start binding items
         executeCallbacksTask {
             clearPendingBinds()
@@ -58,6 +58,8 @@ import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.os.Parcelable;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.util.SparseArray;
@@ -296,6 +298,9 @@ public class Workspace<T extends View & PageIndicator> extends PagedView<T>
     int mLastReorderX = -1;
     @Thunk
     int mLastReorderY = -1;
+    // Drag over events handled during the current drag and the time spent handling them
+    private int mDragOverCount;
+    private long mDragOverNanos;
 
     private SparseArray<Parcelable> mSavedStates;
     private final IntArray mRestoredPages = new IntArray();
@@ -573,6 +578,13 @@ public class Workspace<T extends View & PageIndicator> extends PagedView<T>
             enforceDragParity("onDragEnd", 0, 0);
         }
 
+        if (mDragOverCount > 0 && Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "onDragOver: " + mDragOverCount + " events, "
+                    + mDragOverNanos / mDragOverCount / 1000 + "us on average");
+        }
+        mDragOverCount = 0;
+        mDragOverNanos = 0;
+
         updateChildrenLayersEnabled();
         StateManager<LauncherState, Launcher> stateManager = mLauncher.getStateManager();
         stateManager.addStateListener(new StateManager.StateListener<LauncherState>() {
@@ -2589,6 +2601,18 @@ public class Workspace<T extends View & PageIndicator> extends PagedView<T>
     }
 
     public void onDragOver(DragObject d) {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        Trace.beginSection("Workspace#onDragOver");
+        try {
+            handleDragOver(d);
+        } finally {
+            Trace.endSection();
+            mDragOverCount++;
+            mDragOverNanos += SystemClock.elapsedRealtimeNanos() - startNanos;
+        }
+    }
+
+    private void handleDragOver(DragObject d) {
         // Skip drag over events while we are dragging over side pages
         if (!transitionStateShouldAllowDrop()) return;
 
@@ -44,6 +44,10 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
     private final Handler mResultHandler;
     private final boolean mAddNoResultsMessage;
 
+    // Number of searches started, used to drop results of older queries which finish late. Only
+    // accessed on the main thread.
+    private int mSearchCount;
+
     public DefaultAppSearchAlgorithm(Context context) {
         this(context, false);
     }
@@ -63,12 +67,18 @@ public class DefaultAppSearchAlgorithm implements SearchAlgorithm<AdapterItem> {
 
     @Override
     public void doSearch(String query, SearchCallback<AdapterItem> callback) {
-        mAppState.getModel().enqueueModelUpdateTask((taskController, dataModel, apps) ->  {
-            ArrayList<AdapterItem> result = getTitleMatchResult(apps.data, query);
+        int searchId = ++mSearchCount;
+        mAppState.getModel().enqueueModelReadTask(snapshot ->  {
+            ArrayList<AdapterItem> result = getTitleMatchResult(snapshot.apps, query);
             if (mAddNoResultsMessage && result.isEmpty()) {
                 result.add(getEmptyMessageAdapterItem(query));
             }
-            mResultHandler.post(() -> callback.onSearchResult(query, result));
+            mResultHandler.post(() -> {
+                // Read tasks run concurrently and can finish out of order
+                if (searchId == mSearchCount) {
+                    callback.onSearchResult(query, result);
+                }
+            });
         });
     }
 
@@ -32,18 +32,39 @@ class ItemConfiguration : CellAndSpan() {
     @JvmField var isSolution = false
     fun save() {
         // Copy current state into savedMap
-        map.forEach { (k, v) -> savedMap[k]?.copyFrom(v) }
+        for (i in 0 until map.size) {
+            savedMap[map.keyAt(i)]?.copyFrom(map.valueAt(i))
+        }
     }
 
     fun restore() {
         // Restore current state from savedMap
-        savedMap.forEach { (k, v) -> map[k]?.copyFrom(v) }
+        for (i in 0 until savedMap.size) {
+            map[savedMap.keyAt(i)]?.copyFrom(savedMap.valueAt(i))
+        }
     }
 
     fun add(v: View, cs: CellAndSpan) {
-        map[v] = cs
+        if (map.put(v, cs) == null) {
+            sortedViews.add(v)
+        }
         savedMap[v] = CellAndSpan()
-        sortedViews.add(v)
+    }
+
+    /**
+     * Sets the position of the view in this configuration, reusing its existing entry so that
+     * resetting a configuration to the current state of the layout does not allocate.
+     */
+    fun add(v: View, cellX: Int, cellY: Int, spanX: Int, spanY: Int) {
+        val cs = map[v]
+        if (cs == null) {
+            add(v, CellAndSpan(cellX, cellY, spanX, spanY))
+            return
+        }
+        cs.cellX = cellX
+        cs.cellY = cellY
+        cs.spanX = spanX
+        cs.spanY = spanY
     }
 
     fun area(): Int {
@@ -51,11 +72,12 @@ class ItemConfiguration : CellAndSpan() {
     }
 
     fun getBoundingRectForViews(views: ArrayList<View>, outRect: Rect) {
-        views
-            .mapNotNull { v -> map[v] }
-            .forEachIndexed { i, c ->
-                if (i == 0) outRect.set(c.cellX, c.cellY, c.cellX + c.spanX, c.cellY + c.spanY)
-                else outRect.union(c.cellX, c.cellY, c.cellX + c.spanX, c.cellY + c.spanY)
-            }
+        var first = true
+        for (i in 0 until views.size) {
+            val c = map[views[i]] ?: continue
+            if (first) outRect.set(c.cellX, c.cellY, c.cellX + c.spanX, c.cellY + c.spanY)
+            else outRect.union(c.cellX, c.cellY, c.cellX + c.spanX, c.cellY + c.spanY)
+            first = false
+        }
     }
 }
@@ -20,9 +20,9 @@ import android.view.View;
 import com.android.launcher3.CellLayout;
 import com.android.launcher3.MultipageCellLayout;
 import com.android.launcher3.ShortcutAndWidgetContainer;
+import com.android.launcher3.util.CellAndSpan;
 import com.android.launcher3.util.GridOccupancy;
 
-import java.util.Arrays;
 import java.util.function.Supplier;
 
 /**
@@ -33,6 +33,11 @@ public class MulticellReorderAlgorithm extends ReorderAlgorithm {
 
     private final View mSeam;
 
+    // Grids reused by every simulation, reallocated only if the size of the layout changes
+    private GridOccupancy mOccupiedWithSeam;
+    private GridOccupancy mTmpOccupiedWithSeam;
+    private GridOccupancy mTmpOccupied;
+
     public MulticellReorderAlgorithm(CellLayout cellLayout) {
         super(cellLayout);
         mSeam = new View(cellLayout.getContext());
@@ -40,8 +45,10 @@ public class MulticellReorderAlgorithm extends ReorderAlgorithm {
 
     public ItemConfiguration removeSeamFromSolution(ItemConfiguration solution) {
         solution.map.remove(mSeam);
-        solution.map.forEach((view, cell) -> cell.cellX =
-                cell.cellX > mCellLayout.getCountX() / 2 ? cell.cellX - 1 : cell.cellX);
+        for (int i = 0; i < solution.map.size(); i++) {
+            CellAndSpan cell = solution.map.valueAt(i);
+            cell.cellX = cell.cellX > mCellLayout.getCountX() / 2 ? cell.cellX - 1 : cell.cellX;
+        }
         solution.cellX =
                 solution.cellX > mCellLayout.getCountX() / 2 ? solution.cellX - 1 : solution.cellX;
         return solution;
@@ -77,14 +84,17 @@ public class MulticellReorderAlgorithm extends ReorderAlgorithm {
         mcl.setCountX(mcl.getCountX() + 1);
         mcl.getShortcutsAndWidgets().addViewInLayout(mSeam, lp);
         mcl.setOccupied(createGridOccupancyWithSeam());
-        mcl.mTmpOccupied = new GridOccupancy(mcl.getCountX(), mcl.getCountY());
+        mTmpOccupiedWithSeam = obtainEmptyGrid(mTmpOccupiedWithSeam, mcl.getCountX(),
+                mcl.getCountY());
+        mcl.mTmpOccupied = mTmpOccupiedWithSeam;
     }
 
     void removeSeam() {
         MultipageCellLayout mcl = (MultipageCellLayout) mCellLayout;
         mcl.setCountX(mcl.getCountX() - 1);
         mcl.getShortcutsAndWidgets().removeViewInLayout(mSeam);
-        mcl.mTmpOccupied = new GridOccupancy(mcl.getCountX(), mcl.getCountY());
+        mTmpOccupied = obtainEmptyGrid(mTmpOccupied, mcl.getCountX(), mcl.getCountY());
+        mcl.mTmpOccupied = mTmpOccupied;
         mcl.setSeamWasAdded(false);
     }
 
@@ -110,7 +120,9 @@ public class MulticellReorderAlgorithm extends ReorderAlgorithm {
 
     GridOccupancy createGridOccupancyWithSeam() {
         ShortcutAndWidgetContainer shortcutAndWidgets = mCellLayout.getShortcutsAndWidgets();
-        GridOccupancy grid = new GridOccupancy(mCellLayout.getCountX(), mCellLayout.getCountY());
+        mOccupiedWithSeam = obtainEmptyGrid(mOccupiedWithSeam, mCellLayout.getCountX(),
+                mCellLayout.getCountY());
+        GridOccupancy grid = mOccupiedWithSeam;
         for (int i = 0; i < shortcutAndWidgets.getChildCount(); i++) {
             View view = shortcutAndWidgets.getChildAt(i);
             CellLayoutLayoutParams lp = (CellLayoutLayoutParams) view.getLayoutParams();
@@ -118,7 +130,15 @@ public class MulticellReorderAlgorithm extends ReorderAlgorithm {
             grid.markCells(lp.getCellX() + seamOffset, lp.getCellY(), lp.cellHSpan, lp.cellVSpan,
                     true);
         }
-        Arrays.fill(grid.cells[mCellLayout.getCountX() / 2], true);
+        grid.markCells(mCellLayout.getCountX() / 2, 0, 1, mCellLayout.getCountY(), true);
+        return grid;
+    }
+
+    private static GridOccupancy obtainEmptyGrid(GridOccupancy grid, int countX, int countY) {
+        if (grid == null || grid.getCountX() != countX || grid.getCountY() != countY) {
+            return new GridOccupancy(countX, countY);
+        }
+        grid.clear();
         return grid;
     }
 }
@@ -16,8 +16,11 @@
 package com.android.launcher3.celllayout;
 
 import android.graphics.Rect;
+import android.util.Log;
 import android.view.View;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.launcher3.CellLayout;
 import com.android.launcher3.Utilities;
 import com.android.launcher3.util.CellAndSpan;
@@ -25,9 +28,6 @@ import com.android.launcher3.util.GridOccupancy;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.List;
-import java.util.Map.Entry;
-import java.util.stream.Collectors;
 
 import com.patrykmichalik.opto.core.PreferenceExtensionsKt;
 
@@ -39,10 +39,82 @@ import com.patrykmichalik.opto.core.PreferenceExtensionsKt;
  */
 public class ReorderAlgorithm {
 
+    private static final String TAG = "ReorderAlgorithm";
+
+    /** Orders views by the column, then the row, of their current position. */
+    private static final Comparator<View> CELL_POSITION_COMPARATOR = (left, right) -> {
+        CellLayoutLayoutParams l = (CellLayoutLayoutParams) left.getLayoutParams();
+        CellLayoutLayoutParams r = (CellLayoutLayoutParams) right.getLayoutParams();
+        int result = Integer.compare(l.getCellX(), r.getCellX());
+        return result != 0 ? result : Integer.compare(l.getCellY(), r.getCellY());
+    };
+
     CellLayout mCellLayout;
 
+    private final ReorderScratch mScratch = new ReorderScratch();
+    private final ReorderSolutionCache mSolutionCache = new ReorderSolutionCache();
+    // Whether the last call to rearrangementExists set the intersecting views of the solution
+    private boolean mIntersectingViewsUpdated;
+
     public ReorderAlgorithm(CellLayout cellLayout) {
         mCellLayout = cellLayout;
+        onDragStarted();
+    }
+
+    /**
+     * Refreshes the state which can not change during a drag, called when a drag enters the
+     * layout.
+     */
+    public void onDragStarted() {
+        refreshAllowWidgetOverlap();
+        mSolutionCache.clear();
+        mSolutionCache.resetStats();
+    }
+
+    /**
+     * Reads the widget overlap preference again. It is kept for the whole drag once read in
+     * {@link #onDragStarted}, searches outside of drags, such as widget resizes, must call this
+     * first.
+     */
+    public void refreshAllowWidgetOverlap() {
+        boolean allowWidgetOverlap =
+                PreferenceExtensionsKt.firstBlocking(mCellLayout.pref.getAllowWidgetOverlap());
+        if (allowWidgetOverlap != mScratch.allowWidgetOverlap) {
+            mScratch.allowWidgetOverlap = allowWidgetOverlap;
+            // The memoized solutions were found with the other value
+            mSolutionCache.clear();
+        }
+    }
+
+    /**
+     * Drops the solutions memoized during the drag, called when the drag leaves the layout.
+     */
+    public void onDragEnded() {
+        int lookups = mSolutionCache.getHitCount() + mSolutionCache.getMissCount();
+        if (lookups > 0 && Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Reorder solution cache: " + mSolutionCache.getHitCount() + "/" + lookups
+                    + " hits");
+        }
+        mSolutionCache.clear();
+        mSolutionCache.resetStats();
+    }
+
+    /**
+     * Drops the memoized solutions, so that the next search runs from scratch.
+     */
+    @VisibleForTesting
+    public void clearSolutionCache() {
+        mSolutionCache.clear();
+    }
+
+    @VisibleForTesting
+    public int getSolutionCacheHitCount() {
+        return mSolutionCache.getHitCount();
+    }
+
+    @VisibleForTesting
+    public int getSolutionCacheMissCount() {
+        return mSolutionCache.getMissCount();
     }
 
     /**
@@ -95,14 +167,14 @@ public class ReorderAlgorithm {
 
         // We find the nearest cell into which we would place the dragged item, assuming there's
         // nothing in its way.
-        int[] result = new int[2];
-        result = mCellLayout.findNearestAreaIgnoreOccupied(pixelX, pixelY, spanX, spanY, result);
+        int[] result = mCellLayout.findNearestAreaIgnoreOccupied(pixelX, pixelY, spanX, spanY,
+                mScratch.dropCell);
 
         boolean success;
         // First we try the exact nearest position of the item being dragged,
         // we will then want to try to move this around to other neighbouring positions
-        success = rearrangementExists(result[0], result[1], spanX, spanY, direction, dragView,
-                solution);
+        success = rearrangementExistsCached(result[0], result[1], spanX, spanY, direction,
+                dragView, solution);
 
         if (!success) {
             // We try shrinking the widget down to size in an alternating pattern, shrink 1 in
@@ -125,17 +197,42 @@ public class ReorderAlgorithm {
         return solution;
     }
 
+    /**
+     * Same as {@link #rearrangementExists}, but replays the result of an identical search done
+     * earlier in the drag from the same state. The shrinking steps are cached individually, so
+     * each step found by a previous frame is reused.
+     */
+    private boolean rearrangementExistsCached(int cellX, int cellY, int spanX, int spanY,
+            int[] direction, View ignoreView, ItemConfiguration solution) {
+        ReorderSolutionCache.Entry entry = mSolutionCache.find(cellX, cellY, spanX, spanY,
+                direction, ignoreView, solution, mCellLayout.getOccupied());
+        if (entry != null) {
+            entry.apply(solution, direction, mCellLayout.mTmpOccupied);
+            return entry.success;
+        }
+        int directionX = direction[0];
+        int directionY = direction[1];
+        mIntersectingViewsUpdated = false;
+        boolean success = rearrangementExists(cellX, cellY, spanX, spanY, direction, ignoreView,
+                solution);
+        // The search may leave the direction changed, the key is the direction it started with
+        mSolutionCache.put(cellX, cellY, spanX, spanY, directionX, directionY, ignoreView,
+                success, solution, direction, mIntersectingViewsUpdated, mCellLayout.mTmpOccupied);
+        return success;
+    }
+
     private boolean rearrangementExists(int cellX, int cellY, int spanX, int spanY, int[] direction,
             View ignoreView, ItemConfiguration solution) {
         // Return early if get invalid cell positions
         if (cellX < 0 || cellY < 0) return false;
 
-        ArrayList<View> intersectingViews = new ArrayList<>();
-        Rect occupiedRect = new Rect(cellX, cellY, cellX + spanX, cellY + spanY);
+        Rect occupiedRect = mScratch.dropRect;
+        occupiedRect.set(cellX, cellY, cellX + spanX, cellY + spanY);
 
         // Lawnchair: Widget overlap
-        if (PreferenceExtensionsKt.firstBlocking(mCellLayout.pref.getAllowWidgetOverlap())) {
-            solution.intersectingViews = new ArrayList<>(intersectingViews);
+        if (mScratch.allowWidgetOverlap) {
+            solution.intersectingViews.clear();
+            mIntersectingViewsUpdated = true;
             return true;
         }
 
@@ -147,26 +244,25 @@ public class ReorderAlgorithm {
                 c.cellY = cellY;
             }
         }
-        Rect r0 = new Rect(cellX, cellY, cellX + spanX, cellY + spanY);
-        Rect r1 = new Rect();
+        Rect r1 = mScratch.itemRect;
         // The views need to be sorted so that the results are deterministic on the views positions
         // and not by the views hash which is "random".
-        // The views are sorted twice, once for the X position and a second time for the Y position
-        // to ensure same order everytime.
-        Comparator<View> comparator = Comparator.comparing(
-                (View view) -> ((CellLayoutLayoutParams) view.getLayoutParams()).getCellX()
-        ).thenComparing(
-                (View view) -> ((CellLayoutLayoutParams) view.getLayoutParams()).getCellY()
-        );
-        List<View> views = solution.map.keySet().stream()
-                .sorted(comparator)
-                .collect(Collectors.toList());
-        for (View child : views) {
+        ArrayList<View> views = mScratch.sortedViews;
+        views.clear();
+        for (int i = 0; i < solution.map.size(); i++) {
+            views.add(solution.map.keyAt(i));
+        }
+        ReorderScratch.sort(views, CELL_POSITION_COMPARATOR);
+
+        ArrayList<View> intersectingViews = mScratch.intersectingViews;
+        intersectingViews.clear();
+        for (int i = 0; i < views.size(); i++) {
+            View child = views.get(i);
             if (child == ignoreView) continue;
             CellAndSpan c = solution.map.get(child);
             CellLayoutLayoutParams lp = (CellLayoutLayoutParams) child.getLayoutParams();
             r1.set(c.cellX, c.cellY, c.cellX + c.spanX, c.cellY + c.spanY);
-            if (Rect.intersects(r0, r1)) {
+            if (Rect.intersects(occupiedRect, r1)) {
                 if (!lp.canReorder) {
                     return false;
                 }
@@ -174,7 +270,11 @@ public class ReorderAlgorithm {
             }
         }
 
-        solution.intersectingViews = intersectingViews;
+        solution.intersectingViews.clear();
+        for (int i = 0; i < intersectingViews.size(); i++) {
+            solution.intersectingViews.add(intersectingViews.get(i));
+        }
+        mIntersectingViewsUpdated = true;
 
         // First we try to find a solution which respects the push mechanic. That is,
         // we try to find a solution such that no displaced item travels through another item
@@ -191,8 +291,9 @@ public class ReorderAlgorithm {
         }
 
         // Ok, they couldn't move as a block, let's move them individually
-        for (View v : intersectingViews) {
-            if (!addViewToTempLocation(v, occupiedRect, direction, solution)) {
+        for (int i = 0; i < intersectingViews.size(); i++) {
+            if (!addViewToTempLocation(intersectingViews.get(i), occupiedRect, direction,
+                    solution)) {
                 return false;
             }
         }
@@ -207,7 +308,7 @@ public class ReorderAlgorithm {
         mCellLayout.mTmpOccupied.markCells(rectOccupiedByPotentialDrop, true);
 
         int[] tmpLocation = findNearestArea(c.cellX, c.cellY, c.spanX, c.spanY, direction,
-                mCellLayout.mTmpOccupied.cells, null, new int[2]);
+                mCellLayout.mTmpOccupied, null, mScratch.location);
 
         if (tmpLocation[0] >= 0 && tmpLocation[1] >= 0) {
             c.cellX = tmpLocation[0];
@@ -221,7 +322,7 @@ public class ReorderAlgorithm {
     private boolean pushViewsToTempLocation(ArrayList<View> views, Rect rectOccupiedByPotentialDrop,
             int[] direction, View dragView, ItemConfiguration currentState) {
 
-        ViewCluster cluster = new ViewCluster(mCellLayout, views, currentState);
+        ViewCluster cluster = mScratch.obtainCluster(mCellLayout, views, currentState);
         Rect clusterRect = cluster.getBoundingRect();
         int whichEdge;
         int pushDistance;
@@ -249,8 +350,8 @@ public class ReorderAlgorithm {
         }
 
         // Mark the occupied state as false for the group of views we want to move.
-        for (View v : views) {
-            CellAndSpan c = currentState.map.get(v);
+        for (int i = 0; i < views.size(); i++) {
+            CellAndSpan c = currentState.map.get(views.get(i));
             mCellLayout.mTmpOccupied.markCells(c, false);
         }
 
@@ -265,7 +366,8 @@ public class ReorderAlgorithm {
         cluster.sortConfigurationForEdgePush(whichEdge);
 
         while (pushDistance > 0 && !fail) {
-            for (View v : currentState.sortedViews) {
+            for (int i = 0; i < currentState.sortedViews.size(); i++) {
+                View v = currentState.sortedViews.get(i);
                 // For each view that isn't in the cluster, we see if the leading edge of the
                 // cluster is contacting the edge of that view. If so, we add that view to the
                 // cluster.
@@ -305,8 +407,8 @@ public class ReorderAlgorithm {
         }
 
         // In either case, we set the occupied array as marked for the location of the views
-        for (View v : cluster.views) {
-            CellAndSpan c = currentState.map.get(v);
+        for (int i = 0; i < cluster.views.size(); i++) {
+            CellAndSpan c = currentState.map.get(cluster.views.get(i));
             mCellLayout.mTmpOccupied.markCells(c, true);
         }
 
@@ -365,24 +467,26 @@ public class ReorderAlgorithm {
         if (views.isEmpty()) return true;
 
         boolean success = false;
-        Rect boundingRect = new Rect();
+        Rect boundingRect = mScratch.boundingRect;
         // We construct a rect which represents the entire group of views passed in
         currentState.getBoundingRectForViews(views, boundingRect);
 
         // Mark the occupied state as false for the group of views we want to move.
-        for (View v : views) {
-            CellAndSpan c = currentState.map.get(v);
+        for (int i = 0; i < views.size(); i++) {
+            CellAndSpan c = currentState.map.get(views.get(i));
             mCellLayout.mTmpOccupied.markCells(c, false);
         }
 
-        GridOccupancy blockOccupied = new GridOccupancy(boundingRect.width(),
-                boundingRect.height());
+        // The block is marked relative to the origin of a grid covering the whole layout, which
+        // can hold any block and is reused between calls.
+        GridOccupancy blockOccupied = mScratch.obtainBlockOccupied(mCellLayout.getCountX(),
+                mCellLayout.getCountY());
         int top = boundingRect.top;
         int left = boundingRect.left;
         // We mark more precisely which parts of the bounding rect are truly occupied, allowing
         // for interlocking.
-        for (View v : views) {
-            CellAndSpan c = currentState.map.get(v);
+        for (int i = 0; i < views.size(); i++) {
+            CellAndSpan c = currentState.map.get(views.get(i));
             blockOccupied.markCells(c.cellX - left, c.cellY - top, c.spanX, c.spanY, true);
         }
 
@@ -390,14 +494,14 @@ public class ReorderAlgorithm {
 
         int[] tmpLocation = findNearestArea(boundingRect.left, boundingRect.top,
                 boundingRect.width(), boundingRect.height(), direction,
-                mCellLayout.mTmpOccupied.cells, blockOccupied.cells, new int[2]);
+                mCellLayout.mTmpOccupied, blockOccupied, mScratch.location);
 
         // If we successfully found a location by pushing the block of views, we commit it
         if (tmpLocation[0] >= 0 && tmpLocation[1] >= 0) {
             int deltaX = tmpLocation[0] - boundingRect.left;
             int deltaY = tmpLocation[1] - boundingRect.top;
-            for (View v : views) {
-                CellAndSpan c = currentState.map.get(v);
+            for (int i = 0; i < views.size(); i++) {
+                CellAndSpan c = currentState.map.get(views.get(i));
                 c.cellX += deltaX;
                 c.cellY += deltaY;
             }
@@ -405,8 +509,8 @@ public class ReorderAlgorithm {
         }
 
         // In either case, we set the occupied array as marked for the location of the views
-        for (View v : views) {
-            CellAndSpan c = currentState.map.get(v);
+        for (int i = 0; i < views.size(); i++) {
+            CellAndSpan c = currentState.map.get(views.get(i));
             mCellLayout.mTmpOccupied.markCells(c, true);
         }
         return success;
@@ -440,18 +544,14 @@ public class ReorderAlgorithm {
 
     private boolean isConfigurationRegionOccupied(Rect region, ItemConfiguration configuration,
             View ignoreView) {
-        return configuration.map
-                .entrySet()
-                .stream()
-                .filter(entry -> entry.getKey() != ignoreView)
-                .map(Entry::getValue)
-                .anyMatch(cellAndSpan -> region.intersect(
-                        cellAndSpan.cellX,
-                        cellAndSpan.cellY,
-                        cellAndSpan.cellX + cellAndSpan.spanX,
-                        cellAndSpan.cellY + cellAndSpan.spanY
-                        )
-                );
+        for (int i = 0; i < configuration.map.size(); i++) {
+            if (configuration.map.keyAt(i) == ignoreView) continue;
+            CellAndSpan c = configuration.map.valueAt(i);
+            if (region.intersects(c.cellX, c.cellY, c.cellX + c.spanX, c.cellY + c.spanY)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -542,23 +642,25 @@ public class ReorderAlgorithm {
             int[] resultDirection) {
 
         //TODO(adamcohen) b/151776141 use the items visual center for the direction vector
-        int[] targetDestination = new int[2];
+        int[] targetDestination = mScratch.dropCell;
 
         mCellLayout.findNearestAreaIgnoreOccupied(reorderParameters.getPixelX(),
                 reorderParameters.getPixelY(), reorderParameters.getSpanX(),
                 reorderParameters.getSpanY(), targetDestination);
-        Rect dragRect = new Rect();
+        Rect dragRect = mScratch.itemRect;
         mCellLayout.cellToRect(targetDestination[0], targetDestination[1],
                 reorderParameters.getSpanX(), reorderParameters.getSpanY(), dragRect);
         dragRect.offset(reorderParameters.getPixelX() - dragRect.centerX(),
                 reorderParameters.getPixelY() - dragRect.centerY());
 
-        Rect region = new Rect(targetDestination[0], targetDestination[1],
+        Rect region = mScratch.dropRect;
+        region.set(targetDestination[0], targetDestination[1],
                 targetDestination[0] + reorderParameters.getSpanX(),
                 targetDestination[1] + reorderParameters.getSpanY());
-        Rect dropRegionRect = mCellLayout.getIntersectingRectanglesInRegion(region,
-                reorderParameters.getDragView());
-        if (dropRegionRect == null) dropRegionRect = new Rect(region);
+        // Set to the region itself when nothing intersects it
+        Rect dropRegionRect = mScratch.dropRegionRect;
+        mCellLayout.getIntersectingRectanglesInRegion(region, reorderParameters.getDragView(),
+                dropRegionRect, mScratch.boundingRect);
 
         int dropRegionSpanX = dropRegionRect.width();
         int dropRegionSpanY = dropRegionRect.height();
@@ -600,8 +702,8 @@ public class ReorderAlgorithm {
      * @param spanX         Horizontal span of the object.
      * @param spanY         Vertical span of the object.
      * @param direction     The favored direction in which the views should move from x, y
-     * @param occupied      The array which represents which cells in the CellLayout are occupied
-     * @param blockOccupied The array which represents which cells in the specified block (cellX,
+     * @param occupied      The grid which represents which cells in the CellLayout are occupied
+     * @param blockOccupied The grid which represents which cells in the specified block (cellX,
      *                      cellY, spanX, spanY) are occupied. This is used when try to move a group
      *                      of views.
      * @param result        Array in which to place the result, or null (in which case a new array
@@ -611,7 +713,7 @@ public class ReorderAlgorithm {
      * nearest the requested location.
      */
     public int[] findNearestArea(int cellX, int cellY, int spanX, int spanY, int[] direction,
-            boolean[][] occupied, boolean[][] blockOccupied, int[] result) {
+            GridOccupancy occupied, GridOccupancy blockOccupied, int[] result) {
         // Keep track of best-scoring drop area
         final int[] bestXY = result != null ? result : new int[2];
         float bestDistance = Float.MAX_VALUE;
@@ -621,20 +723,14 @@ public class ReorderAlgorithm {
         final int countY = mCellLayout.getCountY();
 
         for (int y = 0; y < countY - (spanY - 1); y++) {
-            inner:
             for (int x = 0; x < countX - (spanX - 1); x++) {
                 // First, let's see if this thing fits anywhere
-                for (int i = 0; i < spanX; i++) {
-                    for (int j = 0; j < spanY; j++) {
-                        if (occupied[x + i][y + j] && (blockOccupied == null
-                                || blockOccupied[i][j])) {
-                            continue inner;
-                        }
-                    }
+                if (!occupied.isRegionVacant(x, y, spanX, spanY, blockOccupied)) {
+                    continue;
                 }
 
                 float distance = (float) Math.hypot(x - cellX, y - cellY);
-                int[] curDirection = new int[2];
+                int[] curDirection = mScratch.candidateDirection;
                 computeDirectionVector(x - cellX, y - cellY, curDirection);
                 // The direction score is just the dot product of the two candidate direction
                 // and that passed in.
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.celllayout
+
+import android.graphics.Rect
+import android.view.View
+import com.android.launcher3.CellLayout
+import com.android.launcher3.util.GridOccupancy
+
+/**
+ * Objects reused by [ReorderAlgorithm] across searches, so that looking for a reorder solution on
+ * every drag frame does not allocate once the arena has been sized for the grid.
+ *
+ * The arena is not thread safe and the search is not reentrant, which matches the reorder only
+ * ever running on the UI thread of its [CellLayout].
+ */
+class ReorderScratch {
+
+    /** Cells the dragged item would occupy */
+    @JvmField val dropRect = Rect()
+    /** Cells of the item being compared against [dropRect] */
+    @JvmField val itemRect = Rect()
+    /** Bounding cells of a group of items moved as a block */
+    @JvmField val boundingRect = Rect()
+    /** Bounding cells of the items under the drop, when computing the push direction */
+    @JvmField val dropRegionRect = Rect()
+
+    /** Cell nearest to the drag, where the dragged item is placed */
+    @JvmField val dropCell = IntArray(2)
+    /** Result of [ReorderAlgorithm.findNearestArea] for temporary locations */
+    @JvmField val location = IntArray(2)
+    /** Direction from the requested cell to the candidate cell in findNearestArea */
+    @JvmField val candidateDirection = IntArray(2)
+
+    /** Views of the solution sorted by their current position */
+    @JvmField val sortedViews = ArrayList<View>()
+    /** Views overlapping [dropRect] in the solution being searched */
+    @JvmField val intersectingViews = ArrayList<View>()
+
+    /** Snapshot of the widget overlap preference, refreshed when a drag starts or outside drags */
+    @JvmField var allowWidgetOverlap = false
+
+    private var cluster: ViewCluster? = null
+    private var blockOccupied: GridOccupancy? = null
+
+    /** Returns the cluster of the given views, reusing the edges of the previous cluster. */
+    fun obtainCluster(
+        cellLayout: CellLayout,
+        views: ArrayList<View>,
+        config: ItemConfiguration,
+    ): ViewCluster {
+        val current = cluster
+        if (current == null) {
+            return ViewCluster(cellLayout, views, config).also { cluster = it }
+        }
+        current.reset(views, config)
+        return current
+    }
+
+    /**
+     * Returns an empty grid covering the whole layout. Blocks of views are marked relative to the
+     * origin of the grid, so it can represent any block which fits in the layout.
+     */
+    fun obtainBlockOccupied(countX: Int, countY: Int): GridOccupancy {
+        val grid = blockOccupied
+        if (grid == null || grid.countX != countX || grid.countY != countY) {
+            return GridOccupancy(countX, countY).also { blockOccupied = it }
+        }
+        grid.clear()
+        return grid
+    }
+
+    companion object {
+
+        /**
+         * Stable in place insertion sort. The lists sorted during a reorder hold at most one entry
+         * per cell and are mostly sorted already, and unlike [java.util.Collections.sort] this
+         * never allocates a merge buffer.
+         */
+        @JvmStatic
+        fun <T> sort(list: MutableList<T>, comparator: Comparator<in T>) {
+            for (i in 1 until list.size) {
+                val item = list[i]
+                var j = i - 1
+                while (j >= 0 && comparator.compare(list[j], item) > 0) {
+                    list[j + 1] = list[j]
+                    j--
+                }
+                list[j + 1] = item
+            }
+        }
+    }
+}
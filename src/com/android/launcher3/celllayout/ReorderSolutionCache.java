@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.celllayout;
+
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.android.launcher3.util.CellAndSpan;
+import com.android.launcher3.util.GridOccupancy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Memoizes the rearrangements found by {@link ReorderAlgorithm} during a drag. While the dragged
+ * item stays over the same cell, every move event searches for the same rearrangements of the same
+ * layout, which are replayed from this cache instead of being searched again.
+ *
+ * Entries are only valid for the layout state they were computed from, which is the occupied
+ * cells and the positions the search starts from. All the entries are dropped as soon as that
+ * state changes, e.g. when a reorder is committed.
+ */
+final class ReorderSolutionCache {
+
+    private static final int MAX_ENTRIES = 16;
+
+    /**
+     * The result of searching for a rearrangement, with the state of the search once it was done.
+     */
+    static final class Entry {
+        private int mCellX, mCellY, mSpanX, mSpanY, mDirectionX, mDirectionY;
+        private View mIgnoreView;
+        // The order of the views the search started from, which decides the push order
+        private View[] mStartOrder = new View[0];
+
+        boolean success;
+        private int[] mPositions = new int[0];
+        private View[] mResultOrder = new View[0];
+        private int mResultDirectionX, mResultDirectionY;
+        private boolean mUpdatesIntersectingViews;
+        private final ArrayList<View> mIntersectingViews = new ArrayList<>();
+        private GridOccupancy mTmpOccupied;
+
+        private boolean matches(int cellX, int cellY, int spanX, int spanY, int[] direction,
+                View ignoreView, ArrayList<View> sortedViews) {
+            return mCellX == cellX && mCellY == cellY && mSpanX == spanX && mSpanY == spanY
+                    && mDirectionX == direction[0] && mDirectionY == direction[1]
+                    && mIgnoreView == ignoreView && orderEquals(mStartOrder, sortedViews);
+        }
+
+        /**
+         * Puts the solution, the direction and the temporary occupied cells in the state they
+         * were in after the search.
+         */
+        void apply(ItemConfiguration solution, int[] direction, GridOccupancy tmpOccupied) {
+            readPositions(solution, mPositions);
+            // The search sorts the views for its pushes, and the next search starts from there
+            for (int i = 0; i < solution.sortedViews.size(); i++) {
+                solution.sortedViews.set(i, mResultOrder[i]);
+            }
+            if (mUpdatesIntersectingViews) {
+                solution.intersectingViews.clear();
+                for (int i = 0; i < mIntersectingViews.size(); i++) {
+                    solution.intersectingViews.add(mIntersectingViews.get(i));
+                }
+            }
+            direction[0] = mResultDirectionX;
+            direction[1] = mResultDirectionY;
+            mTmpOccupied.copyTo(tmpOccupied);
+        }
+    }
+
+    private final Entry[] mEntries = new Entry[MAX_ENTRIES];
+    private int mEntryCount;
+    private int mNextEntry;
+
+    // State of the layout the entries were computed from
+    private boolean mHasState;
+    private GridOccupancy mOccupied;
+    private View[] mViews = new View[0];
+    private int[] mPositions = new int[0];
+    private int mViewCount;
+    // Order of the views of the last search which missed the cache, when it started
+    private View[] mPendingStartOrder = new View[0];
+
+    private int mHitCount;
+    private int mMissCount;
+
+    /**
+     * Returns the result of a previous search with the same parameters from the same state, or
+     * null if the search needs to run.
+     *
+     * @param solution the configuration the search would start from
+     * @param occupied the occupied cells of the layout
+     */
+    @Nullable
+    Entry find(int cellX, int cellY, int spanX, int spanY, int[] direction, View ignoreView,
+            ItemConfiguration solution, GridOccupancy occupied) {
+        if (!matchesState(solution, occupied)) {
+            mEntryCount = 0;
+            mNextEntry = 0;
+            saveState(solution, occupied);
+        } else {
+            for (int i = 0; i < mEntryCount; i++) {
+                if (mEntries[i].matches(cellX, cellY, spanX, spanY, direction, ignoreView,
+                        solution.sortedViews)) {
+                    mHitCount++;
+                    return mEntries[i];
+                }
+            }
+        }
+        mMissCount++;
+        mPendingStartOrder = writeOrder(solution.sortedViews, mPendingStartOrder);
+        return null;
+    }
+
+    /**
+     * Stores the result of the search which last missed the cache, replacing the oldest entry if
+     * the cache is full.
+     *
+     * @param directionX the horizontal direction the search started with
+     * @param directionY the vertical direction the search started with
+     * @param resultDirection the direction once the search was done
+     * @param updatesIntersectingViews whether the search set the intersecting views of the
+     *                                 solution
+     */
+    void put(int cellX, int cellY, int spanX, int spanY, int directionX, int directionY,
+            View ignoreView, boolean success, ItemConfiguration solution, int[] resultDirection,
+            boolean updatesIntersectingViews, GridOccupancy tmpOccupied) {
+        Entry entry = mEntries[mNextEntry];
+        if (entry == null) {
+            entry = mEntries[mNextEntry] = new Entry();
+        }
+        mNextEntry = (mNextEntry + 1) % MAX_ENTRIES;
+        if (mEntryCount < MAX_ENTRIES) {
+            mEntryCount++;
+        }
+
+        entry.mCellX = cellX;
+        entry.mCellY = cellY;
+        entry.mSpanX = spanX;
+        entry.mSpanY = spanY;
+        entry.mDirectionX = directionX;
+        entry.mDirectionY = directionY;
+        entry.mIgnoreView = ignoreView;
+        entry.success = success;
+        entry.mPositions = writePositions(solution, entry.mPositions);
+        entry.mStartOrder = writeOrder(mPendingStartOrder, solution.sortedViews.size(),
+                entry.mStartOrder);
+        entry.mResultOrder = writeOrder(solution.sortedViews, entry.mResultOrder);
+        entry.mResultDirectionX = resultDirection[0];
+        entry.mResultDirectionY = resultDirection[1];
+        entry.mUpdatesIntersectingViews = updatesIntersectingViews;
+        entry.mIntersectingViews.clear();
+        if (updatesIntersectingViews) {
+            for (int i = 0; i < solution.intersectingViews.size(); i++) {
+                entry.mIntersectingViews.add(solution.intersectingViews.get(i));
+            }
+        }
+        entry.mTmpOccupied = copyOf(tmpOccupied, entry.mTmpOccupied);
+    }
+
+    /**
+     * Drops all the entries and the views they reference, keeping the arrays for the next drag.
+     */
+    void clear() {
+        for (int i = 0; i < mEntryCount; i++) {
+            mEntries[i].mIgnoreView = null;
+            mEntries[i].mIntersectingViews.clear();
+            Arrays.fill(mEntries[i].mStartOrder, null);
+            Arrays.fill(mEntries[i].mResultOrder, null);
+        }
+        Arrays.fill(mPendingStartOrder, null);
+        mEntryCount = 0;
+        mNextEntry = 0;
+        Arrays.fill(mViews, null);
+        mViewCount = 0;
+        // Invalidates the saved state without dropping the grid
+        mHasState = false;
+    }
+
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    int getMissCount() {
+        return mMissCount;
+    }
+
+    void resetStats() {
+        mHitCount = 0;
+        mMissCount = 0;
+    }
+
+    private boolean matchesState(ItemConfiguration solution, GridOccupancy occupied) {
+        if (!mHasState || !mOccupied.contentEquals(occupied)
+                || solution.map.size() != mViewCount) {
+            return false;
+        }
+        for (int i = 0; i < mViewCount; i++) {
+            CellAndSpan c = solution.map.valueAt(i);
+            if (solution.map.keyAt(i) != mViews[i]
+                    || c.cellX != mPositions[4 * i] || c.cellY != mPositions[4 * i + 1]
+                    || c.spanX != mPositions[4 * i + 2] || c.spanY != mPositions[4 * i + 3]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void saveState(ItemConfiguration solution, GridOccupancy occupied) {
+        mHasState = true;
+        mOccupied = copyOf(occupied, mOccupied);
+        mViewCount = solution.map.size();
+        if (mViews.length < mViewCount) {
+            mViews = new View[mViewCount];
+        }
+        for (int i = 0; i < mViewCount; i++) {
+            mViews[i] = solution.map.keyAt(i);
+        }
+        mPositions = writePositions(solution, mPositions);
+    }
+
+    /**
+     * Writes the positions of the solution, in the order of its map, reusing the given array if it
+     * is large enough.
+     */
+    private static int[] writePositions(ItemConfiguration solution, int[] positions) {
+        int size = solution.map.size();
+        if (positions.length < 4 * size) {
+            positions = new int[4 * size];
+        }
+        for (int i = 0; i < size; i++) {
+            CellAndSpan c = solution.map.valueAt(i);
+            positions[4 * i] = c.cellX;
+            positions[4 * i + 1] = c.cellY;
+            positions[4 * i + 2] = c.spanX;
+            positions[4 * i + 3] = c.spanY;
+        }
+        return positions;
+    }
+
+    /**
+     * Writes the views in their order, followed by null if there is room, reusing the given array
+     * if it is large enough.
+     */
+    private static View[] writeOrder(ArrayList<View> views, View[] order) {
+        int size = views.size();
+        if (order.length < size) {
+            order = new View[size];
+        }
+        for (int i = 0; i < size; i++) {
+            order[i] = views.get(i);
+        }
+        if (size < order.length) {
+            order[size] = null;
+        }
+        return order;
+    }
+
+    private static View[] writeOrder(View[] views, int size, View[] order) {
+        if (order.length < size) {
+            order = new View[size];
+        }
+        System.arraycopy(views, 0, order, 0, size);
+        if (size < order.length) {
+            order[size] = null;
+        }
+        return order;
+    }
+
+    private static boolean orderEquals(View[] order, ArrayList<View> views) {
+        int size = views.size();
+        if (order.length < size || (size < order.length && order[size] != null)) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (order[i] != views.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void readPositions(ItemConfiguration solution, int[] positions) {
+        for (int i = 0; i < solution.map.size(); i++) {
+            CellAndSpan c = solution.map.valueAt(i);
+            c.cellX = positions[4 * i];
+            c.cellY = positions[4 * i + 1];
+            c.spanX = positions[4 * i + 2];
+            c.spanY = positions[4 * i + 3];
+        }
+    }
+
+    private static GridOccupancy copyOf(GridOccupancy source, @Nullable GridOccupancy dest) {
+        if (dest == null || dest.getCountX() != source.getCountX()
+                || dest.getCountY() != source.getCountY()) {
+            dest = new GridOccupancy(source.getCountX(), source.getCountY());
+        }
+        source.copyTo(dest);
+        return dest;
+    }
+}
@@ -18,7 +18,6 @@ package com.android.launcher3.celllayout
 import android.graphics.Rect
 import android.view.View
 import com.android.launcher3.CellLayout
-import java.util.Collections
 
 /**
  * This helper class defines a cluster of views. It helps with defining complex edges of the cluster
@@ -29,16 +28,18 @@ import java.util.Collections
 class ViewCluster(
     private val mCellLayout: CellLayout,
     views: ArrayList<View>,
-    val config: ItemConfiguration
+    config: ItemConfiguration
 ) {
 
     @JvmField val views = ArrayList<View>(views)
+    var config = config
+        private set
     private val boundingRect = Rect()
 
-    private val leftEdge = IntArray(mCellLayout.countY)
-    private val rightEdge = IntArray(mCellLayout.countY)
-    private val topEdge = IntArray(mCellLayout.countX)
-    private val bottomEdge = IntArray(mCellLayout.countX)
+    private var leftEdge = IntArray(mCellLayout.countY)
+    private var rightEdge = IntArray(mCellLayout.countY)
+    private var topEdge = IntArray(mCellLayout.countX)
+    private var bottomEdge = IntArray(mCellLayout.countX)
 
     private var dirtyEdges = 0
     private var boundingRectDirty = false
@@ -48,6 +49,28 @@ class ViewCluster(
     init {
         resetEdges()
     }
+
+    /**
+     * Makes this cluster hold the given views instead, so that the cluster can be reused by the
+     * next push. The edges only grow if the grid became larger.
+     */
+    fun reset(views: ArrayList<View>, config: ItemConfiguration) {
+        this.views.clear()
+        for (i in 0 until views.size) {
+            this.views.add(views[i])
+        }
+        this.config = config
+        if (leftEdge.size < mCellLayout.countY) {
+            leftEdge = IntArray(mCellLayout.countY)
+            rightEdge = IntArray(mCellLayout.countY)
+        }
+        if (topEdge.size < mCellLayout.countX) {
+            topEdge = IntArray(mCellLayout.countX)
+            bottomEdge = IntArray(mCellLayout.countX)
+        }
+        resetEdges()
+    }
+
     private fun resetEdges() {
         for (i in 0 until mCellLayout.countX) {
             topEdge[i] = -1
@@ -61,41 +84,41 @@ class ViewCluster(
         boundingRectDirty = true
     }
 
-    private fun computeEdge(which: Int) =
-        views
-            .mapNotNull { v -> config.map[v] }
-            .forEach { cs ->
-                val left = cs.cellX
-                val right = cs.cellX + cs.spanX
-                val top = cs.cellY
-                val bottom = cs.cellY + cs.spanY
-                when (which) {
-                    LEFT ->
-                        for (j in top until bottom) {
-                            if (left < leftEdge[j] || leftEdge[j] < 0) {
-                                leftEdge[j] = left
-                            }
+    private fun computeEdge(which: Int) {
+        for (i in 0 until views.size) {
+            val cs = config.map[views[i]] ?: continue
+            val left = cs.cellX
+            val right = cs.cellX + cs.spanX
+            val top = cs.cellY
+            val bottom = cs.cellY + cs.spanY
+            when (which) {
+                LEFT ->
+                    for (j in top until bottom) {
+                        if (left < leftEdge[j] || leftEdge[j] < 0) {
+                            leftEdge[j] = left
                         }
-                    RIGHT ->
-                        for (j in top until bottom) {
-                            if (right > rightEdge[j]) {
-                                rightEdge[j] = right
-                            }
+                    }
+                RIGHT ->
+                    for (j in top until bottom) {
+                        if (right > rightEdge[j]) {
+                            rightEdge[j] = right
                         }
-                    TOP ->
-                        for (j in left until right) {
-                            if (top < topEdge[j] || topEdge[j] < 0) {
-                                topEdge[j] = top
-                            }
+                    }
+                TOP ->
+                    for (j in left until right) {
+                        if (top < topEdge[j] || topEdge[j] < 0) {
+                            topEdge[j] = top
                         }
-                    BOTTOM ->
-                        for (j in left until right) {
-                            if (bottom > bottomEdge[j]) {
-                                bottomEdge[j] = bottom
-                            }
+                    }
+                BOTTOM ->
+                    for (j in left until right) {
+                        if (bottom > bottomEdge[j]) {
+                            bottomEdge[j] = bottom
                         }
-                }
+                    }
             }
+        }
+    }
 
     fun isViewTouchingEdge(v: View?, whichEdge: Int): Boolean {
         val cs = config.map[v] ?: return false
@@ -129,17 +152,16 @@ class ViewCluster(
     }
 
     fun shift(whichEdge: Int, delta: Int) {
-        views
-            .mapNotNull { v -> config.map[v] }
-            .forEach { c ->
-                when (whichEdge) {
-                    LEFT -> c.cellX -= delta
-                    RIGHT -> c.cellX += delta
-                    TOP -> c.cellY -= delta
-                    BOTTOM -> c.cellY += delta
-                    else -> c.cellY += delta
-                }
+        for (i in 0 until views.size) {
+            val c = config.map[views[i]] ?: continue
+            when (whichEdge) {
+                LEFT -> c.cellX -= delta
+                RIGHT -> c.cellX += delta
+                TOP -> c.cellY -= delta
+                BOTTOM -> c.cellY += delta
+                else -> c.cellY += delta
             }
+        }
         resetEdges()
     }
 
@@ -173,7 +195,7 @@ class ViewCluster(
 
     fun sortConfigurationForEdgePush(edge: Int) {
         comparator.whichEdge = edge
-        Collections.sort(config.sortedViews, comparator)
+        ReorderScratch.sort(config.sortedViews, comparator)
     }
 
     companion object {
@@ -174,9 +174,23 @@ public class FolderIcon extends FrameLayout implements FloatingIconViewCompanion
 
     public static <T extends Context & ActivityContext> FolderIcon inflateFolderAndIcon(int resId,
             T activityContext, ViewGroup group, FolderInfo folderInfo) {
-        Folder folder = Folder.fromXml(activityContext);
+        return attachFolder(inflateIcon(resId, activityContext, group, folderInfo),
+                activityContext, folderInfo);
+    }
+
+    /**
+     * Same as {@link #inflateFolderAndIcon} but binds an icon which was already inflated, for
+     * example ahead of time on a background thread.
+     */
+    public static <T extends Context & ActivityContext> FolderIcon bindFolderAndIcon(
+            FolderIcon icon, T activityContext, FolderInfo folderInfo) {
+        return attachFolder(bindIcon(icon, activityContext, folderInfo), activityContext,
+                folderInfo);
+    }
 
-        FolderIcon icon = inflateIcon(resId, activityContext, group, folderInfo);
+    private static <T extends Context & ActivityContext> FolderIcon attachFolder(FolderIcon icon,
+            T activityContext, FolderInfo folderInfo) {
+        Folder folder = Folder.fromXml(activityContext);
         folder.setFolderIcon(icon);
         folder.bind(folderInfo);
 
@@ -199,12 +213,16 @@ public class FolderIcon extends FrameLayout implements FloatingIconViewCompanion
                     "is dependent on this");
         }
 
-        DeviceProfile grid = activity.getDeviceProfile();
         LayoutInflater inflater = (group != null)
                 ? LayoutInflater.from(group.getContext())
                 : activity.getLayoutInflater();
         FolderIcon icon = (FolderIcon) inflater.inflate(resId, group, false);
+        return bindIcon(icon, activity, folderInfo);
+    }
 
+    private static FolderIcon bindIcon(FolderIcon icon, ActivityContext activity,
+            FolderInfo folderInfo) {
+        DeviceProfile grid = activity.getDeviceProfile();
         icon.setClipToPadding(false);
         icon.mFolderName = icon.findViewById(R.id.folder_icon_name);
         icon.mFolderName.setText(folderInfo.title);
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.logging
+
+import android.app.Activity
+import android.os.Debug
+import android.os.Process
+import android.os.SystemClock
+import android.util.Log
+import androidx.annotation.VisibleForTesting
+import com.android.launcher3.Utilities
+import com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR
+import com.android.launcher3.util.LogConfig
+import java.io.File
+import java.io.PrintWriter
+import org.json.JSONArray
+import org.json.JSONObject
+
+/**
+ * Records the loader and bind phases of the first launcher startup in this process.
+ *
+ * Each phase is a split: it starts where the previous one ended and records a monotonic
+ * timestamp along with the number of bytes allocated by the runtime so far. The timeline is
+ * available through dumpsys. When [LogConfig.STARTUP_TIMELINE] is enabled, it is also written to
+ * [FILE_NAME] in the app's external files dir once the current workspace page is bound, so that
+ * macrobenchmarks can collect per-phase data.
+ */
+object StartupTimeline {
+
+    private const val TAG = "StartupTimeline"
+    const val FILE_NAME = "startup_timeline.json"
+
+    /** A single split of the timeline. */
+    data class Phase(
+        val name: String,
+        val elapsedNanos: Long,
+        val allocatedBytes: Long,
+        val threadName: String,
+    )
+
+    private val processStartNanos = Process.getStartElapsedRealtime() * 1_000_000
+    private val initialAllocatedBytes = allocatedBytes()
+    private val phases = ArrayList<Phase>()
+
+    // Only the first startup is recorded, subsequent reloads do not overwrite it.
+    private var isFinished = false
+    private var isFullyDrawnReported = false
+    private var outputFile: File? = null
+
+    /** Marks the end of the phase with the given [name]. */
+    @JvmStatic
+    fun mark(name: String) {
+        val phase =
+            Phase(
+                name,
+                SystemClock.elapsedRealtimeNanos(),
+                allocatedBytes(),
+                Thread.currentThread().name,
+            )
+        synchronized(this) {
+            if (!isFinished) phases.add(phase)
+        }
+    }
+
+    /** Marks the end of the model load, after which no more phases are recorded. */
+    @JvmStatic
+    fun finish() {
+        mark("modelLoadComplete")
+        val file =
+            synchronized(this) {
+                if (isFinished) return
+                isFinished = true
+                outputFile
+            }
+        file?.let { UI_HELPER_EXECUTOR.execute { writeToFile(it) } }
+    }
+
+    /**
+     * Called when the items of the current workspace page have been bound, before the other pages
+     * which are bound on the next draw. Reports the activity as fully drawn and persists the
+     * timeline recorded so far.
+     */
+    @JvmStatic
+    fun onCurrentPageBound(activity: Activity) {
+        synchronized(this) {
+            if (isFullyDrawnReported) return
+            isFullyDrawnReported = true
+        }
+        mark("currentPageBound")
+        activity.reportFullyDrawn()
+        if (!Utilities.isPropertyEnabled(LogConfig.STARTUP_TIMELINE)) return
+        // The file is written again once the remaining loader phases are finished
+        val file = File(activity.getExternalFilesDir(null) ?: activity.filesDir, FILE_NAME)
+        synchronized(this) { outputFile = file }
+        UI_HELPER_EXECUTOR.execute { writeToFile(file) }
+    }
+
+    /** Returns a copy of the recorded phases. */
+    @JvmStatic
+    @Synchronized
+    fun getPhases(): List<Phase> = ArrayList(phases)
+
+    @VisibleForTesting
+    @Synchronized
+    fun reset() {
+        phases.clear()
+        isFinished = false
+        isFullyDrawnReported = false
+        outputFile = null
+    }
+
+    @VisibleForTesting
+    fun toJson(): JSONArray {
+        val result = JSONArray()
+        var prevNanos = processStartNanos
+        var prevBytes = initialAllocatedBytes
+        for (phase in getPhases()) {
+            result.put(
+                JSONObject()
+                    .put("name", phase.name)
+                    .put("thread", phase.threadName)
+                    .put("elapsedMs", nanosToMillis(phase.elapsedNanos - processStartNanos))
+                    .put("durationMs", nanosToMillis(phase.elapsedNanos - prevNanos))
+                    .put("allocatedBytes", phase.allocatedBytes - prevBytes)
+            )
+            prevNanos = phase.elapsedNanos
+            prevBytes = phase.allocatedBytes
+        }
+        return result
+    }
+
+    @Synchronized
+    private fun writeToFile(file: File) {
+        try {
+            file.writeText(toJson().toString())
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to write startup timeline", e)
+        }
+    }
+
+    fun dump(prefix: String, writer: PrintWriter) {
+        writer.println("${prefix}StartupTimeline:")
+        var prevNanos = processStartNanos
+        for (phase in getPhases()) {
+            writer.println(
+                "$prefix\t${phase.name}: +${nanosToMillis(phase.elapsedNanos - prevNanos)}ms" +
+                    " at ${nanosToMillis(phase.elapsedNanos - processStartNanos)}ms" +
+                    " allocated=${phase.allocatedBytes} thread=${phase.threadName}"
+            )
+            prevNanos = phase.elapsedNanos
+        }
+    }
+
+    private fun nanosToMillis(nanos: Long) = nanos / 1_000_000.0
+
+    private fun allocatedBytes(): Long =
+        Debug.getRuntimeStat("art.gc.bytes-allocated")?.toLongOrNull() ?: -1
+}
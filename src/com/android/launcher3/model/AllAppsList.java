@@ -48,14 +48,20 @@ import com.android.launcher3.pm.PackageInstallInfo;
 import com.android.launcher3.pm.UserCache;
 import com.android.launcher3.util.ApiWrapper;
 import com.android.launcher3.util.ApplicationInfoWrapper;
+import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.FlagOp;
 import com.android.launcher3.util.PackageManagerHelper;
+import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.SafeCloseable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -75,9 +81,17 @@ public class AllAppsList {
 
     public static final int DEFAULT_APPLICATIONS_NUMBER = 42;
 
-    /** The list off all apps. */
+    /**
+     * The list off all apps. This is indexed by {@link #mAppsByComponent} and
+     * {@link #mAppsByPackage}, and must only be modified through this class.
+     */
     public final ArrayList<AppInfo> data = new ArrayList<>(DEFAULT_APPLICATIONS_NUMBER);
 
+    /** Apps in {@link #data} keyed by their component and user */
+    private final HashMap<ComponentKey, AppInfo> mAppsByComponent = new HashMap<>();
+    /** Apps in {@link #data} grouped by their package and user, in the order of {@link #data} */
+    private final HashMap<PackageUserKey, ArrayList<AppInfo>> mAppsByPackage = new HashMap<>();
+
     @NonNull
     private final IconCache mIconCache;
 
@@ -87,6 +101,9 @@ public class AllAppsList {
     @NonNull private final Provider<AppsListRepository> mRepo;
 
     private boolean mDataChanged = false;
+    // Incremented on every change to the apps or their icons, read by other threads to check if a
+    // ModelSnapshot is still current
+    private volatile int mVersion = 0;
     private Consumer<AppInfo> mRemoveListener = NO_OP_CONSUMER;
 
     private AlphabeticIndexCompat mIndex;
@@ -126,6 +143,19 @@ public class AllAppsList {
         return result;
     }
 
+    private void markDataChanged() {
+        mDataChanged = true;
+        mVersion++;
+    }
+
+    /**
+     * Returns a number which changes whenever the apps, their icons or the flags change. Unlike
+     * {@link #getAndResetChangeFlag()}, this can be read from any thread.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
     /**
      * Helper to checking {@link AppsListData#FLAG_HAS_SHORTCUT_PERMISSION}
      */
@@ -142,7 +172,15 @@ public class AllAppsList {
         } else {
             mFlags &= ~flagMask;
         }
-        mDataChanged = true;
+        markDataChanged();
+    }
+
+    /**
+     * Returns the current flags
+     * @see #setFlags(int, boolean)
+     */
+    public int getFlags() {
+        return mFlags;
     }
 
     /** Returns an immutable representation of the current data */
@@ -179,8 +217,7 @@ public class AllAppsList {
             info.sectionName = mIndex.computeSectionName(info.title == null ? "" : info.title);
         }
 
-        data.add(info);
-        mDataChanged = true;
+        addToData(info);
     }
 
     @Nullable
@@ -206,8 +243,7 @@ public class AllAppsList {
             promiseAppInfo.title = "";
         }
 
-        data.add(promiseAppInfo);
-        mDataChanged = true;
+        addToData(promiseAppInfo);
 
         return promiseAppInfo;
     }
@@ -221,9 +257,11 @@ public class AllAppsList {
     public List<AppInfo> updatePromiseInstallInfo(PackageInstallInfo installInfo,
             FlagOp runtimeFlagUpdate) {
         List<AppInfo> updatedAppInfos = new ArrayList<>();
+        List<AppInfo> removedAppInfos = new ArrayList<>();
         UserHandle user = installInfo.user;
-        for (int i = data.size() - 1; i >= 0; i--) {
-            final AppInfo appInfo = data.get(i);
+        List<AppInfo> packageApps = getAppsForPackage(installInfo.packageName, user);
+        for (int i = packageApps.size() - 1; i >= 0; i--) {
+            final AppInfo appInfo = packageApps.get(i);
             final ComponentName tgtComp = appInfo.getTargetComponent();
             if (tgtComp != null && tgtComp.getPackageName().equals(installInfo.packageName)
                     && appInfo.user.equals(user)) {
@@ -255,24 +293,88 @@ public class AllAppsList {
                                 + " package=" + appInfo.getTargetPackage()
                                 + ", user=" + user);
                     }
-                    removeApp(i);
+                    removedAppInfos.add(appInfo);
                 }
             }
         }
+        removeApps(removedAppInfos);
         return updatedAppInfos;
     }
 
-    private void removeApp(int index) {
-        AppInfo removed = data.remove(index);
-        if (removed != null) {
-            mDataChanged = true;
-            mRemoveListener.accept(removed);
+    private void addToData(AppInfo info) {
+        data.add(info);
+        // Promise apps are not de-duplicated, keep the first app as the one found by component
+        mAppsByComponent.putIfAbsent(new ComponentKey(info.componentName, info.user), info);
+        mAppsByPackage.computeIfAbsent(
+                new PackageUserKey(info.componentName.getPackageName(), info.user),
+                k -> new ArrayList<>()).add(info);
+        markDataChanged();
+    }
+
+    /**
+     * Removes the given apps from the list and the indexes, walking {@link #data} only once.
+     */
+    private void removeApps(List<AppInfo> apps) {
+        if (apps.isEmpty()) {
+            return;
+        }
+        Set<AppInfo> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        removed.addAll(apps);
+        data.removeIf(removed::contains);
+        for (AppInfo app : apps) {
+            removeFromIndex(app);
+            markDataChanged();
+            mRemoveListener.accept(app);
+        }
+    }
+
+    private void removeFromIndex(AppInfo app) {
+        PackageUserKey packageKey =
+                new PackageUserKey(app.componentName.getPackageName(), app.user);
+        ArrayList<AppInfo> packageApps = mAppsByPackage.get(packageKey);
+        if (packageApps != null) {
+            for (int i = packageApps.size() - 1; i >= 0; i--) {
+                if (packageApps.get(i) == app) {
+                    packageApps.remove(i);
+                    break;
+                }
+            }
+            if (packageApps.isEmpty()) {
+                mAppsByPackage.remove(packageKey);
+            }
         }
+
+        ComponentKey key = new ComponentKey(app.componentName, app.user);
+        if (mAppsByComponent.get(key) == app) {
+            mAppsByComponent.remove(key);
+            // Promise apps are not de-duplicated, another app may have the same component
+            if (packageApps != null) {
+                for (AppInfo other : packageApps) {
+                    if (app.componentName.equals(other.componentName)) {
+                        mAppsByComponent.put(key, other);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the apps of the given package and user, in the order of {@link #data}.
+     */
+    @NonNull
+    public List<AppInfo> getAppsForPackage(@NonNull String packageName, @NonNull UserHandle user) {
+        ArrayList<AppInfo> packageApps = mAppsByPackage.get(new PackageUserKey(packageName, user));
+        return packageApps == null
+                ? Collections.emptyList() : Collections.unmodifiableList(packageApps);
     }
 
     public void clear() {
         data.clear();
+        mAppsByComponent.clear();
+        mAppsByPackage.clear();
         mDataChanged = false;
+        mVersion++;
         // Reset the index as locales might have changed
         mIndex = new AlphabeticIndexCompat(LocaleList.getDefault());
     }
@@ -296,13 +398,7 @@ public class AllAppsList {
      * Remove the apps for the given apk identified by packageName.
      */
     public void removePackage(String packageName, UserHandle user) {
-        final List<AppInfo> data = this.data;
-        for (int i = data.size() - 1; i >= 0; i--) {
-            AppInfo info = data.get(i);
-            if (info.user.equals(user) && packageName.equals(info.componentName.getPackageName())) {
-                removeApp(i);
-            }
-        }
+        removeApps(new ArrayList<>(getAppsForPackage(packageName, user)));
     }
 
     /**
@@ -314,21 +410,23 @@ public class AllAppsList {
             AppInfo info = data.get(i);
             if (matcher.test(info)) {
                 info.runtimeStatusFlags = op.apply(info.runtimeStatusFlags);
-                mDataChanged = true;
+                markDataChanged();
             }
         }
     }
 
     public void updateIconsAndLabels(HashSet<String> packages, UserHandle user) {
-        for (AppInfo info : data) {
-            if (info.user.equals(user) && packages.contains(info.componentName.getPackageName())) {
+        for (String packageName : packages) {
+            for (AppInfo info : getAppsForPackage(packageName, user)) {
                 CharSequence oldTitle = info.title;
                 String oldSectionName = info.sectionName;
                 mIconCache.updateTitleAndIcon(info);
+                // Icons are not bound through the change flag, but snapshots copy them
+                mVersion++;
                 info.sectionName = mIndex.computeSectionName(info.title == null ? "" : info.title);
                 if (!TextUtils.equals(oldTitle, info.title) 
                         || !TextUtils.equals(oldSectionName, info.sectionName)) {
-                    mDataChanged = true;
+                    markDataChanged();
                 }
             }
         }
@@ -344,23 +442,23 @@ public class AllAppsList {
         final PackageManagerHelper pmHelper = PackageManagerHelper.INSTANCE.get(context);
         final List<LauncherActivityInfo> matches = context.getSystemService(LauncherApps.class)
                 .getActivityList(packageName, user);
+        final List<AppInfo> packageApps = getAppsForPackage(packageName, user);
+        final List<AppInfo> removedApps = new ArrayList<>();
         if (matches.size() > 0) {
             // Find disabled/removed activities and remove them from data and add them
             // to the removed list.
-            for (int i = data.size() - 1; i >= 0; i--) {
-                final AppInfo applicationInfo = data.get(i);
-                if (user.equals(applicationInfo.user)
-                        && packageName.equals(applicationInfo.componentName.getPackageName())) {
-                    if (!findActivity(matches, applicationInfo.componentName)) {
-                        if (DEBUG) {
-                            Log.w(TAG, "Changing shortcut target due to app component name change."
-                                    + " component=" + applicationInfo.componentName
-                                    + ", user=" + user);
-                        }
-                        removeApp(i);
+            for (int i = packageApps.size() - 1; i >= 0; i--) {
+                final AppInfo applicationInfo = packageApps.get(i);
+                if (!findActivity(matches, applicationInfo.componentName)) {
+                    if (DEBUG) {
+                        Log.w(TAG, "Changing shortcut target due to app component name change."
+                                + " component=" + applicationInfo.componentName
+                                + ", user=" + user);
                     }
+                    removedApps.add(applicationInfo);
                 }
             }
+            removeApps(removedApps);
 
             // Find enabled activities and add them to the adapter
             // Also updates existing activities with new labels/icons
@@ -377,7 +475,7 @@ public class AllAppsList {
                     applicationInfo.intent = launchIntent;
                     AppInfo.updateRuntimeFlagsForActivityTarget(applicationInfo, info,
                             userCache.getUserInfo(user), apiWrapper, pmHelper);
-                    mDataChanged = true;
+                    markDataChanged();
                 }
             }
         } else {
@@ -387,14 +485,12 @@ public class AllAppsList {
                         + " removing any AppInfo with package=" + packageName
                         + ", user=" + user);
             }
-            for (int i = data.size() - 1; i >= 0; i--) {
-                final AppInfo applicationInfo = data.get(i);
-                if (user.equals(applicationInfo.user)
-                        && packageName.equals(applicationInfo.componentName.getPackageName())) {
-                    mIconCache.remove(applicationInfo.componentName, user);
-                    removeApp(i);
-                }
+            for (int i = packageApps.size() - 1; i >= 0; i--) {
+                final AppInfo applicationInfo = packageApps.get(i);
+                mIconCache.remove(applicationInfo.componentName, user);
+                removedApps.add(applicationInfo);
             }
+            removeApps(removedApps);
         }
 
         return matches;
@@ -420,12 +516,7 @@ public class AllAppsList {
      */
     public @Nullable AppInfo findAppInfo(@NonNull ComponentName componentName,
                                           @NonNull UserHandle user) {
-        for (AppInfo info: data) {
-            if (componentName.equals(info.componentName) && user.equals(info.user)) {
-                return info;
-            }
-        }
-        return null;
+        return mAppsByComponent.get(new ComponentKey(componentName, user));
     }
 
     public AppInfo[] copyData() {
@@ -52,6 +52,7 @@ import com.android.launcher3.util.PackageUserKey
 import com.android.launcher3.widget.model.WidgetsListBaseEntry
 import java.io.PrintWriter
 import java.util.Collections
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.function.Predicate
 import javax.inject.Inject
 import javax.inject.Provider
@@ -94,6 +95,15 @@ constructor(
 
     private val repo = if (Flags.modelRepository()) homeDataProvider.get() else null
 
+    private val workspaceVersionCounter = AtomicInteger()
+
+    /**
+     * Incremented whenever [itemsIdMap] or any of its items changes. Unlike the map itself, this
+     * can be read from any thread to check if a [ModelSnapshot] is still current.
+     */
+    val workspaceVersion: Int
+        get() = workspaceVersionCounter.get()
+
     /** Id when the model was last bound */
     @JvmField var lastBindId: Int = 0
 
@@ -156,10 +166,20 @@ constructor(
             .distinct()
             .forEach { updateShortcutPinnedState(context, it) }
 
-        updateHomeRepository()
+        onWorkspaceChanged()
+    }
+
+    /**
+     * Called when some items were modified in place (e.g. moved by the UI), before the change is
+     * written to the DB and dispatched through [updateItems].
+     */
+    @AnyThread
+    fun onItemsModifiedInPlace() {
+        workspaceVersionCounter.incrementAndGet()
     }
 
-    private fun updateHomeRepository() {
+    private fun onWorkspaceChanged() {
+        workspaceVersionCounter.incrementAndGet()
         if (Flags.modelRepository() && repo != null) {
             repo.dispatchChange(mutableWorkspaceData.copy())
         }
@@ -179,25 +199,25 @@ constructor(
             .map { it.user }
             .distinct()
             .forEach { updateShortcutPinnedState(context, it) }
-        updateHomeRepository()
+        onWorkspaceChanged()
     }
 
     @Synchronized
     fun updateAndDispatchItem(item: ItemInfo, owner: Any?) {
         mutableWorkspaceData.replaceItem(item, owner)
-        updateHomeRepository()
+        onWorkspaceChanged()
     }
 
     @Synchronized
     fun updateItems(items: List<ItemInfo>, owner: Any?) {
         mutableWorkspaceData.notifyItemsUpdated(items, owner)
-        updateHomeRepository()
+        onWorkspaceChanged()
     }
 
     @Synchronized
     fun dataLoadComplete(allItems: SparseArray<ItemInfo>) {
         mutableWorkspaceData.replaceDataMap(allItems)
-        updateHomeRepository()
+        onWorkspaceChanged()
     }
 
     /**
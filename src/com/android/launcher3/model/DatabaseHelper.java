@@ -33,6 +33,7 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import app.lawnchair.preferences2.PreferenceManager2;
 import com.android.launcher3.AutoInstallsLayout;
@@ -56,7 +57,9 @@ import com.android.launcher3.widget.LauncherWidgetHolder;
 import com.patrykmichalik.opto.core.PreferenceExtensionsKt;
 import java.io.File;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.ToLongFunction;
@@ -78,6 +81,7 @@ public class DatabaseHelper extends NoLocaleSQLiteHelper implements
     private static final boolean LOGD = false;
 
     private static final String DOWNGRADE_SCHEMA_FILE = "downgrade_schema.json";
+    private static final String LAYOUT_PROFILES_TMP_TABLE = "favorites_profiles_tmp";
 
     private final Context mContext;
     private final ToLongFunction<UserHandle> mUserSerialProvider;
@@ -276,6 +280,7 @@ public class DatabaseHelper extends NoLocaleSQLiteHelper implements
             // Fall through
             case 32: {
                 // DB Upgraded successfully
+                migrateLayoutProfiles(db, getDefaultUserSerial());
                 return;
             }
         }
@@ -304,6 +309,8 @@ public class DatabaseHelper extends NoLocaleSQLiteHelper implements
         try (SQLiteTransaction t = new SQLiteTransaction(db)) {
             dropTable(db, Favorites.TABLE_NAME);
             dropTable(db, "workspaceScreens");
+            // The saved layouts would be restored in place of the new one, and keep their widgets
+            dropTable(db, Favorites.LAYOUT_PROFILES_TABLE);
             onCreate(db);
             t.commit();
         }
@@ -329,6 +336,12 @@ public class DatabaseHelper extends NoLocaleSQLiteHelper implements
             final IntSet validWidgets = IntSet.wrap(LauncherDbUtils.queryIntArray(false, db,
                     Favorites.TABLE_NAME, Favorites.APPWIDGET_ID,
                     "itemType=" + Favorites.ITEM_TYPE_APPWIDGET, null, null));
+            if (LauncherDbUtils.tableExists(db, Favorites.LAYOUT_PROFILES_TABLE)) {
+                // Widgets of the saved layout profiles stay bound until the profile is restored
+                validWidgets.addAll(IntSet.wrap(LauncherDbUtils.queryIntArray(false, db,
+                        Favorites.LAYOUT_PROFILES_TABLE, Favorites.APPWIDGET_ID,
+                        "itemType=" + Favorites.ITEM_TYPE_APPWIDGET, null, null)));
+            }
             boolean isAnyWidgetRemoved = false;
             for (int widgetId : allWidgets) {
                 if (!validWidgets.contains(widgetId)) {
@@ -359,6 +372,54 @@ public class DatabaseHelper extends NoLocaleSQLiteHelper implements
         }
     }
 
+    /**
+     * Recreates {@link Favorites#LAYOUT_PROFILES_TABLE} with the columns of the upgraded favorites
+     * table, so that the saved layouts can still be restored. Columns added since a layout was
+     * saved take their default value. The saved layouts are dropped if they can't be migrated.
+     */
+    @VisibleForTesting
+    static void migrateLayoutProfiles(SQLiteDatabase db, long myProfileId) {
+        if (!LauncherDbUtils.tableExists(db, Favorites.LAYOUT_PROFILES_TABLE)) {
+            return;
+        }
+        try (SQLiteTransaction t = new SQLiteTransaction(db)) {
+            dropTable(db, LAYOUT_PROFILES_TMP_TABLE);
+            db.execSQL("ALTER TABLE " + Favorites.LAYOUT_PROFILES_TABLE
+                    + " RENAME TO " + LAYOUT_PROFILES_TMP_TABLE);
+            Favorites.addLayoutProfilesTableToDb(db, myProfileId);
+            List<String> oldColumns = getColumnNames(db, LAYOUT_PROFILES_TMP_TABLE);
+            String columns = getColumnNames(db, Favorites.LAYOUT_PROFILES_TABLE).stream()
+                    .filter(oldColumns::contains)
+                    .collect(Collectors.joining(", "));
+            db.execSQL("INSERT INTO " + Favorites.LAYOUT_PROFILES_TABLE + " (" + columns + ")"
+                    + " SELECT " + columns + " FROM " + LAYOUT_PROFILES_TMP_TABLE);
+            dropTable(db, LAYOUT_PROFILES_TMP_TABLE);
+            t.commit();
+        } catch (SQLException ex) {
+            Log.e(TAG, "Failed to migrate layout profiles", ex);
+            dropTable(db, Favorites.LAYOUT_PROFILES_TABLE);
+            dropTable(db, LAYOUT_PROFILES_TMP_TABLE);
+        }
+    }
+
+    private static List<String> getColumnNames(SQLiteDatabase db, String table) {
+        return getColumnNames(db, "main", table);
+    }
+
+    /**
+     * Returns the names of the columns of the given table, in the database attached as schema
+     */
+    static List<String> getColumnNames(SQLiteDatabase db, String schema, String table) {
+        List<String> columns = new ArrayList<>();
+        try (Cursor c = db.rawQuery("PRAGMA " + schema + ".table_info (" + table + ")", null)) {
+            int nameIndex = c.getColumnIndexOrThrow("name");
+            while (c.moveToNext()) {
+                columns.add(c.getString(nameIndex));
+            }
+        }
+        return columns;
+    }
+
     /**
      * Replaces all shortcuts of type {@link Favorites#ITEM_TYPE_SHORTCUT} which have a valid
      * launcher activity target with {@link Favorites#ITEM_TYPE_APPLICATION}.
@@ -486,6 +547,14 @@ public class DatabaseHelper extends NoLocaleSQLiteHelper implements
         mMaxItemId.accumulateAndGet(id, Math::max);
     }
 
+    /**
+     * Makes sure new ids are greater than the ids of the items in the favorites table, after its
+     * rows were replaced.
+     */
+    public void refreshMaxItemId(SQLiteDatabase db) {
+        mMaxItemId.accumulateAndGet(initializeMaxItemId(db), Math::max);
+    }
+
     private int initializeMaxItemId(SQLiteDatabase db) {
         return getMaxId(db, "SELECT MAX(%1$s) FROM %2$s", Favorites._ID,
                 Favorites.TABLE_NAME);
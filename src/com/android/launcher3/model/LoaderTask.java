@@ -75,6 +75,7 @@ import com.android.launcher3.icons.cache.CachedObjectCachingLogic;
 import com.android.launcher3.icons.cache.IconCacheUpdateHandler;
 import com.android.launcher3.icons.cache.LauncherActivityCachingLogic;
 import com.android.launcher3.logging.FileLog;
+import com.android.launcher3.logging.StartupTimeline;
 import com.android.launcher3.model.LoaderCursor.LoaderCursorFactory;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.FolderInfo;
@@ -373,12 +374,14 @@ public class LoaderTask implements Runnable {
 
         // fifth step
         loadFolderNames();
+        logASplit("loadFolderNames finished");
 
         verifyNotStopped();
         updateHandler.finish();
         logASplit("finish icon update");
 
         mModelDelegate.modelLoadComplete();
+        StartupTimeline.finish();
     }
 
     public void run() {
@@ -834,6 +837,7 @@ public class LoaderTask implements Runnable {
     }
 
     private static void logASplit(String label) {
+        StartupTimeline.mark(label);
         if (DEBUG) {
             Log.d(TAG, label);
         }
@@ -29,6 +29,7 @@ import static com.android.launcher3.provider.LauncherDbUtils.tableExists;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
@@ -48,6 +49,7 @@ import com.android.launcher3.EncryptionType;
 import com.android.launcher3.InvariantDeviceProfile;
 import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.LauncherFiles;
+import com.android.launcher3.LauncherModel;
 import com.android.launcher3.LauncherPrefs;
 import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.LauncherSettings.Favorites;
@@ -66,6 +68,7 @@ import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.SandboxContext;
 import com.android.launcher3.widget.LauncherWidgetHolder;
 
+import java.io.File;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -293,6 +296,98 @@ public class ModelDbController {
                 mOpenHelper.getReadableDatabase(), Favorites.HYBRID_HOTSEAT_BACKUP_TABLE);
     }
 
+    /**
+     * Saves all the items of the current layout under the given profile, replacing the layout
+     * previously saved under it. Profiles are stored in the same database as the layout, so they
+     * belong to the current grid.
+     */
+    @WorkerThread
+    public void saveLayoutProfile(String profile) {
+        createDbIfNotExists();
+        SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        long userSerial = getSerialNumberForUser(Process.myUserHandle());
+        String columns = Favorites.getColumns(userSerial);
+        try (SQLiteTransaction t = new SQLiteTransaction(db)) {
+            Favorites.addLayoutProfilesTableToDb(db, userSerial);
+            db.delete(Favorites.LAYOUT_PROFILES_TABLE, Favorites.LAYOUT_PROFILE + " = ?",
+                    new String[] {profile});
+            db.execSQL("INSERT INTO " + Favorites.LAYOUT_PROFILES_TABLE
+                    + " (" + Favorites.LAYOUT_PROFILE + ", " + columns + ")"
+                    + " SELECT ?, " + columns + " FROM " + TABLE_NAME, new Object[] {profile});
+            t.commit();
+        }
+    }
+
+    /**
+     * Saves the layout of another launcher database file under the given profile, replacing the
+     * layout previously saved under it. Columns missing from the other file, which may have been
+     * written by an older version, take their default value.
+     */
+    @WorkerThread
+    public void importLayoutProfile(File dbFile, String profile) {
+        createDbIfNotExists();
+        SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        long userSerial = getSerialNumberForUser(Process.myUserHandle());
+        db.execSQL("ATTACH DATABASE ? AS profile_db", new Object[] {dbFile.getPath()});
+        try (SQLiteTransaction t = new SQLiteTransaction(db)) {
+            Favorites.addLayoutProfilesTableToDb(db, userSerial);
+            List<String> importedColumns =
+                    DatabaseHelper.getColumnNames(db, "profile_db", TABLE_NAME);
+            String columns = DatabaseHelper.getColumnNames(
+                            db, "main", Favorites.LAYOUT_PROFILES_TABLE).stream()
+                    .filter(importedColumns::contains)
+                    .collect(Collectors.joining(", "));
+            if (!importedColumns.contains(Favorites._ID)) {
+                throw new SQLException("No layout to import in " + dbFile);
+            }
+            db.delete(Favorites.LAYOUT_PROFILES_TABLE, Favorites.LAYOUT_PROFILE + " = ?",
+                    new String[] {profile});
+            db.execSQL("INSERT INTO " + Favorites.LAYOUT_PROFILES_TABLE
+                    + " (" + Favorites.LAYOUT_PROFILE + ", " + columns + ")"
+                    + " SELECT ?, " + columns + " FROM profile_db." + TABLE_NAME,
+                    new Object[] {profile});
+            t.commit();
+        } finally {
+            db.execSQL("DETACH DATABASE profile_db");
+        }
+    }
+
+    /**
+     * Replaces all the items of the current layout with the ones saved under the given profile.
+     * The model needs to be reloaded afterwards, see {@link LauncherModel#forceReload()}.
+     *
+     * @return false if no item was saved under the profile, in which case nothing changes
+     */
+    @WorkerThread
+    public boolean restoreLayoutProfile(String profile) {
+        if (!hasLayoutProfile(profile)) {
+            return false;
+        }
+        SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        String columns = Favorites.getColumns(getSerialNumberForUser(Process.myUserHandle()));
+        try (SQLiteTransaction t = new SQLiteTransaction(db)) {
+            db.delete(TABLE_NAME, null, null);
+            db.execSQL("INSERT INTO " + TABLE_NAME + " (" + columns + ")"
+                    + " SELECT " + columns + " FROM " + Favorites.LAYOUT_PROFILES_TABLE
+                    + " WHERE " + Favorites.LAYOUT_PROFILE + " = ?", new Object[] {profile});
+            t.commit();
+        }
+        mOpenHelper.refreshMaxItemId(db);
+        return true;
+    }
+
+    /**
+     * Returns true if any item was saved under the given profile
+     */
+    @WorkerThread
+    public boolean hasLayoutProfile(String profile) {
+        createDbIfNotExists();
+        SQLiteDatabase db = mOpenHelper.getReadableDatabase();
+        return tableExists(db, Favorites.LAYOUT_PROFILES_TABLE)
+                && DatabaseUtils.queryNumEntries(db, Favorites.LAYOUT_PROFILES_TABLE,
+                        Favorites.LAYOUT_PROFILE + " = ?", new String[] {profile}) > 0;
+    }
+
     /**
      * Resets the launcher DB if we should reset it.
      */
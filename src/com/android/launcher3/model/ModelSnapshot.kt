@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.model
+
+import android.util.SparseArray
+import androidx.annotation.WorkerThread
+import com.android.launcher3.model.data.AppInfo
+import com.android.launcher3.model.data.AppPairInfo
+import com.android.launcher3.model.data.AppsListData
+import com.android.launcher3.model.data.FolderInfo
+import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.model.data.LauncherAppWidgetInfo
+import com.android.launcher3.model.data.PredictedContainerInfo
+import com.android.launcher3.model.data.WorkspaceData
+import com.android.launcher3.model.data.WorkspaceData.ImmutableWorkspaceData
+import com.android.launcher3.model.data.WorkspaceItemInfo
+import com.android.launcher3.util.ComponentKey
+import java.util.Collections
+
+/**
+ * An immutable view of the model, handed to [LauncherModel.ModelReadTask]s which run concurrently
+ * with the updates on the model thread.
+ *
+ * All the items are copies owned by the snapshot, made once per version of the model data they
+ * come from, so reading (or even modifying) them never races with the model, which updates its own
+ * items in place.
+ */
+class ModelSnapshot
+private constructor(
+    /** All apps, in the order of [AllAppsList.data] */
+    @JvmField val apps: List<AppInfo>,
+    /** Model flags, see [AppsListData.flags] */
+    @JvmField val appsFlags: Int,
+    /** Copy of all the workspace items, without any change history to diff against */
+    @JvmField val workspace: WorkspaceData,
+    /** All widgets and shortcuts, keyed by their component */
+    @JvmField val widgets: Map<ComponentKey, WidgetItem>,
+    private val appsVersion: Int,
+    private val workspaceVersion: Int,
+    private val widgetsVersion: Int,
+) {
+
+    /** Returns true if none of the data in this snapshot has changed in the model since. */
+    fun isCurrent(appsList: AllAppsList, dataModel: BgDataModel) =
+        appsVersion == appsList.version &&
+            workspaceVersion == dataModel.workspaceVersion &&
+            widgetsVersion == dataModel.widgetsModel.version
+
+    companion object {
+
+        /**
+         * Creates a snapshot of the model, copying only the parts which changed since [previous].
+         * Must be called on the model thread, so that nothing changes while it is being copied.
+         */
+        @JvmStatic
+        @WorkerThread
+        fun create(
+            previous: ModelSnapshot?,
+            appsList: AllAppsList,
+            dataModel: BgDataModel,
+        ): ModelSnapshot {
+            // Versions are read before copying, a change racing with the copy only makes the
+            // snapshot look stale and be copied again.
+            val appsVersion = appsList.version
+            val workspaceVersion = dataModel.workspaceVersion
+            val widgetsVersion = dataModel.widgetsModel.version
+
+            val apps: List<AppInfo>
+            val appsFlags: Int
+            if (previous != null && previous.appsVersion == appsVersion) {
+                apps = previous.apps
+                appsFlags = previous.appsFlags
+            } else {
+                apps = Collections.unmodifiableList(appsList.data.map { AppInfo(it) })
+                appsFlags = appsList.flags
+            }
+
+            val workspace =
+                if (previous != null && previous.workspaceVersion == workspaceVersion)
+                    previous.workspace
+                else synchronized(dataModel) { copyWorkspace(dataModel.itemsIdMap) }
+
+            val widgets =
+                if (previous != null && previous.widgetsVersion == widgetsVersion)
+                    previous.widgets
+                else
+                    Collections.unmodifiableMap(
+                        dataModel.widgetsModel.widgetsByComponentKey.mapValues {
+                            WidgetItem(it.value)
+                        }
+                    )
+
+            return ModelSnapshot(
+                apps,
+                appsFlags,
+                workspace,
+                widgets,
+                appsVersion,
+                workspaceVersion,
+                widgetsVersion,
+            )
+        }
+
+        private fun copyWorkspace(source: WorkspaceData): WorkspaceData {
+            val copies = SparseArray<ItemInfo>()
+            // Collections are copied after their contents so that they can point to the copies,
+            // folders last since they can hold app pairs
+            val (folders, others) = source.partition { it is FolderInfo }
+            val (appPairs, items) = others.partition { it is AppPairInfo }
+            (items + appPairs + folders).forEach { copies.put(it.id, copyItem(it, copies)) }
+            return ImmutableWorkspaceData(
+                source.version,
+                source.modificationId,
+                emptyList(),
+                copies,
+            )
+        }
+
+        private fun copyItem(item: ItemInfo, copies: SparseArray<ItemInfo>): ItemInfo =
+            when (item) {
+                is WorkspaceItemInfo -> WorkspaceItemInfo(item)
+                is LauncherAppWidgetInfo -> LauncherAppWidgetInfo(item)
+                is AppPairInfo ->
+                    AppPairInfo(
+                            item.getAppContents().map {
+                                copies[it.id] as? WorkspaceItemInfo ?: WorkspaceItemInfo(it)
+                            }
+                        )
+                        .also { it.copyFrom(item) }
+                is FolderInfo ->
+                    FolderInfo().also { folder ->
+                        folder.copyFrom(item)
+                        folder.options = item.options
+                        folder.suggestedFolderNames = item.suggestedFolderNames
+                        folder.contents.replaceAll { copies[it.id] ?: copyItem(it, copies) }
+                    }
+                is PredictedContainerInfo ->
+                    PredictedContainerInfo(item.id, item.getContents().map { copyItem(it, copies) })
+                else -> item.makeShallowCopy()
+            }
+    }
+}
@@ -17,10 +17,12 @@
 package com.android.launcher3.model;
 
 import static com.android.launcher3.LauncherSettings.Favorites.TABLE_NAME;
+import static com.android.launcher3.model.PendingItemUpdates.WRITE_ALL;
+import static com.android.launcher3.model.PendingItemUpdates.WRITE_POSITION;
+import static com.android.launcher3.model.PendingItemUpdates.WRITE_SPAN;
 import static com.android.launcher3.provider.LauncherDbUtils.itemIdMatch;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.text.TextUtils;
 import android.util.Log;
@@ -40,6 +42,7 @@ import com.android.launcher3.model.BgDataModel.Callbacks;
 import com.android.launcher3.model.data.CollectionInfo;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.LauncherAppWidgetInfo;
+import com.android.launcher3.model.PendingItemUpdates.Entry;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
 import com.android.launcher3.util.ContentWriter;
@@ -55,7 +58,6 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.function.Predicate;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -66,6 +68,11 @@ public class ModelWriter {
 
     private static final String TAG = "ModelWriter";
 
+    // Capturing the caller stack for every update is expensive, only do it on debug builds where
+    // it is reported along with model inconsistencies.
+    private static final boolean CAPTURE_STACK_TRACES =
+            Utilities.IS_DEBUG_DEVICE || FeatureFlags.IS_STUDIO_BUILD;
+
     private final Context mContext;
     private final LauncherModel mModel;
     private final BgDataModel mBgDataModel;
@@ -82,6 +89,11 @@ public class ModelWriter {
     private boolean mPreparingToUndo;
     private final CellPosMapper mCellPosMapper;
 
+    // Item updates are journaled and written to the database in batches, see enqueueUpdates.
+    private final Object mJournalLock = new Object();
+    @Nullable
+    private UpdateJournalTask mPendingUpdates;
+
     public ModelWriter(Context context, LauncherModel model, BgDataModel dataModel,
             boolean verifyChanges, CellPosMapper cellPosMapper, @Nullable Callbacks owner) {
         mContext = context;
@@ -183,13 +195,7 @@ public class ModelWriter {
             int container, int screenId, int cellX, int cellY) {
         updateItemInfoProps(item, container, screenId, cellX, cellY);
         notifyItemModified(item);
-
-        enqueueDeleteRunnable(new UpdateItemRunnable(item, () -> new ContentWriter(mContext)
-                .put(Favorites.CONTAINER, item.container)
-                .put(Favorites.CELLX, item.cellX)
-                .put(Favorites.CELLY, item.cellY)
-                .put(Favorites.RANK, item.rank)
-                .put(Favorites.SCREEN, item.screenId)));
+        enqueueUpdates(Collections.singletonList(item), WRITE_POSITION, true /* canUndo */);
     }
 
     /**
@@ -198,24 +204,14 @@ public class ModelWriter {
      * cellX, cellY have already been updated on the ItemInfos.
      */
     public void moveItemsInDatabase(final ArrayList<ItemInfo> items, int container, int screen) {
-        ArrayList<ContentValues> contentValues = new ArrayList<>();
         int count = items.size();
         notifyOtherCallbacks(c -> c.bindItemsUpdated(new HashSet<>(items)));
 
         for (int i = 0; i < count; i++) {
             ItemInfo item = items.get(i);
             updateItemInfoProps(item, container, screen, item.cellX, item.cellY);
-
-            final ContentValues values = new ContentValues();
-            values.put(Favorites.CONTAINER, item.container);
-            values.put(Favorites.CELLX, item.cellX);
-            values.put(Favorites.CELLY, item.cellY);
-            values.put(Favorites.RANK, item.rank);
-            values.put(Favorites.SCREEN, item.screenId);
-
-            contentValues.add(values);
         }
-        enqueueDeleteRunnable(new UpdateItemsRunnable(items, contentValues));
+        enqueueUpdates(new ArrayList<>(items), WRITE_POSITION, true /* canUndo */);
     }
 
     /**
@@ -228,15 +224,8 @@ public class ModelWriter {
         item.spanX = spanX;
         item.spanY = spanY;
         notifyItemModified(item);
-        new UpdateItemRunnable(item, () -> new ContentWriter(mContext)
-                .put(Favorites.CONTAINER, item.container)
-                .put(Favorites.CELLX, item.cellX)
-                .put(Favorites.CELLY, item.cellY)
-                .put(Favorites.RANK, item.rank)
-                .put(Favorites.SPANX, item.spanX)
-                .put(Favorites.SPANY, item.spanY)
-                .put(Favorites.SCREEN, item.screenId))
-                .executeOnModelThread();
+        enqueueUpdates(Collections.singletonList(item), WRITE_POSITION | WRITE_SPAN,
+                false /* canUndo */);
     }
 
     /**
@@ -244,11 +233,7 @@ public class ModelWriter {
      */
     public void updateItemInDatabase(ItemInfo item) {
         notifyItemModified(item);
-        new UpdateItemRunnable(item, () -> {
-            ContentWriter writer = new ContentWriter(mContext);
-            item.onAddToDatabase(writer);
-            return writer;
-        }).executeOnModelThread();
+        enqueueUpdates(Collections.singletonList(item), WRITE_ALL, false /* canUndo */);
     }
 
     public void notifyItemModified(ItemInfo item) {
@@ -272,18 +257,49 @@ public class ModelWriter {
     public void addItemsToDatabase(final List<ItemInfo> items) {
         items.forEach(info -> info.id = mModel.getModelDbController().generateNewItemId());
         notifyOtherCallbacks(c -> c.bindItemsAdded(items));
+        insertItems(items);
+    }
+
+    /**
+     * Add provided items, along with the contents of the collections among them, to the database.
+     * Assigns an ID to each item and moves the contents into their collection.
+     */
+    public void addItemsWithContentsToDatabase(final List<ItemInfo> items) {
+        List<ItemInfo> allItems = new ArrayList<>(items);
+        for (ItemInfo info : items) {
+            info.id = mModel.getModelDbController().generateNewItemId();
+            if (info instanceof CollectionInfo) {
+                for (ItemInfo content : ((CollectionInfo) info).getContents()) {
+                    content.container = info.id;
+                    content.screenId = 0;
+                    content.id = mModel.getModelDbController().generateNewItemId();
+                    allItems.add(content);
+                }
+            }
+        }
+        notifyOtherCallbacks(c -> c.bindItemsAdded(items));
+        insertItems(allItems);
+    }
 
+    /**
+     * Writes items which already have an ID, in a single transaction.
+     */
+    private void insertItems(final List<ItemInfo> items) {
         ModelVerifier verifier = new ModelVerifier();
-        final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        final StackTraceElement[] stackTrace = captureStackTrace();
         newModelTask(() -> {
             // Write the item on background thread, as some properties might have been
             // updated in
             // the background.
-            for (ItemInfo item: items) {
-                final ContentWriter writer = new ContentWriter(mContext);
-                item.onAddToDatabase(writer);
-                writer.put(Favorites._ID, item.id);
-                mModel.getModelDbController().insert(writer.getValues(mContext));
+            ModelDbController dbController = mModel.getModelDbController();
+            try (SQLiteTransaction t = dbController.newTransaction()) {
+                for (ItemInfo item : items) {
+                    final ContentWriter writer = new ContentWriter(mContext);
+                    item.onAddToDatabase(writer);
+                    writer.put(Favorites._ID, item.id);
+                    dbController.insert(writer.getValues(mContext));
+                }
+                t.commit();
             }
 
             synchronized (mBgDataModel) {
@@ -440,80 +456,113 @@ public class ModelWriter {
         });
     }
 
-    private class UpdateItemRunnable extends UpdateItemBaseRunnable {
-        private final ItemInfo mItem;
-        private final Supplier<ContentWriter> mWriter;
-        private final int mItemId;
+    /**
+     * Adds updates of the given items to the journal. Updates of the same item are coalesced and
+     * written along with all the other pending updates in a single transaction.
+     *
+     * The journal is flushed by a single task on the model thread, queued when the first update
+     * of a batch is added. Any other task of this writer closes the batch before being queued, so
+     * updates are written in the same order relative to adds and deletes as they were made.
+     *
+     * @param canUndo whether the update should be deferred while a delete can be undone
+     */
+    private void enqueueUpdates(List<ItemInfo> items, int fields, boolean canUndo) {
+        // The items were already modified in place, don't let read tasks use a stale snapshot
+        // until the journal is written
+        mBgDataModel.onItemsModifiedInPlace();
+        final StackTraceElement[] stackTrace = captureStackTrace();
+        if (canUndo && mPreparingToUndo) {
+            mDeleteRunnables.add(newModelTask(() -> addToJournal(items, fields, stackTrace)));
+        } else {
+            addToJournal(items, fields, stackTrace);
+        }
+    }
 
-        UpdateItemRunnable(ItemInfo item, Supplier<ContentWriter> writer) {
-            mItem = item;
-            mWriter = writer;
-            mItemId = item.id;
+    private void addToJournal(List<ItemInfo> items, int fields,
+            @Nullable StackTraceElement[] stackTrace) {
+        UpdateJournalTask task;
+        boolean isNewBatch = false;
+        synchronized (mJournalLock) {
+            task = mPendingUpdates;
+            if (task == null || task.mLoadId != mBgDataModel.lastLoadId) {
+                task = mPendingUpdates = new UpdateJournalTask();
+                isNewBatch = true;
+            }
+            for (ItemInfo item : items) {
+                task.mUpdates.add(item, fields, stackTrace);
+            }
         }
+        if (isNewBatch) {
+            MODEL_EXECUTOR.execute(task);
+        }
+    }
 
-        @Override
-        public void runImpl() {
-            mModel.getModelDbController().update(
-                    mWriter.get().getValues(mContext), itemIdMatch(mItemId), null);
-            updateItemArrays(mItem, mItemId);
-            mBgDataModel.updateItems(Collections.singletonList(mItem), mOwner);
+    /**
+     * Closes the current batch of updates, so that any subsequent update is written after the
+     * tasks queued from now on.
+     */
+    private void closePendingUpdates() {
+        synchronized (mJournalLock) {
+            mPendingUpdates = null;
         }
     }
 
-    private class UpdateItemsRunnable extends UpdateItemBaseRunnable {
-        private final ArrayList<ContentValues> mValues;
-        private final ArrayList<ItemInfo> mItems;
+    @Nullable
+    private static StackTraceElement[] captureStackTrace() {
+        return CAPTURE_STACK_TRACES ? new Throwable().getStackTrace() : null;
+    }
+
+    private class UpdateJournalTask implements Runnable {
 
-        UpdateItemsRunnable(ArrayList<ItemInfo> items, ArrayList<ContentValues> values) {
-            mValues = values;
-            mItems = items;
-        }
+        private final int mLoadId = mBgDataModel.lastLoadId;
+        private final ModelVerifier mVerifier = new ModelVerifier();
+        private final PendingItemUpdates mUpdates = new PendingItemUpdates();
 
         @Override
-        public void runImpl() {
-            try (SQLiteTransaction t = mModel.getModelDbController().newTransaction()) {
-                int count = mItems.size();
-                for (int i = 0; i < count; i++) {
-                    ItemInfo item = mItems.get(i);
-                    final int itemId = item.id;
-                    mModel.getModelDbController().update(
-                            mValues.get(i), itemIdMatch(itemId), null);
-                    updateItemArrays(item, itemId);
+        public void run() {
+            synchronized (mJournalLock) {
+                if (mPendingUpdates == this) {
+                    mPendingUpdates = null;
                 }
-                t.commit();
-                mBgDataModel.updateItems(mItems, mOwner);
-            } catch (Exception e) {
-                e.printStackTrace();
             }
-        }
-    }
-
-    private abstract class UpdateItemBaseRunnable extends ModelTask {
-        private final StackTraceElement[] mStackTrace;
-        private final ModelVerifier mVerifier = new ModelVerifier();
+            if (mLoadId != mModel.getLastLoadId()) {
+                Log.d(TAG, "Model changed before the updates could be written");
+                return;
+            }
 
-        UpdateItemBaseRunnable() {
-            mStackTrace = new Throwable().getStackTrace();
-        }
+            Collection<Entry> entries;
+            try {
+                entries = mUpdates.write(mContext, mModel.getModelDbController());
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to write " + mUpdates.size() + " item updates", e);
+                return;
+            }
 
-        protected void updateItemArrays(ItemInfo item, int itemId) {
+            List<ItemInfo> items = new ArrayList<>(entries.size());
             // Lock on mBgLock *after* the db operation
             synchronized (mBgDataModel) {
-                checkItemInfoLocked(itemId, item, mStackTrace);
-
-                if (item.container != Favorites.CONTAINER_DESKTOP &&
-                        item.container != Favorites.CONTAINER_HOTSEAT) {
-                    // Item is in a collection, make sure this collection exists
-                    if (!(mBgDataModel.itemsIdMap.get(item.container) instanceof CollectionInfo)) {
-                        // An items container is being set to a that of an item which is not in
-                        // the list of collections.
-                        String msg = "item: " + item + " container being set to: " +
-                                item.container + ", not in the list of collections";
-                        Log.e(TAG, msg);
-                    }
+                for (Entry entry : entries) {
+                    checkItemInfoLocked(entry.itemId, entry.item, entry.stackTrace);
+                    checkContainerLocked(entry.item);
+                    items.add(entry.item);
                 }
                 mVerifier.verifyModel();
             }
+            mBgDataModel.updateItems(items, mOwner);
+        }
+    }
+
+    private void checkContainerLocked(ItemInfo item) {
+        if (item.container != Favorites.CONTAINER_DESKTOP &&
+                item.container != Favorites.CONTAINER_HOTSEAT) {
+            // Item is in a collection, make sure this collection exists
+            if (!(mBgDataModel.itemsIdMap.get(item.container) instanceof CollectionInfo)) {
+                // An items container is being set to a that of an item which is not in
+                // the list of collections.
+                String msg = "item: " + item + " container being set to: " +
+                        item.container + ", not in the list of collections";
+                Log.e(TAG, msg);
+            }
         }
     }
 
@@ -531,6 +580,7 @@ public class ModelWriter {
         }
 
         public final void executeOnModelThread() {
+            closePendingUpdates();
             MODEL_EXECUTOR.execute(this);
         }
 
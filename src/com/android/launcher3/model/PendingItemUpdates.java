@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.model;
+
+import static com.android.launcher3.provider.LauncherDbUtils.itemIdMatch;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
+import com.android.launcher3.util.ContentWriter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+/**
+ * A batch of item updates waiting to be written to the database.
+ *
+ * Updates are coalesced per item id: the columns requested by each update are merged and their
+ * values are read from the item when the batch is written, so the last writer wins. The whole
+ * batch is written in a single transaction.
+ *
+ * This class is not thread safe, callers must not add updates while the batch is being written.
+ */
+public class PendingItemUpdates {
+
+    /** Writes the container, screen, cell position and rank of the item */
+    public static final int WRITE_POSITION = 1;
+    /** Writes the span of the item */
+    public static final int WRITE_SPAN = 1 << 1;
+    /** Writes all the properties of the item, see {@link ItemInfo#onAddToDatabase} */
+    public static final int WRITE_ALL = 1 << 2;
+
+    /**
+     * A pending update for a single item.
+     */
+    public static class Entry {
+        public final int itemId;
+        public final ItemInfo item;
+        @Nullable
+        public final StackTraceElement[] stackTrace;
+        private int mFields;
+
+        Entry(int itemId, ItemInfo item, int fields, @Nullable StackTraceElement[] stackTrace) {
+            this.itemId = itemId;
+            this.item = item;
+            this.stackTrace = stackTrace;
+            mFields = fields;
+        }
+
+        ContentValues getValues(Context context) {
+            ContentWriter writer = new ContentWriter(context);
+            if ((mFields & WRITE_ALL) != 0) {
+                item.onAddToDatabase(writer);
+                return writer.getValues(context);
+            }
+            writer.put(Favorites.CONTAINER, item.container)
+                    .put(Favorites.CELLX, item.cellX)
+                    .put(Favorites.CELLY, item.cellY)
+                    .put(Favorites.RANK, item.rank)
+                    .put(Favorites.SCREEN, item.screenId);
+            if ((mFields & WRITE_SPAN) != 0) {
+                writer.put(Favorites.SPANX, item.spanX)
+                        .put(Favorites.SPANY, item.spanY);
+            }
+            return writer.getValues(context);
+        }
+    }
+
+    private final LinkedHashMap<Integer, Entry> mEntries = new LinkedHashMap<>();
+
+    /**
+     * Adds an update of the given columns of the item, merging it with any pending update of the
+     * same item.
+     *
+     * @param fields a combination of {@link #WRITE_POSITION}, {@link #WRITE_SPAN} and
+     *               {@link #WRITE_ALL}
+     * @param stackTrace the stack of the caller, reported if the update turns out to be
+     *                   inconsistent with the model
+     */
+    public void add(ItemInfo item, int fields, @Nullable StackTraceElement[] stackTrace) {
+        Entry previous = mEntries.remove(item.id);
+        if (previous != null) {
+            fields |= previous.mFields;
+        }
+        mEntries.put(item.id, new Entry(item.id, item, fields, stackTrace));
+    }
+
+    public boolean isEmpty() {
+        return mEntries.isEmpty();
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    @VisibleForTesting
+    Collection<Entry> getEntriesForTest() {
+        return mEntries.values();
+    }
+
+    /**
+     * Writes all the pending updates in a single transaction. If writing fails, none of the
+     * updates are applied.
+     *
+     * @return the updates which were written, in the order they were last added
+     */
+    @WorkerThread
+    public Collection<Entry> write(Context context, ModelDbController controller) {
+        try (SQLiteTransaction t = controller.newTransaction()) {
+            for (Entry entry : mEntries.values()) {
+                controller.update(entry.getValues(context), itemIdMatch(entry.itemId), null);
+            }
+            t.commit();
+        }
+        return new ArrayList<>(mEntries.values());
+    }
+}
@@ -51,6 +51,17 @@ public class WidgetItem extends ComponentKey {
         spanX = spanY = 1;
     }
 
+    public WidgetItem(WidgetItem item) {
+        super(item.componentName, item.user);
+        widgetInfo = item.widgetInfo;
+        activityInfo = item.activityInfo;
+        bitmap = item.bitmap;
+        label = item.label;
+        description = item.description;
+        spanX = item.spanX;
+        spanY = item.spanY;
+    }
+
     /**
      * Returns {@code true} if this {@link WidgetItem} has the same type as the given
      * {@code otherItem}.
@@ -74,6 +74,7 @@ public class WidgetsModel {
     /* Map of widgets and shortcuts that are tracked per package. */
     private final Map<PackageItemInfo, List<WidgetItem>> mWidgetsByPackageItem = new HashMap<>();
     @Nullable private WidgetValidityCheckForPicker mWidgetValidityCheckForPicker = null;
+    private volatile int mVersion = 0;
 
     private static Context mContext = null;
     private final InvariantDeviceProfile mIdp;
@@ -98,6 +99,14 @@ public class WidgetsModel {
                 LauncherAppState.getInstance(context).getIconCache(), new AppFilter(context));
     }
 
+    /**
+     * Returns a number which changes whenever the widgets or their icons change. This can be read
+     * from any thread.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
     /**
      * Returns all widgets keyed by their component key.
      */
@@ -231,6 +240,7 @@ public class WidgetsModel {
         for (PackageItemInfo p : packageItemInfoCache.values()) {
             mIconCache.getTitleAndIconForApp(p, DEFAULT_LOOKUP_FLAG.withUseLowRes());
         }
+        mVersion++;
     }
 
     public void onPackageIconsUpdated(Set<String> packageNames, UserHandle user) {
@@ -250,6 +260,7 @@ public class WidgetsModel {
                             items.set(i, new WidgetItem(
                                     item.widgetInfo, mIdp, mIconCache, mContext));
                         }
+                        mVersion++;
                     }
                 }
             }
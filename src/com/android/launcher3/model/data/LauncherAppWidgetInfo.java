@@ -178,6 +178,19 @@ public class LauncherAppWidgetInfo extends ItemInfo {
         itemType = LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET;
     }
 
+    public LauncherAppWidgetInfo(LauncherAppWidgetInfo info) {
+        super(info);
+        appWidgetId = info.appWidgetId;
+        providerName = info.providerName;
+        restoreStatus = info.restoreStatus;
+        installProgress = info.installProgress;
+        bindOptions = info.bindOptions == null ? null : new Intent(info.bindOptions);
+        options = info.options;
+        pendingItemInfo = info.pendingItemInfo;
+        widgetFeatures = info.widgetFeatures;
+        sourceContainer = info.sourceContainer;
+    }
+
     public boolean isCustomWidget() {
         return appWidgetId <= CUSTOM_WIDGET_ID;
     }
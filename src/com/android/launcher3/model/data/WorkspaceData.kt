@@ -19,8 +19,6 @@ package com.android.launcher3.model.data
 import android.content.Context
 import android.util.SparseArray
 import androidx.annotation.VisibleForTesting
-import androidx.core.util.putAll
-import androidx.core.util.valueIterator
 import app.lawnchair.preferences2.PreferenceManager2
 import com.android.launcher3.BuildConfig
 import com.android.launcher3.BuildConfigs
@@ -32,6 +30,7 @@ import com.android.launcher3.model.data.WorkspaceChangeEvent.UpdateEvent
 import com.android.launcher3.util.IntArray
 import com.android.launcher3.util.IntSet
 import com.android.launcher3.util.ItemInfoMatcher
+import com.android.launcher3.util.PersistentIntMap
 import com.patrykmichalik.opto.core.firstBlocking
 import java.util.concurrent.atomic.AtomicInteger
 import java.util.stream.Stream
@@ -104,25 +103,27 @@ sealed class WorkspaceData : Iterable<ItemInfo> {
             other.modificationId == modificationId
     }
 
-    /** A mutable implementation of [WorkspaceData] */
+    /**
+     * A mutable implementation of [WorkspaceData]. Items are kept in a [PersistentIntMap] so that
+     * [copy] can share them with the snapshot instead of cloning them.
+     */
     class MutableWorkspaceData : WorkspaceData() {
 
-        private val itemsIdMap = SparseArray<ItemInfo>()
+        private var itemsIdMap = PersistentIntMap.empty<ItemInfo>()
 
         override var version: Int = VERSION_COUNTER.incrementAndGet()
 
         override var modificationId: Int = 0
 
-        override val changeHistory = mutableListOf<WorkspaceChangeEvent>()
+        override val changeHistory = ChangeHistory()
 
-        override fun iterator() = itemsIdMap.valueIterator()
+        override fun iterator() = itemsIdMap.iterator()
 
-        override fun get(id: Int): ItemInfo? = itemsIdMap.get(id)
+        override fun get(id: Int): ItemInfo? = itemsIdMap[id]
 
         /** Replaces the existing dataset with [items] */
         fun replaceDataMap(items: SparseArray<ItemInfo>) {
-            itemsIdMap.clear()
-            itemsIdMap.putAll(items)
+            itemsIdMap = PersistentIntMap.of(items)
             version = VERSION_COUNTER.incrementAndGet()
             modificationId = 0
             changeHistory.clear()
@@ -130,19 +131,19 @@ sealed class WorkspaceData : Iterable<ItemInfo> {
 
         /** Adds the [item] to the dataset */
         fun addItems(items: List<ItemInfo>, owner: Any?) {
-            items.forEach { itemsIdMap[it.id] = it }
+            items.forEach { itemsIdMap = itemsIdMap.put(it.id, it) }
             pushUpdate(AddEvent(items, owner))
         }
 
         /** Removes existing [items] from the dataset */
         fun removeItems(items: Collection<ItemInfo>, owner: Any?) {
-            items.forEach { itemsIdMap.remove(it.id) }
+            items.forEach { itemsIdMap = itemsIdMap.remove(it.id) }
             pushUpdate(RemoveEvent(ItemInfoMatcher.ofItems(items), owner))
         }
 
         /** Replaces an existing [item] from the dataset */
         fun replaceItem(item: ItemInfo, owner: Any?) {
-            itemsIdMap[item.id] = item
+            itemsIdMap = itemsIdMap.put(item.id, item)
             notifyItemsUpdated(listOf(item), owner)
         }
 
@@ -157,8 +158,7 @@ sealed class WorkspaceData : Iterable<ItemInfo> {
 
         private fun pushUpdate(update: WorkspaceChangeEvent) {
             modificationId++
-            changeHistory.add(0, update)
-            if (changeHistory.size > MAX_HISTORY_SIZE) changeHistory.removeAt(changeHistory.lastIndex)
+            changeHistory.push(update)
         }
 
         override fun copy(): WorkspaceData =
@@ -170,18 +170,53 @@ sealed class WorkspaceData : Iterable<ItemInfo> {
         override val version: Int,
         override val modificationId: Int,
         override val changeHistory: List<WorkspaceChangeEvent>,
-        items: SparseArray<ItemInfo>,
+        private val itemsIdMap: PersistentIntMap<ItemInfo>,
     ) : WorkspaceData() {
 
-        private val itemsIdMap = items.clone()
+        constructor(
+            version: Int,
+            modificationId: Int,
+            changeHistory: List<WorkspaceChangeEvent>,
+            items: SparseArray<ItemInfo>,
+        ) : this(version, modificationId, changeHistory, PersistentIntMap.of(items))
 
-        override fun iterator() = itemsIdMap.valueIterator()
+        override fun iterator() = itemsIdMap.iterator()
 
-        override fun get(id: Int): ItemInfo? = itemsIdMap.get(id)
+        override fun get(id: Int): ItemInfo? = itemsIdMap[id]
 
         override fun copy(): WorkspaceData = this
     }
 
+    /**
+     * Ring buffer holding the latest [MAX_HISTORY_SIZE] change events, the 1st entry being the
+     * latest one.
+     */
+    class ChangeHistory : AbstractList<WorkspaceChangeEvent>() {
+
+        private val events = arrayOfNulls<WorkspaceChangeEvent>(MAX_HISTORY_SIZE)
+        // Index of the latest event in events
+        private var head = 0
+
+        override var size: Int = 0
+            private set
+
+        override fun get(index: Int): WorkspaceChangeEvent {
+            if (index < 0 || index >= size) throw IndexOutOfBoundsException("index: $index")
+            return events[(head - index + MAX_HISTORY_SIZE) % MAX_HISTORY_SIZE]!!
+        }
+
+        fun push(event: WorkspaceChangeEvent) {
+            head = (head + 1) % MAX_HISTORY_SIZE
+            events[head] = event
+            if (size < MAX_HISTORY_SIZE) size++
+        }
+
+        fun clear() {
+            events.fill(null)
+            size = 0
+        }
+    }
+
     companion object {
         // Maximum number of historic change events to keep in memory
         @VisibleForTesting const val MAX_HISTORY_SIZE = 4
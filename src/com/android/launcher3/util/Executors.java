@@ -38,6 +38,7 @@ public class Executors {
     private static final int POOL_SIZE =
             Math.max(Runtime.getRuntime().availableProcessors(), 2);
     private static final int KEEP_ALIVE = 1;
+    private static final int MODEL_READER_POOL_SIZE = Math.min(POOL_SIZE, 2);
 
     /** Dedicated executor instances for work depending on other packages. */
     private static final Map<String, LooperExecutor> PACKAGE_EXECUTORS = new ConcurrentHashMap<>();
@@ -84,6 +85,12 @@ public class Executors {
      */
     public static final LooperExecutor MODEL_EXECUTOR = new LooperExecutor("launcher-loader");
 
+    /**
+     * Executor used for running read-only model tasks on a snapshot of the model, concurrently with
+     * each other and with the updates running on {@link #MODEL_EXECUTOR}.
+     */
+    public static final ThreadPoolExecutor MODEL_READER_EXECUTOR = newModelReaderExecutor();
+
     /**
      * Returns and caches a single thread executor for a given package.
      *
@@ -93,6 +100,16 @@ public class Executors {
         return PACKAGE_EXECUTORS.computeIfAbsent(packageName, LooperExecutor::new);
     }
 
+    private static ThreadPoolExecutor newModelReaderExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                MODEL_READER_POOL_SIZE, MODEL_READER_POOL_SIZE, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new SimpleThreadFactory("launcher-model-reader", Process.THREAD_PRIORITY_DEFAULT));
+        // Readers are bursty (e.g. while typing a search query), don't keep idle threads around
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     /**
      * A simple ThreadFactory to set the thread name and priority when used with executors.
      */
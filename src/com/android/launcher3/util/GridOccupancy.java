@@ -2,22 +2,51 @@ package com.android.launcher3.util;
 
 import android.graphics.Rect;
 
+import androidx.annotation.Nullable;
+
 import com.android.launcher3.model.data.ItemInfo;
 
+import java.util.Arrays;
+
 /**
  * Utility object to manage the occupancy in a grid.
+ *
+ * The grid is stored as one bitset per row, where bit {@code x} of row {@code y} is set when the
+ * cell (x, y) is occupied. This lets region queries and copies work on whole rows at a time, which
+ * matters as the reorder algorithm runs them many times per drag frame.
  */
 public class GridOccupancy {
 
+    /** Maximum number of columns, as each row is stored in a single long. */
+    public static final int MAX_COUNT_X = Long.SIZE;
+
     private final int mCountX;
     private final int mCountY;
 
-    public final boolean[][] cells;
+    private final long[] mRows;
 
     public GridOccupancy(int countX, int countY) {
+        if (countX > MAX_COUNT_X) {
+            throw new IllegalArgumentException("countX " + countX + " > " + MAX_COUNT_X);
+        }
         mCountX = countX;
         mCountY = countY;
-        cells = new boolean[countX][countY];
+        mRows = new long[countY];
+    }
+
+    public int getCountX() {
+        return mCountX;
+    }
+
+    public int getCountY() {
+        return mCountY;
+    }
+
+    /**
+     * Returns whether the cell (x, y) is occupied.
+     */
+    public boolean isOccupied(int x, int y) {
+        return (mRows[y] & (1L << x)) != 0;
     }
 
     /**
@@ -30,45 +59,75 @@ public class GridOccupancy {
      * @return true if a vacant cell was found
      */
     public boolean findVacantCell(int[] vacantOut, int spanX, int spanY) {
+        // The cell at the origin of the span is always checked, even for empty spans
+        spanX = Math.max(spanX, 1);
+        spanY = Math.max(spanY, 1);
+        if (spanX > mCountX) {
+            return false;
+        }
+        // Columns where a span of spanX can start without going past the last column
+        final long startMask = rangeMask(0, mCountX - spanX + 1);
         for (int y = 0; (y + spanY) <= mCountY; y++) {
-            for (int x = 0; (x + spanX) <= mCountX; x++) {
-                boolean available = !cells[x][y];
-                out:
-                for (int i = x; i < x + spanX; i++) {
-                    for (int j = y; j < y + spanY; j++) {
-                        available = available && !cells[i][j];
-                        if (!available) break out;
-                    }
-                }
-                if (available) {
-                    vacantOut[0] = x;
-                    vacantOut[1] = y;
-                    return true;
-                }
+            long occupied = 0;
+            for (int j = y; j < y + spanY; j++) {
+                occupied |= mRows[j];
+            }
+            // Bit x of runs is set when columns x to x + spanX - 1 are all vacant
+            long runs = ~occupied;
+            for (int i = 1; i < spanX; i++) {
+                runs &= ~occupied >>> i;
+            }
+            runs &= startMask;
+            if (runs != 0) {
+                vacantOut[0] = Long.numberOfTrailingZeros(runs);
+                vacantOut[1] = y;
+                return true;
             }
         }
         return false;
     }
 
     public void copyTo(GridOccupancy dest) {
-        for (int i = 0; i < mCountX; i++) {
-            for (int j = 0; j < mCountY; j++) {
-                dest.cells[i][j] = cells[i][j];
-            }
+        if (dest.mCountX == mCountX) {
+            System.arraycopy(mRows, 0, dest.mRows, 0, mCountY);
+            return;
+        }
+        // Keep the cells of a wider destination that are outside of this grid
+        final long mask = rangeMask(0, mCountX);
+        for (int y = 0; y < mCountY; y++) {
+            dest.mRows[y] = (dest.mRows[y] & ~mask) | mRows[y];
         }
     }
 
+    /**
+     * Returns whether both grids have the same size and the same occupied cells.
+     */
+    public boolean contentEquals(GridOccupancy other) {
+        return mCountX == other.mCountX && mCountY == other.mCountY
+                && Arrays.equals(mRows, other.mRows);
+    }
+
     public boolean isRegionVacant(int x, int y, int spanX, int spanY) {
+        return isRegionVacant(x, y, spanX, spanY, null);
+    }
+
+    /**
+     * Returns whether the region is vacant, only considering the cells of the region that are
+     * occupied in {@code mask}, a grid of at least spanX * spanY cells whose origin is mapped to
+     * (x, y). All the cells of the region are considered if mask is null.
+     */
+    public boolean isRegionVacant(int x, int y, int spanX, int spanY,
+            @Nullable GridOccupancy mask) {
         int x2 = x + spanX - 1;
         int y2 = y + spanY - 1;
         if (x < 0 || y < 0 || x2 >= mCountX || y2 >= mCountY) {
             return false;
         }
-        for (int i = x; i <= x2; i++) {
-            for (int j = y; j <= y2; j++) {
-                if (cells[i][j]) {
-                    return false;
-                }
+        final long spanMask = rangeMask(0, spanX);
+        for (int j = 0; j < spanY; j++) {
+            long rowMask = mask == null ? spanMask : mask.mRows[j] & spanMask;
+            if (((mRows[y + j] >>> x) & rowMask) != 0) {
+                return false;
             }
         }
         return true;
@@ -76,10 +135,11 @@ public class GridOccupancy {
 
     public void markCells(int cellX, int cellY, int spanX, int spanY, boolean value) {
         if (cellX < 0 || cellY < 0) return;
-        for (int x = cellX; x < cellX + spanX && x < mCountX; x++) {
-            for (int y = cellY; y < cellY + spanY && y < mCountY; y++) {
-                cells[x][y] = value;
-            }
+        final long mask = rangeMask(cellX, Math.min(cellX + spanX, mCountX));
+        if (mask == 0) return;
+        final int endY = Math.min(cellY + spanY, mCountY);
+        for (int y = cellY; y < endY; y++) {
+            mRows[y] = value ? mRows[y] | mask : mRows[y] & ~mask;
         }
     }
 
@@ -96,7 +156,16 @@ public class GridOccupancy {
     }
 
     public void clear() {
-        markCells(0, 0, mCountX, mCountY, false);
+        Arrays.fill(mRows, 0);
+    }
+
+    /**
+     * Returns a mask with the bits from {@code from} (inclusive) to {@code to} (exclusive) set.
+     */
+    private static long rangeMask(int from, int to) {
+        if (from >= to) return 0;
+        long upTo = to >= Long.SIZE ? -1L : (1L << to) - 1;
+        return upTo & (-1L << from);
     }
 
     @Override
@@ -104,7 +173,7 @@ public class GridOccupancy {
         StringBuilder s = new StringBuilder("Grid: \n");
         for (int y = 0; y < mCountY; y++) {
             for (int x = 0; x < mCountX; x++) {
-                s.append(cells[x][y] ? 1 : 0).append(" ");
+                s.append(isOccupied(x, y) ? 1 : 0).append(" ");
             }
             s.append("\n");
         }
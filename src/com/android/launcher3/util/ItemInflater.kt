@@ -18,6 +18,7 @@ package com.android.launcher3.util
 
 import android.appwidget.AppWidgetHostView
 import android.content.Context
+import android.util.SparseArray
 import android.view.LayoutInflater
 import android.view.View
 import android.view.View.OnClickListener
@@ -53,6 +54,9 @@ class ItemInflater<T>(
     private val widgetInflater =
         WidgetInflater(context, LauncherAppState.getInstance(context).isSafeModeEnabled)
 
+    /** Views inflated ahead of time, used when inflating items into the workspace */
+    val viewPool = WorkspaceItemViewPool()
+
     @JvmOverloads
     fun inflateItem(
         item: ItemInfo,
@@ -76,14 +80,20 @@ class ItemInflater<T>(
                 }
                 return createShortcut(info, parent, container)
             }
-            Favorites.ITEM_TYPE_FOLDER ->
-                return FolderIcon.inflateFolderAndIcon(
-                        R.layout.folder_icon,
-                        context,
-                        parent,
-                        item as FolderInfo,
-                    )
-                    .apply { onFocusChangeListener = focusListener }
+            Favorites.ITEM_TYPE_FOLDER -> {
+                val pooledIcon = takePooledView(R.layout.folder_icon, parent) as FolderIcon?
+                val folderIcon =
+                    if (pooledIcon != null)
+                        FolderIcon.bindFolderAndIcon(pooledIcon, context, item as FolderInfo)
+                    else
+                        FolderIcon.inflateFolderAndIcon(
+                            R.layout.folder_icon,
+                            context,
+                            parent,
+                            item as FolderInfo,
+                        )
+                return folderIcon.apply { onFocusChangeListener = focusListener }
+            }
             Favorites.ITEM_TYPE_APP_PAIR ->
                 return AppPairIcon.inflateIcon(
                     R.layout.app_pair_icon,
@@ -112,7 +122,9 @@ class ItemInflater<T>(
             if (container == Favorites.CONTAINER_HOTSEAT_PREDICTION) R.layout.predicted_app_icon
             else R.layout.app_icon
         val favorite =
-            LayoutInflater.from(parent.context).inflate(layout, parent, false) as BubbleTextView
+            (takePooledView(layout, parent)
+                ?: LayoutInflater.from(parent.context).inflate(layout, parent, false))
+                as BubbleTextView
         favorite.applyFromWorkspaceItem(info)
         favorite.setOnClickListener(clickListener)
         favorite.onFocusChangeListener = focusListener
@@ -121,6 +133,35 @@ class ItemInflater<T>(
         return favorite
     }
 
+    /**
+     * Returns a pre-inflated view of the layout if one is available and it was inflated for the
+     * same context as [parent]
+     */
+    private fun takePooledView(layoutId: Int, parent: ViewGroup): View? =
+        if (parent.context === defaultParent.context) viewPool.take(layoutId) else null
+
+    /**
+     * Starts inflating, in the background, the icon views required to bind [items]. Widgets and
+     * other items are still inflated when bound.
+     */
+    fun preInflate(items: List<ItemInfo>) {
+        var shortcutCount = 0
+        var folderCount = 0
+        for (item in items) {
+            when (item.itemType) {
+                Favorites.ITEM_TYPE_APPLICATION,
+                Favorites.ITEM_TYPE_DEEP_SHORTCUT,
+                Favorites.ITEM_TYPE_SEARCH_ACTION ->
+                    if (item.container != Favorites.CONTAINER_HOTSEAT_PREDICTION) shortcutCount++
+                Favorites.ITEM_TYPE_FOLDER -> folderCount++
+            }
+        }
+        val counts = SparseArray<Int>(2)
+        counts.put(R.layout.app_icon, shortcutCount)
+        counts.put(R.layout.folder_icon, folderCount)
+        viewPool.preInflate(context, defaultParent, counts)
+    }
+
     private fun inflateAppWidget(item: LauncherAppWidgetInfo, writer: ModelWriter): View? {
         TraceHelper.INSTANCE.beginSection("BIND_WIDGET_id=" + item.appWidgetId)
         try {
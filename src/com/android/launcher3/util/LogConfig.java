@@ -77,4 +77,9 @@ public class LogConfig {
      */
     public static final String ZERO_WEB_DATA_LOADER = "ZeroStateWebDataLoaderLog";
     public static final String SEARCH_TARGET_UTIL_LOG = "SearchTargetUtilLog";
+
+    /**
+     * When turned on, the startup timeline is written to the app's external files dir.
+     */
+    public static final String STARTUP_TIMELINE = "StartupTimeline";
 }
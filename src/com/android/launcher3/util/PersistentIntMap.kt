@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.util
+
+import android.util.SparseArray
+
+/**
+ * An immutable map from int keys to values, iterated in ascending key order like [SparseArray].
+ *
+ * The map is a bitmapped radix trie of fixed depth. [put] and [remove] copy only the nodes on the
+ * path to the key and share all other nodes with the original map, so every version of the map
+ * stays valid and keeping a snapshot is free.
+ */
+class PersistentIntMap<V : Any>
+private constructor(private val root: Node?, val size: Int) : Iterable<V> {
+
+    /** A trie node, [children] holds one entry per bit set in [bitmap], in bit order */
+    private class Node(val bitmap: Int, val children: Array<Any?>)
+
+    fun isEmpty() = size == 0
+
+    /** Returns the value associated with the [key] or null */
+    operator fun get(key: Int): V? {
+        var node = root ?: return null
+        val path = key xor Int.MIN_VALUE
+        var shift = TOP_SHIFT
+        while (true) {
+            val bit = 1 shl ((path ushr shift) and MASK)
+            if (node.bitmap and bit == 0) return null
+            val child = node.children[Integer.bitCount(node.bitmap and (bit - 1))]
+            if (shift == 0) {
+                @Suppress("UNCHECKED_CAST")
+                return child as V
+            }
+            node = child as Node
+            shift -= BITS
+        }
+    }
+
+    /** Returns a map with the [key] associated with the [value] */
+    fun put(key: Int, value: V): PersistentIntMap<V> {
+        val newSize = if (get(key) == null) size + 1 else size
+        return PersistentIntMap(put(root, key xor Int.MIN_VALUE, TOP_SHIFT, value), newSize)
+    }
+
+    /** Returns a map without the [key], or this map if it did not contain the key */
+    fun remove(key: Int): PersistentIntMap<V> {
+        if (get(key) == null) return this
+        return PersistentIntMap(remove(root!!, key xor Int.MIN_VALUE, TOP_SHIFT), size - 1)
+    }
+
+    override fun iterator(): Iterator<V> = TrieIterator(root)
+
+    private fun put(node: Node?, path: Int, shift: Int, value: V): Node {
+        val bit = 1 shl ((path ushr shift) and MASK)
+        if (node == null) {
+            val child = if (shift == 0) value else put(null, path, shift - BITS, value)
+            return Node(bit, arrayOf(child))
+        }
+        val index = Integer.bitCount(node.bitmap and (bit - 1))
+        if (node.bitmap and bit != 0) {
+            val children = node.children.copyOf()
+            children[index] =
+                if (shift == 0) value else put(children[index] as Node, path, shift - BITS, value)
+            return Node(node.bitmap, children)
+        }
+        val child = if (shift == 0) value else put(null, path, shift - BITS, value)
+        val children = arrayOfNulls<Any>(node.children.size + 1)
+        System.arraycopy(node.children, 0, children, 0, index)
+        children[index] = child
+        System.arraycopy(node.children, index, children, index + 1, node.children.size - index)
+        return Node(node.bitmap or bit, children)
+    }
+
+    /** Removes an existing key from the subtree, returning null if the subtree becomes empty */
+    private fun remove(node: Node, path: Int, shift: Int): Node? {
+        val bit = 1 shl ((path ushr shift) and MASK)
+        val index = Integer.bitCount(node.bitmap and (bit - 1))
+        if (shift != 0) {
+            val newChild = remove(node.children[index] as Node, path, shift - BITS)
+            if (newChild != null) {
+                val children = node.children.copyOf()
+                children[index] = newChild
+                return Node(node.bitmap, children)
+            }
+        }
+        if (node.children.size == 1) return null
+        val children = arrayOfNulls<Any>(node.children.size - 1)
+        System.arraycopy(node.children, 0, children, 0, index)
+        System.arraycopy(node.children, index + 1, children, index, children.size - index)
+        return Node(node.bitmap and bit.inv(), children)
+    }
+
+    /** Depth first iterator over the leaves of the trie */
+    private class TrieIterator<V>(root: Node?) : Iterator<V> {
+
+        private val nodes = arrayOfNulls<Node>(LEVELS)
+        private val indices = IntArray(LEVELS)
+        private var depth = -1
+
+        init {
+            if (root != null) {
+                nodes[0] = root
+                depth = 0
+                descend()
+            }
+        }
+
+        override fun hasNext() = depth >= 0
+
+        override fun next(): V {
+            if (depth < 0) throw NoSuchElementException()
+            @Suppress("UNCHECKED_CAST") val value = nodes[depth]!!.children[indices[depth]] as V
+            advance()
+            return value
+        }
+
+        private fun descend() {
+            while (depth < LEVELS - 1) {
+                val child = nodes[depth]!!.children[indices[depth]] as Node
+                depth++
+                nodes[depth] = child
+                indices[depth] = 0
+            }
+        }
+
+        private fun advance() {
+            while (depth >= 0) {
+                indices[depth]++
+                if (indices[depth] < nodes[depth]!!.children.size) {
+                    descend()
+                    return
+                }
+                nodes[depth] = null
+                depth--
+            }
+        }
+    }
+
+    companion object {
+        private const val BITS = 5
+        private const val MASK = (1 shl BITS) - 1
+        // The top level uses the remaining 2 bits of the key
+        private const val TOP_SHIFT = 30
+        private const val LEVELS = TOP_SHIFT / BITS + 1
+
+        private val EMPTY = PersistentIntMap<Any>(null, 0)
+
+        @Suppress("UNCHECKED_CAST")
+        @JvmStatic
+        fun <V : Any> empty(): PersistentIntMap<V> = EMPTY as PersistentIntMap<V>
+
+        /** Returns a map with the same entries as [items] */
+        @JvmStatic
+        fun <V : Any> of(items: SparseArray<V>): PersistentIntMap<V> {
+            var result = empty<V>()
+            for (i in 0 until items.size()) result = result.put(items.keyAt(i), items.valueAt(i))
+            return result
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.util
+
+import android.content.Context
+import android.util.Log
+import android.util.SparseArray
+import android.view.ContextThemeWrapper
+import android.view.InflateException
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import androidx.annotation.VisibleForTesting
+import com.android.launcher3.util.Executors.VIEW_PREINFLATION_EXECUTOR
+import com.android.launcher3.views.ActivityContext
+
+/**
+ * A pool of workspace item views (app icons and folder icons) inflated ahead of time on
+ * [VIEW_PREINFLATION_EXECUTOR], so that binding the pages which are not visible does not have to
+ * inflate them.
+ *
+ * Views in the pool are not bound to any item, [ItemInflater] binds them when it takes them out
+ * of the pool. Views can be taken from any thread.
+ */
+class WorkspaceItemViewPool {
+
+    private val lock = Any()
+    // Guarded by lock
+    private val views = SparseArray<ArrayDeque<View>>()
+    // Guarded by lock, incremented to discard the views of any running pre-inflation
+    private var generation = 0
+
+    /**
+     * Inflates views of the given layouts in the background until the pool holds the requested
+     * count of each of them.
+     *
+     * @param parent used to generate the layout params of the views, it is not modified
+     * @param counts number of views to keep in the pool, keyed by layout id
+     */
+    fun <T> preInflate(context: T, parent: ViewGroup, counts: SparseArray<Int>)
+        where T : Context, T : ActivityContext {
+        val pending = SparseArray<Int>()
+        val currentGeneration: Int
+        synchronized(lock) {
+            currentGeneration = ++generation
+            for (i in 0 until counts.size()) {
+                val missing = counts.valueAt(i) - (views[counts.keyAt(i)]?.size ?: 0)
+                if (missing > 0) pending.put(counts.keyAt(i), missing)
+            }
+        }
+        if (pending.size() == 0) return
+
+        // Create a separate context dedicated for the preinflation thread, so that it gets its own
+        // AssetManager instead of contending on the lock of the one used by the main thread.
+        val preInflationContext =
+            ContextThemeWrapper(context, Themes.getActivityThemeRes(context)).apply {
+                applyOverrideConfiguration(context.resources.configuration)
+            }
+        val inflater = LayoutInflater.from(context).cloneInContext(preInflationContext)
+
+        VIEW_PREINFLATION_EXECUTOR.execute {
+            for (i in 0 until pending.size()) {
+                val layoutId = pending.keyAt(i)
+                repeat(pending.valueAt(i)) {
+                    if (isStale(currentGeneration)) return@execute
+                    val view =
+                        try {
+                            inflater.inflate(layoutId, parent, false)
+                        } catch (e: InflateException) {
+                            Log.e(TAG, "Failed to preinflate workspace view", e)
+                            return@execute
+                        }
+                    synchronized(lock) {
+                        if (generation != currentGeneration) return@execute
+                        val pool =
+                            views[layoutId] ?: ArrayDeque<View>().also { views.put(layoutId, it) }
+                        pool.addLast(view)
+                    }
+                }
+            }
+        }
+    }
+
+    private fun isStale(generation: Int) = synchronized(lock) { this.generation != generation }
+
+    /** Returns a pre-inflated view of the given layout, or null if there is none available */
+    fun take(layoutId: Int): View? = synchronized(lock) { views[layoutId]?.removeFirstOrNull() }
+
+    @VisibleForTesting
+    fun getPooledViewCount(layoutId: Int): Int = synchronized(lock) { views[layoutId]?.size ?: 0 }
+
+    /**
+     * Removes all the views from the pool and stops any running pre-inflation. This should be
+     * called when the device profile changes, as views are inflated for a specific profile.
+     */
+    fun clear() {
+        synchronized(lock) {
+            generation++
+            views.clear()
+        }
+    }
+
+    companion object {
+        private const val TAG = "WorkspaceItemViewPool"
+    }
+}
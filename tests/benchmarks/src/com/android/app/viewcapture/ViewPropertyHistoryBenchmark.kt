@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.app.viewcapture
+
+import android.content.Context
+import android.view.View
+import android.widget.FrameLayout
+import android.widget.ImageView
+import android.widget.LinearLayout
+import android.widget.TextView
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.app.viewcapture.ViewCapture.ViewIdProvider
+import com.android.app.viewcapture.ViewCapture.ViewPropertyRef
+import com.android.app.viewcapture.data.WindowData
+import com.android.launcher3.benchmark.MicroBenchmarkRule
+import java.util.Random
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Benchmarks capturing synthetic view trees into [ViewPropertyHistory] and dumping them. */
+@RunWith(AndroidJUnit4::class)
+class ViewPropertyHistoryBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule(warmupIterations = 5, measuredIterations = 20)
+
+    private val idProvider =
+        ViewIdProvider(ApplicationProvider.getApplicationContext<Context>().resources)
+
+    @Test
+    fun add_300Nodes() {
+        val tree = SyntheticTree(Random(SEED), groups = 30, leavesPerGroup = 9)
+        val history = ViewPropertyHistory(ViewCapture.DEFAULT_MEMORY_SIZE)
+        val captured = List(FRAMES_PER_RUN) {
+            tree.nextFrame()
+            tree.capture()
+        }
+        var time = 0L
+        benchmarkRule.measure {
+            for (start in captured) history.add(++time, start)
+        }
+    }
+
+    @Test
+    fun dump_2000Frames() {
+        val tree = SyntheticTree(Random(SEED), groups = 30, leavesPerGroup = 9)
+        val history = ViewPropertyHistory(ViewCapture.DEFAULT_MEMORY_SIZE)
+        repeat(ViewCapture.DEFAULT_MEMORY_SIZE) { frame ->
+            tree.nextFrame()
+            history.add(frame.toLong(), tree.capture())
+        }
+        benchmarkRule.measure {
+            history.dumpTo(WindowData.newBuilder(), idProvider, ArrayList())
+        }
+    }
+
+    /**
+     * A root with groups of leaves. Every frame animates a few views, and sometimes adds, removes
+     * or replaces a leaf.
+     */
+    private class SyntheticTree(private val random: Random, groups: Int, leavesPerGroup: Int) {
+
+        private class Node(val clazz: Class<*>, var hashCode: Int, val id: Int) {
+            var left = 0
+            var top = 0
+            var right = 100
+            var bottom = 100
+            var scrollX = 0
+            var translateX = 0f
+            var translateY = 0f
+            var scale = 1f
+            var alpha = 1f
+            var elevation = 0f
+            var visibility = View.VISIBLE
+            var willNotDraw = false
+            var clipChildren = true
+        }
+
+        private var nextHashCode = 1
+        private val root = newNode(FrameLayout::class.java, android.R.id.content)
+        private val tree =
+            List(groups) {
+                newNode(LinearLayout::class.java, View.NO_ID) to
+                    MutableList(leavesPerGroup) { newLeaf() }
+            }
+
+        fun nextFrame() {
+            val (group, leaves) = tree[random.nextInt(tree.size)]
+            group.translateY += random.nextFloat()
+            repeat(ANIMATED_VIEWS) {
+                val leaf = leaves[random.nextInt(leaves.size)]
+                leaf.alpha = random.nextFloat()
+                leaf.scale = 0.5f + random.nextFloat()
+                leaf.translateX = -leaf.translateX
+            }
+            when (random.nextInt(20)) {
+                0 -> leaves.add(random.nextInt(leaves.size + 1), newLeaf())
+                1 -> if (leaves.size > 1) leaves.removeAt(random.nextInt(leaves.size))
+                2 -> leaves[random.nextInt(leaves.size)].hashCode = nextHashCode++
+                3 -> {
+                    val leaf = leaves[random.nextInt(leaves.size)]
+                    leaf.visibility = if (leaf.visibility == View.VISIBLE) View.GONE else View.VISIBLE
+                    leaf.left += 10
+                    leaf.right += 10
+                    leaf.elevation = -0f
+                    leaf.willNotDraw = !leaf.willNotDraw
+                }
+            }
+        }
+
+        /** Returns the flattened tree, as copied by [ViewCapture] on its background thread. */
+        fun capture(): ViewPropertyRef {
+            val start = root.toRef(tree.size)
+            var end = start
+            for ((group, leaves) in tree) {
+                end.next = group.toRef(leaves.size)
+                end = end.next
+                for (leaf in leaves) {
+                    end.next = leaf.toRef(0)
+                    end = end.next
+                }
+            }
+            return start
+        }
+
+        private fun newNode(clazz: Class<*>, id: Int) = Node(clazz, nextHashCode++, id)
+
+        private fun newLeaf(): Node {
+            val leaf =
+                if (random.nextBoolean()) newNode(TextView::class.java, View.NO_ID)
+                else newNode(ImageView::class.java, 0x7f0a0000 + random.nextInt(4))
+            leaf.left = random.nextInt(1000)
+            leaf.right = leaf.left + random.nextInt(200)
+            leaf.translateX = random.nextFloat()
+            leaf.clipChildren = false
+            return leaf
+        }
+
+        private fun Node.toRef(childCount: Int) =
+            ViewPropertyRef().also {
+                it.clazz = clazz
+                it.hashCode = hashCode
+                it.id = id
+                it.childCount = childCount
+                it.left = left
+                it.top = top
+                it.right = right
+                it.bottom = bottom
+                it.scrollX = scrollX
+                it.scrollY = scrollX / 2
+                it.translateX = translateX
+                it.translateY = translateY
+                it.scaleX = scale
+                it.scaleY = scale
+                it.alpha = alpha
+                it.elevation = elevation
+                it.visibility = visibility
+                it.willNotDraw = willNotDraw
+                it.clipChildren = clipChildren
+            }
+    }
+
+    companion object {
+        private const val SEED = 4112L
+        private const val ANIMATED_VIEWS = 3
+        private const val FRAMES_PER_RUN = 100
+    }
+}
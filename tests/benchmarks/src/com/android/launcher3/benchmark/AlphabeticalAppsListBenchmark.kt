@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.content.ComponentName
+import android.os.Process
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.launcher3.allapps.AllAppsStore
+import com.android.launcher3.allapps.AlphabeticalAppsList
+import com.android.launcher3.model.data.AppInfo
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Benchmarks rebuilding the all apps adapter items. */
+@RunWith(AndroidJUnit4::class)
+class AlphabeticalAppsListBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule(measuredIterations = 50)
+
+    @Test
+    fun onAppsUpdated_300Apps() {
+        val context = BenchmarkActivityContext(ApplicationProvider.getApplicationContext())
+        val store = AllAppsStore(context)
+        store.setApps(createApps(APP_COUNT), 0, emptyMap())
+        val appsList = AlphabeticalAppsList(context, store, null, null)
+        appsList.setNumAppsPerRowAllApps(NUM_COLUMNS)
+        benchmarkRule.measure { appsList.onAppsUpdated() }
+    }
+
+    private fun createApps(count: Int): Array<AppInfo> =
+        Array(count) {
+            val title = "${('A' + it % 26)}pp $it"
+            AppInfo(
+                    ComponentName("com.example.app$it", "com.example.app$it.Main"),
+                    title,
+                    Process.myUserHandle(),
+                    null,
+                )
+                .apply { sectionName = title.substring(0, 1) }
+        }
+
+    companion object {
+        private const val APP_COUNT = 300
+        private const val NUM_COLUMNS = 5
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.R
+import android.content.Context
+import com.android.launcher3.DeviceProfile
+import com.android.launcher3.InvariantDeviceProfile
+import com.android.launcher3.util.BaseContext
+import com.android.launcher3.views.BaseDragLayer
+
+/** [BaseContext] with a fixed [DeviceProfile], used to host views in benchmarks. */
+class BenchmarkActivityContext(base: Context, private val profile: DeviceProfile) :
+    BaseContext(base, R.style.Theme_DeviceDefault) {
+
+    constructor(
+        base: Context
+    ) : this(base, InvariantDeviceProfile.INSTANCE[base].getDeviceProfile(base).copy(base))
+
+    private val dragLayer =
+        object : BaseDragLayer<BenchmarkActivityContext>(this, null, 1) {
+            override fun recreateControllers() {
+                super.recreateControllers()
+                mControllers = arrayOf()
+            }
+        }
+
+    override fun getDragLayer(): BaseDragLayer<*> = dragLayer
+
+    override fun getDeviceProfile(): DeviceProfile = profile
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import android.util.SparseArray
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.launcher3.icons.ColorExtractor
+import java.util.Random
+import kotlin.math.abs
+import kotlin.math.hypot
+import kotlin.math.sqrt
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Benchmarks [ColorExtractor] against the implementation scanning the bitmap pixel by pixel with
+ * [Color.colorToHSV], on a corpus of synthetic icons and wallpapers.
+ */
+@RunWith(AndroidJUnit4::class)
+class ColorExtractorBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule(warmupIterations = 5, measuredIterations = 20)
+
+    private val corpus = createCorpus(Random(SEED))
+
+    @Test
+    fun corpus_reference() {
+        benchmarkRule.measure { corpus.forEach { findDominantColorByHueReference(it) } }
+    }
+
+    @Test
+    fun corpus_scan() {
+        benchmarkRule.measure { corpus.forEach { ColorExtractor.findDominantColorByHue(it) } }
+    }
+
+    private fun createCorpus(random: Random): List<Bitmap> = buildList {
+        repeat(ICONS) {
+            add(createIcon(randomColor(random), randomColor(random), ICON_SIZES.random(random)))
+        }
+        repeat(GRADIENTS) {
+            add(createGradient(randomColor(random), randomColor(random), 540, 960))
+        }
+        repeat(NOISES) { add(createNoise(random, 108)) }
+        // Edge cases: gray, transparent, tiny and thin bitmaps
+        add(createIcon(Color.GRAY, Color.DKGRAY, 96))
+        add(createIcon(Color.TRANSPARENT, Color.TRANSPARENT, 96))
+        add(createIcon(Color.RED, Color.RED, 1))
+        add(createGradient(Color.YELLOW, Color.MAGENTA, 3, 500))
+    }
+
+    /** A circle of [outer] with a square of [inner], and half transparent edges */
+    private fun createIcon(outer: Int, inner: Int, size: Int): Bitmap {
+        val center = size / 2f
+        val pixels =
+            IntArray(size * size) {
+                val x = it % size + 0.5f
+                val y = it / size + 0.5f
+                val distance = hypot(x - center, y - center) / size
+                when {
+                    abs(x - center) < size * 0.15f && abs(y - center) < size * 0.15f -> inner
+                    distance < 0.43f -> outer
+                    distance < 0.45f -> outer and 0x88FFFFFF.toInt()
+                    else -> Color.TRANSPARENT
+                }
+            }
+        return createBitmap(pixels, size, size)
+    }
+
+    private fun createGradient(top: Int, bottom: Int, width: Int, height: Int): Bitmap {
+        val pixels =
+            IntArray(width * height) {
+                val t = (it / width).toFloat() / (height - 1).coerceAtLeast(1)
+                Color.rgb(
+                    mix(Color.red(top), Color.red(bottom), t),
+                    mix(Color.green(top), Color.green(bottom), t),
+                    mix(Color.blue(top), Color.blue(bottom), t),
+                )
+            }
+        return createBitmap(pixels, width, height)
+    }
+
+    private fun createNoise(random: Random, size: Int): Bitmap {
+        val pixels = IntArray(size * size) { random.nextInt() }
+        return createBitmap(pixels, size, size)
+    }
+
+    private fun createBitmap(pixels: IntArray, width: Int, height: Int): Bitmap =
+        Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888).apply {
+            setPixels(pixels, 0, width, 0, 0, width, height)
+        }
+
+    private fun mix(a: Int, b: Int, t: Float) = (a + (b - a) * t).toInt()
+
+    private fun randomColor(random: Random) = random.nextInt() or OPAQUE
+
+    /**
+     * The implementation of [ColorExtractor.findDominantColorByHue] before it worked on sampled
+     * rows: reads every sampled pixel with [Bitmap.getPixel], and converts it with
+     * [Color.colorToHSV].
+     */
+    private fun findDominantColorByHueReference(bitmap: Bitmap): Int {
+        val height = bitmap.height
+        val width = bitmap.width
+        val sampleStride = sqrt((height * width) / NUM_SAMPLES.toDouble()).toInt().coerceAtLeast(1)
+
+        val hsv = FloatArray(3)
+        val hueScoreHistogram = FloatArray(360)
+        var highScore = -1f
+        var bestHue = -1
+
+        val pixels = IntArray(NUM_SAMPLES)
+        var pixelCount = 0
+
+        for (y in 0..<height step sampleStride) {
+            for (x in 0..<width step sampleStride) {
+                val argb = bitmap.getPixel(x, y)
+                val alpha = 0xFF and (argb shr 24)
+                if (alpha < 0x80) {
+                    continue
+                }
+                val rgb = argb or OPAQUE
+                Color.colorToHSV(rgb, hsv)
+                val hue = hsv[0].toInt()
+                if (hue < 0 || hue >= hueScoreHistogram.size) {
+                    continue
+                }
+                if (pixelCount < NUM_SAMPLES) {
+                    pixels[pixelCount++] = rgb
+                }
+                val score = hsv[1] * hsv[2]
+                hueScoreHistogram[hue] += score
+                if (hueScoreHistogram[hue] > highScore) {
+                    highScore = hueScoreHistogram[hue]
+                    bestHue = hue
+                }
+            }
+        }
+
+        val rgbScores = SparseArray<Float>()
+        var bestColor = OPAQUE
+        highScore = -1f
+        for (i in 0..<pixelCount) {
+            val rgb = pixels[i]
+            Color.colorToHSV(rgb, hsv)
+            val hue = hsv[0].toInt()
+            if (hue == bestHue) {
+                val s = hsv[1]
+                val v = hsv[2]
+                val bucket = (s * 100).toInt() + (v * 10000).toInt()
+                val score = s * v
+                val oldTotal = rgbScores[bucket]
+                val newTotal = if (oldTotal == null) score else oldTotal + score
+                rgbScores.put(bucket, newTotal)
+                if (newTotal > highScore) {
+                    highScore = newTotal
+                    bestColor = rgb
+                }
+            }
+        }
+        return bestColor
+    }
+
+    companion object {
+        private const val SEED = 1789L
+        private const val NUM_SAMPLES = 20
+        private const val OPAQUE = -0x1000000
+
+        private const val ICONS = 48
+        private const val GRADIENTS = 8
+        private const val NOISES = 4
+        private val ICON_SIZES = listOf(48, 96, 108, 192, 256)
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.graphics.Color
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.systemui.monet.ColorScheme
+import com.android.systemui.monet.Style
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Benchmarks monet [ColorScheme] generation from a seed color. */
+@RunWith(AndroidJUnit4::class)
+class ColorSchemeBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule()
+
+    @Test
+    fun colorScheme_tonalSpot() {
+        benchmarkRule.measure { ColorScheme(SEED_COLOR, Style.TONAL_SPOT).allAccentColors }
+    }
+
+    @Test
+    fun colorScheme_allStyles() {
+        benchmarkRule.measure {
+            Style.entries.forEach { ColorScheme(SEED_COLOR, it).allNeutralColors }
+        }
+    }
+
+    companion object {
+        private val SEED_COLOR = Color.rgb(66, 133, 244)
+    }
+}
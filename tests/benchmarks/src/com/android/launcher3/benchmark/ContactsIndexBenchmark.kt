@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.content.Context
+import android.provider.ContactsContract
+import android.provider.ContactsContract.Contacts
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.search.algorithms.engine.provider.contacts.ContactsIndex
+import app.lawnchair.search.algorithms.engine.provider.contacts.FakeContactsProvider
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+
+/**
+ * Benchmarks searching 10k contacts through [ContactsIndex] against the `LIKE '%query%'` scan of
+ * the contacts provider it replaces.
+ */
+@RunWith(AndroidJUnit4::class)
+class ContactsIndexBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule(warmupIterations = 5, measuredIterations = 20)
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private lateinit var provider: FakeContactsProvider
+    private lateinit var index: ContactsIndex
+
+    @Before
+    fun setUp() {
+        provider =
+            Robolectric.setupContentProvider(
+                FakeContactsProvider::class.java,
+                ContactsContract.AUTHORITY,
+            )
+        val start = System.currentTimeMillis() - CONTACT_COUNT
+        for (id in 1L..CONTACT_COUNT) provider.putContact(id, nameOf(id), numberOf(id), start + id)
+        index = ContactsIndex(context, null)
+    }
+
+    @After
+    fun tearDown() {
+        index.close()
+    }
+
+    @Test
+    fun search_10kContacts_index() {
+        index.sync()
+        benchmarkRule.measure { for (query in QUERIES) index.search(query, MAX_RESULTS) }
+    }
+
+    @Test
+    fun search_10kContacts_providerScan() {
+        benchmarkRule.measure {
+            for (query in QUERIES) {
+                context.contentResolver
+                    .query(
+                        Contacts.CONTENT_URI,
+                        arrayOf(Contacts._ID, Contacts.DISPLAY_NAME_PRIMARY),
+                        "${Contacts.DISPLAY_NAME_PRIMARY} LIKE ?",
+                        arrayOf("%$query%"),
+                        null,
+                    )
+                    ?.use { c ->
+                        var count = 0
+                        while (count < MAX_RESULTS && c.moveToNext()) count++
+                    }
+            }
+        }
+    }
+
+    @Test
+    fun sync_10kContacts_rebuild() {
+        benchmarkRule.measure { ContactsIndex(context, null).apply { sync() }.close() }
+    }
+
+    @Test
+    fun sync_10kContacts_unchanged() {
+        index.sync()
+        benchmarkRule.measure { index.sync() }
+    }
+
+    companion object {
+        private const val CONTACT_COUNT = 10_000L
+        private const val MAX_RESULTS = 10
+
+        private val FIRST_NAMES =
+            listOf(
+                "Ann",
+                "Anna",
+                "Bob",
+                "Carla",
+                "David",
+                "Elena",
+                "Farid",
+                "Grace",
+                "Hiro",
+                "Ines",
+            )
+        private val LAST_NAMES =
+            listOf("Smith", "Smithers", "Jones", "Garcia", "Kowalski", "Nguyen", "Okafor", "Rossi")
+        private val QUERIES = listOf("a", "an", "ann", "ann smi", "kowal", "gr ng", "555 01")
+
+        private fun nameOf(id: Long) =
+            "${FIRST_NAMES[(id % FIRST_NAMES.size).toInt()]} " +
+                "${LAST_NAMES[(id / FIRST_NAMES.size % LAST_NAMES.size).toInt()]} $id"
+
+        private fun numberOf(id: Long) = "555 01${id.toString().padStart(5, '0')}"
+    }
+}
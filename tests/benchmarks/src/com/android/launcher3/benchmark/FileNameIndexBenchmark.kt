@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.content.ContentValues
+import android.content.Context
+import android.provider.MediaStore
+import android.provider.MediaStore.Files.FileColumns
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.search.algorithms.engine.provider.files.FakeMediaStoreProvider
+import app.lawnchair.search.algorithms.engine.provider.files.FileNameIndex
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+
+/**
+ * Benchmarks searching 100k MediaStore files through [FileNameIndex] against the
+ * `LIKE '%query%'` scan of MediaStore it replaces.
+ */
+@RunWith(AndroidJUnit4::class)
+class FileNameIndexBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule(warmupIterations = 3, measuredIterations = 10)
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private lateinit var provider: FakeMediaStoreProvider
+    private lateinit var index: FileNameIndex
+
+    @Before
+    fun setUp() {
+        provider =
+            Robolectric.setupContentProvider(
+                FakeMediaStoreProvider::class.java,
+                MediaStore.AUTHORITY,
+            )
+        provider.putFiles((1L..FILE_COUNT).map(::fileOf))
+        index = FileNameIndex(context, null) { listOf(VOLUME) }
+        index.sync()
+    }
+
+    @After
+    fun tearDown() {
+        index.close()
+    }
+
+    @Test
+    fun query_100kFiles_index() {
+        benchmarkRule.measure {
+            for (query in QUERIES) {
+                index.query(query, null, false, MAX_RESULTS)?.use { c -> while (c.moveToNext()) {} }
+            }
+        }
+    }
+
+    @Test
+    fun query_100kFiles_mediaStoreScan() {
+        benchmarkRule.measure {
+            for (query in QUERIES) {
+                context.contentResolver
+                    .query(
+                        MediaStore.Files.getContentUri("external"),
+                        arrayOf(FileColumns._ID, FileColumns.DATA, FileColumns.DISPLAY_NAME),
+                        "(${FileColumns.DATA} LIKE ? OR ${FileColumns.DISPLAY_NAME} LIKE ?)",
+                        arrayOf("%$query%", "%$query%"),
+                        "${FileColumns.DATE_MODIFIED} DESC",
+                    )
+                    ?.use { c ->
+                        var count = 0
+                        while (count < MAX_RESULTS && c.moveToNext()) count++
+                    }
+            }
+        }
+    }
+
+    @Test
+    fun sync_100kFiles_100Changed() {
+        var next = 0L
+        benchmarkRule.measure {
+            provider.putFiles((1..100).map { fileOf(++next % FILE_COUNT + 1) })
+            index.sync()
+        }
+    }
+
+    @Test
+    fun sync_100kFiles_unchanged() {
+        benchmarkRule.measure { index.sync() }
+    }
+
+    companion object {
+        private const val VOLUME = "external_primary"
+        private const val FILE_COUNT = 100_000L
+        private const val MAX_RESULTS = 10
+
+        private val QUERIES = listOf("i", "img", "img 2024", "report", "song 12", "camera", "zzz")
+
+        private fun fileOf(id: Long): ContentValues {
+            val (folder, name, mime, type) =
+                when (id % 5) {
+                    0L -> listOf("DCIM/Camera", "IMG_2024${id % 12}_$id.jpg", "image/jpeg", "1")
+                    1L -> listOf("Movies", "VID_2024${id % 12}_$id.mp4", "video/mp4", "3")
+                    2L -> listOf("Music", "Song $id.mp3", "audio/mpeg", "2")
+                    3L -> listOf("Documents", "Report $id.pdf", "application/pdf", "0")
+                    else -> listOf("Download", "archive-$id.zip", "application/zip", "0")
+                }
+            return FakeMediaStoreProvider.fileOf(
+                id,
+                folder,
+                name,
+                mime,
+                type.toInt(),
+                1_700_000_000L + id,
+            )
+        }
+    }
+}
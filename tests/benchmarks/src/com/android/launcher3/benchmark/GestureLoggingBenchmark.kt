@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.quickstep.util.ActiveGestureErrorDetector.GestureEvent
+import com.android.quickstep.util.ActiveGestureLog
+import com.android.quickstep.util.ActiveGestureLog.CompoundString
+import com.android.quickstep.util.ActiveGestureProtoLogProxy
+import com.android.quickstep.util.MotionPauseDetector
+import com.google.common.truth.Truth.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Benchmarks the work done for every move event of a gesture, detecting pauses and logging the
+ * event in [ActiveGestureLog], and checks that it does not allocate.
+ */
+@RunWith(AndroidJUnit4::class)
+class GestureLoggingBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule(warmupIterations = 5, measuredIterations = 20)
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private var time = 0L
+
+    @Test
+    fun motionPause_fastMoves() {
+        val detector = MotionPauseDetector(context)
+        assertNoAllocationPerEvent(
+            benchmarkRule.measure {
+                repeat(EVENTS_PER_RUN) { detector.addVelocity(2f + it % 2, ++time) }
+            }
+        )
+    }
+
+    @Test
+    fun motionPause_pausedMoves() {
+        val detector = MotionPauseDetector(context)
+        pause(detector)
+        assertNoAllocationPerEvent(
+            benchmarkRule.measure {
+                repeat(EVENTS_PER_RUN) { detector.addVelocity(SLOW[it % 2], ++time) }
+            }
+        )
+    }
+
+    @Test
+    fun motionPause_disallowedMoves() {
+        val detector = MotionPauseDetector(context)
+        pause(detector)
+        detector.setDisallowPause(true)
+        assertNoAllocationPerEvent(
+            benchmarkRule.measure {
+                repeat(EVENTS_PER_RUN) { detector.addVelocity(SLOW[it % 2], ++time) }
+            }
+        )
+    }
+
+    @Test
+    fun activeGestureLog_actionMove() {
+        ActiveGestureLog.INSTANCE.incrementLogId()
+        assertNoAllocationPerEvent(
+            benchmarkRule.measure {
+                repeat(EVENTS_PER_RUN) {
+                    ActiveGestureProtoLogProxy.logOnInputEventActionMove(
+                        "ACTION_MOVE",
+                        "NONE",
+                        1,
+                        0,
+                    )
+                }
+            }
+        )
+    }
+
+    @Test
+    fun activeGestureLog_distinctEvents() {
+        ActiveGestureLog.INSTANCE.incrementLogId()
+        val event = CompoundString.newEmptyString()
+        // Fills the ring more than once during the warm up, then reuses its entries
+        assertNoAllocationPerEvent(
+            benchmarkRule.measure {
+                repeat(EVENTS_PER_RUN) {
+                    ActiveGestureLog.INSTANCE.addLog(
+                        event
+                            .clear()
+                            .append("pointerCount: %d", it % 2 + 1)
+                            .append(", paused=%b", true),
+                        GestureEvent.MOTION_MOVE,
+                    )
+                }
+            }
+        )
+    }
+
+    /** Feeds back to back very slow speeds, pausing the motion. */
+    private fun pause(detector: MotionPauseDetector) {
+        detector.addVelocity(2f, ++time)
+        detector.addVelocity(SLOW[0], ++time)
+        detector.addVelocity(SLOW[1], ++time)
+    }
+
+    private fun assertNoAllocationPerEvent(result: MicroBenchmarkRule.Result) {
+        // Any allocation takes more than one byte, so this allows a constant overhead per run
+        assertThat(result.allocatedBytesPerRun).isLessThan(EVENTS_PER_RUN.toLong())
+    }
+
+    companion object {
+        private const val EVENTS_PER_RUN = 1000
+
+        /** Speeds below motion_pause_detector_speed_very_slow, in px/ms */
+        private val SLOW = floatArrayOf(0.01f, 0.02f)
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import com.android.launcher3.util.GridOccupancy
+import java.util.Random
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/** Benchmarks [GridOccupancy] queries on nearly full grids. */
+@RunWith(JUnit4::class)
+class GridOccupancyBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule()
+
+    @Test
+    fun findVacantCell_nearlyFullGrid() {
+        val grid = createGrid(FILL_RATIO)
+        val out = IntArray(2)
+        benchmarkRule.measure {
+            for (span in 1..3) grid.findVacantCell(out, span, span)
+        }
+    }
+
+    @Test
+    fun isRegionVacant_allRegions() {
+        val grid = createGrid(FILL_RATIO)
+        benchmarkRule.measure {
+            for (x in 0 until COLUMNS - 1) {
+                for (y in 0 until ROWS - 1) grid.isRegionVacant(x, y, 2, 2)
+            }
+        }
+    }
+
+    @Test
+    fun markCellsAndCopy() {
+        val grid = createGrid(FILL_RATIO)
+        val copy = GridOccupancy(COLUMNS, ROWS)
+        benchmarkRule.measure {
+            grid.copyTo(copy)
+            copy.markCells(1, 1, 3, 3, true)
+            copy.markCells(1, 1, 3, 3, false)
+        }
+    }
+
+    private fun createGrid(fillRatio: Float): GridOccupancy {
+        val random = Random(SEED)
+        val grid = GridOccupancy(COLUMNS, ROWS)
+        for (x in 0 until COLUMNS) {
+            for (y in 0 until ROWS) grid.markCells(x, y, 1, 1, random.nextFloat() < fillRatio)
+        }
+        return grid
+    }
+
+    companion object {
+        private const val SEED = 897L
+        private const val COLUMNS = 12
+        private const val ROWS = 12
+        private const val FILL_RATIO = 0.9f
+    }
+}
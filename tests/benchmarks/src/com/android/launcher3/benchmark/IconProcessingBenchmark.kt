@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.Paint
+import android.graphics.drawable.BitmapDrawable
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.launcher3.icons.ColorExtractor
+import com.android.launcher3.icons.IconNormalizer
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Benchmarks icon normalization and color extraction on synthetic icons. */
+@RunWith(AndroidJUnit4::class)
+class IconProcessingBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule()
+
+    private val icon = createIcon()
+
+    @Test
+    fun iconNormalizer_getScale() {
+        val normalizer = IconNormalizer(ICON_SIZE)
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        val drawable = BitmapDrawable(context.resources, icon)
+        benchmarkRule.measure { normalizer.getScale(drawable) }
+    }
+
+    @Test
+    fun colorExtractor_findDominantColorByHue() {
+        benchmarkRule.measure { ColorExtractor.findDominantColorByHue(icon) }
+    }
+
+    /** Creates an icon with a few colored shapes over a transparent background. */
+    private fun createIcon(): Bitmap {
+        val bitmap = Bitmap.createBitmap(ICON_SIZE, ICON_SIZE, Bitmap.Config.ARGB_8888)
+        val canvas = Canvas(bitmap)
+        val paint = Paint(Paint.ANTI_ALIAS_FLAG)
+        paint.color = Color.rgb(66, 133, 244)
+        canvas.drawCircle(ICON_SIZE / 2f, ICON_SIZE / 2f, ICON_SIZE * 0.45f, paint)
+        paint.color = Color.rgb(219, 68, 55)
+        canvas.drawRect(
+            ICON_SIZE * 0.3f,
+            ICON_SIZE * 0.3f,
+            ICON_SIZE * 0.6f,
+            ICON_SIZE * 0.6f,
+            paint,
+        )
+        return bitmap
+    }
+
+    companion object {
+        private const val ICON_SIZE = 192
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.content.ComponentName
+import android.os.Process
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.launcher3.model.LocalAppPredictor
+import com.android.launcher3.util.ComponentKey
+import java.util.Random
+import java.util.TimeZone
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Benchmarks recording launches in [LocalAppPredictor] and predicting, with 500 apps. */
+@RunWith(AndroidJUnit4::class)
+class LocalAppPredictorBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule(warmupIterations = 5, measuredIterations = 20)
+
+    private val user = Process.myUserHandle()
+
+    @Test
+    fun recordLaunch_500Apps() {
+        val predictor = newPredictor()
+        val random = Random(SEED)
+        val many = List(500) { app(it) }
+        var time = 0L
+        for (app in many) predictor.recordLaunch(app, time++)
+        benchmarkRule.measure {
+            repeat(LAUNCHES_PER_RUN) {
+                time += HOUR_MILLIS / 4
+                predictor.recordLaunch(many[random.nextInt(many.size)], time)
+            }
+        }
+    }
+
+    @Test
+    fun predict_500Apps() {
+        val predictor = newPredictor()
+        val many = List(500) { app(it) }
+        var time = 0L
+        repeat(10) { for (app in many) predictor.recordLaunch(app, time++) }
+        benchmarkRule.measure {
+            repeat(LAUNCHES_PER_RUN) {
+                time += HOUR_MILLIS / 4
+                predictor.predict(time, TOP_K)
+            }
+        }
+    }
+
+    private fun app(index: Int) = ComponentKey(ComponentName("app$index", "app$index.Main"), user)
+
+    private fun newPredictor() =
+        LocalAppPredictor(
+            null,
+            { 0L },
+            { if (it == 0L) user else null },
+            TimeZone.getTimeZone("UTC"),
+        )
+
+    companion object {
+        private const val SEED = 2048L
+        private const val TOP_K = 4
+        private const val LAUNCHES_PER_RUN = 1000
+
+        private const val HOUR_MILLIS = 60 * 60 * 1000L
+    }
+}
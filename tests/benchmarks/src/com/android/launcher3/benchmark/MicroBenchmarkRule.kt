@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import java.io.File
+import java.lang.management.ManagementFactory
+import org.junit.rules.TestRule
+import org.junit.runner.Description
+import org.junit.runners.model.Statement
+
+/**
+ * Minimal microbenchmark harness that runs on the host JVM (under Robolectric when Android classes
+ * are needed).
+ *
+ * Each call to [measure] warms the block up, then times [measuredIterations] runs and records the
+ * minimum, median and mean time per run along with the bytes allocated per run. Results of a test
+ * method are written as JSON to `<launcher.benchmark.outputDir>/<class name>.<method name>.json`
+ * so that they can be collected and compared across builds.
+ */
+class MicroBenchmarkRule(
+    private val warmupIterations: Int = DEFAULT_WARMUP_ITERATIONS,
+    private val measuredIterations: Int = DEFAULT_MEASURED_ITERATIONS,
+) : TestRule {
+
+    data class Result(
+        val name: String,
+        val iterations: Int,
+        val minNs: Long,
+        val medianNs: Long,
+        val meanNs: Long,
+        val allocatedBytesPerRun: Long,
+    )
+
+    private var currentTest: Description? = null
+
+    /** Results measured by the current test method, in order. */
+    val results = ArrayList<Result>()
+
+    override fun apply(base: Statement, description: Description): Statement =
+        object : Statement() {
+            override fun evaluate() {
+                currentTest = description
+                try {
+                    base.evaluate()
+                } finally {
+                    currentTest = null
+                    writeResults(description)
+                }
+            }
+        }
+
+    /** Measures [block], naming the result after the running test and the optional [label]. */
+    fun measure(label: String? = null, block: () -> Unit): Result {
+        val testName = currentTest?.methodName ?: "unknown"
+        val name = if (label == null) testName else "${testName}[$label]"
+
+        repeat(warmupIterations) { block() }
+
+        val timings = LongArray(measuredIterations)
+        val allocatedBefore = allocatedBytes()
+        for (i in 0 until measuredIterations) {
+            val start = System.nanoTime()
+            block()
+            timings[i] = System.nanoTime() - start
+        }
+        val allocated = allocatedBytes() - allocatedBefore
+
+        timings.sort()
+        val result =
+            Result(
+                name,
+                measuredIterations,
+                timings.first(),
+                timings[measuredIterations / 2],
+                timings.sum() / measuredIterations,
+                if (allocatedBefore < 0) -1 else allocated / measuredIterations,
+            )
+        results.add(result)
+        return result
+    }
+
+    private fun writeResults(description: Description) {
+        if (results.isEmpty()) return
+        val dir = File(System.getProperty(OUTPUT_DIR_PROPERTY) ?: DEFAULT_OUTPUT_DIR)
+        dir.mkdirs()
+        val json =
+            results.joinToString(separator = ",\n", prefix = "[\n", postfix = "\n]\n") {
+                "  {\"name\": \"${it.name}\", \"iterations\": ${it.iterations}, " +
+                    "\"minNs\": ${it.minNs}, \"medianNs\": ${it.medianNs}, " +
+                    "\"meanNs\": ${it.meanNs}, " +
+                    "\"allocatedBytesPerRun\": ${it.allocatedBytesPerRun}}"
+            }
+        // The rule is applied to every test method, so each method gets its own file
+        File(dir, "${description.className}.${description.methodName}.json").writeText(json)
+    }
+
+    companion object {
+        const val OUTPUT_DIR_PROPERTY = "launcher.benchmark.outputDir"
+        private const val DEFAULT_OUTPUT_DIR = "build/outputs/benchmarks"
+        private const val DEFAULT_WARMUP_ITERATIONS = 50
+        private const val DEFAULT_MEASURED_ITERATIONS = 200
+
+        /** Returns the bytes allocated so far by the current thread, or -1 if not supported. */
+        @JvmStatic
+        fun allocatedBytes(): Long {
+            val bean = ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean
+            if (bean == null || !bean.isThreadAllocatedMemorySupported) return -1
+            return bean.getThreadAllocatedBytes(Thread.currentThread().id)
+        }
+    }
+}
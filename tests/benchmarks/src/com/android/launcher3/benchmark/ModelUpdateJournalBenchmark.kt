@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.launcher3.LauncherSettings.Favorites
+import com.android.launcher3.model.ModelDbController
+import com.android.launcher3.model.PendingItemUpdates
+import com.android.launcher3.model.PendingItemUpdates.WRITE_POSITION
+import com.android.launcher3.model.PendingItemUpdates.WRITE_SPAN
+import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.provider.LauncherDbUtils.itemIdMatch
+import com.android.launcher3.util.ContentWriter
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Benchmarks writing the result of a full page reorder to the launcher database, where every item
+ * is moved during the drag and then resized on drop.
+ */
+@RunWith(AndroidJUnit4::class)
+class ModelUpdateJournalBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule(warmupIterations = 10, measuredIterations = 50)
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val controller = ModelDbController(context)
+    private val items = ArrayList<ItemInfo>()
+
+    @Before
+    fun setUp() {
+        controller.createEmptyDB()
+        repeat(PAGE_SIZE) { i ->
+            val item =
+                ItemInfo().apply {
+                    id = controller.generateNewItemId()
+                    itemType = Favorites.ITEM_TYPE_APPLICATION
+                    container = Favorites.CONTAINER_DESKTOP
+                    screenId = 0
+                    cellX = i % COLUMNS
+                    cellY = i / COLUMNS
+                }
+            val writer = ContentWriter(context)
+            item.writeToValues(writer)
+            writer.put(Favorites._ID, item.id)
+            controller.insert(writer.getValues(context))
+            items.add(item)
+        }
+    }
+
+    @Test
+    fun reorderPage_updatePerCall() {
+        benchmarkRule.measure {
+            shiftItems()
+            for (item in items) {
+                controller.update(positionValues(item, false), itemIdMatch(item.id), null)
+                controller.update(positionValues(item, true), itemIdMatch(item.id), null)
+            }
+        }
+    }
+
+    @Test
+    fun reorderPage_journal() {
+        benchmarkRule.measure {
+            shiftItems()
+            val updates = PendingItemUpdates()
+            for (item in items) {
+                updates.add(item, WRITE_POSITION, null)
+                updates.add(item, WRITE_POSITION or WRITE_SPAN, null)
+            }
+            updates.write(context, controller)
+        }
+    }
+
+    /** Moves every item one cell forward, wrapping around the page. */
+    private fun shiftItems() {
+        for (item in items) {
+            val index = (item.cellY * COLUMNS + item.cellX + 1) % PAGE_SIZE
+            item.cellX = index % COLUMNS
+            item.cellY = index / COLUMNS
+        }
+    }
+
+    private fun positionValues(item: ItemInfo, withSpan: Boolean) =
+        ContentWriter(context)
+            .put(Favorites.CONTAINER, item.container)
+            .put(Favorites.CELLX, item.cellX)
+            .put(Favorites.CELLY, item.cellY)
+            .put(Favorites.RANK, item.rank)
+            .put(Favorites.SCREEN, item.screenId)
+            .apply { if (withSpan) put(Favorites.SPANX, item.spanX).put(Favorites.SPANY, item.spanY) }
+            .getValues(context)
+
+    companion object {
+        private const val COLUMNS = 5
+        private const val PAGE_SIZE = 30
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.qsb.FakePackageQueries
+import app.lawnchair.qsb.QsbIntentResolver
+import app.lawnchair.qsb.providers.Google
+import app.lawnchair.qsb.providers.QsbSearchProvider
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Benchmarks binding the QSB again once [QsbIntentResolver] has cached its answers. */
+@RunWith(AndroidJUnit4::class)
+class QsbIntentResolverBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val packageManager = FakePackageQueries()
+    private val resolver = QsbIntentResolver(context, packageManager)
+
+    @After
+    fun tearDown() {
+        resolver.close()
+    }
+
+    @Test
+    fun bind_cached() {
+        packageManager.installed += Google.packageName
+        bind(Google)
+        benchmarkRule.measure { bind(Google) }
+    }
+
+    /** Makes the same queries as binding the QSB and its icons for [provider]. */
+    private fun bind(provider: QsbSearchProvider) {
+        resolver.canResolveSearchIntent(provider)
+        resolver.canResolveWebsiteIntent(provider)
+        resolver.canResolveVoiceIntent(provider)
+        resolver.canResolveLensIntent()
+        resolver.isDownloaded(provider)
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.graphics.Point
+import android.view.View
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.launcher3.CellLayout
+import com.android.launcher3.CellLayoutContainer
+import com.android.launcher3.MultipageCellLayout
+import com.android.launcher3.celllayout.CellLayoutLayoutParams
+import com.android.launcher3.celllayout.ItemConfiguration
+import com.android.launcher3.celllayout.ReorderParameters
+import com.android.launcher3.views.DoubleShadowBubbleTextView
+import com.google.common.truth.Truth.assertWithMessage
+import org.junit.Assume.assumeTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Benchmarks the reorder algorithms of [CellLayout] and [MultipageCellLayout] on dense grids. */
+@RunWith(AndroidJUnit4::class)
+class ReorderAlgorithmBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule()
+
+    private val baseContext = BenchmarkActivityContext(ApplicationProvider.getApplicationContext())
+
+    private val container =
+        object : CellLayoutContainer {
+            override fun getCellLayoutId(cellLayout: CellLayout): Int = 0
+
+            override fun getCellLayoutIndex(cellLayout: CellLayout): Int = 0
+
+            override fun getPanelCount(): Int = 1
+
+            override fun getPageDescription(pageIndex: Int): String = ""
+        }
+
+    @Test
+    fun findReorderSolution_denseGrid() {
+        val cl = createDenseCellLayout(COLUMNS, ROWS, isMulti = false)
+        val algorithm = cl.createReorderAlgorithm()
+        val params = dragParameters(cl, 2, 2)
+        benchmarkRule.measure {
+            algorithm.clearSolutionCache()
+            algorithm.findReorderSolution(params, true)
+        }
+    }
+
+    /** A drag frame over the same cell as the previous frame, replayed from the cache. */
+    @Test
+    fun findReorderSolution_repeatedFrame() {
+        val cl = createDenseCellLayout(COLUMNS, ROWS, isMulti = false)
+        val algorithm = cl.createReorderAlgorithm()
+        val params = dragParameters(cl, 2, 2)
+        benchmarkRule.measure { algorithm.findReorderSolution(params, true) }
+    }
+
+    /**
+     * Searching for a solution on every drag frame reuses the scratch state of the layout, so once
+     * warmed up it must not allocate at all.
+     */
+    @Test
+    fun findReorderSolution_steadyState_doesNotAllocate() {
+        val cl = createDenseCellLayout(COLUMNS, ROWS, isMulti = false)
+        val params = dragParameters(cl, 2, 2)
+        val algorithm = cl.reorderAlgorithm
+        val result =
+            benchmarkRule.measure {
+                algorithm.clearSolutionCache()
+                algorithm.findReorderSolution(params, true)
+            }
+
+        assumeTrue(result.allocatedBytesPerRun >= 0)
+        assertWithMessage("bytes allocated per drag frame")
+            .that(result.allocatedBytesPerRun)
+            .isEqualTo(0)
+    }
+
+    @Test
+    fun calculateReorder_denseGrid() {
+        val cl = createDenseCellLayout(COLUMNS, ROWS, isMulti = false)
+        val algorithm = cl.createReorderAlgorithm()
+        benchmarkRule.measure { algorithm.calculateReorder(dragParameters(cl, 2, 2)) }
+    }
+
+    @Test
+    fun calculateReorder_multicell_denseGrid() {
+        val cl = createDenseCellLayout(COLUMNS * 2, ROWS, isMulti = true) as MultipageCellLayout
+        val algorithm = cl.createReorderAlgorithm()
+        benchmarkRule.measure { algorithm.calculateReorder(dragParameters(cl, 2, 2)) }
+    }
+
+    /** Returns parameters for dragging a widget of the given span to the center of the grid. */
+    private fun dragParameters(cl: CellLayout, spanX: Int, spanY: Int): ReorderParameters {
+        val point = IntArray(2)
+        val x = (cl.countX - spanX) / 2
+        val y = (cl.countY - spanY) / 2
+        cl.regionToCenterPoint(x, y, spanX, spanY, point)
+        val configuration = ItemConfiguration()
+        cl.copyCurrentStateToSolution(configuration)
+        return ReorderParameters(point[0], point[1], spanX, spanY, 1, 1, null, configuration)
+    }
+
+    /**
+     * Creates a grid where every cell but one is occupied, with a 2x2 widget in each corner and
+     * icons everywhere else.
+     */
+    private fun createDenseCellLayout(columns: Int, rows: Int, isMulti: Boolean): CellLayout {
+        val dp = baseContext.deviceProfile.copy(baseContext)
+        dp.inv.numColumns = if (isMulti) columns / 2 else columns
+        dp.inv.numRows = rows
+        dp.cellLayoutBorderSpacePx = Point(0, 0)
+        val context = BenchmarkActivityContext(baseContext, dp)
+        val cl = if (isMulti) MultipageCellLayout(context) else CellLayout(context, container)
+        cl.measure(
+            View.MeasureSpec.makeMeasureSpec(LAYOUT_SIZE, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(LAYOUT_SIZE, View.MeasureSpec.EXACTLY),
+        )
+
+        val widgets =
+            listOf(
+                Point(0, 0),
+                Point(columns - 2, 0),
+                Point(0, rows - 2),
+                Point(columns - 2, rows - 2),
+            )
+        widgets.forEach { addView(cl, View(context), it.x, it.y, 2, 2) }
+        for (x in 0 until columns) {
+            for (y in 0 until rows) {
+                val inWidget = widgets.any { x - it.x in 0..1 && y - it.y in 0..1 }
+                // Leave a single empty cell so that a solution requires pushing items.
+                if (!inWidget && !(x == columns / 2 && y == rows / 2)) {
+                    addView(cl, DoubleShadowBubbleTextView(context), x, y, 1, 1)
+                }
+            }
+        }
+        return cl
+    }
+
+    private fun addView(cl: CellLayout, view: View, x: Int, y: Int, spanX: Int, spanY: Int) {
+        val lp = CellLayoutLayoutParams(x, y, spanX, spanY)
+        view.layoutParams = lp
+        cl.addViewToCellLayout(view, -1, view.id, lp, true)
+    }
+
+    companion object {
+        private const val COLUMNS = 6
+        private const val ROWS = 7
+        private const val LAYOUT_SIZE = 1000
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import android.content.ContentValues
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.search.LawnchairRecentSuggestionProvider
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.COLUMN_DATE
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.COLUMN_DISPLAY1
+import app.lawnchair.search.LawnchairRecentSuggestionProvider.Companion.COLUMN_QUERY
+import app.lawnchair.search.algorithms.engine.provider.HistorySearchProvider
+import kotlinx.coroutines.runBlocking
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+
+/** Benchmarks reading the recent searches. */
+@RunWith(AndroidJUnit4::class)
+class SearchHistoryBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    @Before
+    fun setUp() {
+        Robolectric.setupContentProvider(
+            LawnchairRecentSuggestionProvider::class.java,
+            LawnchairRecentSuggestionProvider.AUTHORITY,
+        )
+        val now = System.currentTimeMillis()
+        for (i in 0 until SAVED_QUERIES) saveQuery(QUERIES[i % QUERIES.size] + " $i", now - i)
+    }
+
+    @Test
+    fun recentKeywords_zeroState() {
+        benchmarkRule.measure { recent(MAX_RESULTS) }
+    }
+
+    @Test
+    fun recentKeywords_prefix() {
+        benchmarkRule.measure { recent(MAX_RESULTS, "pi") }
+    }
+
+    private fun recent(max: Int, prefix: String = "") = runBlocking {
+        HistorySearchProvider.getRecentKeywords(context, max, prefix).map {
+            it.data.getValueByKey(COLUMN_DISPLAY1)!!
+        }
+    }
+
+    private fun saveQuery(query: String, date: Long) {
+        context.contentResolver.insert(
+            LawnchairRecentSuggestionProvider.SUGGESTIONS_URI,
+            ContentValues().apply {
+                put(COLUMN_DISPLAY1, query)
+                put(COLUMN_QUERY, query)
+                put(COLUMN_DATE, date)
+            },
+        )
+    }
+
+    companion object {
+        private const val SAVED_QUERIES = 1000
+        private const val MAX_RESULTS = 8
+
+        private val QUERIES = listOf("weather tomorrow", "pizza near me", "Pixel update", "news")
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.search.algorithms.engine.provider.apps.AppMatcher
+import com.android.launcher3.search.StringMatcherUtility
+import com.android.launcher3.search.StringMatcherUtility.StringMatcher
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Benchmarks matching typed queries against a list of app names. */
+@RunWith(AndroidJUnit4::class)
+class SearchMatcherBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule()
+
+    private val appNames = (0 until APP_COUNT).map { "${WORDS[it % WORDS.size]} App $it" }
+
+    @Test
+    fun appMatcher_match() {
+        benchmarkRule.measure {
+            for (query in QUERIES) appNames.forEach { AppMatcher.match(it, query) }
+        }
+    }
+
+    @Test
+    fun stringMatcherUtility_matches() {
+        val matcher = StringMatcher.getInstance()
+        benchmarkRule.measure {
+            for (query in QUERIES) {
+                appNames.forEach { StringMatcherUtility.matches(query, it, matcher) }
+            }
+        }
+    }
+
+    companion object {
+        private const val APP_COUNT = 300
+        private val WORDS =
+            listOf("Camera", "Calendar", "Clock", "Maps", "Messages", "Photos", "Settings")
+        private val QUERIES = listOf("c", "ca", "cam", "app 1", "set", "zzz")
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.benchmark
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import app.lawnchair.search.algorithms.engine.provider.web.WebSearchProvider
+import app.lawnchair.search.algorithms.engine.provider.web.WebSuggestionCache
+import app.lawnchair.search.algorithms.engine.provider.web.WebSuggestionHttp
+import app.lawnchair.search.algorithms.engine.provider.web.WebSuggestionProvider
+import app.lawnchair.search.algorithms.engine.provider.web.await
+import java.util.concurrent.TimeUnit
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.last
+import kotlinx.coroutines.runBlocking
+import okhttp3.Request
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Benchmarks [WebSuggestionProvider] against a local suggestion server. The behavior of the cache
+ * is covered by WebSuggestionCacheTest.
+ */
+@RunWith(AndroidJUnit4::class)
+class WebSuggestionBenchmark {
+
+    @get:Rule val benchmarkRule = MicroBenchmarkRule()
+
+    private val server = MockWebServer()
+
+    private val provider =
+        object : WebSearchProvider {
+            override val label = 0
+            override val iconRes = 0
+            override val id = "mock"
+
+            override fun getSuggestions(query: String): Flow<List<String>> = flow {
+                val url = server.url("/suggest").newBuilder().addQueryParameter("q", query).build()
+                WebSuggestionHttp.client.newCall(Request.Builder().url(url).build()).await().use {
+                    emit(it.body.string().split('\n'))
+                }
+            }
+
+            override fun getSearchUrl(query: String) = query
+
+            override fun toString() = id
+        }
+
+    @Before
+    fun setup() {
+        server.dispatcher =
+            object : Dispatcher() {
+                override fun dispatch(request: RecordedRequest): MockResponse {
+                    val query = request.requestUrl?.queryParameter("q").orEmpty()
+                    return MockResponse()
+                        .setBody((1..SUGGESTION_COUNT).joinToString("\n") { "$query $it" })
+                        .setBodyDelay(SERVER_DELAY_MS, TimeUnit.MILLISECONDS)
+                }
+            }
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun uncachedQuery() {
+        val cache = WebSuggestionCache(maxEntries = 0)
+
+        benchmarkRule.measure { runBlocking { suggestions(QUERY, cache, 0).last() } }
+    }
+
+    @Test
+    fun cachedQuery() {
+        val cache = WebSuggestionCache()
+        runBlocking { suggestions(QUERY, cache, 0).last() }
+
+        benchmarkRule.measure { runBlocking { suggestions(QUERY, cache, DEBOUNCE_MS).last() } }
+    }
+
+    private fun suggestions(query: String, cache: WebSuggestionCache, debounceMs: Long) =
+        WebSuggestionProvider.getSuggestions(provider, provider.id, query, cache, debounceMs)
+
+    companion object {
+        private const val SUGGESTION_COUNT = 8
+        private const val SERVER_DELAY_MS = 20L
+        private const val DEBOUNCE_MS = 80L
+        private const val QUERY = "weather tomorrow"
+    }
+}
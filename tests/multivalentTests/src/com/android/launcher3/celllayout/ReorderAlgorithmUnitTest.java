@@ -137,6 +137,108 @@ public class ReorderAlgorithmUnitTest {
         }
     }
 
+    /**
+     * Solves random boards twice with the same algorithm, the second time replaying the
+     * rearrangements memoized by the first one, and makes sure both solutions are the same.
+     */
+    @Test
+    public void cachedSolutionsMatchSearchedSolutions() {
+        Random generator = new Random(SEED);
+        mApplicationContext = new ActivityContextWrapper(getApplicationContext());
+        for (int i = 0; i < TOTAL_OF_CASES_GENERATED / 6; i++) {
+            int seed = generator.nextInt();
+            Log.d(TAG, "Seed = " + seed);
+            RandomBoardGenerator boardGenerator = new RandomBoardGenerator(new Random(seed));
+            int width = boardGenerator.getRandom(3, MAX_BOARD_SIZE);
+            int height = boardGenerator.getRandom(3, MAX_BOARD_SIZE);
+            int spanX = boardGenerator.getRandom(1, width - 2);
+            int spanY = boardGenerator.getRandom(1, height - 2);
+            int x = boardGenerator.getRandom(0, width - spanX);
+            int y = boardGenerator.getRandom(0, height - spanY);
+            CellLayout cl = createCellLayout(
+                    boardGenerator.generateBoard(width, height, spanX * spanY), false);
+            ReorderAlgorithm algorithm = cl.createReorderAlgorithm();
+
+            ItemConfiguration searched = calculateReorder(cl, algorithm, x, y, spanX, spanY);
+            int misses = algorithm.getSolutionCacheMissCount();
+            ItemConfiguration replayed = calculateReorder(cl, algorithm, x, y, spanX, spanY);
+
+            assertEquals("second reorder should not search again " + i, misses,
+                    algorithm.getSolutionCacheMissCount());
+            assertEquals("solutions should match " + i, describe(searched), describe(replayed));
+        }
+    }
+
+    /**
+     * Memoizes only the first rearrangements of a reorder, by not letting the item shrink, then
+     * runs the reorder again letting it shrink, and makes sure the solution is the same as the one
+     * found without the cache.
+     */
+    @Test
+    public void partiallyCachedSolutionsMatchSearchedSolutions() {
+        Random generator = new Random(SEED);
+        mApplicationContext = new ActivityContextWrapper(getApplicationContext());
+        int partialReplays = 0;
+        for (int i = 0; i < TOTAL_OF_CASES_GENERATED / 6; i++) {
+            int seed = generator.nextInt();
+            Log.d(TAG, "Seed = " + seed);
+            RandomBoardGenerator boardGenerator = new RandomBoardGenerator(new Random(seed));
+            int width = boardGenerator.getRandom(3, MAX_BOARD_SIZE);
+            int height = boardGenerator.getRandom(3, MAX_BOARD_SIZE);
+            int spanX = boardGenerator.getRandom(1, width - 2);
+            int spanY = boardGenerator.getRandom(1, height - 2);
+            int x = boardGenerator.getRandom(0, width - spanX);
+            int y = boardGenerator.getRandom(0, height - spanY);
+            CellLayout cl = createCellLayout(
+                    boardGenerator.generateBoard(width, height, spanX * spanY), false);
+
+            ItemConfiguration searched = calculateReorder(cl, cl.createReorderAlgorithm(), x, y,
+                    spanX, spanY, 1, 1);
+
+            ReorderAlgorithm algorithm = cl.createReorderAlgorithm();
+            calculateReorder(cl, algorithm, x, y, spanX, spanY, spanX, spanY);
+            int hits = algorithm.getSolutionCacheHitCount();
+            int misses = algorithm.getSolutionCacheMissCount();
+            ItemConfiguration replayed = calculateReorder(cl, algorithm, x, y, spanX, spanY, 1, 1);
+            if (algorithm.getSolutionCacheHitCount() > hits
+                    && algorithm.getSolutionCacheMissCount() > misses) {
+                partialReplays++;
+            }
+
+            assertEquals("solutions should match " + i, describe(searched), describe(replayed));
+        }
+        assertTrue("some reorders should be partially replayed", partialReplays > 0);
+    }
+
+    private ItemConfiguration calculateReorder(CellLayout cl, ReorderAlgorithm algorithm, int x,
+            int y, int spanX, int spanY) {
+        return calculateReorder(cl, algorithm, x, y, spanX, spanY, 1, 1);
+    }
+
+    private ItemConfiguration calculateReorder(CellLayout cl, ReorderAlgorithm algorithm, int x,
+            int y, int spanX, int spanY, int minSpanX, int minSpanY) {
+        int[] pixels = new int[2];
+        cl.regionToCenterPoint(x, y, spanX, spanY, pixels);
+        ItemConfiguration configuration = new ItemConfiguration();
+        cl.copyCurrentStateToSolution(configuration);
+        return algorithm.calculateReorder(new ReorderParameters(pixels[0], pixels[1], spanX,
+                spanY, minSpanX, minSpanY, null, configuration));
+    }
+
+    private static String describe(ItemConfiguration solution) {
+        if (solution == null) return "null";
+        StringBuilder sb = new StringBuilder(solution.isSolution + " " + solution);
+        for (int i = 0; i < solution.map.size(); i++) {
+            sb.append(" ").append(solution.map.keyAt(i).hashCode())
+                    .append("=").append(solution.map.valueAt(i));
+        }
+        // The order the views are pushed in
+        for (int i = 0; i < solution.sortedViews.size(); i++) {
+            sb.append(" ").append(solution.sortedViews.get(i).hashCode());
+        }
+        return sb.toString();
+    }
+
     private void addViewInCellLayout(CellLayout cellLayout, int cellX, int cellY, int spanX,
             int spanY, boolean isWidget) {
         View cell = isWidget ? new View(mApplicationContext) : new DoubleShadowBubbleTextView(
@@ -146,8 +248,7 @@ public class ReorderAlgorithmUnitTest {
                 (CellLayoutLayoutParams) cell.getLayoutParams(), true);
     }
 
-    public ItemConfiguration solve(CellLayoutBoard board, int x, int y, int spanX,
-            int spanY, int minSpanX, int minSpanY, boolean isMulti) {
+    private CellLayout createCellLayout(CellLayoutBoard board, boolean isMulti) {
         CellLayout cl = mCellLayoutBuilder.createCellLayoutDefaultSize(board.getWidth(),
                 board.getHeight(), isMulti);
 
@@ -166,6 +267,12 @@ public class ReorderAlgorithmUnitTest {
                         widget -> addViewInCellLayout(cl, widget.getCellX(), widget.getCellY(),
                                 widget.getSpanX(), widget.getSpanY(), true)
                 );
+        return cl;
+    }
+
+    public ItemConfiguration solve(CellLayoutBoard board, int x, int y, int spanX,
+            int spanY, int minSpanX, int minSpanY, boolean isMulti) {
+        CellLayout cl = createCellLayout(board, isMulti);
 
         int[] testCaseXYinPixels = new int[2];
         cl.regionToCenterPoint(x, y, spanX, spanY, testCaseXYinPixels);
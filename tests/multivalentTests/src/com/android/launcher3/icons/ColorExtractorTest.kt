@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.icons
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import android.util.SparseArray
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.google.common.truth.Truth.assertThat
+import java.util.Random
+import kotlin.math.abs
+import kotlin.math.hypot
+import kotlin.math.sqrt
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit test for [ColorExtractor]. */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class ColorExtractorTest {
+
+    @Test
+    fun hueOf_isExact() {
+        for (rgb in 0 until 0x1000000) {
+            assertThat(ColorExtractor.hueOf(rgb)).isEqualTo(exactHue(rgb))
+        }
+    }
+
+    @Test
+    fun hueOf_matchesColorToHsv() {
+        val hsv = FloatArray(3)
+        for (rgb in 0 until 0x1000000 step 7) {
+            Color.colorToHSV(rgb or OPAQUE, hsv)
+            // Only differs when the float hue is rounded just below an integer
+            val distance = abs(ColorExtractor.hueOf(rgb) - hsv[0].toInt())
+            assertThat(minOf(distance, 360 - distance)).isAtMost(1)
+        }
+    }
+
+    @Test
+    fun findDominantColorByHue_icon_returnsColorOfLargestArea() {
+        assertThat(ColorExtractor.findDominantColorByHue(createIcon(RED, RED, 96))).isEqualTo(RED)
+        assertThat(ColorExtractor.findDominantColorByHue(createIcon(BLUE, RED, 96)))
+            .isEqualTo(BLUE)
+        assertThat(ColorExtractor.findDominantColorByHue(createIcon(RED, RED, 1))).isEqualTo(RED)
+    }
+
+    @Test
+    fun findDominantColorByHue_skipsMostlyTransparentPixels() {
+        // Pure red keeps its channels when premultiplied by these alphas
+        val transparent = createBitmap(IntArray(64 * 64) { 0x7FFF0000 }, 64, 64)
+        val halfOpaque = createBitmap(IntArray(64 * 64) { 0x80FF0000.toInt() }, 64, 64)
+
+        assertThat(ColorExtractor.findDominantColorByHue(transparent)).isEqualTo(OPAQUE)
+        assertThat(ColorExtractor.findDominantColorByHue(halfOpaque)).isEqualTo(Color.RED)
+    }
+
+    @Test
+    fun findDominantColorByHue_gray_returnsGray() {
+        val gray = createBitmap(IntArray(48 * 48) { Color.GRAY }, 48, 48)
+
+        assertThat(ColorExtractor.findDominantColorByHue(gray)).isEqualTo(Color.GRAY)
+    }
+
+    @Test
+    fun findDominantColorByHue_matchesPixelByPixelScan() {
+        val random = Random(SEED)
+        val bitmaps = buildList {
+            repeat(24) {
+                val size = ICON_SIZES.random(random)
+                add(createIcon(randomColor(random), randomColor(random), size))
+            }
+            repeat(4) { add(createBitmap(IntArray(108 * 108) { random.nextInt() }, 108, 108)) }
+            add(createBitmap(IntArray(3 * 500) { randomColor(random) }, 3, 500))
+        }
+
+        for (bitmap in bitmaps) {
+            assertThat(ColorExtractor.findDominantColorByHue(bitmap))
+                .isEqualTo(findDominantColorByHueReference(bitmap))
+        }
+    }
+
+    /** A circle of [outer] with a square of [inner], and half transparent edges */
+    private fun createIcon(outer: Int, inner: Int, size: Int): Bitmap {
+        val center = size / 2f
+        val pixels =
+            IntArray(size * size) {
+                val x = it % size + 0.5f
+                val y = it / size + 0.5f
+                val distance = hypot(x - center, y - center) / size
+                when {
+                    abs(x - center) < size * 0.15f && abs(y - center) < size * 0.15f -> inner
+                    distance < 0.43f -> outer
+                    distance < 0.45f -> outer and 0x88FFFFFF.toInt()
+                    else -> Color.TRANSPARENT
+                }
+            }
+        return createBitmap(pixels, size, size)
+    }
+
+    private fun createBitmap(pixels: IntArray, width: Int, height: Int): Bitmap =
+        Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888).apply {
+            setPixels(pixels, 0, width, 0, 0, width, height)
+        }
+
+    private fun randomColor(random: Random) = random.nextInt() or OPAQUE
+
+    /** The integer part of the hue of [rgb], computed with integer divisions */
+    private fun exactHue(rgb: Int): Int {
+        val r = Color.red(rgb)
+        val g = Color.green(rgb)
+        val b = Color.blue(rgb)
+        val max = maxOf(r, g, b)
+        val delta = max - minOf(r, g, b)
+        if (delta == 0) return 0
+        val degreesTimesDelta =
+            when (max) {
+                r -> 60 * (g - b)
+                g -> 120 * delta + 60 * (b - r)
+                else -> 240 * delta + 60 * (r - g)
+            }
+        return Math.floorMod(Math.floorDiv(degreesTimesDelta, delta), 360)
+    }
+
+    /**
+     * The implementation of [ColorExtractor.findDominantColorByHue] reading every sampled pixel
+     * with [Bitmap.getPixel] and converting it with [Color.colorToHSV], with exact hues.
+     */
+    private fun findDominantColorByHueReference(bitmap: Bitmap): Int {
+        val height = bitmap.height
+        val width = bitmap.width
+        val sampleStride = sqrt((height * width) / NUM_SAMPLES.toDouble()).toInt().coerceAtLeast(1)
+
+        val hsv = FloatArray(3)
+        val hueScoreHistogram = FloatArray(360)
+        var highScore = -1f
+        var bestHue = -1
+
+        val pixels = IntArray(NUM_SAMPLES)
+        var pixelCount = 0
+
+        for (y in 0..<height step sampleStride) {
+            for (x in 0..<width step sampleStride) {
+                val argb = bitmap.getPixel(x, y)
+                val alpha = 0xFF and (argb shr 24)
+                if (alpha < 0x80) {
+                    continue
+                }
+                val rgb = argb or OPAQUE
+                Color.colorToHSV(rgb, hsv)
+                val hue = exactHue(rgb)
+                if (pixelCount < NUM_SAMPLES) {
+                    pixels[pixelCount++] = rgb
+                }
+                val score = hsv[1] * hsv[2]
+                hueScoreHistogram[hue] += score
+                if (hueScoreHistogram[hue] > highScore) {
+                    highScore = hueScoreHistogram[hue]
+                    bestHue = hue
+                }
+            }
+        }
+
+        val rgbScores = SparseArray<Float>()
+        var bestColor = OPAQUE
+        highScore = -1f
+        for (i in 0..<pixelCount) {
+            val rgb = pixels[i]
+            Color.colorToHSV(rgb, hsv)
+            if (exactHue(rgb) == bestHue) {
+                val s = hsv[1]
+                val v = hsv[2]
+                val bucket = (s * 100).toInt() + (v * 10000).toInt()
+                val score = s * v
+                val oldTotal = rgbScores[bucket]
+                val newTotal = if (oldTotal == null) score else oldTotal + score
+                rgbScores.put(bucket, newTotal)
+                if (newTotal > highScore) {
+                    highScore = newTotal
+                    bestColor = rgb
+                }
+            }
+        }
+        return bestColor
+    }
+
+    companion object {
+        private const val SEED = 1789L
+        private const val NUM_SAMPLES = 20
+        private const val OPAQUE = -0x1000000
+        private val RED = Color.rgb(219, 68, 55)
+        private val BLUE = Color.rgb(66, 133, 244)
+        private val ICON_SIZES = listOf(48, 96, 108)
+    }
+}
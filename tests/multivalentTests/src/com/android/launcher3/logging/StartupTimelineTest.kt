@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.logging
+
+import android.app.Activity
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+
+/** Unit test for [StartupTimeline]. */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class StartupTimelineTest {
+
+    @Before
+    fun setUp() {
+        StartupTimeline.reset()
+    }
+
+    @After
+    fun tearDown() {
+        StartupTimeline.reset()
+    }
+
+    @Test
+    fun mark_recordsPhasesInOrder() {
+        StartupTimeline.mark("loadWorkspace")
+        StartupTimeline.mark("bindWorkspace")
+
+        assertThat(StartupTimeline.getPhases().map { it.name })
+            .containsExactly("loadWorkspace", "bindWorkspace")
+            .inOrder()
+        val json = StartupTimeline.toJson()
+        assertThat(json.length()).isEqualTo(2)
+        val first = json.getJSONObject(0)
+        val second = json.getJSONObject(1)
+        assertThat(first.getString("name")).isEqualTo("loadWorkspace")
+        assertThat(second.getString("name")).isEqualTo("bindWorkspace")
+        assertThat(second.getString("thread")).isEqualTo(Thread.currentThread().name)
+        // Every split starts where the previous one ended
+        assertThat(second.getDouble("durationMs")).isAtLeast(0.0)
+        assertThat(second.getDouble("elapsedMs") - first.getDouble("elapsedMs"))
+            .isWithin(1e-6)
+            .of(second.getDouble("durationMs"))
+    }
+
+    @Test
+    fun finish_stopsRecording() {
+        StartupTimeline.mark("loadWorkspace")
+        StartupTimeline.finish()
+        StartupTimeline.mark("reload")
+
+        assertThat(StartupTimeline.getPhases().map { it.name })
+            .containsExactly("loadWorkspace", "modelLoadComplete")
+            .inOrder()
+    }
+
+    @Test
+    fun reset_clearsTimeline() {
+        StartupTimeline.mark("loadWorkspace")
+        StartupTimeline.finish()
+
+        StartupTimeline.reset()
+        StartupTimeline.mark("loadAllApps")
+
+        assertThat(StartupTimeline.getPhases().map { it.name }).containsExactly("loadAllApps")
+        assertThat(StartupTimeline.toJson().length()).isEqualTo(1)
+    }
+
+    @Test
+    fun onCurrentPageBound_reportsFullyDrawnOnce() {
+        val activity = mock<Activity>()
+
+        StartupTimeline.onCurrentPageBound(activity)
+        StartupTimeline.onCurrentPageBound(activity)
+
+        verify(activity, times(1)).reportFullyDrawn()
+        assertThat(StartupTimeline.getPhases().map { it.name }).containsExactly("currentPageBound")
+        // The timeline is only written to a file when its log tag is enabled
+        verify(activity, never()).getExternalFilesDir(anyOrNull())
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.model
+
+import android.content.ComponentName
+import android.content.Context
+import android.content.Intent
+import android.os.UserHandle
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.AppFilter
+import com.android.launcher3.icons.IconCache
+import com.android.launcher3.model.data.AppInfo
+import com.android.launcher3.model.repository.AppsListRepository
+import com.android.launcher3.pm.PackageInstallInfo
+import com.android.launcher3.pm.PackageInstallInfo.STATUS_INSTALLING
+import com.android.launcher3.util.FlagOp
+import com.google.common.truth.Truth.assertThat
+import com.google.common.truth.Truth.assertWithMessage
+import kotlin.random.Random
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+
+/** Tests for the component and package indexes of [AllAppsList] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class AllAppsListTest {
+
+    private val appFilter: AppFilter = mock { on { shouldShowApp(any()) } doReturn true }
+    private val appsListRepo = AppsListRepository()
+
+    private lateinit var allAppsList: AllAppsList
+
+    @Before
+    fun setup() {
+        allAppsList = AllAppsList(mock<IconCache>(), appFilter) { appsListRepo }
+    }
+
+    @Test
+    fun findAppInfo_returnsAddedApp() {
+        val app = newApp(PACKAGES[0], ACTIVITIES[0], USERS[0])
+        allAppsList.add(app, null, false)
+
+        assertThat(allAppsList.findAppInfo(app.componentName, USERS[0])).isSameInstanceAs(app)
+        assertThat(allAppsList.findAppInfo(app.componentName, USERS[1])).isNull()
+        assertThat(allAppsList.getAppsForPackage(PACKAGES[0], USERS[0])).containsExactly(app)
+    }
+
+    @Test
+    fun findAppInfo_duplicateComponent_returnsFirstApp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        val installInfo = PackageInstallInfo.fromState(STATUS_INSTALLING, MISSING_PACKAGE, USERS[0])
+        val first = allAppsList.addPromiseApp(context, installInfo, false)!!
+        val second = allAppsList.addPromiseApp(context, installInfo, false)!!
+
+        assertThat(allAppsList.data).containsExactly(first, second).inOrder()
+        assertThat(allAppsList.findAppInfo(first.componentName, USERS[0])).isSameInstanceAs(first)
+        assertIndexConsistent(MISSING_PACKAGE, listOf(""))
+
+        allAppsList.removePackage(MISSING_PACKAGE, USERS[0])
+
+        assertThat(allAppsList.findAppInfo(first.componentName, USERS[0])).isNull()
+    }
+
+    @Test
+    fun removePackage_removesOnlyThatPackageAndUser() {
+        val removed = mutableListOf<AppInfo>()
+        allAppsList.trackRemoves { removed.add(it) }
+        val kept = newApp(PACKAGES[0], ACTIVITIES[0], USERS[1])
+        val otherPackage = newApp(PACKAGES[1], ACTIVITIES[0], USERS[0])
+        val app1 = newApp(PACKAGES[0], ACTIVITIES[0], USERS[0])
+        val app2 = newApp(PACKAGES[0], ACTIVITIES[1], USERS[0])
+        listOf(app1, kept, otherPackage, app2).forEach { allAppsList.add(it, null, false) }
+
+        allAppsList.removePackage(PACKAGES[0], USERS[0])
+
+        assertThat(allAppsList.data).containsExactly(kept, otherPackage).inOrder()
+        assertThat(removed).containsExactly(app1, app2)
+        assertThat(allAppsList.getAppsForPackage(PACKAGES[0], USERS[0])).isEmpty()
+        assertIndexConsistent()
+    }
+
+    @Test
+    fun randomOperations_keepIndexConsistent() {
+        val random = Random(SEED)
+        repeat(OPERATION_COUNT) {
+            val packageName = PACKAGES.random(random)
+            val user = USERS.random(random)
+            when (random.nextInt(10)) {
+                in 0..5 ->
+                    allAppsList.add(newApp(packageName, ACTIVITIES.random(random), user), null, false)
+                in 6..7 -> allAppsList.removePackage(packageName, user)
+                8 ->
+                    allAppsList.updateDisabledFlags(
+                        { it.user == user },
+                        FlagOp.NO_OP.addFlag(random.nextInt(4)),
+                    )
+                else -> if (random.nextInt(5) == 0) allAppsList.clear()
+            }
+            assertIndexConsistent()
+        }
+    }
+
+    private fun assertIndexConsistent() {
+        PACKAGES.forEach { assertIndexConsistent(it, ACTIVITIES) }
+    }
+
+    private fun assertIndexConsistent(packageName: String, activities: List<String>) {
+        for (user in USERS) {
+            assertWithMessage("apps of $packageName for $user")
+                .that(allAppsList.getAppsForPackage(packageName, user))
+                .containsExactlyElementsIn(
+                    allAppsList.data.filter {
+                        it.user == user && it.componentName.packageName == packageName
+                    }
+                )
+                .inOrder()
+
+            for (activity in activities) {
+                val component = ComponentName(packageName, activity)
+                val expected =
+                    allAppsList.data.firstOrNull {
+                        it.componentName == component && it.user == user
+                    }
+                assertWithMessage("app for $component and $user")
+                    .that(allAppsList.findAppInfo(component, user))
+                    .isSameInstanceAs(expected)
+            }
+        }
+    }
+
+    private fun newApp(packageName: String, activity: String, user: UserHandle): AppInfo {
+        val component = ComponentName(packageName, activity)
+        return AppInfo(component, activity, user, Intent().setComponent(component))
+    }
+
+    companion object {
+        private const val SEED = 37L
+        private const val OPERATION_COUNT = 500
+
+        private const val MISSING_PACKAGE = "com.test.missing"
+        private val PACKAGES = listOf("com.test.a", "com.test.b", "com.test.c", "com.test.d")
+        private val ACTIVITIES = listOf("Main", "Settings", "Share")
+        private val USERS = listOf(UserHandle.of(0), UserHandle.of(10))
+    }
+}
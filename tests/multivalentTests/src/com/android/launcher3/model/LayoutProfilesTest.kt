@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.model
+
+import android.content.ContentValues
+import android.database.SQLException
+import android.database.sqlite.SQLiteDatabase
+import android.os.Process
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.LauncherAppState
+import com.android.launcher3.LauncherSettings.Favorites
+import com.android.launcher3.util.Executors.MODEL_EXECUTOR
+import com.android.launcher3.util.LauncherLayoutBuilder
+import com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY
+import com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY2
+import com.android.launcher3.util.LauncherModelHelper.TEST_PACKAGE
+import com.android.launcher3.util.ModelTestExtensions.loadModelSync
+import com.android.launcher3.util.SandboxApplication
+import com.android.launcher3.util.TestUtil.runOnExecutorSync
+import com.android.launcher3.util.rule.LayoutProviderRule
+import com.google.common.truth.Truth.assertThat
+import java.io.File
+import org.junit.Assert.assertThrows
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Tests for the layout profiles of [ModelDbController] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class LayoutProfilesTest {
+
+    @get:Rule val context = SandboxApplication()
+    @get:Rule val layoutProvider = LayoutProviderRule(context)
+
+    private val dbController: ModelDbController
+        get() = LauncherAppState.getInstance(context).model.modelDbController
+
+    @Before
+    fun setup() {
+        layoutProvider.setupDefaultLayoutProvider(
+            LauncherLayoutBuilder()
+                .atWorkspace(0, 0, 1)
+                .putApp(TEST_PACKAGE, TEST_ACTIVITY)
+                .atWorkspace(1, 0, 1)
+                .putApp(TEST_PACKAGE, TEST_ACTIVITY2)
+        )
+        LauncherAppState.getInstance(context).model.loadModelSync()
+    }
+
+    @Test
+    fun restoreLayoutProfile_replacesItems() {
+        runOnExecutorSync(MODEL_EXECUTOR) {
+            val saved = itemIds()
+            dbController.saveLayoutProfile(PROFILE)
+            dbController.delete(null, null)
+            assertThat(itemIds()).isEmpty()
+
+            assertThat(dbController.restoreLayoutProfile(PROFILE)).isTrue()
+            assertThat(itemIds()).containsExactlyElementsIn(saved)
+        }
+    }
+
+    @Test
+    fun restoreImportedLayoutProfile_newIdsDontCollide() {
+        val userSerial = dbController.getSerialNumberForUser(Process.myUserHandle())
+        // A layout saved by an older version, with ids greater than the ones used so far
+        val legacyDb = File(context.cacheDir, "legacy_layout.db").apply { delete() }
+        SQLiteDatabase.openOrCreateDatabase(legacyDb, null).use { db ->
+            Favorites.addTableToDb(db, userSerial, false)
+            for (id in listOf(100, 101)) {
+                db.insert(
+                    Favorites.TABLE_NAME,
+                    null,
+                    ContentValues().apply {
+                        put(Favorites._ID, id)
+                        put(Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_APPLICATION)
+                        put(Favorites.CONTAINER, Favorites.CONTAINER_DESKTOP)
+                        put(Favorites.SCREEN, 0)
+                        put(Favorites.CELLX, id - 100)
+                        put(Favorites.CELLY, 2)
+                        put(Favorites.SPANX, 1)
+                        put(Favorites.SPANY, 1)
+                    },
+                )
+            }
+        }
+
+        runOnExecutorSync(MODEL_EXECUTOR) {
+            dbController.importLayoutProfile(legacyDb, PROFILE)
+            assertThat(dbController.restoreLayoutProfile(PROFILE)).isTrue()
+            val restored = itemIds()
+            assertThat(restored).containsExactly(100, 101)
+
+            val newIds = List(restored.size) { dbController.generateNewItemId() }
+            assertThat(newIds).containsNoneIn(restored)
+            // Ids only grow, so the ids generated later don't collide either
+            assertThat(newIds.min()).isGreaterThan(restored.max())
+        }
+        legacyDb.delete()
+    }
+
+    @Test
+    fun importLayoutProfile_legacyColumns_takeDefaultValues() {
+        val userSerial = dbController.getSerialNumberForUser(Process.myUserHandle())
+        // A backup made before the options and widget source columns were added
+        val legacyColumns =
+            Favorites.getColumns(userSerial).split(", ") -
+                Favorites.OPTIONS -
+                Favorites.APPWIDGET_SOURCE
+        val legacyDb = File(context.cacheDir, "legacy_columns.db").apply { delete() }
+        SQLiteDatabase.openOrCreateDatabase(legacyDb, null).use { db ->
+            db.execSQL(
+                "CREATE TABLE ${Favorites.TABLE_NAME} " +
+                    "(${legacyColumns.joinToString()}, PRIMARY KEY (${Favorites._ID}))"
+            )
+            db.insert(
+                Favorites.TABLE_NAME,
+                null,
+                ContentValues().apply {
+                    put(Favorites._ID, 100)
+                    put(Favorites.ITEM_TYPE, Favorites.ITEM_TYPE_APPLICATION)
+                    put(Favorites.CONTAINER, Favorites.CONTAINER_DESKTOP)
+                },
+            )
+        }
+
+        runOnExecutorSync(MODEL_EXECUTOR) {
+            dbController.importLayoutProfile(legacyDb, PROFILE)
+            assertThat(dbController.restoreLayoutProfile(PROFILE)).isTrue()
+            assertThat(itemIds()).containsExactly(100)
+            dbController
+                .query(arrayOf(Favorites.OPTIONS, Favorites.APPWIDGET_SOURCE), null, null, null)
+                .use { c ->
+                    assertThat(c.moveToNext()).isTrue()
+                    assertThat(c.getInt(0)).isEqualTo(0)
+                    assertThat(c.getInt(1)).isEqualTo(-1)
+                }
+        }
+        legacyDb.delete()
+    }
+
+    @Test
+    fun importLayoutProfile_noLayout_throwsAndKeepsProfiles() {
+        val emptyDb = File(context.cacheDir, "empty_layout.db").apply { delete() }
+        SQLiteDatabase.openOrCreateDatabase(emptyDb, null).close()
+
+        runOnExecutorSync(MODEL_EXECUTOR) {
+            dbController.saveLayoutProfile(PROFILE)
+
+            assertThrows(SQLException::class.java) {
+                dbController.importLayoutProfile(emptyDb, PROFILE)
+            }
+            assertThat(dbController.hasLayoutProfile(PROFILE)).isTrue()
+        }
+        emptyDb.delete()
+    }
+
+    @Test
+    fun createEmptyDB_dropsLayoutProfiles() {
+        runOnExecutorSync(MODEL_EXECUTOR) {
+            dbController.saveLayoutProfile(PROFILE)
+
+            dbController.createEmptyDB()
+
+            assertThat(dbController.hasLayoutProfile(PROFILE)).isFalse()
+            assertThat(dbController.restoreLayoutProfile(PROFILE)).isFalse()
+        }
+    }
+
+    @Test
+    fun migrateLayoutProfiles_keepsLayoutsSavedWithFewerColumns() {
+        runOnExecutorSync(MODEL_EXECUTOR) {
+            val saved = itemIds()
+            val db = dbController.db
+            val userSerial = dbController.getSerialNumberForUser(Process.myUserHandle())
+            // The profiles as saved before the options column was added to the favorites
+            val oldColumns = Favorites.getColumns(userSerial).split(", ") - Favorites.OPTIONS
+            db.execSQL("UPDATE ${Favorites.TABLE_NAME} SET ${Favorites.OPTIONS} = 1")
+            db.execSQL("DROP TABLE IF EXISTS ${Favorites.LAYOUT_PROFILES_TABLE}")
+            db.execSQL(
+                "CREATE TABLE ${Favorites.LAYOUT_PROFILES_TABLE} AS SELECT '$PROFILE' AS " +
+                    "${Favorites.LAYOUT_PROFILE}, ${oldColumns.joinToString()} " +
+                    "FROM ${Favorites.TABLE_NAME}"
+            )
+
+            DatabaseHelper.migrateLayoutProfiles(db, userSerial)
+            dbController.delete(null, null)
+
+            assertThat(dbController.restoreLayoutProfile(PROFILE)).isTrue()
+            assertThat(itemIds()).containsExactlyElementsIn(saved)
+            dbController.query(arrayOf(Favorites.OPTIONS), null, null, null).use { c ->
+                while (c.moveToNext()) assertThat(c.getInt(0)).isEqualTo(0)
+            }
+        }
+    }
+
+    @Test
+    fun saveLayoutProfile_replacesPreviousProfile() {
+        runOnExecutorSync(MODEL_EXECUTOR) {
+            dbController.saveLayoutProfile(PROFILE)
+            dbController.delete("${Favorites.CELLX} = 1", null)
+            val remaining = itemIds()
+            dbController.saveLayoutProfile(PROFILE)
+            dbController.delete(null, null)
+
+            dbController.restoreLayoutProfile(PROFILE)
+            assertThat(itemIds()).containsExactlyElementsIn(remaining)
+        }
+    }
+
+    @Test
+    fun restoreMissingLayoutProfile_keepsItems() {
+        runOnExecutorSync(MODEL_EXECUTOR) {
+            val items = itemIds()
+            dbController.saveLayoutProfile(PROFILE)
+
+            assertThat(dbController.hasLayoutProfile(OTHER_PROFILE)).isFalse()
+            assertThat(dbController.restoreLayoutProfile(OTHER_PROFILE)).isFalse()
+            assertThat(itemIds()).containsExactlyElementsIn(items)
+        }
+    }
+
+    private fun itemIds(): List<Int> =
+        dbController.query(arrayOf(Favorites._ID), null, null, null).use { c ->
+            buildList { while (c.moveToNext()) add(c.getInt(0)) }
+        }
+
+    companion object {
+        private const val PROFILE = "deck"
+        private const val OTHER_PROFILE = "classic"
+    }
+}
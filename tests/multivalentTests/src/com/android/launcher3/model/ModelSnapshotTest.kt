@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.model
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.LauncherAppState
+import com.android.launcher3.LauncherModel
+import com.android.launcher3.model.data.AppInfo
+import com.android.launcher3.model.data.AppsListData.Companion.FLAG_QUIET_MODE_ENABLED
+import com.android.launcher3.util.Executors.MODEL_EXECUTOR
+import com.android.launcher3.util.LauncherLayoutBuilder
+import com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY
+import com.android.launcher3.util.LauncherModelHelper.TEST_ACTIVITY2
+import com.android.launcher3.util.LauncherModelHelper.TEST_PACKAGE
+import com.android.launcher3.util.ModelTestExtensions.bgDataModel
+import com.android.launcher3.util.ModelTestExtensions.loadModelSync
+import com.android.launcher3.util.SandboxApplication
+import com.android.launcher3.util.TestUtil.runOnExecutorSync
+import com.android.launcher3.util.rule.LayoutProviderRule
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.TimeUnit
+import org.junit.Assert.assertThrows
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Tests for [ModelSnapshot] and [LauncherModel.enqueueModelReadTask] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class ModelSnapshotTest {
+
+    @get:Rule val context = SandboxApplication()
+    @get:Rule val layoutProvider = LayoutProviderRule(context)
+
+    private val model: LauncherModel
+        get() = LauncherAppState.getInstance(context).model
+
+    @Before
+    fun setup() {
+        layoutProvider.setupDefaultLayoutProvider(
+            LauncherLayoutBuilder()
+                .atWorkspace(0, 0, 1)
+                .putApp(TEST_PACKAGE, TEST_ACTIVITY)
+                .atWorkspace(1, 0, 1)
+                .putApp(TEST_PACKAGE, TEST_ACTIVITY2)
+        )
+        model.loadModelSync()
+    }
+
+    @Test
+    fun snapshot_matchesModel() {
+        val snapshot = readSnapshot()
+        val dataModel = model.bgDataModel
+
+        assertThat(snapshot.workspace.map { it.id })
+            .containsExactlyElementsIn(dataModel.itemsIdMap.map { it.id })
+        assertThat(snapshot.apps.map { it.componentKey })
+            .containsExactlyElementsIn(modelApps().map { it.componentKey })
+            .inOrder()
+    }
+
+    @Test
+    fun snapshot_doesNotShareApps() {
+        val snapshot = readSnapshot()
+        val apps = modelApps()
+
+        snapshot.apps.forEach { app -> assertThat(apps.none { it === app }).isTrue() }
+        assertThrows(UnsupportedOperationException::class.java) {
+            (snapshot.apps as MutableList<AppInfo>).clear()
+        }
+    }
+
+    @Test
+    fun snapshot_doesNotShareWorkspaceItems() {
+        val snapshot = readSnapshot()
+        val items = model.bgDataModel.itemsIdMap.toList()
+
+        snapshot.workspace.forEach { copy -> assertThat(items.none { it === copy }).isTrue() }
+        assertThat(snapshot.workspace.map { it.javaClass })
+            .containsExactlyElementsIn(items.map { it.javaClass })
+    }
+
+    @Test
+    fun snapshot_notAffectedByItemsModifiedInPlace() {
+        val first = readSnapshot()
+        val item = model.bgDataModel.itemsIdMap.first()
+        val cellX = item.cellX
+
+        item.cellX = cellX + 1
+        model.bgDataModel.onItemsModifiedInPlace()
+        val updated = readSnapshot()
+
+        assertThat(first.workspace[item.id]!!.cellX).isEqualTo(cellX)
+        assertThat(updated).isNotSameInstanceAs(first)
+        assertThat(updated.workspace[item.id]!!.cellX).isEqualTo(cellX + 1)
+    }
+
+    @Test
+    fun snapshot_reusedUntilModelChanges() {
+        val first = readSnapshot()
+        assertThat(readSnapshot()).isSameInstanceAs(first)
+
+        model.enqueueModelUpdateTask { _, _, apps -> apps.setFlags(FLAG_QUIET_MODE_ENABLED, true) }
+        val updated = readSnapshot()
+
+        assertThat(updated).isNotSameInstanceAs(first)
+        assertThat(updated.appsFlags and FLAG_QUIET_MODE_ENABLED).isNotEqualTo(0)
+        assertThat(first.appsFlags and FLAG_QUIET_MODE_ENABLED).isEqualTo(0)
+        // Only the apps changed, the workspace copy is kept
+        assertThat(updated.workspace).isSameInstanceAs(first.workspace)
+    }
+
+    private fun readSnapshot(): ModelSnapshot {
+        val result = ArrayBlockingQueue<ModelSnapshot>(1)
+        // Let any pending update publish its snapshot first
+        runOnExecutorSync(MODEL_EXECUTOR) {}
+        model.enqueueModelReadTask { result.put(it) }
+        return result.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS)!!
+    }
+
+    private fun modelApps(): List<AppInfo> {
+        var apps: List<AppInfo> = emptyList()
+        model.enqueueModelUpdateTask { _, _, allApps -> apps = ArrayList(allApps.data) }
+        runOnExecutorSync(MODEL_EXECUTOR) {}
+        return apps
+    }
+
+    companion object {
+        private const val TIMEOUT_MS = 5000L
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.LauncherSettings.Favorites
+import com.android.launcher3.model.PendingItemUpdates.WRITE_POSITION
+import com.android.launcher3.model.PendingItemUpdates.WRITE_SPAN
+import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.util.SandboxApplication
+import com.google.common.truth.Truth.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [PendingItemUpdates] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class PendingItemUpdatesTest {
+
+    @get:Rule val context = SandboxApplication()
+
+    @Test
+    fun updatesOfSameItemAreCoalesced() {
+        val item = ItemInfo().apply { id = 1 }
+        val other = ItemInfo().apply { id = 2 }
+        val updates = PendingItemUpdates()
+
+        updates.add(item, WRITE_POSITION, null)
+        updates.add(other, WRITE_POSITION, null)
+        updates.add(item, WRITE_POSITION, null)
+
+        assertThat(updates.size()).isEqualTo(2)
+    }
+
+    @Test
+    fun coalescedUpdatesMergeColumnsAndUseLatestValues() {
+        val item = ItemInfo().apply { id = 1 }
+        val updates = PendingItemUpdates()
+
+        updates.add(item, WRITE_POSITION or WRITE_SPAN, null)
+        item.cellX = 3
+        item.spanX = 2
+        updates.add(item, WRITE_POSITION, null)
+
+        val values = updates.getEntriesForTest().single().getValues(context)
+        assertThat(values.getAsInteger(Favorites.CELLX)).isEqualTo(3)
+        assertThat(values.getAsInteger(Favorites.SPANX)).isEqualTo(2)
+    }
+
+    @Test
+    fun positionUpdateDoesNotWriteSpan() {
+        val updates = PendingItemUpdates()
+        updates.add(ItemInfo().apply { id = 1 }, WRITE_POSITION, null)
+
+        val values = updates.getEntriesForTest().single().getValues(context)
+        assertThat(values.containsKey(Favorites.CELLX)).isTrue()
+        assertThat(values.containsKey(Favorites.SPANX)).isFalse()
+    }
+}
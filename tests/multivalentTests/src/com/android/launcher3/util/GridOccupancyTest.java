@@ -55,13 +55,47 @@ public class GridOccupancyTest {
         assertFalse(grid.isRegionVacant(0, 0, 2, 1));
     }
 
+    @Test
+    public void testIsRegionVacantWithMask() {
+        GridOccupancy grid = initGrid(2,
+                1, 0, 0,
+                0, 0, 1
+        );
+        GridOccupancy mask = initGrid(2,
+                0, 1,
+                1, 1
+        );
+
+        assertTrue(grid.isRegionVacant(0, 0, 2, 2, mask));
+        assertFalse(grid.isRegionVacant(1, 0, 2, 2, mask));
+        assertFalse(grid.isRegionVacant(0, 0, 2, 2, null));
+    }
+
+    @Test
+    public void testMarkCellsAndCopyTo() {
+        GridOccupancy grid = new GridOccupancy(GridOccupancy.MAX_COUNT_X, 3);
+        grid.markCells(60, 1, 10, 5, true);
+        assertTrue(grid.isOccupied(63, 2));
+        assertFalse(grid.isOccupied(59, 2));
+        assertFalse(grid.isOccupied(60, 0));
+
+        GridOccupancy copy = new GridOccupancy(GridOccupancy.MAX_COUNT_X, 3);
+        copy.markCells(0, 0, 1, 1, true);
+        grid.copyTo(copy);
+        assertEquals(grid.toString(), copy.toString());
+
+        grid.clear();
+        assertTrue(grid.isRegionVacant(0, 0, GridOccupancy.MAX_COUNT_X, 3));
+        assertFalse(copy.isRegionVacant(0, 0, GridOccupancy.MAX_COUNT_X, 3));
+    }
+
     private GridOccupancy initGrid(int rows, int... cells) {
         int cols = cells.length / rows;
         int i = 0;
         GridOccupancy grid = new GridOccupancy(cols, rows);
         for (int y = 0; y < rows; y++) {
             for (int x = 0; x < cols; x++) {
-                grid.cells[x][y] = cells[i] != 0;
+                grid.markCells(x, y, 1, 1, cells[i] != 0);
                 i++;
             }
         }
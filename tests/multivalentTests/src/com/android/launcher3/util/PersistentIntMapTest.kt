@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util
+
+import android.util.SparseArray
+import androidx.core.util.valueIterator
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.google.common.truth.Truth.assertThat
+import kotlin.random.Random
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [PersistentIntMap] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class PersistentIntMapTest {
+
+    @Test
+    fun empty_map_has_no_entries() {
+        val map = PersistentIntMap.empty<String>()
+        assertThat(map.size).isEqualTo(0)
+        assertThat(map[0]).isNull()
+        assertThat(map.iterator().hasNext()).isFalse()
+    }
+
+    @Test
+    fun put_does_not_modify_previous_version() {
+        val first = PersistentIntMap.empty<String>().put(1, "a")
+        val second = first.put(1, "b").put(2, "c")
+
+        assertThat(first[1]).isEqualTo("a")
+        assertThat(first[2]).isNull()
+        assertThat(first.size).isEqualTo(1)
+        assertThat(second[1]).isEqualTo("b")
+        assertThat(second.size).isEqualTo(2)
+    }
+
+    @Test
+    fun remove_does_not_modify_previous_version() {
+        val first = PersistentIntMap.empty<String>().put(1, "a").put(2, "b")
+        val second = first.remove(1)
+
+        assertThat(first.toList()).containsExactly("a", "b").inOrder()
+        assertThat(second.toList()).containsExactly("b")
+        assertThat(second.remove(5)).isSameInstanceAs(second)
+    }
+
+    @Test
+    fun iterates_in_signed_key_order() {
+        val map =
+            PersistentIntMap.empty<Int>()
+                .put(5, 5)
+                .put(-103, -103)
+                .put(Int.MAX_VALUE, Int.MAX_VALUE)
+                .put(0, 0)
+                .put(Int.MIN_VALUE, Int.MIN_VALUE)
+                .put(-1, -1)
+
+        assertThat(map.toList())
+            .containsExactly(Int.MIN_VALUE, -103, -1, 0, 5, Int.MAX_VALUE)
+            .inOrder()
+    }
+
+    @Test
+    fun random_operations_match_sparse_array() {
+        val random = Random(42)
+        val expected = SparseArray<Int>()
+        var map = PersistentIntMap.empty<Int>()
+        repeat(5000) {
+            val key = random.nextInt(-50, 500)
+            if (random.nextInt(3) == 0) {
+                expected.remove(key)
+                map = map.remove(key)
+            } else {
+                val value = random.nextInt()
+                expected.put(key, value)
+                map = map.put(key, value)
+            }
+            assertThat(map.size).isEqualTo(expected.size())
+            assertThat(map[key]).isEqualTo(expected.get(key))
+        }
+        assertThat(map.toList())
+            .containsExactlyElementsIn(expected.valueIterator().asSequence().toList())
+            .inOrder()
+        assertThat(PersistentIntMap.of(expected).toList()).isEqualTo(map.toList())
+    }
+}
@@ -31,6 +31,7 @@ import androidx.test.filters.SmallTest
 import androidx.test.platform.app.InstrumentationRegistry
 import com.android.launcher3.BubbleTextView
 import com.android.launcher3.Flags
+import com.android.launcher3.R
 import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APP_PAIR
 import com.android.launcher3.apppairs.AppPairIcon
 import com.android.launcher3.folder.FolderIcon
@@ -164,6 +165,39 @@ class ItemInflaterTest {
         assertEquals(itemInfo, view!!.tag)
     }
 
+    @Test
+    fun test_preinflated_views_used_on_bind() {
+        val itemInfo = workspaceItemInfo()
+        val folderInfo = FolderInfo()
+        folderInfo.add(workspaceItemInfo())
+
+        underTest.preInflate(listOf(itemInfo, folderInfo))
+        // Wait for the pre-inflation to complete
+        VIEW_PREINFLATION_EXECUTOR.submit {}.get()
+        assertEquals(1, underTest.viewPool.getPooledViewCount(R.layout.app_icon))
+        assertEquals(1, underTest.viewPool.getPooledViewCount(R.layout.folder_icon))
+
+        val icon = MAIN_EXECUTOR.submit(Callable { underTest.inflateItem(itemInfo) }).get()
+        val folder = MAIN_EXECUTOR.submit(Callable { underTest.inflateItem(folderInfo) }).get()
+
+        assertTrue(icon is BubbleTextView)
+        assertEquals(itemInfo, icon!!.tag)
+        assertTrue(folder is FolderIcon)
+        assertEquals(folderInfo, folder!!.tag)
+        assertEquals(0, underTest.viewPool.getPooledViewCount(R.layout.app_icon))
+        assertEquals(0, underTest.viewPool.getPooledViewCount(R.layout.folder_icon))
+    }
+
+    @Test
+    fun test_preinflated_views_dropped_on_clear() {
+        underTest.preInflate(listOf(workspaceItemInfo()))
+        VIEW_PREINFLATION_EXECUTOR.submit {}.get()
+
+        underTest.viewPool.clear()
+
+        assertNull(underTest.viewPool.take(R.layout.app_icon))
+    }
+
     @Test
     fun test_app_pair_inflated_on_UI() {
         val itemInfo = AppPairInfo()
@@ -39,6 +39,7 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.yield
 
@@ -160,7 +161,8 @@ class BubbleDataRepository(
 
     /**
      * Persists the bubbles to disk. When being called multiple times, it waits for first ongoing
-     * write operation to finish then run another write operation exactly once.
+     * write operation to finish then run another write operation exactly once. Writes are also
+     * debounced by [PERSIST_DEBOUNCE_MS] so that bursts of changes result in a single write.
      *
      * e.g.
      * Job A started -> blocking I/O
@@ -180,6 +182,8 @@ class BubbleDataRepository(
         job = coroutineScope.launch {
             // if there was an ongoing disk I/O operation, they can be cancelled
             prev?.cancelAndJoin()
+            // coalesce bursts of changes, a newer job cancels this one while waiting
+            delay(PERSIST_DEBOUNCE_MS)
             // check for cancellation before disk I/O
             yield()
             // save to disk
@@ -275,5 +279,6 @@ data class ShortcutKey(val userId: Int, val pkg: String)
 
 private const val TAG = "BubbleDataRepository"
 private const val DEBUG = false
+private const val PERSIST_DEBOUNCE_MS = 100L
 private const val SHORTCUT_QUERY_FLAG =
         FLAG_MATCH_DYNAMIC or FLAG_MATCH_PINNED_BY_ANY_LAUNCHER or FLAG_MATCH_CACHED
\ No newline at end of file
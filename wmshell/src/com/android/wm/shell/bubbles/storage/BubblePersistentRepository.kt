@@ -19,45 +19,176 @@ import android.content.Context
 import android.util.AtomicFile
 import android.util.Log
 import android.util.SparseArray
+import com.android.internal.annotations.VisibleForTesting
 import java.io.File
 import java.io.FileOutputStream
 import java.io.IOException
+import java.io.RandomAccessFile
 
+/**
+ * Persists overflow bubbles into an append-only record log.
+ *
+ * Only users whose bubbles changed since the last write are appended, so a change for one user
+ * does not rewrite the bubbles of every other user. The log is periodically compacted into a
+ * single snapshot through [AtomicFile]. Torn appends are detected through per-record checksums
+ * and truncated on the next read.
+ */
 class BubblePersistentRepository(context: Context) {
 
     private val bubbleFile: AtomicFile = AtomicFile(File(context.filesDir,
+            "overflow_bubbles.bin"), "overflow-bubbles")
+
+    // Files written by previous versions, migrated into the record log on first read.
+    private val legacyBubbleFile: AtomicFile = AtomicFile(File(context.filesDir,
             "overflow_bubbles.xml"), "overflow-bubbles")
 
+    // Last state known to be on disk, null until the log has been read once.
+    private var persisted: SparseArray<List<BubbleEntity>>? = null
+    private var recordCount = 0
+    private var liveUserCount = 0
+
+    /** Total number of bytes written to disk, used to track write amplification. */
+    @VisibleForTesting
+    var bytesWritten = 0L
+        private set
+
     fun persistsToDisk(bubbles: SparseArray<List<BubbleEntity>>): Boolean {
         if (DEBUG) Log.d(TAG, "persisting ${bubbles.size()} bubbles")
         synchronized(bubbleFile) {
-            val stream: FileOutputStream = try { bubbleFile.startWrite() } catch (e: IOException) {
-                Log.e(TAG, "Failed to save bubble file", e)
-                return false
+            val current = persisted ?: readFromDiskLocked()
+            val dirty = diff(current, bubbles)
+            if (dirty.size() == 0 && bubbleFile.baseFile.exists()) return true
+            val success = if (recordCount + dirty.size() > compactionThreshold()) {
+                compactLocked(bubbles)
+            } else {
+                appendLocked(dirty)
             }
-            try {
-                writeXml(stream, bubbles)
-                bubbleFile.finishWrite(stream)
-                if (DEBUG) Log.d(TAG, "persisted ${bubbles.size()} bubbles")
-                return true
-            } catch (e: Exception) {
-                Log.e(TAG, "Failed to save bubble file, restoring backup", e)
-                bubbleFile.failWrite(stream)
+            if (success) {
+                persisted = bubbles.clone()
+                liveUserCount = bubbles.size()
+                if (DEBUG) Log.d(TAG, "persisted ${dirty.size()} changed users")
+            } else {
+                // Force a full compaction on the next write.
+                persisted = null
             }
+            return success
         }
-        return false
     }
 
     fun readFromDisk(): SparseArray<List<BubbleEntity>> {
         synchronized(bubbleFile) {
-            if (!bubbleFile.exists()) return SparseArray()
-            try { return bubbleFile.openRead().use(::readXml) } catch (e: Throwable) {
-                Log.e(TAG, "Failed to open bubble file", e)
+            return readFromDiskLocked().clone()
+        }
+    }
+
+    private fun readFromDiskLocked(): SparseArray<List<BubbleEntity>> {
+        persisted?.let { return it }
+        if (!bubbleFile.exists() && legacyBubbleFile.exists()) {
+            val legacy = try { legacyBubbleFile.openRead().use(::readXml) } catch (e: Throwable) {
+                Log.e(TAG, "Failed to open legacy bubble file", e)
+                SparseArray()
+            }
+            if (compactLocked(legacy)) legacyBubbleFile.delete()
+            persisted = legacy
+            liveUserCount = legacy.size()
+            return legacy
+        }
+        val bubbles = try {
+            if (!bubbleFile.exists()) {
+                SparseArray()
+            } else {
+                val log = bubbleFile.openRead().use(::readRecords)
+                recordCount = log.recordCount
+                if (log.validLength < bubbleFile.baseFile.length()) {
+                    Log.w(TAG, "Discarding torn tail of bubble file at ${log.validLength}")
+                    if (log.validLength == 0L) {
+                        bubbleFile.delete()
+                    } else {
+                        RandomAccessFile(bubbleFile.baseFile, "rw").use {
+                            it.setLength(log.validLength)
+                        }
+                    }
+                }
+                log.bubbles
+            }
+        } catch (e: Throwable) {
+            Log.e(TAG, "Failed to open bubble file", e)
+            SparseArray()
+        }
+        persisted = bubbles
+        liveUserCount = bubbles.size()
+        return bubbles
+    }
+
+    private fun compactionThreshold() = COMPACTION_FACTOR * maxOf(liveUserCount, 1)
+
+    /**
+     * Rewrites the whole log as a single snapshot with one record per user.
+     */
+    private fun compactLocked(bubbles: SparseArray<List<BubbleEntity>>): Boolean {
+        val stream: FileOutputStream = try { bubbleFile.startWrite() } catch (e: IOException) {
+            Log.e(TAG, "Failed to save bubble file", e)
+            return false
+        }
+        try {
+            writeRecordHeader(stream)
+            bytesWritten += HEADER_SIZE + writeRecords(stream, bubbles)
+            bubbleFile.finishWrite(stream)
+            recordCount = bubbles.size()
+            return true
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to save bubble file, restoring backup", e)
+            bubbleFile.failWrite(stream)
+        }
+        return false
+    }
+
+    /**
+     * Appends a record for each changed user and syncs the file once.
+     */
+    private fun appendLocked(dirty: SparseArray<List<BubbleEntity>>): Boolean {
+        if (!bubbleFile.baseFile.exists()) return compactLocked(dirty)
+        try {
+            FileOutputStream(bubbleFile.baseFile, true).use { stream ->
+                bytesWritten += writeRecords(stream, dirty)
+                stream.fd.sync()
             }
-            return SparseArray()
+            recordCount += dirty.size()
+            return true
+        } catch (e: IOException) {
+            Log.e(TAG, "Failed to append to bubble file", e)
+        }
+        return false
+    }
+
+    companion object {
+        /**
+         * Returns the users whose bubbles differ between [old] and [new]. Users that were removed
+         * map to an empty list.
+         */
+        @VisibleForTesting
+        fun diff(
+            old: SparseArray<List<BubbleEntity>>,
+            new: SparseArray<List<BubbleEntity>>
+        ): SparseArray<List<BubbleEntity>> {
+            val dirty = SparseArray<List<BubbleEntity>>()
+            for (i in 0 until new.size()) {
+                val userId = new.keyAt(i)
+                val entities = new.valueAt(i)
+                if (old.get(userId, emptyList()) != entities) dirty.put(userId, entities)
+            }
+            for (i in 0 until old.size()) {
+                val userId = old.keyAt(i)
+                if (new.indexOfKey(userId) < 0) dirty.put(userId, emptyList())
+            }
+            return dirty
         }
     }
 }
 
 private const val TAG = "BubblePersistentRepository"
 private const val DEBUG = false
+
+// Compact once the log holds this many records per live user.
+private const val COMPACTION_FACTOR = 8
+private const val HEADER_SIZE = 2 * Int.SIZE_BYTES
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.wm.shell.bubbles.storage
+
+import android.util.SparseArray
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.zip.CRC32
+
+// If this number increases, records written by older versions are discarded on read.
+private const val CURRENT_VERSION = 1
+
+private const val MAGIC = 0x4f424c47 // "OBLG"
+
+private const val FLAG_HAS_TITLE = 1
+private const val FLAG_HAS_LOCUS = 1 shl 1
+private const val FLAG_DISMISSABLE = 1 shl 2
+
+/**
+ * Upper bound for a single record payload, anything larger is treated as corruption.
+ */
+private const val MAX_RECORD_SIZE = 1 shl 20
+
+/**
+ * Writes the header of a bubble record log into given output stream.
+ */
+@Throws(IOException::class)
+fun writeRecordHeader(stream: OutputStream) {
+    val out = DataOutputStream(stream)
+    out.writeInt(MAGIC)
+    out.writeInt(CURRENT_VERSION)
+    out.flush()
+}
+
+/**
+ * Writes one record per user in the given map, replacing whatever was stored for that user.
+ *
+ * Each record is framed as `[length][crc32][payload]` so that a torn append can be detected and
+ * dropped on read. An empty list is written for users that no longer have any bubbles.
+ *
+ * @return the number of bytes written.
+ */
+@Throws(IOException::class)
+fun writeRecords(stream: OutputStream, bubbles: SparseArray<List<BubbleEntity>>): Int {
+    val out = DataOutputStream(stream)
+    val payload = ByteArrayOutputStream()
+    val crc = CRC32()
+    var written = 0
+    for (i in 0 until bubbles.size()) {
+        payload.reset()
+        writeRecordPayload(DataOutputStream(payload), bubbles.keyAt(i), bubbles.valueAt(i))
+        val bytes = payload.toByteArray()
+        crc.reset()
+        crc.update(bytes)
+        out.writeInt(bytes.size)
+        out.writeInt(crc.value.toInt())
+        out.write(bytes)
+        written += bytes.size + 2 * Int.SIZE_BYTES
+    }
+    out.flush()
+    return written
+}
+
+private fun writeRecordPayload(out: DataOutputStream, userId: Int, entities: List<BubbleEntity>) {
+    out.writeInt(userId)
+    out.writeInt(entities.size)
+    entities.forEach { b ->
+        var flags = 0
+        if (b.title != null) flags = flags or FLAG_HAS_TITLE
+        if (b.locus != null) flags = flags or FLAG_HAS_LOCUS
+        if (b.isDismissable) flags = flags or FLAG_DISMISSABLE
+        out.writeByte(flags)
+        out.writeInt(b.userId)
+        out.writeUTF(b.packageName)
+        out.writeUTF(b.shortcutId)
+        out.writeUTF(b.key)
+        out.writeInt(b.desiredHeight)
+        out.writeInt(b.desiredHeightResId)
+        b.title?.let(out::writeUTF)
+        out.writeInt(b.taskId)
+        b.locus?.let(out::writeUTF)
+    }
+}
+
+/**
+ * Result of replaying a record log.
+ *
+ * @param bubbles the bubbles per user after all valid records were applied.
+ * @param recordCount the number of valid records read.
+ * @param validLength the byte offset right after the last valid record. Anything past this offset
+ *                    is a torn or corrupted tail and should be truncated before appending again.
+ */
+class RecordLog(
+    val bubbles: SparseArray<List<BubbleEntity>>,
+    val recordCount: Int,
+    val validLength: Long
+)
+
+/**
+ * Reads the record log from given input stream, applying records in order. Reading stops at the
+ * first truncated or corrupted record, everything before it is kept.
+ */
+@Throws(IOException::class)
+fun readRecords(stream: InputStream): RecordLog {
+    val bubbles = SparseArray<List<BubbleEntity>>()
+    val input = DataInputStream(stream)
+    val headerSize = 2L * Int.SIZE_BYTES
+    try {
+        if (input.readInt() != MAGIC || input.readInt() != CURRENT_VERSION) {
+            return RecordLog(bubbles, 0, 0)
+        }
+    } catch (e: EOFException) {
+        return RecordLog(bubbles, 0, 0)
+    }
+    var count = 0
+    var offset = headerSize
+    val crc = CRC32()
+    while (true) {
+        val payload = try {
+            val length = input.readInt()
+            val checksum = input.readInt()
+            if (length < 0 || length > MAX_RECORD_SIZE) break
+            val bytes = ByteArray(length)
+            input.readFully(bytes)
+            crc.reset()
+            crc.update(bytes)
+            if (crc.value.toInt() != checksum) break
+            bytes
+        } catch (e: EOFException) {
+            break
+        }
+        val record = DataInputStream(payload.inputStream())
+        val userId = record.readInt()
+        val entities = List(record.readInt()) { readRecordEntry(record) }
+        if (entities.isEmpty()) bubbles.remove(userId) else bubbles.put(userId, entities)
+        count++
+        offset += payload.size + 2 * Int.SIZE_BYTES
+    }
+    return RecordLog(bubbles, count, offset)
+}
+
+private fun readRecordEntry(input: DataInputStream): BubbleEntity {
+    val flags = input.readByte().toInt()
+    return BubbleEntity(
+            userId = input.readInt(),
+            packageName = input.readUTF(),
+            shortcutId = input.readUTF(),
+            key = input.readUTF(),
+            desiredHeight = input.readInt(),
+            desiredHeightResId = input.readInt(),
+            title = if (flags and FLAG_HAS_TITLE != 0) input.readUTF() else null,
+            taskId = input.readInt(),
+            locus = if (flags and FLAG_HAS_LOCUS != 0) input.readUTF() else null,
+            isDismissable = flags and FLAG_DISMISSABLE != 0
+    )
+}
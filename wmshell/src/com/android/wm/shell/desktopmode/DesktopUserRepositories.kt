@@ -131,6 +131,8 @@ class DesktopUserRepositories(
     override fun onUserChanged(newUserId: Int, userContext: Context) {
         logD("onUserChanged previousUserId=%d, newUserId=%d", userId, newUserId)
         userId = newUserId
+        // Write out batched desk updates of the previous user before switching.
+        mainCoroutineScope.launch { persistentRepository.flush() }
         if (ENABLE_DESKTOP_WINDOWING_HSUM.isTrue()) {
             sanitizeUsers()
         }
@@ -27,21 +27,30 @@ import androidx.datastore.core.Serializer
 import androidx.datastore.core.handlers.ReplaceFileCorruptionHandler
 import androidx.datastore.dataStoreFile
 import com.android.framework.protobuf.InvalidProtocolBufferException
+import com.android.internal.annotations.VisibleForTesting
 import com.android.wm.shell.shared.annotations.ShellBackgroundThread
 import java.io.IOException
 import java.io.InputStream
 import java.io.OutputStream
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.catch
 import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 
 /**
  * Persistent repository for storing desktop mode related data.
  *
  * The main constructor is public only for testing purposes.
  */
-class DesktopPersistentRepository(private val dataStore: DataStore<DesktopPersistentRepositories>) {
+class DesktopPersistentRepository(
+    private val dataStore: DataStore<DesktopPersistentRepositories>,
+    @ShellBackgroundThread private val bgCoroutineScope: CoroutineScope,
+) {
     constructor(
         context: Context,
         @ShellBackgroundThread bgCoroutineScope: CoroutineScope,
@@ -54,7 +63,8 @@ class DesktopPersistentRepository(private val dataStore: DataStore<DesktopPersis
                 ReplaceFileCorruptionHandler(
                     produceNewData = { DesktopPersistentRepositories.getDefaultInstance() }
                 ),
-        )
+        ),
+        bgCoroutineScope,
     )
 
     /** Provides `dataStore.data` flow and handles exceptions thrown during collection */
@@ -73,13 +83,34 @@ class DesktopPersistentRepository(private val dataStore: DataStore<DesktopPersis
             }
         }
 
+    /** Guards [pendingMutations] and [flushJob]. */
+    private val pendingLock = Any()
+
+    /** Serializes writes to the [dataStore] so that flushes are applied in order. */
+    private val writeLock = Mutex()
+
+    /**
+     * Per-desk mutations that have not been written yet, guarded by [pendingLock]. Every mutation
+     * fully replaces the state of its desk, so only the latest one per desk is kept.
+     */
+    private val pendingMutations = LinkedHashMap<DeskKey, PendingMutation>()
+
+    /** Flush started by the first mutation of the current window, guarded by [pendingLock]. */
+    private var flushJob: Job? = null
+
+    /** Number of writes issued to the [dataStore]. */
+    @VisibleForTesting
+    var writeCount = 0
+        private set
+
     /**
      * Reads and returns the [DesktopRepositoryState] proto object from the DataStore for a user. If
      * the DataStore is empty or there's an error reading, it returns the default value of Proto.
+     * Mutations that have not been flushed yet are reflected in the returned state.
      */
     suspend fun getDesktopRepositoryState(userId: Int): DesktopRepositoryState? =
         try {
-            dataStoreFlow.first().desktopRepoByUserMap[userId]
+            readWithPendingMutations().desktopRepoByUserMap[userId]
         } catch (e: Exception) {
             Log.e(TAG, "Unable to read from datastore", e)
             null
@@ -87,7 +118,7 @@ class DesktopPersistentRepository(private val dataStore: DataStore<DesktopPersis
 
     suspend fun getUserDesktopRepositoryMap(): Map<Int, DesktopRepositoryState>? =
         try {
-            dataStoreFlow.first().desktopRepoByUserMap
+            readWithPendingMutations().desktopRepoByUserMap
         } catch (e: Exception) {
             Log.e(TAG, "Unable to read from datastore", e)
             null
@@ -106,8 +137,11 @@ class DesktopPersistentRepository(private val dataStore: DataStore<DesktopPersis
             null
         }
 
-    /** Adds or updates a desktop stored in the datastore */
-    suspend fun addOrUpdateDesktop(
+    /**
+     * Adds or updates a desktop stored in the datastore. The update is merged with other updates
+     * issued within [WRITE_BATCH_WINDOW_MS] and written with them in a single datastore update.
+     */
+    fun addOrUpdateDesktop(
         userId: Int,
         desktopId: Int = 0,
         visibleTasks: ArraySet<Int> = ArraySet(),
@@ -117,84 +151,142 @@ class DesktopPersistentRepository(private val dataStore: DataStore<DesktopPersis
         rightTiledTask: Int? = null,
     ) {
         // TODO: b/367609270 - Improve the API to support multi-user
+        enqueueMutation(
+            DeskKey(userId, desktopId),
+            PendingMutation.Update(
+                ArraySet(visibleTasks),
+                ArraySet(minimizedTasks),
+                ArrayList(freeformTasksInZOrder),
+                leftTiledTask,
+                rightTiledTask,
+            ),
+        )
+    }
+
+    /** Removes the desktop from the persistent repository. */
+    fun removeDesktop(userId: Int, desktopId: Int) {
+        enqueueMutation(DeskKey(userId, desktopId), PendingMutation.Remove)
+    }
+
+    suspend fun removeUsers(uids: List<Int>) {
+        synchronized(pendingLock) { pendingMutations.keys.removeAll { it.userId in uids } }
         try {
-            dataStore.updateData { persistentRepositories: DesktopPersistentRepositories ->
-                val currentRepository =
-                    persistentRepositories.getDesktopRepoByUserOrDefault(
-                        userId,
-                        DesktopRepositoryState.getDefaultInstance(),
-                    )
-                val desktop =
-                    getDesktop(currentRepository, desktopId)
-                        .toBuilder()
-                        .updateTaskStates(
-                            visibleTasks,
-                            minimizedTasks,
-                            freeformTasksInZOrder,
-                            leftTiledTask,
-                            rightTiledTask,
-                        )
-                        .updateZOrder(freeformTasksInZOrder)
-
-                persistentRepositories
-                    .toBuilder()
-                    .putDesktopRepoByUser(
-                        userId,
-                        currentRepository.toBuilder().putDesktop(desktopId, desktop.build()).build(),
-                    )
-                    .build()
+            writeLock.withLock {
+                writeCount++
+                dataStore.updateData { persistentRepositories: DesktopPersistentRepositories ->
+                    val persistentRepositoriesBuilder = persistentRepositories.toBuilder()
+                    uids.forEach { uid ->
+                        persistentRepositoriesBuilder.removeDesktopRepoByUser(uid)
+                    }
+                    persistentRepositoriesBuilder.build()
+                }
             }
         } catch (exception: Exception) {
             Log.e(
                 TAG,
-                "Error in updating desktop mode related data, data is " +
-                    "stored in a file named $DESKTOP_REPOSITORIES_DATASTORE_FILE",
+                "Error in removing user related data, data is stored in a file named $DESKTOP_REPOSITORIES_DATASTORE_FILE",
                 exception,
             )
         }
     }
 
-    /** Removes the desktop from the persistent repository. */
-    suspend fun removeDesktop(userId: Int, desktopId: Int) {
-        try {
-            dataStore.updateData { persistentRepositories: DesktopPersistentRepositories ->
-                val currentRepository =
-                    persistentRepositories.getDesktopRepoByUserOrDefault(
-                        userId,
-                        DesktopRepositoryState.getDefaultInstance(),
-                    )
-                persistentRepositories
-                    .toBuilder()
-                    .putDesktopRepoByUser(
-                        userId,
-                        currentRepository.toBuilder().removeDesktop(desktopId).build(),
-                    )
-                    .build()
+    /**
+     * Writes all pending mutations in a single datastore update. Mutations are flushed on their
+     * own after [WRITE_BATCH_WINDOW_MS]; this can be called at lifecycle checkpoints to write them
+     * right away.
+     */
+    suspend fun flush() {
+        writeLock.withLock {
+            val mutations = pendingMutationsSnapshot()
+            if (mutations.isEmpty()) return
+            try {
+                writeCount++
+                dataStore.updateData { persistentRepositories ->
+                    persistentRepositories.withMutations(mutations)
+                }
+            } catch (exception: Exception) {
+                Log.e(
+                    TAG,
+                    "Error in updating desktop mode related data, data is " +
+                        "stored in a file named $DESKTOP_REPOSITORIES_DATASTORE_FILE",
+                    exception,
+                )
+            }
+            // Keep mutations that were replaced while writing, they still need to be flushed.
+            synchronized(pendingLock) {
+                mutations.forEach { (key, mutation) -> pendingMutations.remove(key, mutation) }
             }
-        } catch (throwable: Throwable) {
-            Log.e(
-                TAG,
-                "Error in removing desktop related data, data is " +
-                    "stored in a file named $DESKTOP_REPOSITORIES_DATASTORE_FILE",
-                throwable,
-            )
         }
     }
 
-    suspend fun removeUsers(uids: List<Int>) {
-        try {
-            dataStore.updateData { persistentRepositories: DesktopPersistentRepositories ->
-                val persistentRepositoriesBuilder = persistentRepositories.toBuilder()
-                uids.forEach { uid -> persistentRepositoriesBuilder.removeDesktopRepoByUser(uid) }
-                persistentRepositoriesBuilder.build()
+    /**
+     * Records [mutation], and starts a flush after [WRITE_BATCH_WINDOW_MS] unless one is already
+     * pending, so that all mutations of the window are written together.
+     */
+    private fun enqueueMutation(key: DeskKey, mutation: PendingMutation) {
+        synchronized(pendingLock) {
+            // Re-insert so that the mutation is applied after the ones enqueued before it.
+            pendingMutations.remove(key)
+            pendingMutations[key] = mutation
+            if (flushJob?.isActive == true) return
+            flushJob =
+                bgCoroutineScope.launch {
+                    delay(WRITE_BATCH_WINDOW_MS)
+                    // Mutations enqueued from now on start the next window.
+                    synchronized(pendingLock) { flushJob = null }
+                    flush()
+                }
+        }
+    }
+
+    private suspend fun readWithPendingMutations(): DesktopPersistentRepositories {
+        val stored = dataStoreFlow.first()
+        val mutations = pendingMutationsSnapshot()
+        return if (mutations.isEmpty()) stored else stored.withMutations(mutations)
+    }
+
+    private fun pendingMutationsSnapshot(): List<Pair<DeskKey, PendingMutation>> =
+        synchronized(pendingLock) { pendingMutations.entries.map { it.toPair() } }
+
+    private fun DesktopPersistentRepositories.withMutations(
+        mutations: List<Pair<DeskKey, PendingMutation>>
+    ): DesktopPersistentRepositories {
+        val builder = toBuilder()
+        mutations.forEach { (key, mutation) ->
+            // Removing a desk of a user without stored desks leaves nothing to update.
+            if (
+                mutation is PendingMutation.Remove &&
+                    !builder.containsDesktopRepoByUser(key.userId)
+            ) {
+                return@forEach
             }
-        } catch (exception: Exception) {
-            Log.e(
-                TAG,
-                "Error in removing user related data, data is stored in a file named $DESKTOP_REPOSITORIES_DATASTORE_FILE",
-                exception,
-            )
+            val currentRepository =
+                builder.getDesktopRepoByUserOrDefault(
+                    key.userId,
+                    DesktopRepositoryState.getDefaultInstance(),
+                )
+            val repositoryBuilder = currentRepository.toBuilder()
+            when (mutation) {
+                is PendingMutation.Update ->
+                    repositoryBuilder.putDesktop(
+                        key.desktopId,
+                        getDesktop(currentRepository, key.desktopId)
+                            .toBuilder()
+                            .updateTaskStates(
+                                ArraySet(mutation.visibleTasks),
+                                mutation.minimizedTasks,
+                                mutation.freeformTasksInZOrder,
+                                mutation.leftTiledTask,
+                                mutation.rightTiledTask,
+                            )
+                            .updateZOrder(mutation.freeformTasksInZOrder)
+                            .build(),
+                    )
+                PendingMutation.Remove -> repositoryBuilder.removeDesktop(key.desktopId)
+            }
+            builder.putDesktopRepoByUser(key.userId, repositoryBuilder.build())
         }
+        return builder.build()
     }
 
     private fun getDesktop(currentRepository: DesktopRepositoryState, desktopId: Int): Desktop =
@@ -204,12 +296,30 @@ class DesktopPersistentRepository(private val dataStore: DataStore<DesktopPersis
             Desktop.newBuilder().setDesktopId(desktopId).setDisplayId(DEFAULT_DISPLAY).build(),
         )
 
+    private data class DeskKey(val userId: Int, val desktopId: Int)
+
+    /** A desk mutation waiting to be written to the [dataStore]. */
+    private sealed interface PendingMutation {
+        class Update(
+            val visibleTasks: ArraySet<Int>,
+            val minimizedTasks: ArraySet<Int>,
+            val freeformTasksInZOrder: ArrayList<Int>,
+            val leftTiledTask: Int?,
+            val rightTiledTask: Int?,
+        ) : PendingMutation
+
+        object Remove : PendingMutation
+    }
+
     companion object {
         private const val TAG = "DesktopPersistenceRepo"
         private const val DESKTOP_REPOSITORIES_DATASTORE_FILE = "desktop_persistent_repositories.pb"
 
         private const val DEFAULT_DESKTOP_ID = 0
 
+        /** Time window during which desk mutations are merged into a single write. */
+        @VisibleForTesting const val WRITE_BATCH_WINDOW_MS = 200L
+
         object DesktopPersistentRepositoriesSerializer : Serializer<DesktopPersistentRepositories> {
 
             override val defaultValue: DesktopPersistentRepositories =
@@ -28,6 +28,7 @@ import org.junit.After
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
+import java.io.ByteArrayOutputStream
 
 @SmallTest
 @RunWith(AndroidTestingRunner::class)
@@ -79,4 +80,42 @@ class BubblePersistentRepositoryTest : ShellTestCase() {
         repository.persistsToDisk(bubbles)
         assertTrue(bubbles.contentEquals(repository.readFromDisk()))
     }
+
+    @Test
+    fun testReadAfterAppendsFromNewInstance() {
+        repository.persistsToDisk(bubbles)
+        val update = bubbles.clone()
+        update.put(0, user0Bubbles.take(1))
+        repository.persistsToDisk(update)
+        update.remove(1)
+        repository.persistsToDisk(update)
+
+        val actual = BubblePersistentRepository(mContext).readFromDisk()
+        assertTrue(update.contentEquals(actual))
+    }
+
+    @Test
+    fun testSingleUserChangeWritesLessThanXml() {
+        repository.persistsToDisk(bubbles)
+        val before = repository.bytesWritten
+        val update = bubbles.clone()
+        update.put(0, user0Bubbles.take(2))
+        repository.persistsToDisk(update)
+        val appended = repository.bytesWritten - before
+
+        // The previous implementation rewrote the whole xml file for every change.
+        val xmlSize = ByteArrayOutputStream().use {
+            writeXml(it, update)
+            it.size()
+        }
+        assertTrue("appended $appended bytes, xml is $xmlSize bytes", appended < xmlSize)
+    }
+
+    @Test
+    fun testUnchangedBubblesAreNotWritten() {
+        repository.persistsToDisk(bubbles)
+        val before = repository.bytesWritten
+        repository.persistsToDisk(bubbles.clone())
+        assertEquals(before, repository.bytesWritten)
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.wm.shell.bubbles.storage
+
+import android.app.ActivityTaskManager.INVALID_TASK_ID
+import android.testing.AndroidTestingRunner
+import android.util.SparseArray
+import androidx.test.filters.SmallTest
+import com.android.wm.shell.ShellTestCase
+import junit.framework.Assert.assertEquals
+import junit.framework.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+
+@SmallTest
+@RunWith(AndroidTestingRunner::class)
+class BubbleRecordHelperTest : ShellTestCase() {
+
+    private val user0Bubbles = listOf(
+            BubbleEntity(0, "com.example.messenger", "shortcut-1", "0k1", 120, 0, null, 1,
+                    isDismissable = true),
+            BubbleEntity(10, "com.example.chat", "alice and bob", "0k2", 0, 16537428, "title", 2,
+                    null),
+            BubbleEntity(0, "com.example.messenger", "shortcut-2", "0k3", 120, 0, null,
+                    INVALID_TASK_ID, "l3")
+    )
+
+    private val user1Bubbles = listOf(
+            BubbleEntity(1, "com.example.messenger", "shortcut-1", "1k1", 120, 0, null, 3,
+                    isDismissable = true),
+            BubbleEntity(12, "com.example.chat", "alice and bob", "1k2", 0, 16537428, "title", 4,
+                    null)
+    )
+
+    private val bubbles = SparseArray<List<BubbleEntity>>()
+
+    @Before
+    fun setup() {
+        bubbles.put(0, user0Bubbles)
+        bubbles.put(1, user1Bubbles)
+    }
+
+    @Test
+    fun testReadWriteRecords() {
+        val bytes = ByteArrayOutputStream().use {
+            writeRecordHeader(it)
+            writeRecords(it, bubbles)
+            it.toByteArray()
+        }
+        val log = readRecords(ByteArrayInputStream(bytes))
+        assertTrue(bubbles.contentEquals(log.bubbles))
+        assertEquals(2, log.recordCount)
+        assertEquals(bytes.size.toLong(), log.validLength)
+    }
+
+    @Test
+    fun testLaterRecordsReplaceEarlierOnes() {
+        val update = SparseArray<List<BubbleEntity>>()
+        update.put(0, user0Bubbles.take(1))
+        update.put(1, emptyList())
+        val bytes = ByteArrayOutputStream().use {
+            writeRecordHeader(it)
+            writeRecords(it, bubbles)
+            writeRecords(it, update)
+            it.toByteArray()
+        }
+        val log = readRecords(ByteArrayInputStream(bytes))
+        assertEquals(1, log.bubbles.size())
+        assertEquals(user0Bubbles.take(1), log.bubbles.get(0))
+        assertEquals(4, log.recordCount)
+    }
+
+    @Test
+    fun testTornTailIsDropped() {
+        val complete = ByteArrayOutputStream().use {
+            writeRecordHeader(it)
+            writeRecords(it, bubbles)
+            it.toByteArray()
+        }
+        val update = SparseArray<List<BubbleEntity>>()
+        update.put(0, user0Bubbles.take(1))
+        val appended = ByteArrayOutputStream().use {
+            it.write(complete)
+            writeRecords(it, update)
+            it.toByteArray()
+        }
+        // Simulate a crash in the middle of the append.
+        val torn = appended.copyOf(appended.size - 3)
+        val log = readRecords(ByteArrayInputStream(torn))
+        assertTrue(bubbles.contentEquals(log.bubbles))
+        assertEquals(complete.size.toLong(), log.validLength)
+    }
+
+    @Test
+    fun testCorruptedRecordIsDropped() {
+        val bytes = ByteArrayOutputStream().use {
+            writeRecordHeader(it)
+            writeRecords(it, bubbles)
+            it.toByteArray()
+        }
+        // Flip a byte in the payload of the last record.
+        bytes[bytes.size - 2] = (bytes[bytes.size - 2].toInt() xor 0xff).toByte()
+        val log = readRecords(ByteArrayInputStream(bytes))
+        assertEquals(1, log.recordCount)
+        assertEquals(user0Bubbles, log.bubbles.get(0))
+    }
+}
@@ -37,7 +37,14 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.cancel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.advanceUntilIdle
 import kotlinx.coroutines.test.runTest
 import kotlinx.coroutines.test.setMain
 import org.junit.After
@@ -54,6 +61,7 @@ class DesktopPersistentRepositoryTest : ShellTestCase() {
     private lateinit var testDatastore: DataStore<DesktopPersistentRepositories>
     private lateinit var datastoreRepository: DesktopPersistentRepository
     private lateinit var datastoreScope: CoroutineScope
+    private lateinit var testScope: TestScope
 
     @Before
     fun setUp() {
@@ -67,7 +75,8 @@ class DesktopPersistentRepositoryTest : ShellTestCase() {
             ) {
                 testContext.dataStoreFile(DESKTOP_REPOSITORY_STATES_DATASTORE_TEST_FILE)
             }
-        datastoreRepository = DesktopPersistentRepository(testDatastore)
+        testScope = TestScope(StandardTestDispatcher())
+        datastoreRepository = DesktopPersistentRepository(testDatastore, testScope)
     }
 
     @After
@@ -80,7 +89,7 @@ class DesktopPersistentRepositoryTest : ShellTestCase() {
 
     @Test
     fun readRepository_returnsCorrectDesktop() {
-        runTest(StandardTestDispatcher()) {
+        testScope.runTest {
             val task = createDesktopTask(1)
             val desk = createDesktop(task)
             val repositoryState =
@@ -99,7 +108,7 @@ class DesktopPersistentRepositoryTest : ShellTestCase() {
 
     @Test
     fun addOrUpdateTask_addNewTaskToDesktop() {
-        runTest(StandardTestDispatcher()) {
+        testScope.runTest {
             // Create a basic repository state
             val task = createDesktopTask(1)
             val desktopPersistentRepositories = createRepositoryWithOneDesk(task)
@@ -127,7 +136,7 @@ class DesktopPersistentRepositoryTest : ShellTestCase() {
 
     @Test
     fun addTiledTasks_addsTiledTasksToDesktop() {
-        runTest(StandardTestDispatcher()) {
+        testScope.runTest {
             // Create a basic repository state
             val task = createDesktopTask(1)
             val desktopPersistentRepositories = createRepositoryWithOneDesk(task)
@@ -171,7 +180,7 @@ class DesktopPersistentRepositoryTest : ShellTestCase() {
 
     @Test
     fun removeUsers_removesUsersData() {
-        runTest(StandardTestDispatcher()) {
+        testScope.runTest {
             val task = createDesktopTask(1)
             val desktopPersistentRepositories = createRepositoryWithOneDesk(task)
             testDatastore.updateData { desktopPersistentRepositories }
@@ -210,7 +219,7 @@ class DesktopPersistentRepositoryTest : ShellTestCase() {
 
     @Test
     fun addOrUpdateTask_changeTaskStateToMinimize_taskStateIsMinimized() {
-        runTest(StandardTestDispatcher()) {
+        testScope.runTest {
             val task = createDesktopTask(1)
             val desktopPersistentRepositories = createRepositoryWithOneDesk(task)
             testDatastore.updateData { desktopPersistentRepositories }
@@ -237,7 +246,7 @@ class DesktopPersistentRepositoryTest : ShellTestCase() {
 
     @Test
     fun removeTask_previouslyAddedTaskIsRemoved() {
-        runTest(StandardTestDispatcher()) {
+        testScope.runTest {
             val task = createDesktopTask(1)
             val desktopPersistentRepositories = createRepositoryWithOneDesk(task)
             testDatastore.updateData { desktopPersistentRepositories }
@@ -262,6 +271,122 @@ class DesktopPersistentRepositoryTest : ShellTestCase() {
         }
     }
 
+    @Test
+    fun addOrUpdateDesktop_burstOfUpdates_writesOnce() {
+        testScope.runTest {
+            val desktopPersistentRepositories = createRepositoryWithOneDesk(createDesktopTask(1))
+            testDatastore.updateData { desktopPersistentRepositories }
+
+            // Simulate a window drag, which updates the z-order on every frame.
+            coroutineScope {
+                for (i in 1..30) {
+                    launch {
+                        datastoreRepository.addOrUpdateDesktop(
+                            visibleTasks = ArraySet(listOf(1, 2)),
+                            freeformTasksInZOrder = ArrayList(listOf(i % 2 + 1, 2 - i % 2)),
+                            userId = DEFAULT_USER_ID,
+                        )
+                    }
+                }
+            }
+
+            advanceUntilIdle()
+
+            assertThat(datastoreRepository.writeCount).isEqualTo(1)
+            val actualDesktop = testDatastore.data.first().desktopRepoByUserMap[DEFAULT_USER_ID]
+                ?.getDesktopOrThrow(DEFAULT_DESKTOP_ID)
+            assertThat(actualDesktop?.zOrderedTasksList).containsExactly(1, 2).inOrder()
+        }
+    }
+
+    @Test
+    fun addOrUpdateDesktop_beforeFlush_readsPendingUpdate() {
+        testScope.runTest {
+            val desktopPersistentRepositories = createRepositoryWithOneDesk(createDesktopTask(1))
+            testDatastore.updateData { desktopPersistentRepositories }
+
+            datastoreRepository.addOrUpdateDesktop(
+                visibleTasks = ArraySet(listOf(1, 2)),
+                freeformTasksInZOrder = ArrayList(listOf(2, 1)),
+                userId = DEFAULT_USER_ID,
+            )
+            advanceTimeBy(DesktopPersistentRepository.WRITE_BATCH_WINDOW_MS / 2)
+
+            assertThat(datastoreRepository.writeCount).isEqualTo(0)
+            val actualDesktop = datastoreRepository.readDesktop(DEFAULT_USER_ID, DEFAULT_DESKTOP_ID)
+            assertThat(actualDesktop?.tasksByTaskIdMap).hasSize(2)
+            assertThat(actualDesktop?.getZOrderedTasks(0)).isEqualTo(2)
+            advanceUntilIdle()
+            assertThat(datastoreRepository.writeCount).isEqualTo(1)
+        }
+    }
+
+    @Test
+    fun removeDesktop_afterPendingUpdate_desktopIsRemoved() {
+        testScope.runTest {
+            val desktopPersistentRepositories = createRepositoryWithOneDesk(createDesktopTask(1))
+            testDatastore.updateData { desktopPersistentRepositories }
+
+            datastoreRepository.addOrUpdateDesktop(
+                visibleTasks = ArraySet(listOf(1, 2)),
+                userId = DEFAULT_USER_ID,
+            )
+            datastoreRepository.removeDesktop(DEFAULT_USER_ID, DEFAULT_DESKTOP_ID)
+            advanceUntilIdle()
+
+            assertThat(datastoreRepository.writeCount).isEqualTo(1)
+            assertThat(datastoreRepository.readDesktop(DEFAULT_USER_ID, DEFAULT_DESKTOP_ID))
+                .isNull()
+        }
+    }
+
+    @Test
+    fun addOrUpdateDesktop_desksUpdatedOneAfterAnother_writesOncePerWindow() {
+        testScope.runTest {
+            val desktopPersistentRepositories = createRepositoryWithOneDesk(createDesktopTask(1))
+            testDatastore.updateData { desktopPersistentRepositories }
+
+            // Same as DesktopRepository updating every desk of a display in a single coroutine.
+            for (deskId in 0 until 5) {
+                datastoreRepository.addOrUpdateDesktop(
+                    visibleTasks = ArraySet(listOf(deskId + 1)),
+                    userId = DEFAULT_USER_ID,
+                    desktopId = deskId,
+                )
+                delay(DesktopPersistentRepository.WRITE_BATCH_WINDOW_MS / 10)
+            }
+            advanceUntilIdle()
+
+            assertThat(datastoreRepository.writeCount).isEqualTo(1)
+            val desktops = testDatastore.data.first().desktopRepoByUserMap[DEFAULT_USER_ID]
+            assertThat(desktops?.desktopMap?.keys).containsExactly(0, 1, 2, 3, 4)
+
+            // An update after the window was written starts a new window.
+            datastoreRepository.addOrUpdateDesktop(
+                visibleTasks = ArraySet(listOf(1)),
+                userId = DEFAULT_USER_ID,
+            )
+            advanceUntilIdle()
+            assertThat(datastoreRepository.writeCount).isEqualTo(2)
+        }
+    }
+
+    @Test
+    fun removeDesktop_userWithoutDesktops_noUserEntryCreated() {
+        testScope.runTest {
+            val desktopPersistentRepositories = createRepositoryWithOneDesk(createDesktopTask(1))
+            testDatastore.updateData { desktopPersistentRepositories }
+
+            datastoreRepository.removeDesktop(USER_ID_2, DEFAULT_DESKTOP_ID)
+
+            assertThat(datastoreRepository.getUserDesktopRepositoryMap()?.keys)
+                .containsExactly(DEFAULT_USER_ID)
+            advanceUntilIdle()
+            assertThat(testDatastore.data.first().desktopRepoByUserMap.keys)
+                .containsExactly(DEFAULT_USER_ID)
+        }
+    }
+
     private companion object {
         const val DESKTOP_REPOSITORY_STATES_DATASTORE_TEST_FILE = "desktop_repo_test.pb"
         const val DEFAULT_USER_ID = 1000